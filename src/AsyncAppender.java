@@ -0,0 +1,232 @@
+import java.io.PrintStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Appender asynchrone utilisé par {@link Log}.
+ *
+ * <p>Les threads qui journalisent déposent un {@link Event} dans un tampon circulaire borné
+ * sans verrou (réservation d'une case par {@code compareAndSet}) et repartent immédiatement.
+ * Un thread démon unique formate les événements et les écrit par lots sur le flux de sortie.
+ * Lorsque le tampon est plein, les nouveaux événements sont abandonnés et comptés plutôt que
+ * de bloquer le chemin des trames.</p>
+ *
+ * <p>Le thread d'écriture attend sans délai lorsque le tampon est vide : le producteur qui dépose
+ * le premier événement d'un tampon vide le réveille.</p>
+ */
+public class AsyncAppender {
+    /**
+     * Capacité par défaut du tampon circulaire (puissance de 2).
+     */
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    /**
+     * Durée d'attente de {@link #flush()} entre deux vérifications, en nanosecondes.
+     */
+    private static final long FLUSH_PARK_NANOS = 1_000_000L;
+
+    /**
+     * Événement de journalisation capturé par le thread appelant et formaté par le thread d'écriture.
+     */
+    static class Event {
+        final long timestamp;
+        final Log.Level level;
+        final String logger;
+        final String thread;
+        final String pattern;
+        final Object arg1;
+        final Object arg2;
+
+        /**
+         * Crée un événement.
+         *
+         * @param timestamp L'heure de l'événement en millisecondes.
+         * @param level     Le niveau du message.
+         * @param logger    Le nom du journal.
+         * @param thread    Le nom du thread appelant.
+         * @param pattern   Le motif du message.
+         * @param arg1      Le premier argument, ou {@code null}.
+         * @param arg2      Le deuxième argument, ou {@code null}.
+         */
+        Event(long timestamp, Log.Level level, String logger, String thread,
+              String pattern, Object arg1, Object arg2) {
+            this.timestamp = timestamp;
+            this.level = level;
+            this.logger = logger;
+            this.thread = thread;
+            this.pattern = pattern;
+            this.arg1 = arg1;
+            this.arg2 = arg2;
+        }
+    }
+
+    /**
+     * Tampon circulaire des événements en attente.
+     */
+    private final AtomicReferenceArray<Event> ring;
+
+    /**
+     * Masque d'indice ({@code capacité - 1}).
+     */
+    private final int mask;
+
+    /**
+     * Prochaine case à réserver par un producteur.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Prochaine case à lire par le thread d'écriture. Seul ce thread la modifie.
+     */
+    private volatile long head;
+
+    /**
+     * Nombre d'événements écrits sur le flux de sortie, et pas seulement formatés. Seul le thread
+     * d'écriture le modifie.
+     */
+    private volatile long written;
+
+    /**
+     * Nombre d'événements abandonnés parce que le tampon était plein.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Flux de sortie.
+     */
+    private final PrintStream out;
+
+    /**
+     * Thread d'écriture.
+     */
+    private final Thread writer;
+
+    /**
+     * Format de l'heure, utilisé uniquement par le thread d'écriture.
+     */
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.SSS");
+
+    /**
+     * Crée un appender et démarre son thread d'écriture.
+     *
+     * @param out      Le flux de sortie.
+     * @param capacity La capacité du tampon, arrondie à la puissance de 2 supérieure.
+     */
+    public AsyncAppender(PrintStream out, int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.out = out;
+        this.writer = new Thread(this::drainLoop, "log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "log-flush"));
+    }
+
+    /**
+     * Dépose un événement dans le tampon sans bloquer.
+     *
+     * @param event L'événement à écrire.
+     * @return {@code true} si l'événement a été accepté, {@code false} s'il a été abandonné.
+     */
+    public boolean append(Event event) {
+        long slot;
+        do {
+            slot = tail.get();
+            if (slot - head >= ring.length()) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } while (!tail.compareAndSet(slot, slot + 1));
+        ring.set((int) (slot & mask), event);
+        if (slot == head) {
+            LockSupport.unpark(writer); // Tampon vide jusqu'ici : le thread d'écriture attend peut-être
+        }
+        return true;
+    }
+
+    /**
+     * Attend que tous les événements déposés avant l'appel aient été écrits sur le flux de sortie.
+     */
+    public void flush() {
+        long target = tail.get();
+        while (written < target && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(FLUSH_PARK_NANOS);
+        }
+        out.flush();
+    }
+
+    /**
+     * Obtient le nombre d'événements abandonnés.
+     *
+     * @return Le nombre d'événements perdus faute de place.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Boucle du thread d'écriture : formate les événements disponibles par lots et les écrit.
+     */
+    private void drainLoop() {
+        StringBuilder batch = new StringBuilder(4096);
+        long reportedDrops = 0;
+        while (true) {
+            long current = head;
+            int index = (int) (current & mask);
+            Event event = ring.get(index);
+            if (event == null) {
+                // Tampon vide (ou case réservée pas encore remplie) : écrire le lot en cours
+                if (batch.length() > 0) {
+                    out.print(batch);
+                    out.flush();
+                    batch.setLength(0);
+                }
+                written = current;
+                long drops = dropped.get();
+                if (drops != reportedDrops) {
+                    out.println("[log] " + (drops - reportedDrops) + " message(s) dropped");
+                    reportedDrops = drops;
+                }
+                LockSupport.park(this);
+                continue;
+            }
+            ring.set(index, null);
+            format(event, batch);
+            head = current + 1;
+            if (batch.length() >= 8192) {
+                out.print(batch);
+                batch.setLength(0);
+                written = current + 1;
+            }
+        }
+    }
+
+    /**
+     * Formate un événement : heure, niveau, thread, journal et message avec les arguments substitués.
+     *
+     * @param event  L'événement.
+     * @param target Le tampon de sortie.
+     */
+    private void format(Event event, StringBuilder target) {
+        target.append(timeFormat.format(new Date(event.timestamp)))
+                .append(' ').append(event.level)
+                .append(" [").append(event.thread).append("] ")
+                .append(event.logger).append(" - ");
+        String pattern = event.pattern;
+        int argIndex = 0;
+        int start = 0;
+        int mark;
+        while ((mark = pattern.indexOf("{}", start)) >= 0 && argIndex < 2) {
+            target.append(pattern, start, mark);
+            target.append(argIndex == 0 ? event.arg1 : event.arg2);
+            argIndex++;
+            start = mark + 2;
+        }
+        target.append(pattern, start, pattern.length()).append(System.lineSeparator());
+    }
+}
@@ -0,0 +1,341 @@
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.ObjectName;
+
+/**
+ * Pool de tampons par classes de taille, pour les copies de données de courte durée du chemin
+ * des trames (file du puits, trames conservées pour le rejet sélectif et la FEC...).
+ *
+ * <p>Les tailles sont arrondies à la puissance de deux supérieure, de {@link #MIN_SIZE} à
+ * {@link #MAX_SIZE} ; au-delà, les tampons sont alloués et abandonnés au ramasse-miettes. Chaque
+ * thread garde un petit cache par classe ({@link #THREAD_CACHE_SIZE} tampons), consulté sans
+ * synchronisation ; le surplus et les manques passent par une liste partagée par classe, bornée à
+ * {@link #SHARED_LIMIT} tampons. Un tampon acquis par un thread peut être rendu par un autre :
+ * celui du puits rend les tampons remplis par le thread de réception.</p>
+ *
+ * <p>Les tampons sont sur le tas par défaut, ou directs (hors du tas) pour un pool créé avec
+ * {@code direct = true} ; <code>-Dgbn.pool=direct</code> rend direct le pool partagé. Le pool
+ * partagé publie ses statistiques via JMX ({@link BufferPoolMBean}).</p>
+ *
+ * <p>Avec la détection de fuites (activée d'office lorsque le journal est au niveau DEBUG), chaque
+ * tampon en circulation est associé à la pile d'appels de son acquisition : {@link #reportLeaks()}
+ * signale ceux qui n'ont pas été rendus, et rendre deux fois le même tampon lève une exception.</p>
+ */
+public class BufferPool implements BufferPoolMBean {
+    /**
+     * Journal de la classe.
+     */
+    private static final Log LOG = Log.getLog(BufferPool.class);
+
+    /**
+     * Taille de la plus petite classe, en octets.
+     */
+    public static final int MIN_SIZE = 64;
+
+    /**
+     * Taille de la plus grande classe, en octets ; les tampons plus grands ne sont pas conservés.
+     */
+    public static final int MAX_SIZE = 64 * 1024;
+
+    /**
+     * Nombre maximal de tampons par classe dans le cache d'un thread.
+     */
+    public static final int THREAD_CACHE_SIZE = 16;
+
+    /**
+     * Nombre maximal de tampons par classe dans les listes partagées.
+     */
+    public static final int SHARED_LIMIT = 256;
+
+    /**
+     * Nombre de classes de taille, de {@link #MIN_SIZE} à {@link #MAX_SIZE}.
+     */
+    private static final int CLASSES = Integer.numberOfTrailingZeros(MAX_SIZE / MIN_SIZE) + 1;
+
+    /**
+     * Pool partagé par les classes du protocole.
+     */
+    private static final BufferPool SHARED = createShared();
+
+    /**
+     * Indique si les tampons sont directs.
+     */
+    private final boolean direct;
+
+    /**
+     * Tampons libres partagés, par classe.
+     */
+    private final List<ConcurrentLinkedQueue<ByteBuffer>> shared = new ArrayList<>(CLASSES);
+
+    /**
+     * Nombre de tampons de chaque liste partagée, pour la borner sans parcourir la liste.
+     */
+    private final AtomicIntegerArray sharedCounts = new AtomicIntegerArray(CLASSES);
+
+    /**
+     * Cache de chaque thread, par classe.
+     */
+    private final ThreadLocal<ArrayDeque<ByteBuffer>[]> local = ThreadLocal.withInitial(BufferPool::newCache);
+
+    /**
+     * Tampons en circulation et pile d'appels de leur acquisition, ou {@code null} sans détection de fuites.
+     */
+    private volatile Map<ByteBuffer, Throwable> tracked;
+
+    /**
+     * Nombre de tampons fournis.
+     */
+    private final LongAdder acquired = new LongAdder();
+
+    /**
+     * Nombre de tampons rendus.
+     */
+    private final LongAdder released = new LongAdder();
+
+    /**
+     * Nombre de tampons alloués.
+     */
+    private final LongAdder allocated = new LongAdder();
+
+    /**
+     * Nombre de tampons fournis par le cache d'un thread.
+     */
+    private final LongAdder threadCacheHits = new LongAdder();
+
+    /**
+     * Nombre de tampons fournis par les listes partagées.
+     */
+    private final LongAdder sharedHits = new LongAdder();
+
+    /**
+     * Crée un pool.
+     *
+     * @param direct {@code true} pour des tampons directs, {@code false} pour des tampons sur le tas.
+     */
+    public BufferPool(boolean direct) {
+        this.direct = direct;
+        for (int i = 0; i < CLASSES; i++) {
+            shared.add(new ConcurrentLinkedQueue<>());
+        }
+        setLeakDetection(LOG.isDebugEnabled());
+    }
+
+    /**
+     * Obtient le pool partagé.
+     *
+     * @return Le pool partagé, direct si {@code gbn.pool=direct}.
+     */
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * Crée le pool partagé et le publie via JMX.
+     *
+     * @return Le pool partagé.
+     */
+    private static BufferPool createShared() {
+        BufferPool pool = new BufferPool("direct".equalsIgnoreCase(System.getProperty("gbn.pool")));
+        try {
+            ObjectName name = new ObjectName(ProtocolMetrics.DOMAIN + ":type=BufferPool");
+            ManagementFactory.getPlatformMBeanServer().registerMBean(pool, name);
+        } catch (Exception e) {
+            LOG.warn("Unable to register buffer pool MBean: {}", e.getMessage());
+        }
+        return pool;
+    }
+
+    /**
+     * Crée le cache vide d'un thread.
+     *
+     * @return Une file par classe.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ArrayDeque<ByteBuffer>[] newCache() {
+        ArrayDeque<ByteBuffer>[] cache = new ArrayDeque[CLASSES];
+        for (int i = 0; i < CLASSES; i++) {
+            cache[i] = new ArrayDeque<>(THREAD_CACHE_SIZE);
+        }
+        return cache;
+    }
+
+    /**
+     * Obtient la classe d'une taille.
+     *
+     * @param size La taille demandée, en octets.
+     * @return L'indice de la classe, ou -1 si la taille dépasse {@link #MAX_SIZE}.
+     */
+    private static int classOf(int size) {
+        if (size > MAX_SIZE) {
+            return -1;
+        }
+        if (size <= MIN_SIZE) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - Integer.numberOfTrailingZeros(MIN_SIZE);
+    }
+
+    /**
+     * Active ou désactive la détection de fuites. Les tampons acquis avant l'activation ne sont pas suivis.
+     *
+     * @param enabled {@code true} pour suivre les tampons en circulation.
+     */
+    public void setLeakDetection(boolean enabled) {
+        tracked = enabled ? Collections.synchronizedMap(new IdentityHashMap<>()) : null;
+    }
+
+    /**
+     * Fournit un tampon d'au moins la taille demandée, vidé, dont la limite est la taille demandée.
+     * Son contenu est indéterminé.
+     *
+     * @param size La taille utile, en octets.
+     * @return Le tampon, à rendre par {@link #release(ByteBuffer)}.
+     * @throws IllegalArgumentException Si la taille est négative.
+     */
+    public ByteBuffer acquire(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Taille de tampon invalide : " + size);
+        }
+        acquired.increment();
+        int sizeClass = classOf(size);
+        ByteBuffer buffer = null;
+        if (sizeClass >= 0) {
+            buffer = local.get()[sizeClass].pollLast();
+            if (buffer != null) {
+                threadCacheHits.increment();
+            } else if ((buffer = shared.get(sizeClass).poll()) != null) {
+                sharedCounts.decrementAndGet(sizeClass);
+                sharedHits.increment();
+            }
+        }
+        if (buffer == null) {
+            allocated.increment();
+            int capacity = sizeClass >= 0 ? MIN_SIZE << sizeClass : size;
+            buffer = direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        }
+        buffer.clear().limit(size);
+        Map<ByteBuffer, Throwable> leaks = tracked;
+        if (leaks != null) {
+            leaks.put(buffer, new Throwable("Tampon de " + size + " octets acquis ici"));
+        }
+        return buffer;
+    }
+
+    /**
+     * Rend un tampon au pool. Le tampon ne doit plus être utilisé, ni par l'appelant ni par une vue
+     * créée à partir de lui.
+     *
+     * @param buffer Le tampon fourni par {@link #acquire(int)}.
+     * @throws IllegalStateException Si la détection de fuites est active et que le tampon n'est pas en circulation.
+     */
+    public void release(ByteBuffer buffer) {
+        Map<ByteBuffer, Throwable> leaks = tracked;
+        if (leaks != null && leaks.remove(buffer) == null) {
+            throw new IllegalStateException("Tampon rendu deux fois ou étranger au pool");
+        }
+        released.increment();
+        int capacity = buffer.capacity();
+        if (buffer.isDirect() != direct || capacity < MIN_SIZE || capacity > MAX_SIZE
+                || Integer.bitCount(capacity) != 1) {
+            return; // Tampon hors classe : laissé au ramasse-miettes
+        }
+        int sizeClass = classOf(capacity);
+        ArrayDeque<ByteBuffer> cache = local.get()[sizeClass];
+        if (cache.size() < THREAD_CACHE_SIZE) {
+            cache.addLast(buffer);
+        } else if (sharedCounts.incrementAndGet(sizeClass) <= SHARED_LIMIT) {
+            shared.get(sizeClass).add(buffer);
+        } else {
+            sharedCounts.decrementAndGet(sizeClass);
+        }
+    }
+
+    /**
+     * Signale dans le journal les tampons en circulation, avec la pile d'appels de leur acquisition.
+     *
+     * @return Le nombre de tampons en circulation, 0 si la détection de fuites est désactivée.
+     */
+    public int reportLeaks() {
+        Map<ByteBuffer, Throwable> leaks = tracked;
+        if (leaks == null) {
+            return 0;
+        }
+        List<Throwable> origins;
+        synchronized (leaks) {
+            origins = new ArrayList<>(leaks.values());
+        }
+        for (Throwable origin : origins) {
+            StringBuilder trace = new StringBuilder(origin.getMessage());
+            for (StackTraceElement element : origin.getStackTrace()) {
+                trace.append("\n\tat ").append(element);
+            }
+            LOG.warn("Buffer not released: {}", trace);
+        }
+        return origins.size();
+    }
+
+    @Override
+    public boolean isDirect() {
+        return direct;
+    }
+
+    @Override
+    public long getAcquired() {
+        return acquired.sum();
+    }
+
+    @Override
+    public long getReleased() {
+        return released.sum();
+    }
+
+    @Override
+    public long getAllocated() {
+        return allocated.sum();
+    }
+
+    @Override
+    public long getThreadCacheHits() {
+        return threadCacheHits.sum();
+    }
+
+    @Override
+    public long getSharedHits() {
+        return sharedHits.sum();
+    }
+
+    @Override
+    public long getOutstanding() {
+        return acquired.sum() - released.sum();
+    }
+
+    @Override
+    public int getTrackedBuffers() {
+        Map<ByteBuffer, Throwable> leaks = tracked;
+        return leaks != null ? leaks.size() : 0;
+    }
+
+    /**
+     * Résume les statistiques du pool.
+     *
+     * @return Les compteurs du pool.
+     */
+    @Override
+    public String toString() {
+        return "BufferPool {direct=" + direct
+                + ", acquired=" + getAcquired()
+                + ", allocated=" + getAllocated()
+                + ", threadCacheHits=" + getThreadCacheHits()
+                + ", sharedHits=" + getSharedHits()
+                + ", outstanding=" + getOutstanding() + '}';
+    }
+}
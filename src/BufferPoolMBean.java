@@ -0,0 +1,61 @@
+/**
+ * Interface de gestion JMX exposant les statistiques d'un {@link BufferPool}.
+ * Le pool partagé est visible dans jconsole sous {@code gbn:type=BufferPool}.
+ */
+public interface BufferPoolMBean {
+    /**
+     * Indique si le pool fournit des tampons directs (hors du tas).
+     *
+     * @return {@code true} pour des tampons directs.
+     */
+    boolean isDirect();
+
+    /**
+     * Obtient le nombre de tampons fournis.
+     *
+     * @return Le nombre d'appels à {@link BufferPool#acquire(int)}.
+     */
+    long getAcquired();
+
+    /**
+     * Obtient le nombre de tampons rendus au pool.
+     *
+     * @return Le nombre d'appels à {@link BufferPool#release(java.nio.ByteBuffer)}.
+     */
+    long getReleased();
+
+    /**
+     * Obtient le nombre de tampons alloués faute de tampon libre de la bonne taille.
+     *
+     * @return Le nombre d'allocations, tampons hors classe compris.
+     */
+    long getAllocated();
+
+    /**
+     * Obtient le nombre de tampons fournis par le cache du thread appelant.
+     *
+     * @return Le nombre de tampons réutilisés sans synchronisation.
+     */
+    long getThreadCacheHits();
+
+    /**
+     * Obtient le nombre de tampons fournis par les listes partagées.
+     *
+     * @return Le nombre de tampons réutilisés depuis un autre thread.
+     */
+    long getSharedHits();
+
+    /**
+     * Obtient le nombre de tampons fournis et pas encore rendus.
+     *
+     * @return Le nombre de tampons en circulation.
+     */
+    long getOutstanding();
+
+    /**
+     * Obtient le nombre de tampons en circulation suivis par la détection de fuites.
+     *
+     * @return Le nombre de tampons suivis, 0 si la détection est désactivée.
+     */
+    int getTrackedBuffers();
+}
@@ -34,15 +34,22 @@ public class CRC {
 
     /**
      * Définit les bits du CRC calculé.
-     * Valide que la chaîne fournie est de longueur 16 et ne contient que des caractères '0' ou '1'.
+     * Valide que la chaîne fournie est de longueur 16 (CRC-16) ou 32 (CRC-32C, voir {@link FrameCheck})
+     * et ne contient que des caractères '0' ou '1'.
      *
      * @param crcBits Les bits du CRC sous forme de chaîne binaire.
      * @throws IllegalArgumentException Si la chaîne fournie n'est pas valide.
      */
     public void setCrcBits(String crcBits) {
-        if (crcBits.length() != 16 || !crcBits.matches("[01]+")) {
+        if (crcBits.length() != 16 && crcBits.length() != 32) {
             throw new IllegalArgumentException("CRC invalide.");
         }
+        for (int i = 0; i < crcBits.length(); i++) {
+            char bit = crcBits.charAt(i);
+            if (bit != '0' && bit != '1') {
+                throw new IllegalArgumentException("CRC invalide.");
+            }
+        }
         this.crcBits = crcBits;
     }
 
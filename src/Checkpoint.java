@@ -0,0 +1,94 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * Point de reprise d'un transfert : identifiant du transfert et position (en octets)
+ * jusqu'à laquelle les données ont été écrites de façon durable et contiguë.
+ *
+ * <p>Le point de reprise est stocké dans un petit fichier texte de deux lignes
+ * (identifiant, puis position). L'écriture passe par un fichier temporaire renommé
+ * atomiquement, de sorte qu'un point de reprise lu est toujours complet.</p>
+ */
+public class Checkpoint {
+    /**
+     * Journal de la classe.
+     */
+    private static final Log LOG = Log.getLog(Checkpoint.class);
+
+    /**
+     * Identifiant du transfert annoncé par l'émetteur.
+     */
+    private final String transferId;
+
+    /**
+     * Position en octets jusqu'à laquelle les données sont durables.
+     */
+    private final long offset;
+
+    /**
+     * Crée un point de reprise.
+     *
+     * @param transferId L'identifiant du transfert.
+     * @param offset     La position durable en octets.
+     */
+    public Checkpoint(String transferId, long offset) {
+        this.transferId = transferId;
+        this.offset = offset;
+    }
+
+    /**
+     * Charge un point de reprise depuis un fichier.
+     *
+     * @param file Le fichier du point de reprise.
+     * @return Le point de reprise, ou {@code null} si le fichier est absent ou invalide.
+     */
+    public static Checkpoint load(Path file) {
+        try {
+            if (!Files.exists(file)) {
+                return null;
+            }
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (lines.size() < 2) {
+                return null;
+            }
+            return new Checkpoint(lines.get(0), Long.parseLong(lines.get(1)));
+        } catch (IOException | NumberFormatException e) {
+            LOG.warn("Ignoring invalid checkpoint: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Enregistre le point de reprise de façon atomique.
+     *
+     * @param file Le fichier du point de reprise.
+     * @throws IOException Si l'écriture échoue.
+     */
+    public void store(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, (transferId + "\n" + offset + "\n").getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Obtient l'identifiant du transfert.
+     *
+     * @return L'identifiant du transfert.
+     */
+    public String getTransferId() {
+        return transferId;
+    }
+
+    /**
+     * Obtient la position durable.
+     *
+     * @return La position en octets.
+     */
+    public long getOffset() {
+        return offset;
+    }
+}
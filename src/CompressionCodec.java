@@ -0,0 +1,49 @@
+import java.io.IOException;
+
+/**
+ * Algorithme de compression utilisable par l'étape de compression ({@link CompressionStage}).
+ *
+ * <p>Chaque bloc est compressé indépendamment : un bloc compressé peut être décompressé seul,
+ * ce qui permet de retransmettre une trame sans dépendre des trames précédentes.
+ * Une instance est propre à une session et peut réutiliser ses structures internes
+ * d'un bloc à l'autre ; elle n'est pas sûre pour un usage concurrent.</p>
+ *
+ * <p>Les implémentations sont enregistrées par nom dans {@link CompressionCodecs}.</p>
+ */
+public interface CompressionCodec {
+    /**
+     * Obtient le nom du codec, tel qu'annoncé dans la trame de connexion.
+     *
+     * @return Le nom du codec (par exemple "deflate").
+     */
+    String getName();
+
+    /**
+     * Compresse un bloc de données.
+     *
+     * @param input  Le tableau contenant les données.
+     * @param offset La position du premier octet à compresser.
+     * @param length Le nombre d'octets à compresser.
+     * @return Les données compressées.
+     */
+    byte[] compress(byte[] input, int offset, int length);
+
+    /**
+     * Décompresse un bloc produit par {@link #compress(byte[], int, int)}. La taille décompressée est
+     * bornée : un bloc ne peut pas dépasser la taille maximale des données d'une trame, et un bloc
+     * forgé ne doit pas faire allouer au récepteur une mémoire sans rapport avec sa taille.
+     *
+     * @param input     Le tableau contenant les données compressées.
+     * @param offset    La position du premier octet compressé.
+     * @param length    Le nombre d'octets compressés.
+     * @param maxLength Le nombre maximal d'octets décompressés.
+     * @return Les données décompressées.
+     * @throws IOException Si les données compressées sont invalides ou dépassent {@code maxLength} octets.
+     */
+    byte[] decompress(byte[] input, int offset, int length, int maxLength) throws IOException;
+
+    /**
+     * Libère les ressources natives du codec.
+     */
+    void close();
+}
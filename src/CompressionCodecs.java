@@ -0,0 +1,63 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Registre des codecs de compression disponibles, indexés par nom.
+ * Le codec "deflate" ({@link DeflateCodec}) est enregistré par défaut ; d'autres codecs
+ * peuvent être ajoutés avec {@link #register(String, Supplier)} avant l'établissement de la connexion.
+ */
+public class CompressionCodecs {
+    /**
+     * Fabriques de codecs indexées par nom.
+     */
+    private static final Map<String, Supplier<CompressionCodec>> CODECS = new LinkedHashMap<>();
+
+    static {
+        register(DeflateCodec.NAME, DeflateCodec::new);
+    }
+
+    /**
+     * Classe utilitaire : pas d'instance.
+     */
+    private CompressionCodecs() {}
+
+    /**
+     * Enregistre un codec de compression.
+     *
+     * @param name    Le nom du codec annoncé dans la trame de connexion.
+     * @param factory La fabrique créant une instance de codec par session.
+     * @throws IllegalArgumentException Si le nom contient un caractère réservé (';' ou '=').
+     */
+    public static synchronized void register(String name, Supplier<CompressionCodec> factory) {
+        if (name.isEmpty() || name.contains(";") || name.contains("=")) {
+            throw new IllegalArgumentException("Nom de codec invalide : " + name);
+        }
+        CODECS.put(name, factory);
+    }
+
+    /**
+     * Vérifie si un codec est disponible.
+     *
+     * @param name Le nom du codec.
+     * @return {@code true} si le codec est enregistré, {@code false} sinon.
+     */
+    public static synchronized boolean isSupported(String name) {
+        return name != null && CODECS.containsKey(name);
+    }
+
+    /**
+     * Crée une instance d'un codec enregistré.
+     *
+     * @param name Le nom du codec.
+     * @return Une nouvelle instance du codec.
+     * @throws IllegalArgumentException Si le codec n'est pas enregistré.
+     */
+    public static synchronized CompressionCodec create(String name) {
+        Supplier<CompressionCodec> factory = CODECS.get(name);
+        if (factory == null) {
+            throw new IllegalArgumentException("Codec de compression inconnu : " + name);
+        }
+        return factory.get();
+    }
+}
@@ -0,0 +1,174 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Étape de compression placée entre la lecture des données et la construction des trames.
+ *
+ * <p>Lorsque la compression est négociée, les données de chaque trame d'information
+ * commencent par un octet d'en-tête :</p>
+ * <ul>
+ *     <li><b>{@value #RAW}</b> : le bloc suit tel quel (la compression ne réduisait pas sa taille).</li>
+ *     <li><b>{@value #COMPRESSED}</b> : le bloc suit compressé par le codec négocié.</li>
+ * </ul>
+ */
+public class CompressionStage {
+    /**
+     * En-tête d'un bloc transmis sans compression.
+     */
+    public static final byte RAW = 0;
+
+    /**
+     * En-tête d'un bloc compressé.
+     */
+    public static final byte COMPRESSED = 1;
+
+    /**
+     * Codec utilisé pour la session.
+     */
+    private final CompressionCodec codec;
+
+    /**
+     * Taille maximale d'un bloc décompressé : la taille maximale des données d'une trame.
+     */
+    private final int maxBlockSize;
+
+    /**
+     * Nombre total d'octets avant compression.
+     */
+    private long rawBytes;
+
+    /**
+     * Nombre total d'octets après l'étape (en-têtes compris).
+     */
+    private long encodedBytes;
+
+    /**
+     * Crée une étape de compression acceptant des blocs jusqu'à {@link ConnectionParameters#MAX_PAYLOAD} octets.
+     *
+     * @param codec Le codec négocié pour la session.
+     */
+    public CompressionStage(CompressionCodec codec) {
+        this(codec, ConnectionParameters.MAX_PAYLOAD);
+    }
+
+    /**
+     * Crée une étape de compression.
+     *
+     * @param codec        Le codec négocié pour la session.
+     * @param maxBlockSize La taille maximale des données d'une trame négociée : un bloc reçu
+     *                     qui se décompresse au-delà est rejeté.
+     */
+    public CompressionStage(CompressionCodec codec, int maxBlockSize) {
+        this.codec = codec;
+        this.maxBlockSize = maxBlockSize;
+    }
+
+    /**
+     * Compresse un bloc s'il en résulte un gain, et ajoute l'en-tête correspondant.
+     *
+     * @param block  Le tableau contenant le bloc.
+     * @param length Le nombre d'octets du bloc.
+     * @return Les données à placer dans la trame.
+     */
+    public byte[] encode(byte[] block, int length) {
+        byte[] compressed = codec.compress(block, 0, length);
+        byte[] result;
+        if (compressed.length < length) {
+            result = new byte[compressed.length + 1];
+            result[0] = COMPRESSED;
+            System.arraycopy(compressed, 0, result, 1, compressed.length);
+        } else {
+            // La compression n'apporte rien : envoyer le bloc tel quel
+            result = new byte[length + 1];
+            result[0] = RAW;
+            System.arraycopy(block, 0, result, 1, length);
+        }
+        rawBytes += length;
+        encodedBytes += result.length;
+        return result;
+    }
+
+    /**
+     * Retire l'en-tête d'un bloc reçu et le décompresse si nécessaire.
+     *
+     * @param payload Les données de la trame.
+     * @return Le bloc d'origine.
+     * @throws IOException Si l'en-tête est inconnu, si les données compressées sont invalides
+     *                     ou si le bloc décompressé dépasse la taille maximale.
+     */
+    public byte[] decode(byte[] payload) throws IOException {
+        if (payload.length == 0) {
+            throw new IOException("Bloc sans en-tête de compression.");
+        }
+        switch (payload[0]) {
+            case RAW:
+                return Arrays.copyOfRange(payload, 1, payload.length);
+
+            case COMPRESSED:
+                return codec.decompress(payload, 1, payload.length - 1, maxBlockSize);
+
+            default:
+                throw new IOException("En-tête de compression inconnu : " + payload[0]);
+        }
+    }
+
+    /**
+     * Retire l'en-tête d'un bloc reçu et le décompresse si nécessaire, sans copier un bloc non compressé.
+     *
+     * @param payload Les données de la trame, entre la position et la limite du tampon.
+     * @return Le bloc d'origine : une tranche de {@code payload} pour un bloc non compressé,
+     *         un nouveau tampon pour un bloc décompressé.
+     * @throws IOException Si l'en-tête est inconnu, si les données compressées sont invalides
+     *                     ou si le bloc décompressé dépasse la taille maximale.
+     */
+    public ByteBuffer decode(ByteBuffer payload) throws IOException {
+        if (!payload.hasRemaining()) {
+            throw new IOException("Bloc sans en-tête de compression.");
+        }
+        byte header = payload.get(payload.position());
+        ByteBuffer body = payload.duplicate();
+        body.position(body.position() + 1);
+        switch (header) {
+            case RAW:
+                return body.slice();
+
+            case COMPRESSED:
+                if (body.hasArray()) {
+                    return ByteBuffer.wrap(codec.decompress(body.array(), body.arrayOffset() + body.position(),
+                            body.remaining(), maxBlockSize));
+                }
+                byte[] compressed = new byte[body.remaining()];
+                body.get(compressed);
+                return ByteBuffer.wrap(codec.decompress(compressed, 0, compressed.length, maxBlockSize));
+
+            default:
+                throw new IOException("En-tête de compression inconnu : " + header);
+        }
+    }
+
+    /**
+     * Obtient le taux de compression obtenu jusqu'ici.
+     *
+     * @return Le rapport entre les octets d'origine et les octets transmis, ou 1 si rien n'a été encodé.
+     */
+    public double getRatio() {
+        return encodedBytes == 0 ? 1.0 : (double) rawBytes / encodedBytes;
+    }
+
+    /**
+     * Obtient le codec de la session.
+     *
+     * @return Le codec utilisé.
+     */
+    public CompressionCodec getCodec() {
+        return codec;
+    }
+
+    /**
+     * Libère les ressources du codec.
+     */
+    public void close() {
+        codec.close();
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * Contrôle de congestion AIMD (augmentation additive, diminution multiplicative) de la fenêtre
+ * d'émission, avec démarrage lent.
+ *
+ * <p>La fenêtre de congestion, en trames, limite la fenêtre négociée. Elle part d'une trame et
+ * augmente d'une trame par trame acquittée tant qu'elle est sous le seuil (démarrage lent, doublement
+ * par RTT), puis d'une trame par fenêtre acquittée (une trame par RTT). Un rejet la réduit de moitié ;
+ * un timeout, qui signale une perte plus grave, la ramène à une trame. Dans les deux cas le seuil
+ * devient la moitié de la fenêtre au moment de la perte. Les pertes qui suivent une réduction de
+ * moins d'un RTT appartiennent au même épisode et ne la réduisent pas de nouveau.</p>
+ *
+ * <p>La fenêtre ne dépasse jamais la fenêtre négociée, elle-même bornée par l'espace des numéros
+ * de séquence.</p>
+ */
+public class CongestionControl {
+    /**
+     * Plus petit seuil de démarrage lent après une perte.
+     */
+    private static final double MIN_THRESHOLD = 2;
+
+    /**
+     * Fenêtre maximale : la fenêtre négociée.
+     */
+    private final int maxWindow;
+
+    /**
+     * Fenêtre de congestion, en trames (fractionnaire pendant l'augmentation additive).
+     */
+    private double window = 1;
+
+    /**
+     * Seuil de démarrage lent.
+     */
+    private double threshold;
+
+    /**
+     * Instant (System.nanoTime) de la dernière réduction, ou 0 s'il n'y en a pas eu.
+     */
+    private long lastReduction;
+
+    /**
+     * Crée un contrôle de congestion en démarrage lent.
+     *
+     * @param maxWindow La fenêtre négociée, limite de la fenêtre de congestion.
+     * @throws IllegalArgumentException Si la fenêtre maximale n'est pas positive.
+     */
+    public CongestionControl(int maxWindow) {
+        if (maxWindow < 1) {
+            throw new IllegalArgumentException("Fenêtre maximale invalide : " + maxWindow);
+        }
+        this.maxWindow = maxWindow;
+        this.threshold = maxWindow;
+    }
+
+    /**
+     * Augmente la fenêtre pour des trames nouvellement acquittées.
+     *
+     * @param acked Le nombre de trames acquittées par l'ACK.
+     */
+    public synchronized void onAck(int acked) {
+        for (int i = 0; i < acked && window < maxWindow; i++) {
+            window += window < threshold ? 1 : 1 / window;
+        }
+        window = Math.min(window, maxWindow);
+    }
+
+    /**
+     * Réduit la fenêtre de moitié après un rejet, sauf si une réduction a eu lieu depuis moins d'un RTT.
+     *
+     * @param now Instant de la perte (System.nanoTime).
+     * @param rtt Estimation du RTT, en nanosecondes.
+     * @return {@code true} si la fenêtre a été réduite.
+     */
+    public synchronized boolean onLoss(long now, long rtt) {
+        if (lastReduction != 0 && now - lastReduction < rtt) {
+            return false;
+        }
+        threshold = Math.max(MIN_THRESHOLD, window / 2);
+        window = Math.min(threshold, maxWindow);
+        lastReduction = now;
+        return true;
+    }
+
+    /**
+     * Ramène la fenêtre à une trame après un timeout et reprend le démarrage lent.
+     *
+     * @param now Instant du timeout (System.nanoTime).
+     */
+    public synchronized void onTimeout(long now) {
+        threshold = Math.max(MIN_THRESHOLD, window / 2);
+        window = 1;
+        lastReduction = now;
+    }
+
+    /**
+     * Obtient la fenêtre de congestion utilisable.
+     *
+     * @return Le nombre de trames pouvant attendre un acquittement, entre 1 et la fenêtre négociée.
+     */
+    public synchronized int getWindow() {
+        return (int) Math.max(1, Math.min(maxWindow, window));
+    }
+
+    /**
+     * Obtient le seuil de démarrage lent.
+     *
+     * @return Le seuil, en trames.
+     */
+    public synchronized double getThreshold() {
+        return threshold;
+    }
+}
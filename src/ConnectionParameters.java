@@ -0,0 +1,616 @@
+/**
+ * Paramètres transportés dans les données de la trame de connexion ('C').
+ *
+ * <p>Les données commencent toujours par le nom du protocole ("Go-Back-N"), suivi d'options
+ * facultatives de la forme {@code ;clé=valeur}. Un récepteur ignore les options qu'il ne connaît pas,
+ * ce qui garde la compatibilité avec les émetteurs qui n'envoient que "Go-Back-N".</p>
+ *
+ * <p>Le même format est utilisé dans les données de l'ACK qui répond à la trame de connexion.</p>
+ *
+ * <p>Options supportées :</p>
+ * <ul>
+ *     <li><b>size</b> : taille du fichier à transmettre en octets.</li>
+ *     <li><b>id</b> : identifiant du transfert, utilisé pour la reprise.</li>
+ *     <li><b>offset</b> : dans la réponse du récepteur, position à partir de laquelle reprendre.</li>
+ *     <li><b>comp</b> : codec de compression proposé par l'émetteur ; présent dans la réponse
+ *     seulement si le récepteur l'accepte.</li>
+ *     <li><b>fcs</b> : séquence de contrôle ({@link FrameCheck}) proposée par l'émetteur ; présente
+ *     dans la réponse seulement si le récepteur l'accepte. Sans accord, le CRC-16 est conservé.</li>
+ *     <li><b>window</b> : taille de la fenêtre d'émission (inférieure au modulo).</li>
+ *     <li><b>modulus</b> : modulo des numéros de séquence, puissance de 2 entre 2 et 128.</li>
+ *     <li><b>payload</b> : taille maximale d'un bloc de données d'une trame 'I', en octets.</li>
+ *     <li><b>timeout</b> : délai de retransmission de l'émetteur, en millisecondes.</li>
+ *     <li><b>ack</b> : politique d'acquittement, nombre de trames reçues dans l'ordre par ACK
+ *     (1 : un ACK par trame).</li>
+ *     <li><b>fec</b> : taille maximale des blocs couverts par une trame de parité ({@link ParityBlock}),
+ *     0 pour désactiver la correction d'erreurs.</li>
+ *     <li><b>srej</b> : 1 pour le rejet sélectif (trames 'S'), retenu seulement si les deux extrémités
+ *     le supportent ; la fenêtre est alors limitée à la moitié du modulo.</li>
+ *     <li><b>flow</b> : 1 pour le contrôle de flux par crédit (RR/RNR), retenu seulement si les deux
+ *     extrémités le supportent.</li>
+ * </ul>
+ *
+ * <p>Les paramètres du lien (fenêtre, modulo, taille des blocs, délai et acquittement) ne sont encodés
+ * que s'ils diffèrent des valeurs par défaut, qui sont celles des versions sans négociation.
+ * L'émetteur propose ses valeurs, le récepteur répond avec celles qu'il accepte
+ * ({@link #negotiate(ConnectionParameters)}), et les deux extrémités se configurent à partir de la réponse.</p>
+ */
+public class ConnectionParameters {
+    /**
+     * Nom du protocole placé en tête des données de la trame de connexion.
+     */
+    public static final String PROTOCOL = "Go-Back-N";
+
+    /**
+     * Séparateur entre les options.
+     */
+    private static final String SEPARATOR = ";";
+
+    /**
+     * Taille de la fenêtre par défaut.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 4;
+
+    /**
+     * Modulo des numéros de séquence par défaut (numéros sur 3 bits).
+     */
+    public static final int DEFAULT_MODULUS = 8;
+
+    /**
+     * Modulo maximal : le numéro de séquence occupe un octet de l'en-tête, comme en HDLC étendu.
+     */
+    public static final int MAX_MODULUS = 128;
+
+    /**
+     * Taille maximale par défaut d'un bloc de données, en octets.
+     */
+    public static final int DEFAULT_MAX_PAYLOAD = 1024;
+
+    /**
+     * Taille maximale d'un bloc de données : même doublée par le byte stuffing et allongée par le
+     * bit stuffing, la trame tient dans un datagramme UDP ({@link UdpTransport#MAX_DATAGRAM_SIZE}).
+     */
+    public static final int MAX_PAYLOAD = 16384;
+
+    /**
+     * Délai de retransmission par défaut, en millisecondes.
+     */
+    public static final int DEFAULT_TIMEOUT = 3000;
+
+    /**
+     * Politique d'acquittement par défaut : un ACK par trame.
+     */
+    public static final int DEFAULT_ACK_EVERY = 1;
+
+    /**
+     * Taille de bloc FEC par défaut : pas de trames de parité.
+     */
+    public static final int DEFAULT_FEC_BLOCK = 0;
+
+    /**
+     * Taille du fichier annoncée par l'émetteur, ou {@code -1} si elle est inconnue.
+     */
+    private long fileSize = -1;
+
+    /**
+     * Identifiant du transfert, ou {@code null} s'il n'est pas annoncé.
+     */
+    private String transferId;
+
+    /**
+     * Position de reprise en octets.
+     */
+    private long resumeOffset = 0;
+
+    /**
+     * Nom du codec de compression, ou {@code null} si aucune compression.
+     */
+    private String compression;
+
+    /**
+     * Nom de la séquence de contrôle, ou {@code null} pour le CRC-16 par défaut.
+     */
+    private String frameCheck;
+
+    /**
+     * Taille de la fenêtre d'émission.
+     */
+    private int windowSize = DEFAULT_WINDOW_SIZE;
+
+    /**
+     * Modulo des numéros de séquence.
+     */
+    private int modulus = DEFAULT_MODULUS;
+
+    /**
+     * Taille maximale d'un bloc de données, en octets.
+     */
+    private int maxPayload = DEFAULT_MAX_PAYLOAD;
+
+    /**
+     * Délai de retransmission, en millisecondes.
+     */
+    private int timeout = DEFAULT_TIMEOUT;
+
+    /**
+     * Nombre de trames reçues dans l'ordre acquittées par un même ACK.
+     */
+    private int ackEvery = DEFAULT_ACK_EVERY;
+
+    /**
+     * Taille maximale d'un bloc de trames couvert par une trame de parité, 0 sans FEC.
+     */
+    private int fecBlock = DEFAULT_FEC_BLOCK;
+
+    /**
+     * Indique si le rejet sélectif est proposé ou retenu.
+     */
+    private boolean selectiveReject;
+
+    /**
+     * Indique si le contrôle de flux par crédit est proposé ou retenu.
+     */
+    private boolean flowControl;
+
+    /**
+     * Constructeur par défaut : aucune option, paramètres du lien par défaut.
+     */
+    public ConnectionParameters() {}
+
+    /**
+     * Encode les paramètres sous forme de données de trame de connexion.
+     *
+     * @return Les données de la trame 'C'.
+     */
+    public String encode() {
+        StringBuilder result = new StringBuilder(PROTOCOL);
+        if (fileSize >= 0) {
+            appendOption(result, "size", Long.toString(fileSize));
+        }
+        if (transferId != null) {
+            appendOption(result, "id", transferId);
+        }
+        if (resumeOffset > 0) {
+            appendOption(result, "offset", Long.toString(resumeOffset));
+        }
+        if (compression != null) {
+            appendOption(result, "comp", compression);
+        }
+        if (frameCheck != null) {
+            appendOption(result, "fcs", frameCheck);
+        }
+        if (windowSize != DEFAULT_WINDOW_SIZE) {
+            appendOption(result, "window", Integer.toString(windowSize));
+        }
+        if (modulus != DEFAULT_MODULUS) {
+            appendOption(result, "modulus", Integer.toString(modulus));
+        }
+        if (maxPayload != DEFAULT_MAX_PAYLOAD) {
+            appendOption(result, "payload", Integer.toString(maxPayload));
+        }
+        if (timeout != DEFAULT_TIMEOUT) {
+            appendOption(result, "timeout", Integer.toString(timeout));
+        }
+        if (ackEvery != DEFAULT_ACK_EVERY) {
+            appendOption(result, "ack", Integer.toString(ackEvery));
+        }
+        if (fecBlock != DEFAULT_FEC_BLOCK) {
+            appendOption(result, "fec", Integer.toString(fecBlock));
+        }
+        if (selectiveReject) {
+            appendOption(result, "srej", "1");
+        }
+        if (flowControl) {
+            appendOption(result, "flow", "1");
+        }
+        return result.toString();
+    }
+
+    /**
+     * Négocie les paramètres du lien proposés avec les limites de l'autre extrémité : la fenêtre,
+     * le modulo, la taille des blocs et la politique d'acquittement retenus sont les plus petits
+     * des deux côtés, et la fenêtre reste inférieure au modulo comme l'exige Go-Back-N.
+     * Le délai de retransmission est celui proposé, puisque seul l'émetteur l'arme.
+     * Un bloc FEC ne dépasse ni la fenêtre, ni {@code modulo - fenêtre + 1} : le récepteur doit
+     * distinguer les numéros du début du bloc de la trame attendue jusqu'à la fin de la fenêtre.
+     * Le rejet sélectif n'est retenu que si les deux côtés le supportent ; la fenêtre ne dépasse
+     * alors pas la moitié du modulo, puisque le récepteur conserve des trames au-delà de la trame attendue.
+     * Il en va de même pour le contrôle de flux.
+     *
+     * <p>Le récepteur négocie la proposition avec ses limites pour construire sa réponse ; l'émetteur
+     * négocie sa proposition avec la réponse, ce qui le protège d'une réponse plus large que la proposition.</p>
+     *
+     * @param limits Les limites de l'autre extrémité.
+     * @return Les paramètres du lien retenus, sans les autres options.
+     */
+    public ConnectionParameters negotiate(ConnectionParameters limits) {
+        ConnectionParameters agreed = new ConnectionParameters();
+        agreed.modulus = Math.min(modulus, limits.modulus);
+        agreed.selectiveReject = selectiveReject && limits.selectiveReject;
+        agreed.flowControl = flowControl && limits.flowControl;
+        agreed.windowSize = Math.min(Math.min(windowSize, limits.windowSize),
+                agreed.selectiveReject ? agreed.modulus / 2 : agreed.modulus - 1);
+        agreed.maxPayload = Math.min(maxPayload, limits.maxPayload);
+        agreed.timeout = timeout;
+        agreed.ackEvery = Math.min(Math.min(ackEvery, limits.ackEvery), agreed.windowSize);
+        agreed.fecBlock = Math.min(Math.min(fecBlock, limits.fecBlock),
+                Math.min(agreed.windowSize, agreed.modulus - agreed.windowSize + 1));
+        return agreed;
+    }
+
+    /**
+     * Décode les données d'une trame de connexion.
+     *
+     * @param payload Les données de la trame 'C' ou de l'ACK correspondant.
+     * @return Les paramètres décodés.
+     * @throws IllegalArgumentException Si le protocole n'est pas Go-Back-N ou si une option est invalide.
+     */
+    public static ConnectionParameters decode(String payload) {
+        if (payload == null || !payload.startsWith(PROTOCOL)) {
+            throw new IllegalArgumentException("Protocole de connexion non supporté : " + payload);
+        }
+        ConnectionParameters params = new ConnectionParameters();
+        params.applyOptions(payload.substring(PROTOCOL.length()));
+        return params;
+    }
+
+    /**
+     * Applique une liste d'options sans nom de protocole, par exemple {@code "window=7;payload=4096"} ;
+     * les options absentes gardent leur valeur. Permet de régler une extrémité depuis la ligne de commande.
+     *
+     * @param optionList Les options de la forme {@code clé=valeur}, séparées par ';'.
+     * @throws IllegalArgumentException Si une option est invalide.
+     */
+    public void applyOptions(String optionList) {
+        String[] options = optionList.split(SEPARATOR);
+        for (int i = 0; i < options.length; i++) {
+            if (options[i].isEmpty()) {
+                continue;
+            }
+            int eq = options[i].indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Option de connexion invalide : " + options[i]);
+            }
+            String key = options[i].substring(0, eq);
+            String value = options[i].substring(eq + 1);
+            try {
+                switch (key) {
+                    case "size":
+                        setFileSize(Long.parseLong(value));
+                        break;
+
+                    case "id":
+                        setTransferId(value);
+                        break;
+
+                    case "offset":
+                        setResumeOffset(Long.parseLong(value));
+                        break;
+
+                    case "comp":
+                        setCompression(value);
+                        break;
+
+                    case "fcs":
+                        setFrameCheck(value);
+                        break;
+
+                    case "window":
+                        setWindowSize(Integer.parseInt(value));
+                        break;
+
+                    case "modulus":
+                        setModulus(Integer.parseInt(value));
+                        break;
+
+                    case "payload":
+                        setMaxPayload(Integer.parseInt(value));
+                        break;
+
+                    case "timeout":
+                        setTimeout(Integer.parseInt(value));
+                        break;
+
+                    case "ack":
+                        setAckEvery(Integer.parseInt(value));
+                        break;
+
+                    case "fec":
+                        setFecBlock(Integer.parseInt(value));
+                        break;
+
+                    case "srej":
+                        setSelectiveReject(Integer.parseInt(value) != 0);
+                        break;
+
+                    case "flow":
+                        setFlowControl(Integer.parseInt(value) != 0);
+                        break;
+
+                    default:
+                        // Option inconnue : ignorée pour rester compatible
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Valeur invalide pour l'option " + key + " : " + value);
+            }
+        }
+    }
+
+    /**
+     * Ajoute une option de la forme {@code ;clé=valeur}.
+     *
+     * @param builder Le tampon de construction.
+     * @param key     Le nom de l'option.
+     * @param value   La valeur de l'option.
+     */
+    private static void appendOption(StringBuilder builder, String key, String value) {
+        builder.append(SEPARATOR).append(key).append('=').append(value);
+    }
+
+    /**
+     * Obtient la taille du fichier annoncée.
+     *
+     * @return La taille en octets, ou {@code -1} si elle est inconnue.
+     */
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * Définit la taille du fichier annoncée.
+     *
+     * @param fileSize La taille en octets, ou {@code -1} si elle est inconnue.
+     */
+    public void setFileSize(long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    /**
+     * Obtient l'identifiant du transfert.
+     *
+     * @return L'identifiant du transfert, ou {@code null} s'il n'est pas annoncé.
+     */
+    public String getTransferId() {
+        return transferId;
+    }
+
+    /**
+     * Définit l'identifiant du transfert.
+     *
+     * @param transferId L'identifiant du transfert (sans ';' ni '=').
+     */
+    public void setTransferId(String transferId) {
+        this.transferId = transferId;
+    }
+
+    /**
+     * Obtient la position de reprise.
+     *
+     * @return La position en octets à partir de laquelle reprendre.
+     */
+    public long getResumeOffset() {
+        return resumeOffset;
+    }
+
+    /**
+     * Définit la position de reprise.
+     *
+     * @param resumeOffset La position en octets à partir de laquelle reprendre.
+     * @throws IllegalArgumentException Si la position est négative.
+     */
+    public void setResumeOffset(long resumeOffset) {
+        if (resumeOffset < 0) {
+            throw new IllegalArgumentException("La position de reprise ne peut pas être négative.");
+        }
+        this.resumeOffset = resumeOffset;
+    }
+
+    /**
+     * Obtient le nom du codec de compression.
+     *
+     * @return Le nom du codec, ou {@code null} si aucune compression.
+     */
+    public String getCompression() {
+        return compression;
+    }
+
+    /**
+     * Définit le nom du codec de compression.
+     *
+     * @param compression Le nom du codec, ou {@code null} pour désactiver la compression.
+     */
+    public void setCompression(String compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Obtient le nom de la séquence de contrôle.
+     *
+     * @return Le nom du contrôle (par exemple "crc32c"), ou {@code null} pour le CRC-16 par défaut.
+     */
+    public String getFrameCheck() {
+        return frameCheck;
+    }
+
+    /**
+     * Définit le nom de la séquence de contrôle.
+     *
+     * @param frameCheck Le nom du contrôle, ou {@code null} pour le CRC-16 par défaut.
+     */
+    public void setFrameCheck(String frameCheck) {
+        this.frameCheck = frameCheck;
+    }
+
+    /**
+     * Obtient la taille de la fenêtre d'émission.
+     *
+     * @return Le nombre maximal de trames envoyées et non acquittées.
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Définit la taille de la fenêtre d'émission. Elle est ramenée sous le modulo lors de la négociation.
+     *
+     * @param windowSize Le nombre maximal de trames envoyées et non acquittées.
+     * @throws IllegalArgumentException Si la taille est hors de [1, {@link #MAX_MODULUS} - 1].
+     */
+    public void setWindowSize(int windowSize) {
+        if (windowSize < 1 || windowSize >= MAX_MODULUS) {
+            throw new IllegalArgumentException("Taille de fenêtre invalide : " + windowSize);
+        }
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Obtient le modulo des numéros de séquence.
+     *
+     * @return Le modulo.
+     */
+    public int getModulus() {
+        return modulus;
+    }
+
+    /**
+     * Définit le modulo des numéros de séquence.
+     *
+     * @param modulus Le modulo, puissance de 2 entre 2 et {@link #MAX_MODULUS}.
+     * @throws IllegalArgumentException Si le modulo est invalide.
+     */
+    public void setModulus(int modulus) {
+        if (modulus < 2 || modulus > MAX_MODULUS || Integer.bitCount(modulus) != 1) {
+            throw new IllegalArgumentException("Modulo invalide : " + modulus);
+        }
+        this.modulus = modulus;
+    }
+
+    /**
+     * Obtient la taille maximale d'un bloc de données.
+     *
+     * @return La taille en octets.
+     */
+    public int getMaxPayload() {
+        return maxPayload;
+    }
+
+    /**
+     * Définit la taille maximale d'un bloc de données.
+     *
+     * @param maxPayload La taille en octets, au plus {@link #MAX_PAYLOAD}.
+     * @throws IllegalArgumentException Si la taille est hors de [1, {@link #MAX_PAYLOAD}].
+     */
+    public void setMaxPayload(int maxPayload) {
+        if (maxPayload < 1 || maxPayload > MAX_PAYLOAD) {
+            throw new IllegalArgumentException("Taille de bloc invalide : " + maxPayload);
+        }
+        this.maxPayload = maxPayload;
+    }
+
+    /**
+     * Obtient le délai de retransmission.
+     *
+     * @return Le délai en millisecondes.
+     */
+    public int getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Définit le délai de retransmission.
+     *
+     * @param timeout Le délai en millisecondes.
+     * @throws IllegalArgumentException Si le délai n'est pas strictement positif.
+     */
+    public void setTimeout(int timeout) {
+        if (timeout < 1) {
+            throw new IllegalArgumentException("Délai de retransmission invalide : " + timeout);
+        }
+        this.timeout = timeout;
+    }
+
+    /**
+     * Obtient la politique d'acquittement.
+     *
+     * @return Le nombre de trames reçues dans l'ordre acquittées par un même ACK.
+     */
+    public int getAckEvery() {
+        return ackEvery;
+    }
+
+    /**
+     * Définit la politique d'acquittement. Au-delà d'une trame, le récepteur retarde l'ACK jusqu'à
+     * ce nombre de trames ou jusqu'à l'expiration d'un court délai ; les ACK de Go-Back-N étant
+     * cumulatifs, un seul ACK acquitte toutes ces trames.
+     *
+     * @param ackEvery Le nombre de trames par ACK (1 : un ACK par trame).
+     * @throws IllegalArgumentException Si le nombre n'est pas strictement positif.
+     */
+    public void setAckEvery(int ackEvery) {
+        if (ackEvery < 1) {
+            throw new IllegalArgumentException("Politique d'acquittement invalide : " + ackEvery);
+        }
+        this.ackEvery = ackEvery;
+    }
+
+    /**
+     * Obtient la taille maximale d'un bloc FEC.
+     *
+     * @return Le nombre maximal de trames couvertes par une trame de parité, 0 sans FEC.
+     */
+    public int getFecBlock() {
+        return fecBlock;
+    }
+
+    /**
+     * Définit la taille maximale d'un bloc FEC. L'émetteur raccourcit les blocs lorsqu'il observe
+     * des pertes et les rallonge jusqu'à cette taille lorsque le lien est propre.
+     *
+     * @param fecBlock Le nombre maximal de trames couvertes par une trame de parité, 0 pour désactiver la FEC.
+     * @throws IllegalArgumentException Si la taille est hors de [0, {@link #MAX_MODULUS} - 1].
+     */
+    public void setFecBlock(int fecBlock) {
+        if (fecBlock < 0 || fecBlock >= MAX_MODULUS) {
+            throw new IllegalArgumentException("Taille de bloc FEC invalide : " + fecBlock);
+        }
+        this.fecBlock = fecBlock;
+    }
+
+    /**
+     * Indique si le rejet sélectif est proposé ou retenu.
+     *
+     * @return {@code true} si les rejets sont des trames 'S' portant la table des trames reçues.
+     */
+    public boolean isSelectiveReject() {
+        return selectiveReject;
+    }
+
+    /**
+     * Active ou désactive le rejet sélectif. Le récepteur conserve alors les trames reçues après
+     * un trou, et l'émetteur ne retransmet que les trames manquantes.
+     *
+     * @param selectiveReject {@code true} pour proposer le rejet sélectif.
+     */
+    public void setSelectiveReject(boolean selectiveReject) {
+        this.selectiveReject = selectiveReject;
+    }
+
+    /**
+     * Indique si le contrôle de flux par crédit est proposé ou retenu.
+     *
+     * @return {@code true} si les ACK annoncent le nombre de trames que le récepteur peut accepter.
+     */
+    public boolean isFlowControl() {
+        return flowControl;
+    }
+
+    /**
+     * Active ou désactive le contrôle de flux par crédit. Chaque ACK (RR) porte alors le nombre de
+     * trames que le récepteur peut encore accepter après celle acquittée ; un RNR suspend l'émetteur.
+     *
+     * @param flowControl {@code true} pour proposer le contrôle de flux.
+     */
+    public void setFlowControl(boolean flowControl) {
+        this.flowControl = flowControl;
+    }
+}
@@ -0,0 +1,65 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Puits de livraison par défaut qui affiche les données reçues sur la sortie standard.
+ * Conserve le comportement historique du {@link Receiver} lorsqu'aucun fichier de sortie n'est spécifié.
+ */
+public class ConsoleSink implements DeliverySink {
+    /**
+     * Constructeur par défaut du ConsoleSink.
+     */
+    public ConsoleSink() {}
+
+    /**
+     * Aucune préparation n'est nécessaire pour la console. La reprise n'est pas supportée.
+     *
+     * @param transferId   L'identifiant du transfert (ignoré).
+     * @param expectedSize La taille annoncée par l'émetteur (ignorée).
+     * @return Toujours {@code 0}.
+     */
+    @Override
+    public long open(String transferId, long expectedSize) {
+        return 0;
+    }
+
+    /**
+     * Affiche les données reçues, décodées en UTF-8, sans le saut de ligne final.
+     *
+     * @param payload Les données de la trame.
+     */
+    @Override
+    public void deliver(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        if (text.endsWith("\n")) {
+            text = text.substring(0, text.length() - 1);
+        }
+        System.out.println("Received data: " + text);
+    }
+
+    /**
+     * Vide la sortie standard.
+     */
+    @Override
+    public void flush() {
+        System.out.flush();
+    }
+
+    /**
+     * Vide la sortie standard.
+     */
+    @Override
+    public void complete() {
+        flush();
+    }
+
+    /**
+     * Vide la sortie standard. La console n'est jamais fermée.
+     */
+    @Override
+    public void close() {
+        flush();
+    }
+}
@@ -0,0 +1,157 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Table des trames de contrôle déjà encodées du récepteur : ACK ('A'), REJ ('R'), RNR ('N') et RR
+ * portant un crédit.
+ *
+ * <p>Une trame de contrôle ne dépend que de son type, de son numéro (et du crédit pour un RR) : ses
+ * octets sont construits une fois par {@link Frame#buildFrame()}, à la première demande, puis
+ * conservés. Acquitter une trame revient alors à écrire un tampon déjà prêt, sans trame ni bit
+ * stuffing. La table est propre à une séquence de contrôle et à un modulo : le récepteur en crée une
+ * nouvelle à la négociation du lien.</p>
+ *
+ * <p>Les ACK, REJ et RNR occupent une case par numéro de séquence, soit au plus trois fois le modulo.
+ * Les RR, un par numéro et par crédit, passent par un cache à correspondance directe de
+ * {@link #CREDIT_CACHE_SIZE} cases : une collision remplace simplement la trame précédente, qui sera
+ * reconstruite si elle est de nouveau demandée.</p>
+ *
+ * <p>La table peut être lue par plusieurs threads (réception, timer d'ACK, puits) : les cases sont des
+ * entrées immuables, et deux threads qui construisent la même trame obtiennent les mêmes octets.</p>
+ */
+public class ControlFrames {
+    /**
+     * Nombre de cases du cache des RR portant un crédit (puissance de deux).
+     */
+    public static final int CREDIT_CACHE_SIZE = 512;
+
+    /**
+     * Types des trames de contrôle sans données, dans l'ordre de leurs cases.
+     */
+    private static final String TYPES = "ARN";
+
+    /**
+     * Trame de contrôle encodée, avec la clé qui l'identifie dans sa case.
+     */
+    private static final class Entry {
+        /**
+         * Clé de la trame : numéro et crédit pour un RR, indice de la case sinon.
+         */
+        final int key;
+
+        /**
+         * Octets de la trame, flags compris ; jamais modifiés.
+         */
+        final byte[] bytes;
+
+        /**
+         * Crée une entrée.
+         *
+         * @param key   La clé de la trame.
+         * @param bytes Les octets de la trame.
+         */
+        Entry(int key, byte[] bytes) {
+            this.key = key;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Séquence de contrôle des trames de la table.
+     */
+    private final FrameCheck frameCheck;
+
+    /**
+     * Modulo des numéros de séquence.
+     */
+    private final int modulus;
+
+    /**
+     * ACK, REJ et RNR, indexés par type puis par numéro.
+     */
+    private final Entry[] plain;
+
+    /**
+     * RR portant un crédit, indexés par le hachage du numéro et du crédit.
+     */
+    private final Entry[] credited = new Entry[CREDIT_CACHE_SIZE];
+
+    /**
+     * Crée une table vide.
+     *
+     * @param frameCheck La séquence de contrôle négociée.
+     * @param modulus    Le modulo des numéros de séquence.
+     * @throws IllegalArgumentException Si le modulo n'est pas compris entre 2 et {@link ConnectionParameters#MAX_MODULUS}.
+     */
+    public ControlFrames(FrameCheck frameCheck, int modulus) {
+        if (modulus < 2 || modulus > ConnectionParameters.MAX_MODULUS) {
+            throw new IllegalArgumentException("Modulo invalide : " + modulus);
+        }
+        this.frameCheck = frameCheck;
+        this.modulus = modulus;
+        this.plain = new Entry[TYPES.length() * modulus];
+    }
+
+    /**
+     * Obtient un ACK, un REJ ou un RNR sans données.
+     *
+     * @param type Le type de la trame : 'A', 'R' ou 'N'.
+     * @param num  Le numéro de la trame.
+     * @return Une vue sur les octets de la trame, flags compris, dont le contenu ne doit pas être modifié.
+     * @throws IllegalArgumentException Si le type ou le numéro est invalide.
+     */
+    public ByteBuffer get(byte type, int num) {
+        int index = TYPES.indexOf(type);
+        if (index < 0 || num < 0 || num >= modulus) {
+            throw new IllegalArgumentException("Trame de contrôle invalide : " + (char) type + num);
+        }
+        int slot = index * modulus + num;
+        Entry entry = plain[slot];
+        if (entry == null) {
+            entry = new Entry(slot, build(new Frame(type, (byte) num, ByteBuffer.allocate(0))));
+            plain[slot] = entry;
+        }
+        return ByteBuffer.wrap(entry.bytes);
+    }
+
+    /**
+     * Obtient un RR portant un crédit sur un octet.
+     *
+     * @param num    Le numéro de la trame acquittée.
+     * @param credit Le crédit annoncé, de 0 à 255.
+     * @return Une vue sur les octets de la trame, flags compris, dont le contenu ne doit pas être modifié.
+     * @throws IllegalArgumentException Si le numéro ou le crédit est invalide.
+     */
+    public ByteBuffer rr(int num, int credit) {
+        if (num < 0 || num >= modulus || credit < 0 || credit > 0xFF) {
+            throw new IllegalArgumentException("RR invalide : " + num + ", crédit " + credit);
+        }
+        int key = (num << 8) | credit;
+        int slot = (key * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(CREDIT_CACHE_SIZE));
+        Entry entry = credited[slot];
+        if (entry == null || entry.key != key) {
+            entry = new Entry(key, build(new Frame((byte) 'A', (byte) num, ByteBuffer.wrap(new byte[] {(byte) credit}))));
+            credited[slot] = entry;
+        }
+        return ByteBuffer.wrap(entry.bytes);
+    }
+
+    /**
+     * Encode une trame de contrôle avec la séquence de contrôle de la table.
+     *
+     * @param frame La trame.
+     * @return Les octets de la trame, flags compris.
+     */
+    private byte[] build(Frame frame) {
+        frame.setFrameCheck(frameCheck);
+        return frame.buildFrame();
+    }
+
+    /**
+     * Obtient la séquence de contrôle des trames de la table.
+     *
+     * @return Le contrôle négocié.
+     */
+    public FrameCheck getFrameCheck() {
+        return frameCheck;
+    }
+}
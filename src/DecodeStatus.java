@@ -0,0 +1,63 @@
+/**
+ * Résultat du décodage d'une trame par {@link FrameDecoder#tryDecode(java.nio.ByteBuffer, FrameView, FrameCheck)}.
+ *
+ * <p>Sur un lien bruité, les trames corrompues ne sont pas exceptionnelles : le décodeur retourne
+ * un statut au lieu de lever une exception, ce qui évite la construction d'une exception et de sa
+ * pile d'appels pour chaque trame rejetée.</p>
+ */
+public enum DecodeStatus {
+    /**
+     * Trame décodée ; la vue est remplie.
+     */
+    OK,
+
+    /**
+     * Trame trop courte, avant ou après la suppression du bit stuffing.
+     */
+    TOO_SHORT,
+
+    /**
+     * Flag de début ou de fin absent.
+     */
+    BAD_FLAG,
+
+    /**
+     * Séquence d'échappement invalide en fin de données.
+     */
+    BAD_ESCAPE,
+
+    /**
+     * Séquence de contrôle différente de celle calculée : trame corrompue.
+     */
+    CRC_MISMATCH;
+
+    /**
+     * Indique si la trame a été décodée.
+     *
+     * @return {@code true} pour {@link #OK}.
+     */
+    public boolean isOk() {
+        return this == OK;
+    }
+
+    /**
+     * Obtient le message d'erreur correspondant au statut, repris par les exceptions de
+     * {@link FrameDecoder#decode(java.nio.ByteBuffer, FrameView, FrameCheck)}.
+     *
+     * @return Le message, ou {@code null} pour {@link #OK}.
+     */
+    public String getMessage() {
+        switch (this) {
+            case TOO_SHORT:
+                return "Trame trop courte.";
+            case BAD_FLAG:
+                return "Flags de début ou de fin incorrects.";
+            case BAD_ESCAPE:
+                return "Séquence d'échappement invalide en fin de données.";
+            case CRC_MISMATCH:
+                return "Erreur de CRC : trame corrompue.";
+            default:
+                return null;
+        }
+    }
+}
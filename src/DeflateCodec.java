@@ -0,0 +1,117 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Codec de compression basé sur Deflate ({@link Deflater} / {@link Inflater}).
+ * Le compresseur et le décompresseur sont créés une seule fois par session
+ * et réinitialisés entre deux blocs.
+ */
+public class DeflateCodec implements CompressionCodec {
+    /**
+     * Nom du codec annoncé dans la trame de connexion.
+     */
+    public static final String NAME = "deflate";
+
+    /**
+     * Compresseur réutilisé pour tous les blocs de la session.
+     */
+    private final Deflater deflater;
+
+    /**
+     * Décompresseur réutilisé pour tous les blocs de la session.
+     */
+    private final Inflater inflater;
+
+    /**
+     * Tampon de travail réutilisé pour la compression, et pour vérifier qu'un bloc décompressé ne dépasse pas sa taille maximale.
+     */
+    private byte[] scratch;
+
+    /**
+     * Crée un codec Deflate avec le niveau de compression par défaut.
+     */
+    public DeflateCodec() {
+        this(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Crée un codec Deflate.
+     *
+     * @param level Le niveau de compression (0 à 9, ou {@link Deflater#DEFAULT_COMPRESSION}).
+     */
+    public DeflateCodec(int level) {
+        // Format brut (sans en-tête zlib) : le CRC de la trame assure déjà l'intégrité
+        this.deflater = new Deflater(level, true);
+        this.inflater = new Inflater(true);
+        this.scratch = new byte[4096];
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] compress(byte[] input, int offset, int length) {
+        deflater.reset();
+        deflater.setInput(input, offset, length);
+        deflater.finish();
+        ByteArrayOutputStream output = new ByteArrayOutputStream(length);
+        while (!deflater.finished()) {
+            int n = deflater.deflate(scratch);
+            output.write(scratch, 0, n);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Le bloc est décompressé directement depuis les données reçues, sans copie, dans un tableau
+     * agrandi au besoin jusqu'à {@code maxLength} octets. L'octet supplémentaire que la documentation
+     * d'{@link Inflater} demande en mode brut n'est pas nécessaire pour un bloc terminé par
+     * {@link Deflater#finish()}.</p>
+     */
+    @Override
+    public byte[] decompress(byte[] input, int offset, int length, int maxLength) throws IOException {
+        inflater.reset();
+        inflater.setInput(input, offset, length);
+        byte[] output = new byte[(int) Math.min(maxLength, Math.max(scratch.length, length * 4L))];
+        int total = 0;
+        try {
+            while (!inflater.finished()) {
+                if (total == output.length) {
+                    if (total == maxLength) {
+                        // Sortie pleine : un seul octet de plus suffit à établir le dépassement
+                        if (inflater.inflate(scratch, 0, 1) > 0) {
+                            throw new IOException("Bloc décompressé de plus de " + maxLength + " octets.");
+                        }
+                        if (inflater.needsInput() || inflater.needsDictionary()) {
+                            throw new IOException("Bloc compressé tronqué.");
+                        }
+                        continue;
+                    }
+                    output = Arrays.copyOf(output, (int) Math.min(maxLength, 2L * output.length));
+                }
+                int n = inflater.inflate(output, total, output.length - total);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Bloc compressé tronqué.");
+                }
+                total += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Bloc compressé invalide : " + e.getMessage());
+        }
+        return total == output.length ? output : Arrays.copyOf(output, total);
+    }
+
+    @Override
+    public void close() {
+        deflater.end();
+        inflater.end();
+    }
+}
@@ -0,0 +1,79 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Destination des données reçues dans l'ordre par le {@link Receiver}.
+ * Chaque trame d'information acceptée est remise au puits (sink) dans l'ordre des numéros de séquence.
+ *
+ * <p>Cycle de vie :</p>
+ * <ul>
+ *     <li>{@link #open(String, long)} : appelé à la réception de la trame de connexion ('C').</li>
+ *     <li>{@link #deliver(ByteBuffer)} : appelé pour chaque trame 'I' acceptée.</li>
+ *     <li>{@link #complete()} : appelé à la réception de la trame de fin ('F').</li>
+ *     <li>{@link #close()} : appelé à la fermeture du récepteur, y compris après une interruption.</li>
+ * </ul>
+ */
+public interface DeliverySink extends Closeable {
+    /**
+     * Prépare le puits pour une nouvelle transmission ou pour la reprise d'une transmission interrompue.
+     *
+     * @param transferId   L'identifiant du transfert annoncé par l'émetteur, ou {@code null} s'il est inconnu.
+     * @param expectedSize La taille annoncée par l'émetteur en octets, ou {@code -1} si elle est inconnue.
+     * @return La position (en octets) à partir de laquelle l'émetteur doit reprendre, {@code 0} pour un nouveau transfert.
+     * @throws IOException Si une erreur d'entrée/sortie se produit.
+     */
+    long open(String transferId, long expectedSize) throws IOException;
+
+    /**
+     * Remet les données d'une trame reçue dans l'ordre.
+     * Le contenu entre la position et la limite du tampon est consommé. Le tampon n'est valide que
+     * pendant l'appel : un puits qui conserve les données doit les copier.
+     *
+     * @param payload Les données de la trame.
+     * @throws IOException Si une erreur d'entrée/sortie se produit.
+     */
+    void deliver(ByteBuffer payload) throws IOException;
+
+    /**
+     * Indique combien de trames le puits peut encore accepter sans bloquer le récepteur.
+     * Le récepteur l'annonce à l'émetteur lorsque le contrôle de flux est négocié.
+     *
+     * @return Le nombre de trames acceptables ; illimité par défaut, pour un puits qui ne met rien en attente.
+     */
+    default int credit() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Définit l'action exécutée lorsque le puits, après avoir été plein, a de nouveau de la place.
+     * Le récepteur s'en sert pour lever la suspension de l'émetteur (RR après RNR).
+     *
+     * @param listener L'action à exécuter, éventuellement depuis un autre thread.
+     */
+    default void setCreditListener(Runnable listener) {}
+
+    /**
+     * Force l'écriture des données mises en tampon.
+     *
+     * @throws IOException Si une erreur d'entrée/sortie se produit.
+     */
+    void flush() throws IOException;
+
+    /**
+     * Termine la transmission avec succès : toutes les données ont été reçues.
+     * Le puits est ensuite fermé.
+     *
+     * @throws IOException Si une erreur d'entrée/sortie se produit.
+     */
+    void complete() throws IOException;
+
+    /**
+     * Ferme le puits. Si la transmission n'est pas terminée, les données reçues sont conservées
+     * pour une reprise ultérieure lorsque le puits le permet. Les appels répétés n'ont aucun effet.
+     *
+     * @throws IOException Si une erreur d'entrée/sortie se produit.
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,283 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lecture et encodage anticipés des trames d'information de l'émetteur.
+ *
+ * <p>Un thread de lecture ("gbn-read-ahead") lit les blocs suivants du fichier pendant que les trames
+ * précédentes sont en vol, et confie la construction de chaque trame (séquence de contrôle, bit
+ * stuffing, byte stuffing) à un groupe de threads d'encodage ("gbn-encoder-N"). Les trames prêtes
+ * attendent dans une file bornée, dans l'ordre du fichier : lorsque la fenêtre s'ouvre, le producteur
+ * prend la trame suivante déjà encodée au lieu de lire et d'encoder à ce moment-là.</p>
+ *
+ * <p>Les trames d'information sont numérotées dans l'ordre d'envoi : chaque bloc est encodé avec le
+ * numéro qu'il recevra. Le numéro est confirmé à l'envoi par {@link Encoded#encodeAs(int)} ; s'il
+ * diffère, la trame est renumérotée et réencodée sur le producteur. Le numéro précède les données
+ * dans le flux soumis au bit stuffing : le modifier décale tous les bits qui suivent, si bien qu'un
+ * réencodage complet est la seule correction possible des octets déjà produits.</p>
+ *
+ * <p>Sans threads d'encodage, les blocs sont lus et encodés sur le producteur, au moment où il les
+ * demande, comme avant l'introduction de cette classe.</p>
+ */
+public class EncodeAhead implements AutoCloseable {
+    /**
+     * Journal de la classe.
+     */
+    private static final Log LOG = Log.getLog(EncodeAhead.class);
+
+    /**
+     * Nombre par défaut de trames lues et encodées d'avance.
+     */
+    public static final int DEFAULT_DEPTH = 32;
+
+    /**
+     * Source des blocs de données, lue dans l'ordre par un seul thread.
+     */
+    @FunctionalInterface
+    public interface BlockSource {
+        /**
+         * Lit le bloc suivant.
+         *
+         * @return Le bloc, ou {@code null} à la fin des données.
+         * @throws IOException Si la lecture échoue.
+         */
+        String read() throws IOException;
+    }
+
+    /**
+     * Trame lue d'avance, dont l'encodage est en cours ou terminé.
+     */
+    public static final class Encoded {
+        /**
+         * Trame d'information, numérotée avec le numéro prévu.
+         */
+        private final Frame frame;
+
+        /**
+         * Encodage de la trame, exécuté par un thread d'encodage ou, à défaut, par le producteur.
+         */
+        private final FutureTask<byte[]> encoding;
+
+        /**
+         * Crée une trame à encoder.
+         *
+         * @param frame La trame, numérotée avec le numéro prévu.
+         */
+        Encoded(Frame frame) {
+            this.frame = frame;
+            this.encoding = new FutureTask<>(frame::buildFrame);
+        }
+
+        /**
+         * Obtient la trame.
+         *
+         * @return La trame d'information.
+         */
+        public Frame getFrame() {
+            return frame;
+        }
+
+        /**
+         * Obtient les octets de la trame pour le numéro attribué à l'envoi. Si l'encodage n'a pas
+         * encore commencé, il est fait par le thread appelant plutôt que d'attendre un thread d'encodage ;
+         * si le numéro diffère du numéro prévu, la trame est renumérotée puis réencodée.
+         *
+         * @param num Le numéro attribué à la trame.
+         * @return Les octets de la trame, flags compris.
+         * @throws IOException Si l'encodage échoue ou si l'attente est interrompue.
+         */
+        public byte[] encodeAs(int num) throws IOException {
+            encoding.run(); // Sans effet si un thread d'encodage l'a déjà fait ou le fait
+            byte[] encoded;
+            try {
+                encoded = encoding.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Encodage interrompu");
+            } catch (ExecutionException e) {
+                throw new IOException("Échec de l'encodage de la trame " + num, e.getCause());
+            }
+            if (frame.getNum() != num) {
+                LOG.debug("Frame encoded as {} sent as {}, re-encoding", frame.getNum(), num);
+                frame.setNum((byte) num);
+                encoded = frame.buildFrame();
+            }
+            return encoded;
+        }
+    }
+
+    /**
+     * Source des blocs.
+     */
+    private final BlockSource source;
+
+    /**
+     * Séquence de contrôle des trames.
+     */
+    private final FrameCheck frameCheck;
+
+    /**
+     * Modulo des numéros de séquence.
+     */
+    private final int modulus;
+
+    /**
+     * Numéro prévu du prochain bloc lu ; écrit par le seul thread de lecture.
+     */
+    private int nextNum;
+
+    /**
+     * Trames lues et confiées aux encodeurs, dans l'ordre du fichier, ou {@code null} sans threads d'encodage.
+     */
+    private final BlockingQueue<Encoded> ready;
+
+    /**
+     * Threads d'encodage, ou {@code null} pour encoder sur le producteur.
+     */
+    private final ExecutorService encoders;
+
+    /**
+     * Thread de lecture, ou {@code null} pour lire sur le producteur.
+     */
+    private final Thread reader;
+
+    /**
+     * Marqueur de fin déposé dans la file après le dernier bloc.
+     */
+    private final Encoded endOfData = new Encoded(new Frame((byte) 'F', (byte) 0, ""));
+
+    /**
+     * Erreur de lecture du thread de lecture, signalée au producteur après les blocs déjà lus.
+     */
+    private volatile IOException failure;
+
+    /**
+     * Indique que la lecture anticipée est arrêtée.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Crée la lecture anticipée et démarre ses threads.
+     *
+     * @param source     La source des blocs.
+     * @param firstNum   Le numéro de la première trame.
+     * @param modulus    Le modulo des numéros de séquence.
+     * @param frameCheck La séquence de contrôle des trames.
+     * @param workers    Le nombre de threads d'encodage, ou 0 pour lire et encoder sur le producteur.
+     * @param depth      Le nombre maximal de trames lues d'avance.
+     * @throws IllegalArgumentException Si le nombre de threads est négatif ou la profondeur n'est pas positive.
+     */
+    public EncodeAhead(BlockSource source, int firstNum, int modulus, FrameCheck frameCheck, int workers, int depth) {
+        if (workers < 0 || depth < 1) {
+            throw new IllegalArgumentException("Encodage anticipé invalide : " + workers + " encodeurs, "
+                    + depth + " trames");
+        }
+        this.source = source;
+        this.nextNum = firstNum;
+        this.modulus = modulus;
+        this.frameCheck = frameCheck;
+        if (workers == 0) {
+            this.ready = null;
+            this.encoders = null;
+            this.reader = null;
+            return;
+        }
+        this.ready = new ArrayBlockingQueue<>(depth);
+        AtomicInteger index = new AtomicInteger();
+        this.encoders = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "gbn-encoder-" + index.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.reader = new Thread(this::readLoop, "gbn-read-ahead");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    /**
+     * Lit le bloc suivant et prépare sa trame, numérotée avec le numéro prévu.
+     *
+     * @return La trame à encoder, ou {@code null} à la fin des données.
+     * @throws IOException Si la lecture échoue.
+     */
+    private Encoded readNext() throws IOException {
+        String block = source.read();
+        if (block == null) {
+            return null;
+        }
+        Frame frame = new Frame((byte) 'I', (byte) nextNum, block);
+        frame.setFrameCheck(frameCheck);
+        nextNum = (nextNum + 1) % modulus;
+        return new Encoded(frame);
+    }
+
+    /**
+     * Boucle du thread de lecture : lit les blocs, les confie aux encodeurs et les range dans la file,
+     * en attendant une place lorsque la file est pleine.
+     */
+    private void readLoop() {
+        try {
+            Encoded next;
+            while (!closed && (next = readNext()) != null) {
+                ready.put(next);
+                encoders.execute(next.encoding);
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            return;
+        }
+        try {
+            ready.put(endOfData);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Obtient la trame suivante, dans l'ordre du fichier. Réservé au producteur.
+     *
+     * @return La trame, encodée ou en cours d'encodage, ou {@code null} à la fin des données.
+     * @throws IOException Si la lecture a échoué ou si l'attente est interrompue.
+     */
+    public Encoded next() throws IOException {
+        if (reader == null) {
+            return readNext();
+        }
+        Encoded next;
+        try {
+            next = ready.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Lecture anticipée interrompue");
+        }
+        if (next == endOfData) {
+            ready.add(endOfData); // Les appels suivants voient aussi la fin
+            IOException error = failure;
+            if (error != null) {
+                throw error;
+            }
+            return null;
+        }
+        return next;
+    }
+
+    /**
+     * Arrête la lecture et les threads d'encodage ; les trames encore en file sont abandonnées.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (reader != null) {
+            reader.interrupt();
+            encoders.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,339 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Puits de livraison qui écrit les données reçues dans un fichier via un {@link FileChannel}.
+ * Les données sont accumulées dans un grand tampon (write-behind) et écrites sur le disque
+ * selon la politique de vidage choisie.
+ *
+ * <p>Lorsque l'émetteur annonce la taille du fichier dans la trame de connexion, le fichier
+ * est pré-alloué à cette taille puis tronqué à la taille réellement écrite lors de la fermeture.</p>
+ *
+ * <p>Lorsque l'émetteur annonce un identifiant de transfert, un {@link Checkpoint} est enregistré
+ * à côté du fichier (suffixe {@code .ckpt}) à intervalles réguliers et à la fermeture. Il contient
+ * la position jusqu'à laquelle les données ont été forcées sur le disque. Une connexion ultérieure
+ * avec le même identifiant reprend à cette position ; le point de reprise est supprimé lorsque
+ * le transfert est terminé.</p>
+ */
+public class FileChannelSink implements DeliverySink {
+    /**
+     * Journal de la classe.
+     */
+    private static final Log LOG = Log.getLog(FileChannelSink.class);
+
+    /**
+     * Taille par défaut du tampon d'écriture (1 Mo).
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Intervalle par défaut entre deux points de reprise (16 Mo).
+     */
+    public static final long DEFAULT_CHECKPOINT_INTERVAL = 16L << 20;
+
+    /**
+     * Suffixe du fichier de point de reprise.
+     */
+    private static final String CHECKPOINT_SUFFIX = ".ckpt";
+
+    /**
+     * Politique de vidage du tampon vers le disque.
+     */
+    public enum FlushPolicy {
+        /**
+         * Le tampon est écrit lorsqu'il est plein, lors d'un {@link #flush()} et à la fermeture.
+         */
+        BUFFERED,
+
+        /**
+         * Le tampon est écrit après chaque livraison.
+         */
+        WRITE_THROUGH,
+
+        /**
+         * Comme {@link #BUFFERED}, mais chaque écriture du tampon est suivie d'un {@code force}
+         * pour garantir la durabilité des données.
+         */
+        FSYNC
+    }
+
+    /**
+     * Chemin du fichier de sortie.
+     */
+    private final Path path;
+
+    /**
+     * Politique de vidage utilisée.
+     */
+    private final FlushPolicy policy;
+
+    /**
+     * Tampon d'écriture différée.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Nombre d'octets écrits entre deux points de reprise.
+     */
+    private final long checkpointInterval;
+
+    /**
+     * Chemin du fichier de point de reprise.
+     */
+    private final Path checkpointPath;
+
+    /**
+     * Identifiant du transfert en cours, ou {@code null} si la reprise n'est pas possible.
+     */
+    private String transferId;
+
+    /**
+     * Position du dernier point de reprise enregistré.
+     */
+    private long checkpointOffset;
+
+    /**
+     * Canal vers le fichier de sortie.
+     */
+    private FileChannel channel;
+
+    /**
+     * Position d'écriture dans le fichier (nombre d'octets déjà écrits sur le canal).
+     */
+    private long position;
+
+    /**
+     * Indique si le fichier a été pré-alloué et doit être tronqué à la fermeture.
+     */
+    private boolean preallocated;
+
+    /**
+     * Crée un puits vers un fichier avec le tampon par défaut et la politique {@link FlushPolicy#BUFFERED}.
+     *
+     * @param path Le chemin du fichier de sortie.
+     */
+    public FileChannelSink(Path path) {
+        this(path, DEFAULT_BUFFER_SIZE, FlushPolicy.BUFFERED);
+    }
+
+    /**
+     * Crée un puits vers un fichier avec l'intervalle de point de reprise par défaut.
+     *
+     * @param path       Le chemin du fichier de sortie.
+     * @param bufferSize La taille du tampon d'écriture en octets.
+     * @param policy     La politique de vidage.
+     * @throws IllegalArgumentException Si la taille du tampon n'est pas positive.
+     */
+    public FileChannelSink(Path path, int bufferSize, FlushPolicy policy) {
+        this(path, bufferSize, policy, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * Crée un puits vers un fichier.
+     *
+     * @param path               Le chemin du fichier de sortie.
+     * @param bufferSize         La taille du tampon d'écriture en octets.
+     * @param policy             La politique de vidage.
+     * @param checkpointInterval Le nombre d'octets écrits entre deux points de reprise.
+     * @throws IllegalArgumentException Si la taille du tampon ou l'intervalle n'est pas positif.
+     */
+    public FileChannelSink(Path path, int bufferSize, FlushPolicy policy, long checkpointInterval) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("La taille du tampon doit être positive.");
+        }
+        if (checkpointInterval <= 0) {
+            throw new IllegalArgumentException("L'intervalle de point de reprise doit être positif.");
+        }
+        this.path = path;
+        this.policy = policy;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.checkpointInterval = checkpointInterval;
+        this.checkpointPath = path.resolveSibling(path.getFileName() + CHECKPOINT_SUFFIX);
+    }
+
+    /**
+     * Ouvre le fichier de sortie. Si un point de reprise valide existe pour le même transfert,
+     * le fichier est conservé jusqu'à la position du point de reprise ; sinon il est recréé
+     * et pré-alloué si la taille est connue.
+     *
+     * @param transferId   L'identifiant du transfert, ou {@code null} si la reprise n'est pas possible.
+     * @param expectedSize La taille annoncée par l'émetteur, ou {@code -1} si elle est inconnue.
+     * @return La position à partir de laquelle l'émetteur doit reprendre.
+     * @throws IOException Si le fichier ne peut pas être ouvert.
+     */
+    @Override
+    public long open(String transferId, long expectedSize) throws IOException {
+        if (channel != null) {
+            return position;
+        }
+        this.transferId = transferId;
+
+        Checkpoint checkpoint = transferId != null ? Checkpoint.load(checkpointPath) : null;
+        if (checkpoint != null && checkpoint.getTransferId().equals(transferId)
+                && Files.exists(path) && Files.size(path) >= checkpoint.getOffset()) {
+            // Reprise : on ne garde que les données rendues durables par le dernier point de reprise
+            channel = FileChannel.open(path, StandardOpenOption.WRITE);
+            position = checkpoint.getOffset();
+            checkpointOffset = position;
+            preallocated = true;
+            LOG.info("Resuming transfer {} at offset {}", transferId, position);
+            return position;
+        }
+
+        Files.deleteIfExists(checkpointPath);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        position = 0;
+        checkpointOffset = 0;
+        if (expectedSize > 0) {
+            // Réserver l'espace en écrivant le dernier octet du fichier
+            channel.write(ByteBuffer.wrap(new byte[1]), expectedSize - 1);
+            preallocated = true;
+        }
+        return 0;
+    }
+
+    /**
+     * Ajoute les données au tampon et l'écrit sur le disque lorsqu'il est plein
+     * ou si la politique l'exige.
+     *
+     * @param payload Les données de la trame.
+     * @throws IOException Si l'écriture échoue ou si le puits n'est pas ouvert.
+     */
+    @Override
+    public void deliver(ByteBuffer payload) throws IOException {
+        if (channel == null) {
+            open(null, -1);
+        }
+        while (payload.hasRemaining()) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            int length = Math.min(buffer.remaining(), payload.remaining());
+            ByteBuffer chunk = payload.duplicate();
+            chunk.limit(chunk.position() + length);
+            buffer.put(chunk);
+            payload.position(payload.position() + length);
+        }
+        if (policy == FlushPolicy.WRITE_THROUGH) {
+            drain();
+        }
+    }
+
+    /**
+     * Écrit le contenu du tampon sur le disque.
+     *
+     * @throws IOException Si l'écriture échoue.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (channel != null) {
+            drain();
+        }
+    }
+
+    /**
+     * Termine le transfert : vide le tampon, retire la pré-allocation inutilisée,
+     * supprime le point de reprise puis ferme le canal.
+     *
+     * @throws IOException Si l'écriture ou la fermeture échoue.
+     */
+    @Override
+    public void complete() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            drain();
+            if (preallocated) {
+                channel.truncate(position);
+            }
+            if (policy != FlushPolicy.BUFFERED) {
+                channel.force(true);
+            }
+            Files.deleteIfExists(checkpointPath);
+        } finally {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Ferme le puits. Si le transfert n'a pas été terminé par {@link #complete()}, les données
+     * sont forcées sur le disque et un point de reprise est enregistré pour une connexion ultérieure.
+     *
+     * @throws IOException Si l'écriture ou la fermeture échoue.
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            drain();
+            if (transferId != null) {
+                checkpoint();
+            } else if (preallocated) {
+                channel.truncate(position);
+            }
+        } finally {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Obtient le nombre d'octets déjà écrits sur le disque.
+     *
+     * @return Le nombre d'octets écrits, sans compter le contenu encore dans le tampon.
+     */
+    public long getWrittenBytes() {
+        return position;
+    }
+
+    /**
+     * Obtient la position du dernier point de reprise enregistré.
+     *
+     * @return La position durable en octets.
+     */
+    public long getCheckpointOffset() {
+        return checkpointOffset;
+    }
+
+    /**
+     * Écrit le contenu du tampon à la position courante du fichier, puis enregistre
+     * un point de reprise si l'intervalle est atteint.
+     *
+     * @throws IOException Si l'écriture échoue.
+     */
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        buffer.clear();
+        if (policy == FlushPolicy.FSYNC) {
+            channel.force(false);
+        }
+        if (transferId != null && position - checkpointOffset >= checkpointInterval) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Force les données écrites sur le disque et enregistre la position atteinte comme point de reprise.
+     *
+     * @throws IOException Si la synchronisation ou l'écriture du point de reprise échoue.
+     */
+    private void checkpoint() throws IOException {
+        if (policy != FlushPolicy.FSYNC) {
+            channel.force(false);
+        }
+        new Checkpoint(transferId, position).store(checkpointPath);
+        checkpointOffset = position;
+    }
+}
@@ -1,12 +1,16 @@
-import java.util.ArrayList;
-import java.util.List;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Classe représentant une trame utilisée pour le transfert de données binaires.
  * La trame inclut des informations telles que le type, un numéro, les données,
  * et un CRC (Cyclic Redundancy Check) pour la vérification d'intégrité.
  *
+ * <p>L'en-tête et la séquence de contrôle sont des primitives et les données un {@link ByteBuffer} :
+ * une trame ne crée ni chaîne ni objet {@link CRC}, sauf à la demande de {@link #getData()} ou de
+ * {@link #getCrc()}, conservés pour les appelants de l'API par chaînes.</p>
+ *
  * <p>Cette classe gère la construction et l'analyse des trames en appliquant
  * des mécanismes de bit stuffing et de byte stuffing pour assurer une transmission
  * fiable et éviter les ambiguïtés liées aux flags de délimitation.</p>
@@ -16,8 +20,12 @@ import java.io.*;
  *     <li><b>'C'</b> : Trame de connexion</li>
  *     <li><b>'I'</b> : Trame d'information (données)</li>
  *     <li><b>'F'</b> : Trame de fin de transmission</li>
- *     <li><b>'A'</b> : Trame d'accusé de réception (ACK)</li>
+ *     <li><b>'A'</b> : Trame d'accusé de réception (ACK), ou RR portant le crédit avec le contrôle de flux</li>
  *     <li><b>'R'</b> : Trame de rejet (REJ)</li>
+ *     <li><b>'P'</b> : Trame de parité (FEC), voir {@link ParityBlock}</li>
+ *     <li><b>'S'</b> : Trame de rejet sélectif (SREJ), voir {@link ReceiveBuffer#bitmap()}</li>
+ *     <li><b>'N'</b> : Trame récepteur non prêt (RNR), avec le contrôle de flux</li>
+ *     <li><b>'Q'</b> : Trame d'interrogation du récepteur par le timer de persistance</li>
  * </ul>
  */
 public class Frame {
@@ -40,37 +48,73 @@ public class Frame {
     private byte type;
 
     /**
-     * Numéro de la trame, encodé sur 3 bits.
+     * Numéro de la trame, modulo le modulo négocié (8 par défaut, soit 3 bits), encodé sur un octet.
      * Permet de suivre l'ordre des trames et de gérer les accusés de réception.
      */
-    private byte num; // numéro encodé sur 3 bits
+    private byte num; // numéro encodé sur un octet, 3 bits utiles par défaut
 
     /**
-     * Données contenues dans la trame.
+     * Données contenues dans la trame, de la position 0 à la limite.
      * Pour les trames de type 'I', cela représente les données transmises.
      * Pour d'autres types de trames, cela peut contenir des messages de contrôle ou être vide.
      */
+    private ByteBuffer payload;
+
+    /**
+     * Données sous forme de chaîne (un caractère par octet), créées à la première demande.
+     */
     private String data;
 
     /**
-     * Instance de la classe {@link CRC} utilisée pour calculer et vérifier le CRC de la trame.
-     * Assure l'intégrité des données transmises.
+     * Séquence de contrôle de la trame, calculée par {@link #buildFrame()} ou reçue.
+     */
+    private int fcs;
+
+    /**
+     * Indique que {@link #fcs} est connue.
+     */
+    private boolean hasFcs;
+
+    /**
+     * Adaptateur {@link CRC} de l'ancienne API, créé ou mis à jour par {@link #getCrc()} ;
+     * la trame elle-même n'en a pas besoin.
      */
     private CRC crc;
 
+    /**
+     * Type de séquence de contrôle négocié pour la session. La trame de connexion utilise toujours le CRC-16.
+     */
+    private FrameCheck frameCheck = FrameCheck.CRC16;
+
+    /**
+     * Exception levée par {@link #parseFrame(byte[])} lorsque le CRC reçu ne correspond pas
+     * au CRC calculé, afin de distinguer les trames corrompues des trames mal formées.
+     */
+    public static class CrcMismatchException extends Exception {
+        /**
+         * Version de sérialisation de l'exception.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Crée l'exception avec le message standard de CRC incorrect.
+         */
+        public CrcMismatchException() {
+            super("Erreur de CRC : trame corrompue.");
+        }
+    }
+
     /**
      * Constructeur complet pour une trame.
      * Initialise tous les champs nécessaires à la création d'une trame valide.
      *
      * @param type Le type de la trame (par exemple, 'C', 'I', 'F').
-     * @param num  Le numéro de la trame, encodé sur 3 bits.
+     * @param num  Le numéro de la trame, inférieur au modulo négocié.
      * @param data Les données contenues dans la trame.
-     * @param crc  L'instance de {@link CRC} utilisée pour le calcul et la vérification du CRC.
+     * @param crc  L'instance de {@link CRC} renvoyée par {@link #getCrc()}, mise à jour à chaque appel.
      */
     public Frame(byte type, byte num, String data, CRC crc) {
-        this.type = type;
-        this.num = (byte) (num & 0x07); // Assurez-vous que num est sur 3 bits
-        this.data = data;
+        this(type, num, data);
         this.crc = crc;
     }
 
@@ -80,34 +124,82 @@ public class Frame {
      *
      * @param type Le type de la trame (par exemple, 'C', 'I', 'F').
      * @param data Les données contenues dans la trame.
-     * @param crc  L'instance de {@link CRC} utilisée pour le calcul et la vérification du CRC.
+     * @param crc  L'instance de {@link CRC} renvoyée par {@link #getCrc()}, mise à jour à chaque appel.
      */
     public Frame(byte type, String data, CRC crc) {
-        this.type = type;
+        this(type, (byte) 0, data, crc);
+    }
+
+    /**
+     * Crée une trame dont les données sont une chaîne (un octet par caractère).
+     *
+     * @param type Le type de la trame (par exemple, 'C', 'I', 'F').
+     * @param num  Le numéro de la trame, inférieur au modulo négocié.
+     * @param data Les données contenues dans la trame.
+     */
+    public Frame(byte type, byte num, String data) {
+        this(type, num, ByteBuffer.wrap(toBytes(data)));
         this.data = data;
-        this.crc = crc;
-        this.num = 0;
+    }
+
+    /**
+     * Crée une trame sur un tampon de données, sans copie. Le contenu du tampon, de sa position
+     * à sa limite, ne doit plus être modifié tant que la trame est utilisée.
+     *
+     * @param type    Le type de la trame (par exemple, 'C', 'I', 'F').
+     * @param num     Le numéro de la trame, inférieur au modulo négocié.
+     * @param payload Les données contenues dans la trame.
+     */
+    public Frame(byte type, byte num, ByteBuffer payload) {
+        this.type = type;
+        this.num = (byte) (num & 0x7F); // Le modulo ne dépasse pas 128
+        this.payload = payload.slice();
+    }
+
+    /**
+     * Crée une trame reçue, dont la séquence de contrôle est connue.
+     *
+     * @param type    Le type de la trame.
+     * @param num     Le numéro de la trame.
+     * @param payload Les données, qui ne doivent plus être modifiées.
+     * @param fcs     La séquence de contrôle reçue.
+     * @param check   Le type de la séquence de contrôle.
+     */
+    Frame(byte type, byte num, ByteBuffer payload, int fcs, FrameCheck check) {
+        this(type, num, payload);
+        this.fcs = fcs;
+        this.hasFcs = true;
+        this.frameCheck = check;
     }
 
     /**
      * Construit une trame sous forme de tableau de bytes.
-     * Applique le bit stuffing et le byte stuffing, puis ajoute les flags de début et de fin.
+     * Ajoute la séquence de contrôle ({@link FrameCheck}), applique le bit stuffing et le byte stuffing,
+     * puis ajoute les flags de début et de fin.
      *
      * @return Un tableau de bytes représentant la trame complète avec bit stuffing, byte stuffing, et des FLAGs.
      */
     public byte[] buildFrame() {
-        // Construire la donnée binaire combinée (Type, Num, Data)
-        String combined = String.format("%8s", Integer.toBinaryString(type & 0xFF)).replace(' ', '0') +
-                String.format("%8s", Integer.toBinaryString(num & 0x07)).replace(' ', '0') +
-                stringToBinary(data);
-
-        // Calculer le CRC
-        String crcStr = CRC.computeCRC(combined);
-        this.crc.setCrcBits(crcStr); // Mettre à jour crcBits
-        combined += crcStr;
+        // Octets couverts par la séquence de contrôle (Type, Num, Data)
+        byte[] covered = new byte[2 + payload.remaining()];
+        covered[0] = type;
+        covered[1] = num;
+        payload.duplicate().get(covered, 2, covered.length - 2);
+
+        // Calculer la séquence de contrôle sur ces octets
+        FrameCheck check = FrameCheck.forType(type, frameCheck);
+        fcs = check.compute(covered, 0, covered.length);
+        hasFcs = true;
+
+        // Construire la donnée binaire combinée (Type, Num, Data, FCS)
+        StringBuilder combined = new StringBuilder((covered.length + check.getLength()) * 8);
+        for (byte b : covered) {
+            appendBits(combined, b & 0xFF, 8);
+        }
+        appendBits(combined, fcs, check.getLength() * 8);
 
         // Appliquer le bit stuffing
-        String stuffed = BitStuffing.applyBitStuffing(combined);
+        String stuffed = BitStuffing.applyBitStuffing(combined.toString());
 
         // Convertir en bytes
         byte[] stuffedBytes = BitStuffing.binaryStringToBytes(stuffed);
@@ -116,18 +208,10 @@ public class Frame {
         byte[] stuffedAndEscapedBytes = applyByteStuffing(stuffedBytes);
 
         // Construire la trame finale avec les FLAGs
-        List<Byte> frame = new ArrayList<>();
-        frame.add(FLAG); // FLAG de début
-        for (byte b : stuffedAndEscapedBytes) {
-            frame.add(b);
-        }
-        frame.add(FLAG); // FLAG de fin
-
-        // Convertir en tableau de bytes
-        byte[] frameArray = new byte[frame.size()];
-        for (int i = 0; i < frame.size(); i++) {
-            frameArray[i] = frame.get(i);
-        }
+        byte[] frameArray = new byte[stuffedAndEscapedBytes.length + 2];
+        frameArray[0] = FLAG; // FLAG de début
+        System.arraycopy(stuffedAndEscapedBytes, 0, frameArray, 1, stuffedAndEscapedBytes.length);
+        frameArray[frameArray.length - 1] = FLAG; // FLAG de fin
 
         return frameArray;
     }
@@ -137,68 +221,31 @@ public class Frame {
      * Décode les informations de la trame, enlève le byte stuffing et le bit stuffing,
      * puis vérifie l'intégrité du CRC.
      *
+     * <p>Le décodage est fait par le {@link FrameDecoder} du thread courant ; les appelants
+     * sensibles aux performances utilisent directement le décodeur et sa {@link FrameView},
+     * qui évitent la conversion des données en chaîne.</p>
+     *
      * @param frameData Un tableau de bytes représentant la trame reçue.
      * @return Une instance de {@link Frame} représentant la trame décodée.
-     * @throws Exception Si la trame est invalide, trop courte, ou si le CRC ne correspond pas.
+     * @throws CrcMismatchException Si le CRC ne correspond pas.
+     * @throws Exception Si la trame est invalide ou trop courte.
      */
     public static Frame parseFrame(byte[] frameData) throws Exception {
-        if (frameData.length < 4) {
-            throw new Exception("Trame trop courte.");
-        }
-
-        if (frameData[0] != FLAG || frameData[frameData.length - 1] != FLAG) {
-            throw new Exception("Flags de début ou de fin incorrects.");
-        }
-
-        // Extraire le contenu entre les FLAGs
-        byte[] content = new byte[frameData.length - 2];
-        System.arraycopy(frameData, 1, content, 0, frameData.length - 2);
-
-        // Supprimer le byte stuffing
-        byte[] unescapedContent = removeByteStuffing(content);
-
-        // Convertir les bytes en chaîne binaire
-        String bitString = BitStuffing.bytesToBinaryString(unescapedContent);
-
-        // Supprimer le bit stuffing
-        String unstuffed = BitStuffing.removeBitStuffing(bitString);
-
-        // Vérifier la longueur minimale (Type + Num + CRC)
-        if (unstuffed.length() < 8 + 8 + 16) {
-            throw new Exception("Trame trop courte après suppression du bit stuffing.");
-        }
-
-        // Extraire le type
-        String typeStr = unstuffed.substring(0, 8);
-        byte type = (byte) Integer.parseInt(typeStr, 2);
-
-        // Extraire le numéro
-        String numStr = unstuffed.substring(8, 16);
-        byte num = (byte) (Integer.parseInt(numStr, 2) & 0x07); // Garder seulement les 3 bits
-
-        // Extraire le CRC
-        String crcStr = unstuffed.substring(unstuffed.length() - 16);
-        CRC crc = new CRC();
-        crc.setCrcBits(crcStr); // Conserver le crcBits extrait
-
-        // Extraire les données
-        String dataBits = unstuffed.substring(16, unstuffed.length() - 16);
-
-        // Combiner Type, Num et Data pour le calcul du CRC
-        String combinedData = typeStr + numStr + dataBits;
-
-        // Calculer le CRC pour vérifier l'intégrité
-        String computedCRC = CRC.computeCRC(combinedData);
-
-        // Vérifier si le CRC correspond
-        if (!computedCRC.equals(crcStr)) {
-            throw new Exception("Erreur de CRC : trame corrompue.");
-        }
-
-        // Convertir les données binaires en chaîne de caractères
-        String data = binaryToString(dataBits);
+        return parseFrame(frameData, FrameCheck.CRC16);
+    }
 
-        return new Frame(type, num, data, crc);
+    /**
+     * Analyse une trame reçue en vérifiant la séquence de contrôle négociée.
+     * Une trame de connexion est toujours vérifiée par le CRC-16.
+     *
+     * @param frameData Un tableau de bytes représentant la trame reçue.
+     * @param check     Le contrôle négocié pour la session.
+     * @return Une instance de {@link Frame} représentant la trame décodée.
+     * @throws CrcMismatchException Si la séquence de contrôle ne correspond pas.
+     * @throws Exception Si la trame est invalide ou trop courte.
+     */
+    public static Frame parseFrame(byte[] frameData, FrameCheck check) throws Exception {
+        return FrameDecoder.forCurrentThread().decode(ByteBuffer.wrap(frameData), new FrameView(), check).toFrame();
     }
 
     /**
@@ -212,32 +259,30 @@ public class Frame {
     }
 
     /**
-     * Convertit une chaîne binaire en une chaîne de caractères.
+     * Ajoute les bits de poids faible d'une valeur à une chaîne binaire, du plus fort au plus faible.
      *
-     * @param binary La chaîne binaire à convertir.
-     * @return Une chaîne de caractères représentant les données binaires.
-     */
-    private static String binaryToString(String binary) {
-        StringBuilder result = new StringBuilder();
-        for (int i = 0; i < binary.length(); i += 8) {
-            String byteStr = binary.substring(i, Math.min(i + 8, binary.length()));
-            result.append((char) Integer.parseInt(byteStr, 2));
+     * @param bits  La chaîne binaire à compléter.
+     * @param value La valeur.
+     * @param count Le nombre de bits à ajouter.
+     */
+    private static void appendBits(StringBuilder bits, int value, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            bits.append((value >>> i & 1) != 0 ? '1' : '0');
         }
-        return result.toString();
     }
 
     /**
-     * Convertit une chaîne de caractères en une représentation binaire.
+     * Convertit une chaîne en octets, un octet par caractère (les 8 bits de poids faible).
      *
-     * @param input La chaîne de caractères à convertir.
-     * @return Une chaîne binaire représentant les caractères.
+     * @param data La chaîne à convertir.
+     * @return Les octets de la chaîne.
      */
-    private String stringToBinary(String input) {
-        StringBuilder result = new StringBuilder();
-        for (char c : input.toCharArray()) {
-            result.append(String.format("%8s", Integer.toBinaryString(c)).replace(' ', '0'));
+    private static byte[] toBytes(String data) {
+        byte[] bytes = new byte[data.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) data.charAt(i);
         }
-        return result.toString();
+        return bytes;
     }
 
     /**
@@ -259,32 +304,6 @@ public class Frame {
         return outputStream.toByteArray();
     }
 
-    /**
-     * Supprime le byte stuffing d'un tableau de bytes.
-     *
-     * @param data Le tableau de bytes à traiter.
-     * @return Un tableau de bytes sans byte stuffing.
-     * @throws Exception Si une séquence d'échappement est invalide.
-     */
-    private static byte[] removeByteStuffing(byte[] data) throws Exception {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        boolean escapeFlag = false;
-        for (byte b : data) {
-            if (escapeFlag) {
-                outputStream.write((byte) (b ^ 0x20));
-                escapeFlag = false;
-            } else if (b == ESCAPE) {
-                escapeFlag = true;
-            } else {
-                outputStream.write(b);
-            }
-        }
-        if (escapeFlag) {
-            throw new Exception("Séquence d'échappement invalide en fin de données.");
-        }
-        return outputStream.toByteArray();
-    }
-
     /**
      * Retourne une représentation textuelle de la trame.
      *
@@ -295,8 +314,8 @@ public class Frame {
         return "Frame {" +
                 "Type=" + (char) type +
                 ", Num=" + num +
-                ", Data='" + data + '\'' +
-                ", CRC='" + crc.getCrcBits() + '\'' +
+                ", Data='" + getData() + '\'' +
+                ", CRC='" + (hasFcs ? FrameCheck.forType(type, frameCheck).toBinaryString(fcs) : null) + '\'' +
                 '}';
     }
 
@@ -323,7 +342,7 @@ public class Frame {
     /**
      * Obtient le numéro de la trame.
      *
-     * @return Le numéro de la trame encodé sur 3 bits.
+     * @return Le numéro de la trame, inférieur au modulo négocié.
      */
     public byte getNum() {
         return num;
@@ -333,18 +352,22 @@ public class Frame {
      * Définit le numéro de la trame.
      *
      * @param num Le numéro de la trame sous forme de byte.
-     *            Seules les 3 bits de poids faible sont conservés.
+     *            Seuls les 7 bits de poids faible sont conservés (modulo maximal 128).
      */
     public void setNum(byte num) {
-        this.num = (byte) (num & 0x07);
+        this.num = (byte) (num & 0x7F);
     }
 
     /**
-     * Obtient les données de la trame.
+     * Obtient les données de la trame sous forme de chaîne, créée à la première demande.
+     * Les appelants qui n'ont besoin que des octets utilisent {@link #getPayload()}.
      *
-     * @return Les données de la trame sous forme de chaîne de caractères.
+     * @return Les données de la trame sous forme de chaîne de caractères (un caractère par octet).
      */
     public String getData() {
+        if (data == null) {
+            data = new String(toArray(), StandardCharsets.ISO_8859_1);
+        }
         return data;
     }
 
@@ -354,24 +377,94 @@ public class Frame {
      * @param data Les données de la trame sous forme de chaîne de caractères.
      */
     public void setData(String data) {
+        this.payload = ByteBuffer.wrap(toBytes(data));
         this.data = data;
     }
 
     /**
-     * Obtient l'instance de {@link CRC} associée à la trame.
+     * Obtient les données de la trame, sans copie. Le tampon renvoyé est une vue indépendante :
+     * sa position et sa limite appartiennent à l'appelant, mais son contenu ne doit pas être modifié.
+     *
+     * @return Les données de la trame.
+     */
+    public ByteBuffer getPayload() {
+        return payload.duplicate();
+    }
+
+    /**
+     * Obtient la taille des données de la trame.
+     *
+     * @return Le nombre d'octets de données.
+     */
+    public int getPayloadLength() {
+        return payload.remaining();
+    }
+
+    /**
+     * Copie les données de la trame dans un tableau.
+     *
+     * @return Un nouveau tableau contenant les données.
+     */
+    private byte[] toArray() {
+        byte[] bytes = new byte[payload.remaining()];
+        payload.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Obtient la séquence de contrôle de la trame.
+     *
+     * @return La séquence calculée par {@link #buildFrame()} ou reçue, 0 si elle n'est pas encore connue.
+     */
+    public int getFcs() {
+        return fcs;
+    }
+
+    /**
+     * Obtient l'instance de {@link CRC} associée à la trame, adaptateur de l'ancienne API : elle est
+     * créée à la première demande et ses bits reflètent la séquence de contrôle courante.
      *
-     * @return L'instance de {@link CRC}.
+     * @return L'instance de {@link CRC}, sans bits si la séquence de contrôle n'est pas encore connue.
      */
     public CRC getCrc() {
+        if (crc == null) {
+            crc = new CRC();
+        }
+        if (hasFcs) {
+            crc.setCrcBits(FrameCheck.forType(type, frameCheck).toBinaryString(fcs));
+        }
         return crc;
     }
 
     /**
-     * Définit l'instance de {@link CRC} associée à la trame.
+     * Définit l'instance de {@link CRC} associée à la trame. Ses bits, s'ils sont définis,
+     * deviennent la séquence de contrôle de la trame.
      *
      * @param crc L'instance de {@link CRC} à associer à la trame.
      */
     public void setCrc(CRC crc) {
         this.crc = crc;
+        if (crc != null && crc.getCrcBits() != null) {
+            this.fcs = Integer.parseUnsignedInt(crc.getCrcBits(), 2);
+            this.hasFcs = true;
+        }
+    }
+
+    /**
+     * Obtient le type de séquence de contrôle de la trame.
+     *
+     * @return Le contrôle négocié pour la session.
+     */
+    public FrameCheck getFrameCheck() {
+        return frameCheck;
+    }
+
+    /**
+     * Définit le type de séquence de contrôle de la trame.
+     *
+     * @param frameCheck Le contrôle négocié pour la session (ignoré pour une trame de connexion).
+     */
+    public void setFrameCheck(FrameCheck frameCheck) {
+        this.frameCheck = frameCheck;
     }
 }
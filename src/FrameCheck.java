@@ -0,0 +1,148 @@
+import java.util.zip.CRC32C;
+
+/**
+ * Séquence de contrôle (FCS) placée à la fin de chaque trame, calculée sur le type, le numéro
+ * et les données avant le bit stuffing.
+ *
+ * <p>Le CRC-16 est le contrôle historique du protocole et reste celui par défaut. Le CRC-32C
+ * (polynôme de Castagnoli) détecte mieux les erreurs sur les grandes trames ; il est calculé par
+ * {@link CRC32C}, que la JVM traduit en instructions CRC du processeur (SSE4.2, ARMv8).</p>
+ *
+ * <p>Le contrôle est négocié dans la trame de connexion (option {@code fcs}). La trame 'C' et l'ACK
+ * qui lui répond sont toujours protégés par le CRC-16, puisqu'ils précèdent la négociation ;
+ * le contrôle négocié s'applique à toutes les trames suivantes.</p>
+ */
+public enum FrameCheck {
+    /**
+     * CRC-CCITT sur 16 bits (polynôme 0x1021, valeur initiale 0), identique à {@link CRC#computeCRC(String)}.
+     */
+    CRC16("crc16", 2),
+
+    /**
+     * CRC-32C (Castagnoli) sur 32 bits.
+     */
+    CRC32C("crc32c", 4);
+
+    /**
+     * Nom du contrôle annoncé dans la trame de connexion.
+     */
+    private final String name;
+
+    /**
+     * Taille de la séquence de contrôle en octets.
+     */
+    private final int length;
+
+    /**
+     * Crée un type de contrôle.
+     *
+     * @param name   Le nom annoncé dans la trame de connexion.
+     * @param length La taille de la séquence de contrôle en octets.
+     */
+    FrameCheck(String name, int length) {
+        this.name = name;
+        this.length = length;
+    }
+
+    /**
+     * Obtient le contrôle correspondant à un nom annoncé.
+     *
+     * @param name Le nom du contrôle (par exemple "crc32c").
+     * @return Le contrôle, ou {@code null} s'il est inconnu.
+     */
+    public static FrameCheck forName(String name) {
+        for (FrameCheck check : values()) {
+            if (check.name.equals(name)) {
+                return check;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Obtient le contrôle à appliquer à une trame : le CRC-16 pour la trame de connexion,
+     * le contrôle négocié pour les autres.
+     *
+     * @param type       Le type de la trame.
+     * @param negotiated Le contrôle négocié pour la session.
+     * @return Le contrôle de la trame.
+     */
+    public static FrameCheck forType(byte type, FrameCheck negotiated) {
+        return type == 'C' ? CRC16 : negotiated;
+    }
+
+    /**
+     * Obtient le nom du contrôle annoncé dans la trame de connexion.
+     *
+     * @return Le nom du contrôle.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Obtient la taille de la séquence de contrôle.
+     *
+     * @return La taille en octets.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Calcule la séquence de contrôle d'une suite d'octets.
+     *
+     * @param data   Les octets.
+     * @param offset La position du premier octet.
+     * @param count  Le nombre d'octets.
+     * @return La séquence de contrôle, sur {@link #getLength()} octets (non signée pour le CRC-32C).
+     */
+    public int compute(byte[] data, int offset, int count) {
+        return compute(new CRC32C(), data, offset, count);
+    }
+
+    /**
+     * Calcule la séquence de contrôle d'une suite d'octets avec un calcul de CRC-32C réutilisé,
+     * pour les décodeurs qui ne doivent rien allouer par trame.
+     *
+     * @param crc    Le calcul de CRC-32C à réinitialiser et réutiliser (ignoré pour le CRC-16).
+     * @param data   Les octets.
+     * @param offset La position du premier octet.
+     * @param count  Le nombre d'octets.
+     * @return La séquence de contrôle, sur {@link #getLength()} octets (non signée pour le CRC-32C).
+     */
+    public int compute(CRC32C crc, byte[] data, int offset, int count) {
+        if (this == CRC16) {
+            return FrameDecoder.crc16(data, offset, count);
+        }
+        crc.reset();
+        crc.update(data, offset, count);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Lit une séquence de contrôle reçue, octets de poids fort en premier.
+     *
+     * @param data   Les octets de la trame.
+     * @param offset La position du premier octet de la séquence.
+     * @return La séquence de contrôle.
+     */
+    public int read(byte[] data, int offset) {
+        int value = 0;
+        for (int i = 0; i < length; i++) {
+            value = (value << 8) | (data[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Représente une séquence de contrôle en binaire, sur {@link #getLength()} octets.
+     *
+     * @param value La séquence de contrôle.
+     * @return La chaîne de '0' et de '1'.
+     */
+    public String toBinaryString(int value) {
+        String bits = Integer.toBinaryString(value);
+        return "0".repeat(length * 8 - bits.length()) + bits;
+    }
+}
@@ -0,0 +1,217 @@
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+/**
+ * Décodeur de trames sans chaînes binaires ni copies intermédiaires.
+ *
+ * <p>Le décodage historique ({@link Frame#parseFrame(byte[])} avant ce décodeur) copiait le contenu
+ * de la trame, retirait le byte stuffing dans un {@code ByteArrayOutputStream}, développait le
+ * résultat en chaîne de '0' et '1', retirait le bit stuffing dans une autre chaîne, puis reconstituait
+ * les données par {@code substring}. Ici, une seule passe sur les octets reçus retire l'échappement
+ * et le bit stuffing et écrit les octets obtenus dans un tampon de travail réutilisé ; le CRC est
+ * vérifié par table sur ce tampon, et les données sont exposées comme une tranche de celui-ci.</p>
+ *
+ * <p>Le format décodé est exactement celui produit par {@link Frame#buildFrame()} : type (8 bits),
+ * numéro (8 bits), données, séquence de contrôle ({@link FrameCheck} : CRC-CCITT sur 16 bits ou
+ * CRC-32C sur 32 bits, octets de poids fort en premier), bit stuffing, bourrage à l'octet,
+ * byte stuffing et flags.</p>
+ *
+ * <p>{@link #tryDecode(ByteBuffer, FrameView, FrameCheck)} retourne un {@link DecodeStatus} au lieu
+ * de lever une exception et n'alloue rien une fois le tampon de travail dimensionné : les données
+ * de la vue sont un tampon réutilisé dont seules la position et la limite changent. Les
+ * méthodes {@code decode} conservent le contrat historique à exceptions.</p>
+ *
+ * <p>Un décodeur n'est pas partagé entre threads : les données d'une vue restent valides jusqu'au
+ * décodage suivant par le même décodeur.</p>
+ */
+public class FrameDecoder {
+    /**
+     * Table du CRC-CCITT (polynôme 0x1021), indexée par octet.
+     */
+    private static final int[] CRC_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            CRC_TABLE[i] = crc & 0xFFFF;
+        }
+    }
+
+    /**
+     * Décodeur propre à chaque thread, utilisé par {@link Frame#parseFrame(byte[])}.
+     */
+    private static final ThreadLocal<FrameDecoder> SHARED = ThreadLocal.withInitial(FrameDecoder::new);
+
+    /**
+     * Tampon de travail recevant les octets après retrait de l'échappement et du bit stuffing.
+     */
+    private byte[] scratch = new byte[2048];
+
+    /**
+     * Tampon exposant les données décodées, recréé seulement lorsque le tampon de travail grandit.
+     */
+    private ByteBuffer payload = ByteBuffer.wrap(scratch);
+
+    /**
+     * Calcul du CRC-32C réutilisé d'une trame à l'autre.
+     */
+    private final CRC32C crc32c = new CRC32C();
+
+    /**
+     * Crée un décodeur.
+     */
+    public FrameDecoder() {}
+
+    /**
+     * Obtient le décodeur du thread courant.
+     *
+     * @return Le décodeur réservé au thread appelant.
+     */
+    static FrameDecoder forCurrentThread() {
+        return SHARED.get();
+    }
+
+    /**
+     * Décode une trame reçue, flags compris, dans une vue, avec le contrôle CRC-16.
+     * La position du tampon reçu n'est pas modifiée.
+     *
+     * @param wire La trame reçue, du flag de début au flag de fin.
+     * @param view La vue à remplir.
+     * @return La vue remplie.
+     * @throws Frame.CrcMismatchException Si le CRC ne correspond pas.
+     * @throws Exception Si la trame est trop courte, mal délimitée ou mal échappée.
+     */
+    public FrameView decode(ByteBuffer wire, FrameView view) throws Exception {
+        return decode(wire, view, FrameCheck.CRC16);
+    }
+
+    /**
+     * Décode une trame reçue, flags compris, dans une vue.
+     * La position du tampon reçu n'est pas modifiée.
+     *
+     * @param wire  La trame reçue, du flag de début au flag de fin.
+     * @param view  La vue à remplir.
+     * @param check Le contrôle négocié ; une trame de connexion est toujours vérifiée par le CRC-16.
+     * @return La vue remplie.
+     * @throws Frame.CrcMismatchException Si la séquence de contrôle ne correspond pas.
+     * @throws Exception Si la trame est trop courte, mal délimitée ou mal échappée.
+     */
+    public FrameView decode(ByteBuffer wire, FrameView view, FrameCheck check) throws Exception {
+        DecodeStatus status = tryDecode(wire, view, check);
+        if (status == DecodeStatus.CRC_MISMATCH) {
+            throw new Frame.CrcMismatchException();
+        }
+        if (!status.isOk()) {
+            throw new Exception(status.getMessage());
+        }
+        return view;
+    }
+
+    /**
+     * Décode une trame reçue, flags compris, dans une vue, sans lever d'exception.
+     * La position du tampon reçu n'est pas modifiée ; la vue n'est remplie que si le décodage réussit.
+     *
+     * @param wire  La trame reçue, du flag de début au flag de fin.
+     * @param view  La vue à remplir.
+     * @param check Le contrôle négocié ; une trame de connexion est toujours vérifiée par le CRC-16.
+     * @return {@link DecodeStatus#OK}, ou la raison du rejet de la trame.
+     */
+    public DecodeStatus tryDecode(ByteBuffer wire, FrameView view, FrameCheck check) {
+        int start = wire.position();
+        int end = wire.limit();
+        if (end - start < 4) {
+            return DecodeStatus.TOO_SHORT;
+        }
+        if (wire.get(start) != Frame.FLAG || wire.get(end - 1) != Frame.FLAG) {
+            return DecodeStatus.BAD_FLAG;
+        }
+        if (scratch.length < end - start) {
+            scratch = new byte[Integer.highestOneBit(end - start) << 1];
+            payload = ByteBuffer.wrap(scratch);
+        }
+
+        byte[] out = scratch;
+        int length = 0;     // Octets complets écrits dans le tampon de travail
+        int acc = 0;        // Bits en cours d'assemblage
+        int accBits = 0;    // Nombre de bits dans acc
+        int ones = 0;       // Nombre de '1' consécutifs
+        boolean checkStuffedZero = false;
+        boolean escaped = false;
+
+        for (int i = start + 1; i < end - 1; i++) {
+            int b = wire.get(i);
+            if (escaped) {
+                b ^= 0x20;
+                escaped = false;
+            } else if (b == Frame.ESCAPE) {
+                escaped = true;
+                continue;
+            }
+            for (int shift = 7; shift >= 0; shift--) {
+                int bit = (b >>> shift) & 1;
+                if (checkStuffedZero) {
+                    // Après cinq '1', un '0' de stuffing est retiré
+                    checkStuffedZero = false;
+                    if (bit == 0) {
+                        continue;
+                    }
+                }
+                acc = (acc << 1) | bit;
+                if (++accBits == 8) {
+                    out[length++] = (byte) acc;
+                    acc = 0;
+                    accBits = 0;
+                }
+                if (bit == 1) {
+                    if (++ones == 5) {
+                        checkStuffedZero = true;
+                        ones = 0;
+                    }
+                } else {
+                    ones = 0;
+                }
+            }
+        }
+        if (escaped) {
+            return DecodeStatus.BAD_ESCAPE;
+        }
+        // Les bits restants (accBits < 8) sont le bourrage ajouté pour compléter le dernier octet
+        if (length < 2) {
+            return DecodeStatus.TOO_SHORT;
+        }
+        check = FrameCheck.forType(out[0], check);
+        int fcsLength = check.getLength();
+        if (length < 2 + fcsLength) {
+            return DecodeStatus.TOO_SHORT;
+        }
+
+        int received = check.read(out, length - fcsLength);
+        if (check.compute(crc32c, out, 0, length - fcsLength) != received) {
+            return DecodeStatus.CRC_MISMATCH;
+        }
+        payload.clear();
+        payload.limit(length - fcsLength).position(2);
+        view.set(out[0], out[1], payload, received, check);
+        return DecodeStatus.OK;
+    }
+
+    /**
+     * Calcule le CRC-CCITT (polynôme 0x1021, valeur initiale 0) d'une suite d'octets,
+     * identique à {@link CRC#computeCRC(String)} sur leur représentation binaire.
+     *
+     * @param data   Les octets.
+     * @param offset La position du premier octet.
+     * @param length Le nombre d'octets.
+     * @return Le CRC sur 16 bits.
+     */
+    public static int crc16(byte[] data, int offset, int length) {
+        int crc = 0;
+        for (int i = offset; i < offset + length; i++) {
+            crc = ((crc << 8) ^ CRC_TABLE[((crc >>> 8) ^ data[i]) & 0xFF]) & 0xFFFF;
+        }
+        return crc;
+    }
+}
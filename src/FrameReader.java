@@ -0,0 +1,154 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Découpe en trames les octets reçus d'un {@link Transport}.
+ *
+ * <p>Une trame commence et se termine par {@link Frame#FLAG}. Les octets reçus hors trame sont
+ * ignorés, et des flags consécutifs délimitent une trame vide, également ignorée : la lecture se
+ * resynchronise ainsi d'elle-même après un flag parasite. Les fragments de trame sont conservés
+ * d'un appel à l'autre, ce qui convient aussi bien aux transports orientés flux qu'aux datagrammes.</p>
+ */
+public class FrameReader {
+    /**
+     * Transport lu.
+     */
+    private final Transport transport;
+
+    /**
+     * Octets reçus mais pas encore consommés, ou {@code null} s'il faut lire le transport.
+     */
+    private ByteBuffer pending;
+
+    /**
+     * Contenu de la trame en cours, flag de début compris.
+     */
+    private byte[] frame = new byte[256];
+
+    /**
+     * Nombre d'octets de la trame en cours.
+     */
+    private int length;
+
+    /**
+     * Crée un lecteur de trames.
+     *
+     * @param transport Le transport à lire.
+     */
+    public FrameReader(Transport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Attend la prochaine trame complète et en retourne une copie.
+     *
+     * @return La trame, flags compris, ou {@code null} si la fin du flux est atteinte
+     *         (une trame incomplète est alors abandonnée).
+     * @throws IOException Si la réception échoue.
+     */
+    public byte[] nextFrame() throws IOException {
+        ByteBuffer frameBuffer = nextFrameBuffer();
+        if (frameBuffer == null) {
+            return null;
+        }
+        byte[] copy = new byte[frameBuffer.remaining()];
+        frameBuffer.get(copy);
+        return copy;
+    }
+
+    /**
+     * Attend la prochaine trame complète, sans la copier lorsque c'est possible.
+     *
+     * <p>Si la trame est entièrement contenue dans les octets reçus du transport, le tampon retourné
+     * est une tranche de ceux-ci. Sinon, les fragments sont rassemblés dans un tampon interne.
+     * Dans les deux cas, le tampon n'est valide que jusqu'à l'appel suivant.</p>
+     *
+     * @return La trame, flags compris, ou {@code null} si la fin du flux est atteinte
+     *         (une trame incomplète est alors abandonnée).
+     * @throws IOException Si la réception échoue.
+     */
+    public ByteBuffer nextFrameBuffer() throws IOException {
+        while (true) {
+            if (pending == null || !pending.hasRemaining()) {
+                pending = transport.receive();
+                if (pending == null) {
+                    length = 0;
+                    return null;
+                }
+            }
+            if (length == 0) {
+                ByteBuffer complete = sliceCompleteFrame();
+                if (complete != null) {
+                    return complete;
+                }
+                continue;
+            }
+            while (pending.hasRemaining()) {
+                byte b = pending.get();
+                if (b != Frame.FLAG) {
+                    append(b);
+                } else if (length <= 1) {
+                    // Flags consécutifs : (re)commencer une trame
+                    length = 0;
+                    append(b);
+                } else {
+                    append(b);
+                    ByteBuffer complete = ByteBuffer.wrap(frame, 0, length);
+                    length = 0;
+                    return complete;
+                }
+            }
+        }
+    }
+
+    /**
+     * Cherche une trame entière dans les octets reçus, hors de toute trame en cours.
+     * Si elle est trouvée, retourne une tranche des octets reçus ; sinon, le début de la trame
+     * incomplète est conservé dans le tampon interne.
+     *
+     * @return La trame, flags compris, ou {@code null} si les octets reçus ne contiennent pas de trame entière.
+     */
+    private ByteBuffer sliceCompleteFrame() {
+        int limit = pending.limit();
+        int start = pending.position();
+        while (start < limit && pending.get(start) != Frame.FLAG) {
+            start++;
+        }
+        // Des flags consécutifs délimitent une trame vide : garder le dernier comme flag de début
+        while (start + 1 < limit && pending.get(start + 1) == Frame.FLAG) {
+            start++;
+        }
+        if (start >= limit) {
+            pending.position(limit);
+            return null;
+        }
+        int end = start + 1;
+        while (end < limit && pending.get(end) != Frame.FLAG) {
+            end++;
+        }
+        if (end < limit) {
+            ByteBuffer complete = pending.duplicate();
+            complete.position(start).limit(end + 1);
+            pending.position(end + 1);
+            return complete.slice();
+        }
+        for (int i = start; i < limit; i++) {
+            append(pending.get(i));
+        }
+        pending.position(limit);
+        return null;
+    }
+
+    /**
+     * Ajoute un octet à la trame en cours en agrandissant le tampon si nécessaire.
+     *
+     * @param b L'octet à ajouter.
+     */
+    private void append(byte b) {
+        if (length == frame.length) {
+            frame = Arrays.copyOf(frame, frame.length * 2);
+        }
+        frame[length++] = b;
+    }
+}
@@ -0,0 +1,161 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Vue légère sur une trame décodée par {@link FrameDecoder}.
+ *
+ * <p>Les champs d'en-tête sont des primitives et les données sont une tranche {@link ByteBuffer}
+ * du tampon de travail du décodeur : aucune chaîne ni copie n'est créée. Une vue est réutilisée
+ * d'une trame à l'autre ; ses données ne sont valides que jusqu'au décodage suivant.</p>
+ */
+public class FrameView {
+    /**
+     * Type de la trame ('C', 'I', 'F', 'A', 'R', 'P', 'S', 'N' ou 'Q').
+     */
+    private byte type;
+
+    /**
+     * Numéro de la trame, inférieur au modulo négocié.
+     */
+    private int num;
+
+    /**
+     * Données de la trame.
+     */
+    private ByteBuffer payload;
+
+    /**
+     * Séquence de contrôle (CRC) reçue.
+     */
+    private int fcs;
+
+    /**
+     * Type de la séquence de contrôle reçue.
+     */
+    private FrameCheck check = FrameCheck.CRC16;
+
+    /**
+     * Crée une vue vide, à remplir par {@link FrameDecoder#decode(ByteBuffer, FrameView)}.
+     */
+    public FrameView() {}
+
+    /**
+     * Crée une vue sur une trame existante, qui partage ses données.
+     *
+     * @param frame La trame.
+     * @return Une vue sur la trame.
+     */
+    public static FrameView of(Frame frame) {
+        FrameView view = new FrameView();
+        view.set(frame.getType(), frame.getNum(), frame.getPayload(), frame.getFcs(),
+                FrameCheck.forType(frame.getType(), frame.getFrameCheck()));
+        return view;
+    }
+
+    /**
+     * Remplit la vue.
+     *
+     * @param type    Le type de la trame.
+     * @param num     Le numéro de la trame.
+     * @param payload Les données.
+     * @param fcs     La séquence de contrôle reçue.
+     * @param check   Le type de la séquence de contrôle.
+     */
+    void set(byte type, int num, ByteBuffer payload, int fcs, FrameCheck check) {
+        this.type = type;
+        this.num = num & 0x7F;
+        this.payload = payload;
+        this.fcs = fcs;
+        this.check = check;
+    }
+
+    /**
+     * Obtient le type de la trame.
+     *
+     * @return Le type de la trame sous forme de byte.
+     */
+    public byte getType() {
+        return type;
+    }
+
+    /**
+     * Obtient le numéro de la trame.
+     *
+     * @return Le numéro de la trame, entre 0 et le modulo négocié moins un.
+     */
+    public int getNum() {
+        return num;
+    }
+
+    /**
+     * Obtient les données de la trame, sans copie. La position et la limite du tampon
+     * appartiennent à l'appelant jusqu'au décodage suivant.
+     *
+     * @return Les données de la trame.
+     */
+    public ByteBuffer getPayload() {
+        return payload;
+    }
+
+    /**
+     * Obtient la taille des données restantes de la trame.
+     *
+     * @return Le nombre d'octets de données.
+     */
+    public int getPayloadLength() {
+        return payload.remaining();
+    }
+
+    /**
+     * Obtient la séquence de contrôle reçue.
+     *
+     * @return Le CRC de la trame.
+     */
+    public int getFcs() {
+        return fcs;
+    }
+
+    /**
+     * Obtient le type de la séquence de contrôle reçue.
+     *
+     * @return Le contrôle avec lequel la trame a été vérifiée.
+     */
+    public FrameCheck getFrameCheck() {
+        return check;
+    }
+
+    /**
+     * Obtient les données sous forme de chaîne (un caractère par octet), pour les trames de contrôle
+     * dont les données sont textuelles (paramètres de connexion). Ne modifie pas la position du tampon.
+     *
+     * @return Les données de la trame sous forme de chaîne.
+     */
+    public String getDataAsString() {
+        ByteBuffer data = payload.duplicate();
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Copie la vue dans une {@link Frame}, pour les appelants qui conservent la trame.
+     *
+     * @return Une trame indépendante du tampon du décodeur.
+     */
+    public Frame toFrame() {
+        ByteBuffer data = payload.duplicate();
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        return new Frame(type, (byte) num, ByteBuffer.wrap(bytes), fcs, check);
+    }
+
+    /**
+     * Retourne une représentation textuelle de la vue.
+     *
+     * @return Une chaîne représentant l'en-tête de la trame.
+     */
+    @Override
+    public String toString() {
+        return "FrameView {Type=" + (char) type + ", Num=" + num + ", PayloadLength=" + payload.remaining() + '}';
+    }
+}
@@ -0,0 +1,124 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramme à faible coût pour des valeurs positives (durées, occupations).
+ *
+ * <p>Les valeurs sont rangées dans des classes de puissances de 2 : la classe {@code i}
+ * contient les valeurs dont le bit de poids fort est le bit {@code i - 1}. L'enregistrement
+ * se résume à quelques incréments atomiques, sans verrou ni allocation. Les percentiles
+ * sont approchés par la borne supérieure de la classe correspondante.</p>
+ */
+public class Histogram {
+    /**
+     * Nombre de classes : une par position de bit d'un {@code long}, plus la classe zéro.
+     */
+    private static final int BUCKETS = 65;
+
+    /**
+     * Nombre de valeurs par classe.
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Nombre total de valeurs.
+     */
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Somme des valeurs.
+     */
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Valeur maximale enregistrée.
+     */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Constructeur par défaut : histogramme vide.
+     */
+    public Histogram() {}
+
+    /**
+     * Enregistre une valeur. Les valeurs négatives sont ramenées à zéro.
+     *
+     * @param value La valeur à enregistrer.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+        count.increment();
+        sum.add(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // Réessayer si un autre thread a modifié le maximum
+        }
+    }
+
+    /**
+     * Obtient le nombre de valeurs enregistrées.
+     *
+     * @return Le nombre de valeurs.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Obtient la moyenne des valeurs.
+     *
+     * @return La moyenne, ou 0 si aucune valeur n'a été enregistrée.
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0.0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Obtient la valeur maximale.
+     *
+     * @return Le maximum, ou 0 si aucune valeur n'a été enregistrée.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Obtient une approximation d'un percentile.
+     *
+     * @param percentile Le percentile recherché, entre 0 et 100.
+     * @return La borne supérieure de la classe contenant le percentile, limitée au maximum observé.
+     */
+    public long getPercentile(double percentile) {
+        long n = count.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(n * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                long upper = i == 0 ? 0 : (i >= 64 ? Long.MAX_VALUE : (1L << i) - 1);
+                return Math.min(upper, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Remet l'histogramme à zéro.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+}
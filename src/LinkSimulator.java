@@ -0,0 +1,502 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Lien simulé en mémoire entre un {@link Sender} et un {@link Receiver}, avec pertes,
+ * corruption, délai, gigue et limite de débit.
+ *
+ * <p>Le flux d'octets de chaque sens est découpé en trames sur les flags {@link Frame#FLAG}.
+ * Chaque trame est ensuite soumise aux dégradations du sens correspondant :</p>
+ * <ul>
+ *     <li>perte aléatoire, selon un modèle de Gilbert-Elliott (états « bon » et « rafale »),
+ *     ou perte des trames choisies par une règle ;</li>
+ *     <li>inversion de bits entre les flags, selon un taux d'erreur binaire ;</li>
+ *     <li>temps de sérialisation selon le débit maximal, puis délai de propagation et gigue.
+ *     Une gigue supérieure à l'écart entre deux trames les réordonne.</li>
+ * </ul>
+ *
+ * <p>Toutes les décisions aléatoires proviennent d'un générateur initialisé par une graine,
+ * propre à chaque sens : pour une même suite de trames, les mêmes trames sont perdues ou corrompues
+ * d'une exécution à l'autre.</p>
+ */
+public class LinkSimulator {
+    /**
+     * Paramètres de dégradation d'un sens du lien. Les valeurs par défaut décrivent un lien parfait.
+     */
+    public static class Impairments {
+        private double bitErrorRate;
+        private double dropRate;
+        private double burstEnterProbability;
+        private double burstExitProbability = 1.0;
+        private double burstDropRate;
+        private int latencyMillis;
+        private int jitterMillis;
+        private long bandwidthBytesPerSecond;
+        private Predicate<byte[]> dropRule;
+
+        /**
+         * Constructeur par défaut : aucune dégradation.
+         */
+        public Impairments() {}
+
+        /**
+         * Définit la probabilité d'inversion de chaque bit entre les flags.
+         *
+         * @param bitErrorRate Le taux d'erreur binaire (entre 0 et 1).
+         * @return Ces paramètres.
+         */
+        public Impairments bitErrorRate(double bitErrorRate) {
+            this.bitErrorRate = checkProbability(bitErrorRate);
+            return this;
+        }
+
+        /**
+         * Définit la probabilité de perte d'une trame hors rafale.
+         *
+         * @param dropRate La probabilité de perte (entre 0 et 1).
+         * @return Ces paramètres.
+         */
+        public Impairments dropRate(double dropRate) {
+            this.dropRate = checkProbability(dropRate);
+            return this;
+        }
+
+        /**
+         * Définit une règle de perte, appliquée à chaque trame en plus des pertes aléatoires, pour
+         * reproduire un scénario précis (par exemple la perte d'un ACK donné).
+         *
+         * @param dropRule La règle, appelée dans l'ordre des trames avec leurs octets, flags compris ;
+         *                 elle renvoie {@code true} pour perdre la trame.
+         * @return Ces paramètres.
+         */
+        public Impairments dropWhen(Predicate<byte[]> dropRule) {
+            this.dropRule = dropRule;
+            return this;
+        }
+
+        /**
+         * Définit le modèle de pertes en rafale (Gilbert-Elliott).
+         *
+         * @param enterProbability Probabilité, à chaque trame, d'entrer dans une rafale.
+         * @param exitProbability  Probabilité, à chaque trame, de sortir d'une rafale.
+         * @param burstDropRate    Probabilité de perte d'une trame pendant une rafale.
+         * @return Ces paramètres.
+         */
+        public Impairments burstLoss(double enterProbability, double exitProbability, double burstDropRate) {
+            this.burstEnterProbability = checkProbability(enterProbability);
+            this.burstExitProbability = checkProbability(exitProbability);
+            this.burstDropRate = checkProbability(burstDropRate);
+            return this;
+        }
+
+        /**
+         * Définit le délai de propagation dans un sens.
+         *
+         * @param latencyMillis Le délai en millisecondes.
+         * @return Ces paramètres.
+         */
+        public Impairments latency(int latencyMillis) {
+            this.latencyMillis = Math.max(0, latencyMillis);
+            return this;
+        }
+
+        /**
+         * Définit la gigue : chaque trame subit un délai supplémentaire uniforme dans [-gigue, +gigue].
+         *
+         * @param jitterMillis La gigue en millisecondes.
+         * @return Ces paramètres.
+         */
+        public Impairments jitter(int jitterMillis) {
+            this.jitterMillis = Math.max(0, jitterMillis);
+            return this;
+        }
+
+        /**
+         * Définit le débit maximal du lien.
+         *
+         * @param bytesPerSecond Le débit en octets par seconde, ou 0 pour un débit illimité.
+         * @return Ces paramètres.
+         */
+        public Impairments bandwidth(long bytesPerSecond) {
+            this.bandwidthBytesPerSecond = Math.max(0, bytesPerSecond);
+            return this;
+        }
+
+        /**
+         * Vérifie qu'une valeur est une probabilité.
+         *
+         * @param p La valeur à vérifier.
+         * @return La valeur.
+         * @throws IllegalArgumentException Si la valeur n'est pas comprise entre 0 et 1.
+         */
+        private static double checkProbability(double p) {
+            if (p < 0.0 || p > 1.0) {
+                throw new IllegalArgumentException("Probabilité invalide : " + p);
+            }
+            return p;
+        }
+    }
+
+    /**
+     * Sens émetteur vers récepteur (trames I, C, F).
+     */
+    private final Direction forward;
+
+    /**
+     * Sens récepteur vers émetteur (ACK, REJ).
+     */
+    private final Direction reverse;
+
+    /**
+     * Crée un lien simulé.
+     *
+     * @param forward Les dégradations du sens émetteur vers récepteur.
+     * @param reverse Les dégradations du sens récepteur vers émetteur.
+     * @param seed    La graine des générateurs aléatoires.
+     */
+    public LinkSimulator(Impairments forward, Impairments reverse, long seed) {
+        this.forward = new Direction(forward, new Random(seed));
+        this.reverse = new Direction(reverse, new Random(seed ^ 0x5DEECE66DL));
+    }
+
+    /**
+     * Obtient le flux d'entrée de l'émetteur (réception des ACK et REJ).
+     *
+     * @return Le flux d'entrée côté émetteur.
+     */
+    public InputStream getSenderInput() {
+        return reverse.input;
+    }
+
+    /**
+     * Obtient le flux de sortie de l'émetteur.
+     *
+     * @return Le flux de sortie côté émetteur.
+     */
+    public OutputStream getSenderOutput() {
+        return forward.output;
+    }
+
+    /**
+     * Obtient le flux d'entrée du récepteur.
+     *
+     * @return Le flux d'entrée côté récepteur.
+     */
+    public InputStream getReceiverInput() {
+        return forward.input;
+    }
+
+    /**
+     * Obtient le flux de sortie du récepteur (envoi des ACK et REJ).
+     *
+     * @return Le flux de sortie côté récepteur.
+     */
+    public OutputStream getReceiverOutput() {
+        return reverse.output;
+    }
+
+    /**
+     * Obtient le transport à fournir à l'émetteur.
+     *
+     * @return Un transport sur les flux côté émetteur.
+     */
+    public Transport getSenderTransport() {
+        return new StreamTransport(getSenderInput(), getSenderOutput());
+    }
+
+    /**
+     * Obtient le transport à fournir au récepteur.
+     *
+     * @return Un transport sur les flux côté récepteur.
+     */
+    public Transport getReceiverTransport() {
+        return new StreamTransport(getReceiverInput(), getReceiverOutput());
+    }
+
+    /**
+     * Retourne les statistiques de dégradation des deux sens.
+     *
+     * @return Une chaîne résumant les trames perdues et corrompues.
+     */
+    @Override
+    public String toString() {
+        return "LinkSimulator {forward=" + forward + ", reverse=" + reverse + '}';
+    }
+
+    /**
+     * Trame en transit, livrée lorsque son échéance est atteinte.
+     */
+    private static class Delivery implements Delayed {
+        /**
+         * Compteur assurant l'ordre FIFO des trames de même échéance.
+         */
+        private static final AtomicLong SEQUENCE = new AtomicLong();
+
+        final long dueNanos;
+        final byte[] data;
+        final long order = SEQUENCE.getAndIncrement();
+
+        /**
+         * Crée une livraison.
+         *
+         * @param dueNanos L'échéance (System.nanoTime).
+         * @param data     Les octets à livrer, ou {@code null} pour signaler la fin du flux.
+         */
+        Delivery(long dueNanos, byte[] data) {
+            this.dueNanos = dueNanos;
+            this.data = data;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            Delivery o = (Delivery) other;
+            int cmp = Long.compare(dueNanos, o.dueNanos);
+            return cmp != 0 ? cmp : Long.compare(order, o.order);
+        }
+    }
+
+    /**
+     * Un sens du lien : flux de sortie qui découpe et dégrade les trames, file d'attente
+     * temporisée, et flux d'entrée qui livre les trames à échéance.
+     */
+    private static class Direction {
+        private final Impairments impairments;
+        private final Random random;
+        private final DelayQueue<Delivery> queue = new DelayQueue<>();
+        private final ByteArrayOutputStream frameBuffer = new ByteArrayOutputStream();
+        private boolean inFrame;
+        private boolean inBurst;
+        private long linkFreeAt = System.nanoTime();
+        private long framesOffered;
+        private long framesDropped;
+        private long framesCorrupted;
+        private long bitsFlipped;
+
+        final OutputStream output = new OutputStream() {
+            @Override
+            public void write(int b) {
+                accept((byte) b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                for (int i = off; i < off + len; i++) {
+                    accept(b[i]);
+                }
+            }
+
+            @Override
+            public void close() {
+                finish();
+            }
+        };
+
+        final InputStream input = new InputStream() {
+            private byte[] current = new byte[0];
+            private int position;
+            private boolean eof;
+
+            @Override
+            public int read() throws IOException {
+                if (!fill()) {
+                    return -1;
+                }
+                return current[position++] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                if (!fill()) {
+                    return -1;
+                }
+                int n = Math.min(len, current.length - position);
+                System.arraycopy(current, position, b, off, n);
+                position += n;
+                return n;
+            }
+
+            @Override
+            public int available() {
+                return current.length - position;
+            }
+
+            @Override
+            public void close() {
+                queue.add(new Delivery(0, null));
+            }
+
+            /**
+             * Attend la prochaine trame à échéance si la trame courante est épuisée.
+             *
+             * @return {@code true} si des octets sont disponibles, {@code false} en fin de flux.
+             * @throws InterruptedIOException Si le thread est interrompu pendant l'attente.
+             */
+            private boolean fill() throws InterruptedIOException {
+                while (!eof && position >= current.length) {
+                    try {
+                        Delivery delivery = queue.take();
+                        if (delivery.data == null) {
+                            eof = true;
+                            queue.add(delivery); // Les lectures suivantes verront aussi la fin du flux
+                        } else {
+                            current = delivery.data;
+                            position = 0;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Lecture interrompue");
+                    }
+                }
+                return !eof;
+            }
+        };
+
+        /**
+         * Crée un sens du lien.
+         *
+         * @param impairments Les dégradations à appliquer.
+         * @param random      Le générateur aléatoire de ce sens.
+         */
+        Direction(Impairments impairments, Random random) {
+            this.impairments = impairments;
+            this.random = random;
+        }
+
+        /**
+         * Accumule un octet écrit et soumet la trame lorsque le flag de fin est atteint.
+         * Les octets hors trame sont transmis sans dégradation.
+         *
+         * @param b L'octet écrit.
+         */
+        private synchronized void accept(byte b) {
+            if (b == Frame.FLAG) {
+                frameBuffer.write(b);
+                if (inFrame) {
+                    submit(frameBuffer.toByteArray());
+                    frameBuffer.reset();
+                }
+                inFrame = !inFrame;
+            } else if (inFrame) {
+                frameBuffer.write(b);
+            } else {
+                schedule(new byte[] {b});
+            }
+        }
+
+        /**
+         * Applique les pertes et la corruption à une trame, puis la planifie.
+         *
+         * @param frame La trame complète, flags compris.
+         */
+        private void submit(byte[] frame) {
+            framesOffered++;
+
+            // Modèle de Gilbert-Elliott : transition d'état puis tirage de la perte
+            if (inBurst) {
+                inBurst = random.nextDouble() >= impairments.burstExitProbability;
+            } else {
+                inBurst = random.nextDouble() < impairments.burstEnterProbability;
+            }
+            double lossProbability = inBurst ? impairments.burstDropRate : impairments.dropRate;
+            // La règle est évaluée après le tirage : elle ne décale pas les pertes aléatoires suivantes
+            if (random.nextDouble() < lossProbability
+                    || (impairments.dropRule != null && impairments.dropRule.test(frame))) {
+                framesDropped++;
+                return;
+            }
+
+            if (impairments.bitErrorRate > 0 && frame.length > 2) {
+                int flipped = corrupt(frame);
+                if (flipped > 0) {
+                    framesCorrupted++;
+                    bitsFlipped += flipped;
+                }
+            }
+            schedule(frame);
+        }
+
+        /**
+         * Inverse des bits aléatoires entre les flags. Les positions sont tirées selon une loi
+         * géométrique, ce qui évite un tirage par bit.
+         *
+         * @param frame La trame à corrompre.
+         * @return Le nombre de bits inversés.
+         */
+        private int corrupt(byte[] frame) {
+            long bits = (long) (frame.length - 2) * 8;
+            double logKeep = Math.log(1.0 - impairments.bitErrorRate);
+            int flipped = 0;
+            long position = skip(logKeep);
+            while (position < bits) {
+                frame[1 + (int) (position / 8)] ^= (byte) (0x80 >>> (position % 8));
+                flipped++;
+                position += 1 + skip(logKeep);
+            }
+            return flipped;
+        }
+
+        /**
+         * Tire le nombre de bits intacts avant la prochaine erreur.
+         *
+         * @param logKeep Le logarithme de la probabilité qu'un bit soit intact.
+         * @return Le nombre de bits à sauter.
+         */
+        private long skip(double logKeep) {
+            if (logKeep == 0.0) {
+                return Long.MAX_VALUE / 2;
+            }
+            return (long) Math.floor(Math.log(1.0 - random.nextDouble()) / logKeep);
+        }
+
+        /**
+         * Calcule l'échéance de livraison (sérialisation, propagation, gigue) et place les octets en file.
+         *
+         * @param data Les octets à livrer.
+         */
+        private void schedule(byte[] data) {
+            long now = System.nanoTime();
+            long departure = Math.max(now, linkFreeAt);
+            if (impairments.bandwidthBytesPerSecond > 0) {
+                departure += data.length * 1_000_000_000L / impairments.bandwidthBytesPerSecond;
+            }
+            linkFreeAt = departure;
+            long delay = TimeUnit.MILLISECONDS.toNanos(impairments.latencyMillis);
+            if (impairments.jitterMillis > 0) {
+                delay += TimeUnit.MILLISECONDS.toNanos(random.nextInt(2 * impairments.jitterMillis + 1) - impairments.jitterMillis);
+            }
+            queue.add(new Delivery(departure + Math.max(0, delay), data));
+        }
+
+        /**
+         * Signale la fin du flux après la livraison des trames déjà en transit.
+         */
+        private synchronized void finish() {
+            long due = Math.max(System.nanoTime(), linkFreeAt)
+                    + TimeUnit.MILLISECONDS.toNanos(impairments.latencyMillis + impairments.jitterMillis);
+            queue.add(new Delivery(due, null));
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "{offered=" + framesOffered + ", dropped=" + framesDropped +
+                    ", corrupted=" + framesCorrupted + ", bitsFlipped=" + bitsFlipped + '}';
+        }
+    }
+}
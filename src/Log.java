@@ -0,0 +1,290 @@
+/**
+ * Journal (logger) à niveaux utilisé par l'émetteur, le récepteur et les classes utilitaires.
+ *
+ * <p>Le niveau est vérifié avant toute construction du message : les arguments sont passés
+ * séparément et ne sont substitués dans le motif ({@code {}}) que par le thread d'écriture
+ * de l'{@link AsyncAppender}. Un appel sous le niveau courant ne fait donc qu'une comparaison.
+ * Pour un message nécessitant plus de deux arguments, l'appelant vérifie lui-même
+ * {@link #isDebugEnabled()} avant de le construire.</p>
+ *
+ * <p>Le niveau par défaut est {@link Level#INFO} : les événements par trame (envoi, ACK, REJ,
+ * retransmission) sont journalisés au niveau {@link Level#DEBUG} et ne produisent aucune sortie.
+ * Il peut être modifié avec la propriété système {@code gbn.log.level} ou {@link #setLevel(Level)}.</p>
+ */
+public class Log {
+    /**
+     * Niveaux de journalisation, du plus sévère au plus détaillé.
+     */
+    public enum Level {
+        /** Aucune sortie. */
+        OFF,
+        /** Erreurs empêchant une opération. */
+        ERROR,
+        /** Situations anormales récupérables. */
+        WARN,
+        /** Événements de connexion et de fin de transfert. */
+        INFO,
+        /** Événements par trame. */
+        DEBUG,
+        /** Détails internes. */
+        TRACE
+    }
+
+    /**
+     * Niveau courant, partagé par tous les journaux.
+     */
+    private static volatile Level level = parseLevel(System.getProperty("gbn.log.level"), Level.INFO);
+
+    /**
+     * Appender asynchrone partagé, créé au premier message émis.
+     */
+    private static volatile AsyncAppender appender;
+
+    /**
+     * Nom du journal, affiché dans chaque message.
+     */
+    private final String name;
+
+    /**
+     * Crée un journal nommé.
+     *
+     * @param name Le nom du journal (en général le nom de la classe).
+     */
+    private Log(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Obtient un journal pour une classe.
+     *
+     * @param type La classe qui journalise.
+     * @return Le journal associé.
+     */
+    public static Log getLog(Class<?> type) {
+        return new Log(type.getSimpleName());
+    }
+
+    /**
+     * Obtient le niveau courant.
+     *
+     * @return Le niveau de journalisation.
+     */
+    public static Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Modifie le niveau courant.
+     *
+     * @param newLevel Le nouveau niveau de journalisation.
+     */
+    public static void setLevel(Level newLevel) {
+        level = newLevel;
+    }
+
+    /**
+     * Attend que tous les messages en attente aient été écrits.
+     */
+    public static void flush() {
+        AsyncAppender current = appender;
+        if (current != null) {
+            current.flush();
+        }
+    }
+
+    /**
+     * Vérifie si un niveau est actif.
+     *
+     * @param candidate Le niveau à vérifier.
+     * @return {@code true} si les messages de ce niveau sont écrits.
+     */
+    public boolean isEnabled(Level candidate) {
+        return candidate.ordinal() <= level.ordinal() && candidate != Level.OFF;
+    }
+
+    /**
+     * Vérifie si le niveau {@link Level#DEBUG} est actif.
+     *
+     * @return {@code true} si les messages de débogage sont écrits.
+     */
+    public boolean isDebugEnabled() {
+        return Level.DEBUG.ordinal() <= level.ordinal();
+    }
+
+    /**
+     * Journalise un message d'erreur.
+     *
+     * @param message Le message.
+     */
+    public void error(String message) {
+        log(Level.ERROR, message, null, null);
+    }
+
+    /**
+     * Journalise un message d'erreur avec un argument.
+     *
+     * @param pattern Le motif du message ({@code {}} est remplacé par l'argument).
+     * @param arg     L'argument.
+     */
+    public void error(String pattern, Object arg) {
+        log(Level.ERROR, pattern, arg, null);
+    }
+
+    /**
+     * Journalise un avertissement.
+     *
+     * @param message Le message.
+     */
+    public void warn(String message) {
+        log(Level.WARN, message, null, null);
+    }
+
+    /**
+     * Journalise un avertissement avec un argument.
+     *
+     * @param pattern Le motif du message.
+     * @param arg     L'argument.
+     */
+    public void warn(String pattern, Object arg) {
+        log(Level.WARN, pattern, arg, null);
+    }
+
+    /**
+     * Journalise un message d'information.
+     *
+     * @param message Le message.
+     */
+    public void info(String message) {
+        log(Level.INFO, message, null, null);
+    }
+
+    /**
+     * Journalise un message d'information avec un argument.
+     *
+     * @param pattern Le motif du message.
+     * @param arg     L'argument.
+     */
+    public void info(String pattern, Object arg) {
+        log(Level.INFO, pattern, arg, null);
+    }
+
+    /**
+     * Journalise un message d'information avec deux arguments.
+     *
+     * @param pattern Le motif du message.
+     * @param arg1    Le premier argument.
+     * @param arg2    Le deuxième argument.
+     */
+    public void info(String pattern, Object arg1, Object arg2) {
+        log(Level.INFO, pattern, arg1, arg2);
+    }
+
+    /**
+     * Journalise un message de débogage.
+     *
+     * @param message Le message.
+     */
+    public void debug(String message) {
+        log(Level.DEBUG, message, null, null);
+    }
+
+    /**
+     * Journalise un message de débogage avec un argument entier.
+     * La surcharge primitive évite toute allocation lorsque le niveau est inactif.
+     *
+     * @param pattern Le motif du message.
+     * @param arg     L'argument.
+     */
+    public void debug(String pattern, long arg) {
+        if (isDebugEnabled()) {
+            log(Level.DEBUG, pattern, arg, null);
+        }
+    }
+
+    /**
+     * Journalise un message de débogage avec deux arguments entiers.
+     *
+     * @param pattern Le motif du message.
+     * @param arg1    Le premier argument.
+     * @param arg2    Le deuxième argument.
+     */
+    public void debug(String pattern, long arg1, long arg2) {
+        if (isDebugEnabled()) {
+            log(Level.DEBUG, pattern, arg1, arg2);
+        }
+    }
+
+    /**
+     * Journalise un message de débogage avec un argument.
+     *
+     * @param pattern Le motif du message.
+     * @param arg     L'argument.
+     */
+    public void debug(String pattern, Object arg) {
+        log(Level.DEBUG, pattern, arg, null);
+    }
+
+    /**
+     * Journalise un message de débogage avec deux arguments.
+     *
+     * @param pattern Le motif du message.
+     * @param arg1    Le premier argument.
+     * @param arg2    Le deuxième argument.
+     */
+    public void debug(String pattern, Object arg1, Object arg2) {
+        log(Level.DEBUG, pattern, arg1, arg2);
+    }
+
+    /**
+     * Vérifie le niveau puis transmet l'événement à l'appender.
+     *
+     * @param eventLevel Le niveau du message.
+     * @param pattern    Le motif du message.
+     * @param arg1       Le premier argument, ou {@code null}.
+     * @param arg2       Le deuxième argument, ou {@code null}.
+     */
+    private void log(Level eventLevel, String pattern, Object arg1, Object arg2) {
+        if (!isEnabled(eventLevel)) {
+            return;
+        }
+        appender().append(new AsyncAppender.Event(System.currentTimeMillis(), eventLevel, name,
+                Thread.currentThread().getName(), pattern, arg1, arg2));
+    }
+
+    /**
+     * Obtient l'appender partagé, en le créant au premier appel.
+     *
+     * @return L'appender asynchrone.
+     */
+    private static AsyncAppender appender() {
+        AsyncAppender current = appender;
+        if (current == null) {
+            synchronized (Log.class) {
+                current = appender;
+                if (current == null) {
+                    current = new AsyncAppender(System.out, AsyncAppender.DEFAULT_CAPACITY);
+                    appender = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Convertit un nom de niveau.
+     *
+     * @param value        Le nom du niveau (insensible à la casse), ou {@code null}.
+     * @param defaultLevel Le niveau à utiliser si le nom est absent ou invalide.
+     * @return Le niveau correspondant.
+     */
+    private static Level parseLevel(String value, Level defaultLevel) {
+        if (value == null) {
+            return defaultLevel;
+        }
+        try {
+            return Level.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return defaultLevel;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.net.SocketException;
 import java.util.Timer;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Paths;
 
 /**
  * Classe principale pour la transmission de données utilisant le protocole Go-Back-N.
@@ -11,43 +12,195 @@ import java.io.OutputStream;
  *
  * <p>Modes d'utilisation :</p>
  * <ul>
- *     <li>Émetteur (Sender) : <code>java Main sender &lt;hostname&gt; &lt;port&gt; &lt;filename&gt; &lt;0&gt;</code></li>
- *     <li>Récepteur (Receiver) : <code>java Main receiver &lt;port&gt;</code></li>
+ *     <li>Émetteur (Sender) : <code>java Main sender &lt;hostname&gt; &lt;port&gt; &lt;filename&gt; &lt;0&gt; [compression]</code></li>
+ *     <li>Récepteur (Receiver) : <code>java Main receiver &lt;port&gt; [fichier de sortie]</code></li>
  * </ul>
  *
  * <p>Exemples :</p>
  * <ul>
  *     <li>Émettre un fichier : <code>java Main sender localhost 8080 data.txt 0</code></li>
+ *     <li>Émettre un fichier compressé : <code>java Main sender localhost 8080 data.txt 0 deflate</code></li>
  *     <li>Recevoir des données : <code>java Main receiver 8080</code></li>
+ *     <li>Recevoir dans un fichier : <code>java Main receiver 8080 copie.txt</code></li>
  * </ul>
+ *
+ * <p>Le transport est TCP par défaut. Avec <code>-Dgbn.transport=udp</code>, chaque trame est envoyée
+ * dans un datagramme UDP et la fiabilité repose entièrement sur le protocole Go-Back-N.
+ * Les deux extrémités doivent utiliser le même transport.</p>
+ *
+ * <p>Côté émetteur, <code>-Dgbn.fcs=crc32c</code> propose le CRC-32C comme séquence de contrôle des
+ * trames au lieu du CRC-16 ; le récepteur l'accepte lors de la connexion.</p>
+ *
+ * <p>Les paramètres du lien se règlent sans recompiler avec <code>-Dgbn.link=...</code>, par exemple
+ * <code>-Dgbn.link="window=7;payload=4096;timeout=500;ack=2"</code> (options de {@link ConnectionParameters}).
+ * Côté émetteur, ce sont les valeurs proposées ; côté récepteur, les limites acceptées.</p>
+ *
+ * <p>Côté émetteur, <code>-Dgbn.congestion=aimd</code> active le contrôle de congestion
+ * ({@link CongestionControl}) : la fenêtre utilisée part d'une trame et s'adapte aux pertes.</p>
+ *
+ * <p>Côté émetteur, <code>-Dgbn.pacing=...</code> espace les envois ({@link PacedTransport}) : un débit en
+ * octets par seconde, ou <code>auto</code> pour un débit déduit du RTT et de la fenêtre.</p>
+ *
+ * <p>Côté émetteur, <code>-Dgbn.encoders=...</code> fixe le nombre de threads qui encodent les trames
+ * d'avance ({@link EncodeAhead}) : un nombre (1 par défaut, 0 pour encoder au moment de l'envoi), ou
+ * <code>auto</code> pour un par cœur disponible.</p>
+ *
+ * <p>Côté récepteur, <code>-Dgbn.decoders=...</code> décode les trames reçues dans des threads dédiés
+ * ({@link ReceivePipeline}) : un nombre de threads, ou <code>auto</code> pour un par cœur disponible.</p>
+ *
+ * <p><code>-Dgbn.pool=direct</code> place hors du tas les tampons du {@link BufferPool} partagé.</p>
  */
 public class Main {
+    /**
+     * Journal de la classe.
+     */
+    private static final Log LOG = Log.getLog(Main.class);
+
+    /**
+     * Transport choisi par la propriété système {@code gbn.transport} : "tcp" (par défaut) ou "udp".
+     */
+    private static final String TRANSPORT = System.getProperty("gbn.transport", "tcp");
+
+    /**
+     * Séquence de contrôle proposée par l'émetteur, choisie par la propriété système {@code gbn.fcs}
+     * ("crc16" ou "crc32c"), ou {@code null} pour le CRC-16 par défaut.
+     */
+    private static final String FRAME_CHECK = System.getProperty("gbn.fcs");
+
+    /**
+     * Paramètres du lien choisis par la propriété système {@code gbn.link}, sous la forme
+     * d'options {@code clé=valeur} séparées par ';', ou {@code null} pour les valeurs par défaut.
+     */
+    private static final String LINK = System.getProperty("gbn.link");
+
+    /**
+     * Contrôle de congestion de l'émetteur, choisi par la propriété système {@code gbn.congestion} :
+     * "aimd", ou {@code null} pour une fenêtre fixe.
+     */
+    private static final String CONGESTION = System.getProperty("gbn.congestion");
+
+    /**
+     * Espacement des envois de l'émetteur, choisi par la propriété système {@code gbn.pacing} :
+     * un débit en octets par seconde, "auto", ou {@code null} pour envoyer sans espacement.
+     */
+    private static final String PACING = System.getProperty("gbn.pacing");
+
+    /**
+     * Threads d'encodage anticipé de l'émetteur, choisis par la propriété système {@code gbn.encoders} :
+     * un nombre, "auto", ou {@code null} pour la valeur par défaut de l'émetteur.
+     */
+    private static final String ENCODERS = System.getProperty("gbn.encoders");
+
+    /**
+     * Threads de décodage du récepteur, choisis par la propriété système {@code gbn.decoders} :
+     * un nombre, "auto", ou {@code null} pour décoder dans le thread de réception.
+     */
+    private static final String DECODERS = System.getProperty("gbn.decoders");
+
+    /**
+     * Indique si le transport choisi est UDP.
+     *
+     * @return {@code true} pour UDP, {@code false} pour TCP.
+     * @throws IllegalArgumentException Si le transport est inconnu.
+     */
+    private static boolean useUdp() {
+        if (TRANSPORT.equalsIgnoreCase("udp")) {
+            return true;
+        }
+        if (TRANSPORT.equalsIgnoreCase("tcp")) {
+            return false;
+        }
+        throw new IllegalArgumentException("Transport inconnu : " + TRANSPORT);
+    }
+
+    /**
+     * Indique si le contrôle de congestion est demandé.
+     *
+     * @return {@code true} pour le contrôle AIMD, {@code false} pour une fenêtre fixe.
+     * @throws IllegalArgumentException Si le contrôle de congestion est inconnu.
+     */
+    private static boolean useCongestionControl() {
+        if (CONGESTION == null) {
+            return false;
+        }
+        if (CONGESTION.equalsIgnoreCase("aimd")) {
+            return true;
+        }
+        throw new IllegalArgumentException("Contrôle de congestion inconnu : " + CONGESTION);
+    }
+
+    /**
+     * Obtient le nombre de threads correspondant à une propriété système {@code gbn.encoders} ou {@code gbn.decoders}.
+     *
+     * @param value La valeur de la propriété : un nombre ou "auto".
+     * @return Le nombre de threads.
+     * @throws NumberFormatException Si la valeur n'est ni un nombre ni "auto".
+     */
+    private static int workers(String value) {
+        if (value.equalsIgnoreCase("auto")) {
+            // Un cœur reste au thread qui applique le protocole
+            return Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        }
+        return Integer.parseInt(value);
+    }
+
+    /**
+     * Obtient le nombre de threads de décodage demandé pour le récepteur.
+     *
+     * @return Le nombre de threads, ou 0 pour décoder dans le thread de réception.
+     * @throws NumberFormatException Si la valeur n'est ni un nombre ni "auto".
+     */
+    private static int decodeWorkers() {
+        return DECODERS != null ? workers(DECODERS) : 0;
+    }
 
     /**
      * Démarre le mode émetteur.
      * Initialise le Sender, lit les données du fichier spécifié et les envoie au récepteur.
      *
-     * @param hostName Le nom de l'hôte ou l'adresse IP du récepteur.
-     * @param port     Le port de destination pour la connexion.
-     * @param filename Le chemin du fichier à envoyer.
+     * @param hostName    Le nom de l'hôte ou l'adresse IP du récepteur.
+     * @param port        Le port de destination pour la connexion.
+     * @param filename    Le chemin du fichier à envoyer.
+     * @param compression Le codec de compression à proposer, ou {@code null} pour ne pas compresser.
      */
-    public static void runSender(String hostName, int port, String filename) {
+    public static void runSender(String hostName, int port, String filename, String compression) {
         try {
-            System.out.println("Starting Sender...");
+            LOG.info("Starting Sender...");
             Sender sender = new Sender();
-            sender.initialize(hostName, port, filename);
+            sender.setCompression(compression);
+            sender.setFrameCheck(FRAME_CHECK);
+            if (LINK != null) {
+                sender.getProposal().applyOptions(LINK);
+            }
+            sender.setCongestionControl(useCongestionControl());
+            if (ENCODERS != null) {
+                sender.setEncodeWorkers(workers(ENCODERS));
+            }
+            if (PACING != null) {
+                if (PACING.equalsIgnoreCase("auto")) {
+                    sender.setAdaptivePacing(PacedTransport.DEFAULT_BURST);
+                } else {
+                    sender.setPacing(Double.parseDouble(PACING), PacedTransport.DEFAULT_BURST);
+                }
+            }
+            if (useUdp()) {
+                sender.initialize(UdpTransport.connect(hostName, port), filename);
+                LOG.info("Sender using UDP to {}:{}", hostName, port);
+            } else {
+                sender.initialize(hostName, port, filename);
+            }
 
             // Établir la connexion et envoyer les données
             try {
                 sender.readData();
-                System.out.println("Transmission complete.");
+                LOG.info("Transmission complete.");
             } catch (Exception e) {
-                System.out.println("Error during transmission: " + e.getMessage());
+                LOG.error("Error during transmission: {}", e.getMessage());
             } finally {
                 sender.close();
             }
         } catch (Exception e) {
-            System.out.println("Failed to start sender: " + e.getMessage());
+            LOG.error("Failed to start sender: {}", e.getMessage());
         }
     }
 
@@ -55,27 +208,42 @@ public class Main {
      * Démarre le mode récepteur.
      * Initialise le Receiver, accepte une connexion entrante et traite les trames reçues jusqu'à la fin de la transmission.
      *
-     * @param port Le port sur lequel le récepteur doit écouter les connexions entrantes.
+     * @param port       Le port sur lequel le récepteur doit écouter les connexions entrantes.
+     * @param outputFile Le fichier dans lequel écrire les données reçues, ou {@code null} pour la console.
      */
-    public static void runReceiver(int port) {
+    public static void runReceiver(int port, String outputFile) {
         try {
-            System.out.println("Starting Receiver...");
-            Receiver receiver = new Receiver();
-            receiver.initialize(port);
+            LOG.info("Starting Receiver...");
+            Receiver receiver = outputFile != null
+                    ? new Receiver(new FileChannelSink(Paths.get(outputFile)))
+                    : new Receiver();
+            if (LINK != null) {
+                receiver.getLimits().applyOptions(LINK);
+            }
+            receiver.setDecodeWorkers(decodeWorkers());
+            boolean udp = useUdp();
+            if (!udp) {
+                receiver.initialize(port);
+            }
 
             try {
-                receiver.acceptConnection();
-                System.out.println("Connection accepted, waiting for frames...");
+                if (udp) {
+                    receiver.acceptConnection(UdpTransport.bind(port));
+                    LOG.info("Receiver listening for UDP datagrams on port {}", port);
+                } else {
+                    receiver.acceptConnection();
+                }
+                LOG.info("Connection accepted, waiting for frames...");
 
                 while (true) {
-                    Frame frame = receiver.receiveFrame();
+                    FrameView frame = receiver.receiveFrameView();
                     if (frame == null) continue;
 
                     receiver.processFrame(frame);
 
                     // Si c'est une trame de fin, terminer
                     if (frame.getType() == 'F') {
-                        System.out.println("End of transmission received.");
+                        LOG.info("End of transmission received.");
                         break;
                     }
                 }
@@ -83,7 +251,7 @@ public class Main {
                 receiver.close();
             }
         } catch (Exception e) {
-            System.out.println("Failed to start receiver: " + e.getMessage());
+            LOG.error("Failed to start receiver: {}", e.getMessage());
         }
     }
 
@@ -93,8 +261,8 @@ public class Main {
      *
      * @param args Les arguments de la ligne de commande.
      *             <ul>
-     *                 <li>Pour le mode émetteur : <code>sender &lt;hostname&gt; &lt;port&gt; &lt;filename&gt; &lt;0&gt;</code></li>
-     *                 <li>Pour le mode récepteur : <code>receiver &lt;port&gt;</code></li>
+     *                 <li>Pour le mode émetteur : <code>sender &lt;hostname&gt; &lt;port&gt; &lt;filename&gt; &lt;0&gt; [compression]</code></li>
+     *                 <li>Pour le mode récepteur : <code>receiver &lt;port&gt; [fichier de sortie]</code></li>
      *             </ul>
      *
      *             <p>Exemples :</p>
@@ -111,7 +279,7 @@ public class Main {
 
         try {
             if (args[0].equalsIgnoreCase("sender")) {
-                if (args.length != 5) {
+                if (args.length != 5 && args.length != 6) {
                     System.out.println("Incorrect number of arguments for sender.");
                     printUsage();
                     return;
@@ -125,15 +293,15 @@ public class Main {
                     printUsage();
                     return;
                 }
-                runSender(hostname, port, filename);
+                runSender(hostname, port, filename, args.length == 6 ? args[5] : null);
             } else if (args[0].equalsIgnoreCase("receiver")) {
-                if (args.length != 2) {
+                if (args.length != 2 && args.length != 3) {
                     System.out.println("Incorrect number of arguments for receiver.");
                     printUsage();
                     return;
                 }
                 int port = Integer.parseInt(args[1]);
-                runReceiver(port);
+                runReceiver(port, args.length == 3 ? args[2] : null);
             } else {
                 System.out.println("Invalid mode. Use 'sender' or 'receiver'");
                 printUsage();
@@ -143,6 +311,8 @@ public class Main {
         } catch (Exception e) {
             System.out.println("Error: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            Log.flush();
         }
     }
 
@@ -152,11 +322,20 @@ public class Main {
      */
     private static void printUsage() {
         System.out.println("Usage:");
-        System.out.println("  Sender:   java Main sender <hostname> <port> <filename> <0>");
-        System.out.println("  Receiver: java Main receiver <port>");
+        System.out.println("  Sender:   java Main sender <hostname> <port> <filename> <0> [compression]");
+        System.out.println("  Receiver: java Main receiver <port> [output file]");
         System.out.println();
         System.out.println("Examples:");
         System.out.println("  java Main sender localhost 8080 data.txt 0");
+        System.out.println("  java Main sender localhost 8080 data.txt 0 deflate");
         System.out.println("  java Main receiver 8080");
+        System.out.println("  java Main receiver 8080 copy.txt");
+        System.out.println("  java -Dgbn.transport=udp Main receiver 8080 copy.txt");
+        System.out.println("  java -Dgbn.fcs=crc32c Main sender localhost 8080 data.txt 0");
+        System.out.println("  java -Dgbn.link=\"window=7;payload=4096\" Main sender localhost 8080 data.txt 0");
+        System.out.println("  java -Dgbn.congestion=aimd Main sender localhost 8080 data.txt 0");
+        System.out.println("  java -Dgbn.pacing=auto Main sender localhost 8080 data.txt 0");
+        System.out.println("  java -Dgbn.encoders=auto Main sender localhost 8080 data.txt 0");
+        System.out.println("  java -Dgbn.decoders=auto Main receiver 8080 copy.txt");
     }
 }
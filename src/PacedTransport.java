@@ -0,0 +1,233 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport qui espace les envois selon un seau à jetons (token bucket).
+ *
+ * <p>Le seau se remplit au débit configuré, en octets par seconde, jusqu'à la taille de rafale.
+ * Une trame part dès que le seau contient autant de jetons que sa taille (ou un seau plein pour une
+ * trame plus grande que la rafale) ; sa taille est alors retirée, quitte à rendre le solde négatif. Les trames qui ne peuvent pas partir
+ * sont mises en file, dans l'ordre, et {@link #send(ByteBuffer)} rend la main aussitôt : le départ
+ * suivant est programmé sur un ordonnanceur à l'instant exact où le solde redevient positif,
+ * sans attente active ni scrutation.</p>
+ *
+ * <p>Le débit peut être modifié à tout moment ({@link #setRate(double)}), par exemple à partir du RTT
+ * mesuré et de la fenêtre. Un débit infini désactive l'espacement. La réception n'est pas affectée.</p>
+ */
+public class PacedTransport implements Transport {
+    /**
+     * Journal de la classe.
+     */
+    private static final Log LOG = Log.getLog(PacedTransport.class);
+
+    /**
+     * Taille de rafale par défaut, en octets.
+     */
+    public static final int DEFAULT_BURST = 4096;
+
+    /**
+     * Transport sur lequel les trames sont écrites.
+     */
+    private final Transport delegate;
+
+    /**
+     * Ordonnanceur des départs différés, sur un seul thread.
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Tampons en attente de jetons, dans l'ordre d'envoi.
+     */
+    private final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>();
+
+    /**
+     * Taille du seau, en octets.
+     */
+    private final int burst;
+
+    /**
+     * Débit de remplissage du seau, en octets par seconde.
+     */
+    private double rate;
+
+    /**
+     * Solde du seau, en octets ; négatif après une trame plus grande que la rafale.
+     */
+    private double tokens;
+
+    /**
+     * Instant (System.nanoTime) du dernier remplissage.
+     */
+    private long lastRefill = System.nanoTime();
+
+    /**
+     * Indique qu'un départ différé est programmé.
+     */
+    private boolean drainScheduled;
+
+    /**
+     * Erreur d'un envoi différé, signalée à l'appel suivant.
+     */
+    private IOException failure;
+
+    /**
+     * Crée un transport espacé.
+     *
+     * @param delegate Le transport sur lequel écrire les trames.
+     * @param rate     Le débit, en octets par seconde ({@link Double#POSITIVE_INFINITY} pour ne pas espacer).
+     * @param burst    La taille de rafale, en octets.
+     * @throws IllegalArgumentException Si le débit ou la rafale n'est pas positif.
+     */
+    public PacedTransport(Transport delegate, double rate, int burst) {
+        if (burst < 1) {
+            throw new IllegalArgumentException("Taille de rafale invalide : " + burst);
+        }
+        this.delegate = delegate;
+        this.burst = burst;
+        this.tokens = burst;
+        setRate(rate);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "gbn-pacer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Modifie le débit. Les jetons accumulés au débit précédent sont conservés.
+     *
+     * @param rate Le débit, en octets par seconde ({@link Double#POSITIVE_INFINITY} pour ne pas espacer).
+     * @throws IllegalArgumentException Si le débit n'est pas positif.
+     */
+    public synchronized void setRate(double rate) {
+        if (!(rate > 0)) {
+            throw new IllegalArgumentException("Débit invalide : " + rate);
+        }
+        refill();
+        this.rate = rate;
+    }
+
+    /**
+     * Obtient le débit.
+     *
+     * @return Le débit, en octets par seconde.
+     */
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    /**
+     * Obtient le nombre de tampons en attente de jetons.
+     *
+     * @return La longueur de la file.
+     */
+    public synchronized int getQueueLength() {
+        return queue.size();
+    }
+
+    @Override
+    public synchronized void send(ByteBuffer data) throws IOException {
+        throwIfFailed();
+        queue.addLast(data);
+        drain();
+    }
+
+    @Override
+    public synchronized void send(ByteBuffer[] data) throws IOException {
+        throwIfFailed();
+        for (ByteBuffer buffer : data) {
+            queue.addLast(buffer);
+        }
+        drain();
+    }
+
+    /**
+     * Ajoute au seau les jetons accumulés depuis le dernier remplissage.
+     */
+    private void refill() {
+        long now = System.nanoTime();
+        if (rate == Double.POSITIVE_INFINITY) {
+            tokens = burst;
+        } else {
+            tokens = Math.min(burst, tokens + rate * (now - lastRefill) / 1e9);
+        }
+        lastRefill = now;
+    }
+
+    /**
+     * Écrit les tampons en tête de file tant que le seau a des jetons, puis programme le départ suivant.
+     *
+     * @throws IOException Si l'écriture échoue.
+     */
+    private void drain() throws IOException {
+        refill();
+        while (!queue.isEmpty() && tokens >= requiredTokens(queue.peekFirst())) {
+            ByteBuffer next = queue.pollFirst();
+            tokens -= next.remaining();
+            delegate.send(next);
+        }
+        if (!queue.isEmpty() && !drainScheduled) {
+            long delayNanos = (long) Math.ceil((requiredTokens(queue.peekFirst()) - tokens) / rate * 1e9);
+            drainScheduled = true;
+            scheduler.schedule(this::scheduledDrain, delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Calcule le solde nécessaire au départ d'un tampon.
+     *
+     * @param data Le tampon en tête de file.
+     * @return Sa taille, limitée à la rafale.
+     */
+    private int requiredTokens(ByteBuffer data) {
+        return Math.min(data.remaining(), burst);
+    }
+
+    /**
+     * Départ programmé : écrit les tampons devenus éligibles.
+     */
+    private synchronized void scheduledDrain() {
+        drainScheduled = false;
+        try {
+            drain();
+        } catch (IOException e) {
+            LOG.error("Error sending paced frame: {}", e.getMessage());
+            failure = e;
+            queue.clear();
+        }
+    }
+
+    /**
+     * Signale l'échec d'un envoi différé.
+     *
+     * @throws IOException L'erreur de l'envoi différé, s'il y en a eu une.
+     */
+    private void throwIfFailed() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public ByteBuffer receive() throws IOException {
+        return delegate.receive();
+    }
+
+    /**
+     * Arrête l'ordonnanceur et ferme le transport ; les tampons encore en file sont abandonnés.
+     *
+     * @throws IOException Si la fermeture échoue.
+     */
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdownNow();
+        synchronized (this) {
+            queue.clear();
+        }
+        delegate.close();
+    }
+}
@@ -0,0 +1,174 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Parité XOR d'un bloc de trames d'information consécutives, pour la correction d'erreurs
+ * sans retransmission (FEC).
+ *
+ * <p>Après un bloc de trames 'I', l'émetteur envoie une trame de parité ('P') dont le numéro est
+ * celui de la première trame du bloc. Ses données sont : le nombre de trames du bloc (1 octet),
+ * le XOR des longueurs des données (2 octets, poids fort en premier), puis le XOR des données,
+ * complétées par des zéros jusqu'à la plus longue. Le récepteur à qui il manque exactement une
+ * trame du bloc la reconstitue en combinant la parité avec les autres trames.</p>
+ *
+ * <p>Une parité XOR corrige une trame perdue ou corrompue par bloc ; les blocs plus courts
+ * corrigent davantage de pertes au prix de plus de trames de parité.</p>
+ */
+public class ParityBlock {
+    /**
+     * Taille de l'en-tête des données de parité : nombre de trames et XOR des longueurs.
+     */
+    public static final int HEADER_SIZE = 3;
+
+    /**
+     * XOR des données du bloc, en-tête compris.
+     */
+    private byte[] parity = new byte[HEADER_SIZE + ConnectionParameters.DEFAULT_MAX_PAYLOAD];
+
+    /**
+     * Taille utile de la parité, en-tête compris (en-tête plus la plus longue des données).
+     */
+    private int length = HEADER_SIZE;
+
+    /**
+     * Numéro de la première trame du bloc.
+     */
+    private int start;
+
+    /**
+     * Nombre de trames ajoutées au bloc.
+     */
+    private int count;
+
+    /**
+     * Crée un bloc de parité vide.
+     */
+    public ParityBlock() {}
+
+    /**
+     * Ajoute les données d'une trame au bloc.
+     *
+     * @param num  Le numéro de la trame ; celui de la première trame devient le numéro du bloc.
+     * @param data Les données de la trame, entre la position et la limite (la position n'est pas modifiée).
+     */
+    public void add(int num, ByteBuffer data) {
+        if (count == 0) {
+            start = num;
+        }
+        int dataLength = data.remaining();
+        if (HEADER_SIZE + dataLength > parity.length) {
+            parity = Arrays.copyOf(parity, HEADER_SIZE + dataLength);
+        }
+        parity[1] ^= (byte) (dataLength >>> 8);
+        parity[2] ^= (byte) dataLength;
+        int base = data.position();
+        for (int i = 0; i < dataLength; i++) {
+            parity[HEADER_SIZE + i] ^= data.get(base + i);
+        }
+        length = Math.max(length, HEADER_SIZE + dataLength);
+        count++;
+    }
+
+    /**
+     * Obtient le numéro de la première trame du bloc.
+     *
+     * @return Le numéro de la première trame.
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Obtient le nombre de trames du bloc.
+     *
+     * @return Le nombre de trames ajoutées depuis la dernière remise à zéro.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Retourne les données de la trame de parité du bloc.
+     *
+     * @return Une copie des données de parité, en-tête compris.
+     */
+    public byte[] toPayload() {
+        byte[] payload = Arrays.copyOf(parity, length);
+        payload[0] = (byte) count;
+        return payload;
+    }
+
+    /**
+     * Vide le bloc pour commencer le suivant.
+     */
+    public void reset() {
+        Arrays.fill(parity, 0, length, (byte) 0);
+        length = HEADER_SIZE;
+        count = 0;
+    }
+
+    /**
+     * Obtient le nombre de trames couvertes par des données de parité reçues.
+     *
+     * @param parityPayload Les données de la trame de parité (la position n'est pas modifiée).
+     * @return Le nombre de trames du bloc.
+     * @throws IllegalArgumentException Si les données sont trop courtes.
+     */
+    public static int blockCount(ByteBuffer parityPayload) {
+        if (parityPayload.remaining() < HEADER_SIZE) {
+            throw new IllegalArgumentException("Trame de parité trop courte.");
+        }
+        return parityPayload.get(parityPayload.position()) & 0xFF;
+    }
+
+    /**
+     * Reconstitue la trame manquante d'un bloc à partir de la parité et des autres trames.
+     *
+     * @param parityPayload Les données de la trame de parité (la position n'est pas modifiée).
+     * @param others        Les données des autres trames du bloc.
+     * @return Les données de la trame manquante.
+     * @throws IllegalArgumentException Si la parité est incohérente avec les trames fournies.
+     */
+    public static byte[] recover(ByteBuffer parityPayload, byte[][] others) {
+        ByteBuffer[] buffers = new ByteBuffer[others.length];
+        for (int i = 0; i < others.length; i++) {
+            buffers[i] = ByteBuffer.wrap(others[i]);
+        }
+        return recover(parityPayload, buffers);
+    }
+
+    /**
+     * Reconstitue la trame manquante d'un bloc à partir de la parité et des autres trames,
+     * fournies sous forme de tampons (la position des tampons n'est pas modifiée).
+     *
+     * @param parityPayload Les données de la trame de parité (la position n'est pas modifiée).
+     * @param others        Les données des autres trames du bloc, entre la position et la limite de chaque tampon.
+     * @return Les données de la trame manquante.
+     * @throws IllegalArgumentException Si la parité est incohérente avec les trames fournies.
+     */
+    public static byte[] recover(ByteBuffer parityPayload, ByteBuffer[] others) {
+        int base = parityPayload.position();
+        int parityLength = parityPayload.remaining() - HEADER_SIZE;
+        if (parityLength < 0) {
+            throw new IllegalArgumentException("Trame de parité trop courte.");
+        }
+        int missingLength = ((parityPayload.get(base + 1) & 0xFF) << 8) | (parityPayload.get(base + 2) & 0xFF);
+        for (ByteBuffer other : others) {
+            missingLength ^= other.remaining();
+        }
+        if (missingLength > parityLength) {
+            throw new IllegalArgumentException("Parité incohérente : longueur " + missingLength);
+        }
+        byte[] missing = new byte[missingLength];
+        for (int i = 0; i < missingLength; i++) {
+            missing[i] = parityPayload.get(base + HEADER_SIZE + i);
+        }
+        for (ByteBuffer other : others) {
+            int start = other.position();
+            for (int i = 0; i < Math.min(other.remaining(), missingLength); i++) {
+                missing[i] ^= other.get(start + i);
+            }
+        }
+        return missing;
+    }
+}
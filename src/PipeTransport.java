@@ -0,0 +1,105 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Transport en mémoire entre deux extrémités d'un même processus.
+ *
+ * <p>Les tampons envoyés ne sont pas copiés : chaque extrémité dépose le tampon de l'appelant
+ * dans la file de son pair, qui le reçoit tel quel. Le coût d'un envoi se limite donc au passage
+ * d'une référence d'un thread à l'autre, ce qui permet de mesurer le protocole sans la pile réseau.</p>
+ */
+public class PipeTransport implements Transport {
+    /**
+     * Marqueur de fin de flux déposé dans une file à la fermeture.
+     */
+    private static final ByteBuffer END_OF_STREAM = ByteBuffer.allocate(0);
+
+    /**
+     * File des tampons reçus du pair.
+     */
+    private final BlockingQueue<ByteBuffer> inbound;
+
+    /**
+     * File de réception du pair.
+     */
+    private final BlockingQueue<ByteBuffer> outbound;
+
+    /**
+     * Indique si cette extrémité a été fermée.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Indique si la fin de flux a été reçue.
+     */
+    private boolean endOfStream;
+
+    /**
+     * Crée une extrémité du tube.
+     *
+     * @param inbound  La file des tampons reçus.
+     * @param outbound La file de réception du pair.
+     */
+    private PipeTransport(BlockingQueue<ByteBuffer> inbound, BlockingQueue<ByteBuffer> outbound) {
+        this.inbound = inbound;
+        this.outbound = outbound;
+    }
+
+    /**
+     * Crée les deux extrémités d'un tube. Ce qui est envoyé sur l'une est reçu sur l'autre.
+     *
+     * @return Un tableau de deux transports reliés entre eux.
+     */
+    public static PipeTransport[] createPair() {
+        BlockingQueue<ByteBuffer> a = new LinkedBlockingQueue<>();
+        BlockingQueue<ByteBuffer> b = new LinkedBlockingQueue<>();
+        return new PipeTransport[] {new PipeTransport(a, b), new PipeTransport(b, a)};
+    }
+
+    @Override
+    public void send(ByteBuffer data) throws IOException {
+        if (closed) {
+            throw new IOException("Transport fermé");
+        }
+        if (!data.hasRemaining()) {
+            return;
+        }
+        outbound.add(data.slice());
+        data.position(data.limit());
+    }
+
+    @Override
+    public ByteBuffer receive() throws IOException {
+        if (endOfStream) {
+            return null;
+        }
+        try {
+            ByteBuffer data = inbound.take();
+            if (data == END_OF_STREAM) {
+                endOfStream = true;
+                return null;
+            }
+            return data;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Réception interrompue");
+        }
+    }
+
+    /**
+     * Ferme cette extrémité : le pair reçoit la fin de flux après les tampons déjà envoyés,
+     * et une réception bloquée sur cette extrémité se termine.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        outbound.add(END_OF_STREAM);
+        inbound.add(END_OF_STREAM);
+    }
+}
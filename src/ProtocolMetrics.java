@@ -0,0 +1,577 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registre des métriques d'une session Go-Back-N (émetteur ou récepteur).
+ *
+ * <p>Les compteurs sont des {@link LongAdder} : les threads du chemin des trames (envoi,
+ * écoute des ACK, timer) les incrémentent sans contention. Chaque session est publiée comme
+ * MBean JMX sous le nom {@code gbn:type=<rôle>,session=<n>} et retirée à sa fermeture.</p>
+ */
+public class ProtocolMetrics implements ProtocolMetricsMBean {
+    /**
+     * Journal de la classe.
+     */
+    private static final Log LOG = Log.getLog(ProtocolMetrics.class);
+
+    /**
+     * Domaine JMX des métriques.
+     */
+    public static final String DOMAIN = "gbn";
+
+    /**
+     * Nombre de valeurs conservées dans la trajectoire de la fenêtre de congestion.
+     */
+    public static final int TRAJECTORY_LENGTH = 256;
+
+    /**
+     * Compteur servant à numéroter les sessions d'un même processus.
+     */
+    private static final AtomicInteger SESSION_COUNTER = new AtomicInteger();
+
+    /**
+     * Rôle de la session ("Sender" ou "Receiver").
+     */
+    private final String role;
+
+    /**
+     * Trames écrites sur le lien, retransmissions comprises.
+     */
+    private final LongAdder framesSent = new LongAdder();
+
+    /**
+     * Octets écrits sur le lien, retransmissions comprises.
+     */
+    private final LongAdder bytesSent = new LongAdder();
+
+    /**
+     * Trames valides reçues.
+     */
+    private final LongAdder framesReceived = new LongAdder();
+
+    /**
+     * Octets de trames valides reçues.
+     */
+    private final LongAdder bytesReceived = new LongAdder();
+
+    /**
+     * Octets de données utiles envoyés une première fois ou livrés.
+     */
+    private final LongAdder payloadBytes = new LongAdder();
+
+    /**
+     * Trames retransmises à la suite d'un timeout.
+     */
+    private final LongAdder timeoutRetransmissions = new LongAdder();
+
+    /**
+     * Trames retransmises à la suite d'un REJ.
+     */
+    private final LongAdder rejRetransmissions = new LongAdder();
+
+    /**
+     * Trames rejetées pour un CRC incorrect.
+     */
+    private final LongAdder crcFailures = new LongAdder();
+
+    /**
+     * Trames mal formées.
+     */
+    private final LongAdder malformedFrames = new LongAdder();
+
+    /**
+     * Trames hors séquence ignorées.
+     */
+    private final LongAdder outOfSequenceFrames = new LongAdder();
+
+    /**
+     * Démarrages du timer de retransmission.
+     */
+    private final LongAdder timerRestarts = new LongAdder();
+
+    /**
+     * Trames de parité (FEC) envoyées.
+     */
+    private final LongAdder parityFramesSent = new LongAdder();
+
+    /**
+     * Trames reconstituées à partir d'une trame de parité.
+     */
+    private final LongAdder fecRecoveries = new LongAdder();
+
+    /**
+     * Blocs FEC non récupérables.
+     */
+    private final LongAdder fecFailures = new LongAdder();
+
+    /**
+     * Trames RNR (récepteur non prêt) envoyées par le récepteur ou reçues par l'émetteur.
+     */
+    private final LongAdder rnrFrames = new LongAdder();
+
+    /**
+     * Interrogations envoyées par l'émetteur à l'expiration du timer de persistance.
+     */
+    private final LongAdder persistProbes = new LongAdder();
+
+    /**
+     * Occupation de la fenêtre mesurée à chaque envoi.
+     */
+    private final Histogram windowOccupancy = new Histogram();
+
+    /**
+     * Fenêtre de congestion enregistrée à chaque changement.
+     */
+    private final Histogram congestionWindow = new Histogram();
+
+    /**
+     * Dernières valeurs de la fenêtre de congestion, en tampon circulaire.
+     */
+    private final int[] trajectory = new int[TRAJECTORY_LENGTH];
+
+    /**
+     * Nombre de valeurs enregistrées dans la trajectoire depuis le début de la session.
+     */
+    private long trajectoryCount;
+
+    /**
+     * Fenêtre de congestion courante, 0 sans contrôle de congestion.
+     */
+    private volatile int currentCongestionWindow;
+
+    /**
+     * Temps d'aller-retour des ACK, en microsecondes.
+     */
+    private final Histogram ackRttMicros = new Histogram();
+
+    /**
+     * Source de l'occupation courante de la fenêtre, fournie par l'émetteur.
+     */
+    private volatile IntSupplier windowGauge = () -> 0;
+
+    /**
+     * Instant de début de la session (ou de la dernière remise à zéro).
+     */
+    private volatile long startNanos = System.nanoTime();
+
+    /**
+     * Nom JMX sous lequel la session est publiée, ou {@code null} si elle ne l'est pas.
+     */
+    private ObjectName objectName;
+
+    /**
+     * Crée un registre de métriques non publié.
+     *
+     * @param role Le rôle de la session ("Sender" ou "Receiver").
+     */
+    public ProtocolMetrics(String role) {
+        this.role = role;
+    }
+
+    /**
+     * Publie le registre comme MBean sur le serveur de la plateforme.
+     * Une erreur de publication est journalisée mais n'interrompt pas la session.
+     */
+    public synchronized void register() {
+        if (objectName != null) {
+            return;
+        }
+        try {
+            ObjectName name = new ObjectName(DOMAIN + ":type=" + role + ",session=" + SESSION_COUNTER.incrementAndGet());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            objectName = name;
+        } catch (Exception e) {
+            LOG.warn("Unable to register metrics MBean: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Retire le MBean du serveur de la plateforme.
+     */
+    public synchronized void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            LOG.warn("Unable to unregister metrics MBean: {}", e.getMessage());
+        }
+        objectName = null;
+    }
+
+    /**
+     * Définit la source de l'occupation courante de la fenêtre.
+     *
+     * @param gauge La fonction retournant le nombre de trames en attente d'acquittement.
+     */
+    public void setWindowGauge(IntSupplier gauge) {
+        this.windowGauge = gauge;
+    }
+
+    /**
+     * Enregistre l'écriture d'une trame sur le lien.
+     *
+     * @param wireBytes La taille de la trame encodée.
+     */
+    public void frameSent(int wireBytes) {
+        framesSent.increment();
+        bytesSent.add(wireBytes);
+    }
+
+    /**
+     * Enregistre la réception d'une trame valide.
+     *
+     * @param wireBytes La taille de la trame encodée.
+     */
+    public void frameReceived(int wireBytes) {
+        framesReceived.increment();
+        bytesReceived.add(wireBytes);
+    }
+
+    /**
+     * Enregistre des données utiles envoyées pour la première fois ou livrées.
+     *
+     * @param bytes Le nombre d'octets de données.
+     */
+    public void payload(int bytes) {
+        payloadBytes.add(bytes);
+    }
+
+    /**
+     * Enregistre une retransmission due à un timeout.
+     */
+    public void timeoutRetransmission() {
+        timeoutRetransmissions.increment();
+    }
+
+    /**
+     * Enregistre une retransmission due à un REJ.
+     */
+    public void rejRetransmission() {
+        rejRetransmissions.increment();
+    }
+
+    /**
+     * Enregistre une trame rejetée pour un CRC incorrect.
+     */
+    public void crcFailure() {
+        crcFailures.increment();
+    }
+
+    /**
+     * Enregistre une trame mal formée.
+     */
+    public void malformedFrame() {
+        malformedFrames.increment();
+    }
+
+    /**
+     * Enregistre une trame rejetée par le décodeur : CRC incorrect ou trame mal formée.
+     *
+     * @param status Le statut de décodage, différent de {@link DecodeStatus#OK}.
+     */
+    public void decodeFailure(DecodeStatus status) {
+        if (status == DecodeStatus.CRC_MISMATCH) {
+            crcFailures.increment();
+        } else {
+            malformedFrames.increment();
+        }
+    }
+
+    /**
+     * Enregistre une trame hors séquence.
+     */
+    public void outOfSequence() {
+        outOfSequenceFrames.increment();
+    }
+
+    /**
+     * Enregistre un démarrage du timer de retransmission.
+     */
+    public void timerRestart() {
+        timerRestarts.increment();
+    }
+
+    /**
+     * Enregistre l'envoi d'une trame de parité.
+     */
+    public void paritySent() {
+        parityFramesSent.increment();
+    }
+
+    /**
+     * Enregistre une trame reconstituée à partir d'une trame de parité.
+     */
+    public void fecRecovery() {
+        fecRecoveries.increment();
+    }
+
+    /**
+     * Enregistre un bloc FEC dont la trame manquante n'a pas pu être reconstituée.
+     */
+    public void fecFailure() {
+        fecFailures.increment();
+    }
+
+    /**
+     * Enregistre l'envoi ou la réception d'une trame RNR.
+     */
+    public void rnr() {
+        rnrFrames.increment();
+    }
+
+    /**
+     * Enregistre l'envoi d'une interrogation du récepteur par le timer de persistance.
+     */
+    public void persistProbe() {
+        persistProbes.increment();
+    }
+
+    /**
+     * Enregistre l'occupation de la fenêtre au moment d'un envoi.
+     *
+     * @param occupancy Le nombre de trames en attente d'acquittement.
+     */
+    public void windowOccupancy(int occupancy) {
+        windowOccupancy.record(occupancy);
+    }
+
+    /**
+     * Enregistre une nouvelle valeur de la fenêtre de congestion.
+     *
+     * @param window La fenêtre de congestion, en trames.
+     */
+    public void congestionWindow(int window) {
+        currentCongestionWindow = window;
+        congestionWindow.record(window);
+        synchronized (trajectory) {
+            trajectory[(int) (trajectoryCount++ % TRAJECTORY_LENGTH)] = window;
+        }
+    }
+
+    /**
+     * Enregistre le temps d'aller-retour d'une trame acquittée.
+     *
+     * @param nanos Le temps entre l'envoi de la trame et la réception de son ACK, en nanosecondes.
+     */
+    public void ackRtt(long nanos) {
+        ackRttMicros.record(nanos / 1000);
+    }
+
+    @Override
+    public String getRole() {
+        return role;
+    }
+
+    @Override
+    public long getUptimeMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    @Override
+    public long getFramesSent() {
+        return framesSent.sum();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    @Override
+    public long getFramesReceived() {
+        return framesReceived.sum();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    @Override
+    public long getPayloadBytes() {
+        return payloadBytes.sum();
+    }
+
+    @Override
+    public double getGoodputBytesPerSecond() {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed <= 0 ? 0.0 : payloadBytes.sum() * 1e9 / elapsed;
+    }
+
+    @Override
+    public long getTimeoutRetransmissions() {
+        return timeoutRetransmissions.sum();
+    }
+
+    @Override
+    public long getRejRetransmissions() {
+        return rejRetransmissions.sum();
+    }
+
+    @Override
+    public long getCrcFailures() {
+        return crcFailures.sum();
+    }
+
+    @Override
+    public long getMalformedFrames() {
+        return malformedFrames.sum();
+    }
+
+    @Override
+    public long getOutOfSequenceFrames() {
+        return outOfSequenceFrames.sum();
+    }
+
+    @Override
+    public long getTimerRestarts() {
+        return timerRestarts.sum();
+    }
+
+    @Override
+    public long getParityFramesSent() {
+        return parityFramesSent.sum();
+    }
+
+    @Override
+    public long getFecRecoveries() {
+        return fecRecoveries.sum();
+    }
+
+    @Override
+    public long getFecFailures() {
+        return fecFailures.sum();
+    }
+
+    @Override
+    public long getRnrFrames() {
+        return rnrFrames.sum();
+    }
+
+    @Override
+    public long getPersistProbes() {
+        return persistProbes.sum();
+    }
+
+    @Override
+    public int getWindowOccupancy() {
+        return windowGauge.getAsInt();
+    }
+
+    @Override
+    public double getMeanWindowOccupancy() {
+        return windowOccupancy.getMean();
+    }
+
+    @Override
+    public int getCongestionWindow() {
+        return currentCongestionWindow;
+    }
+
+    @Override
+    public double getMeanCongestionWindow() {
+        return congestionWindow.getMean();
+    }
+
+    @Override
+    public int[] getCongestionWindowTrajectory() {
+        synchronized (trajectory) {
+            int length = (int) Math.min(trajectoryCount, TRAJECTORY_LENGTH);
+            int[] values = new int[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = trajectory[(int) ((trajectoryCount - length + i) % TRAJECTORY_LENGTH)];
+            }
+            return values;
+        }
+    }
+
+    @Override
+    public long getAckRttSamples() {
+        return ackRttMicros.getCount();
+    }
+
+    @Override
+    public double getAckRttMeanMicros() {
+        return ackRttMicros.getMean();
+    }
+
+    @Override
+    public long getAckRttP50Micros() {
+        return ackRttMicros.getPercentile(50);
+    }
+
+    @Override
+    public long getAckRttP99Micros() {
+        return ackRttMicros.getPercentile(99);
+    }
+
+    @Override
+    public long getAckRttMaxMicros() {
+        return ackRttMicros.getMax();
+    }
+
+    @Override
+    public void reset() {
+        framesSent.reset();
+        bytesSent.reset();
+        framesReceived.reset();
+        bytesReceived.reset();
+        payloadBytes.reset();
+        timeoutRetransmissions.reset();
+        rejRetransmissions.reset();
+        crcFailures.reset();
+        malformedFrames.reset();
+        outOfSequenceFrames.reset();
+        timerRestarts.reset();
+        parityFramesSent.reset();
+        fecRecoveries.reset();
+        fecFailures.reset();
+        rnrFrames.reset();
+        persistProbes.reset();
+        windowOccupancy.reset();
+        congestionWindow.reset();
+        synchronized (trajectory) {
+            trajectoryCount = 0;
+        }
+        ackRttMicros.reset();
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Retourne un résumé des métriques, journalisé à la fermeture de la session.
+     *
+     * @return Une chaîne résumant la session.
+     */
+    @Override
+    public String toString() {
+        return role + " metrics {" +
+                "framesSent=" + getFramesSent() +
+                ", bytesSent=" + getBytesSent() +
+                ", framesReceived=" + getFramesReceived() +
+                ", bytesReceived=" + getBytesReceived() +
+                ", payloadBytes=" + getPayloadBytes() +
+                ", timeoutRetx=" + getTimeoutRetransmissions() +
+                ", rejRetx=" + getRejRetransmissions() +
+                ", crcFailures=" + getCrcFailures() +
+                ", malformed=" + getMalformedFrames() +
+                ", outOfSequence=" + getOutOfSequenceFrames() +
+                ", timerRestarts=" + getTimerRestarts() +
+                ", parityFrames=" + getParityFramesSent() +
+                ", fecRecoveries=" + getFecRecoveries() +
+                ", fecFailures=" + getFecFailures() +
+                ", rnrFrames=" + getRnrFrames() +
+                ", persistProbes=" + getPersistProbes() +
+                ", meanCwnd=" + String.format("%.1f", getMeanCongestionWindow()) +
+                ", ackRttMeanUs=" + String.format("%.1f", getAckRttMeanMicros()) +
+                '}';
+    }
+}
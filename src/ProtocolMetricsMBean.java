@@ -0,0 +1,214 @@
+/**
+ * Interface de gestion JMX exposant les métriques d'une session Go-Back-N.
+ * Implémentée par {@link ProtocolMetrics} et visible dans jconsole sous le domaine {@code gbn}.
+ */
+public interface ProtocolMetricsMBean {
+    /**
+     * Obtient le rôle de la session ("Sender" ou "Receiver").
+     *
+     * @return Le rôle de la session ("Sender" ou "Receiver").
+     */
+    String getRole();
+
+    /**
+     * Obtient le temps écoulé depuis le début de la session, en millisecondes.
+     *
+     * @return Le temps écoulé depuis le début de la session, en millisecondes.
+     */
+    long getUptimeMillis();
+
+    /**
+     * Obtient le nombre de trames écrites sur le lien, retransmissions comprises.
+     *
+     * @return Le nombre de trames écrites sur le lien, retransmissions comprises.
+     */
+    long getFramesSent();
+
+    /**
+     * Obtient le nombre d'octets écrits sur le lien, retransmissions comprises.
+     *
+     * @return Le nombre d'octets écrits sur le lien, retransmissions comprises.
+     */
+    long getBytesSent();
+
+    /**
+     * Obtient le nombre de trames valides reçues.
+     *
+     * @return Le nombre de trames valides reçues.
+     */
+    long getFramesReceived();
+
+    /**
+     * Obtient le nombre d'octets de trames valides reçues.
+     *
+     * @return Le nombre d'octets de trames valides reçues.
+     */
+    long getBytesReceived();
+
+    /**
+     * Obtient le nombre d'octets de données utiles envoyés une première fois (émetteur) ou livrés (récepteur).
+     *
+     * @return Le nombre d'octets de données utiles envoyés une première fois (émetteur) ou livrés (récepteur).
+     */
+    long getPayloadBytes();
+
+    /**
+     * Obtient le débit utile moyen en octets par seconde.
+     *
+     * @return Le débit utile moyen en octets par seconde.
+     */
+    double getGoodputBytesPerSecond();
+
+    /**
+     * Obtient le nombre de trames retransmises à la suite d'un timeout.
+     *
+     * @return Le nombre de trames retransmises à la suite d'un timeout.
+     */
+    long getTimeoutRetransmissions();
+
+    /**
+     * Obtient le nombre de trames retransmises à la suite d'un REJ.
+     *
+     * @return Le nombre de trames retransmises à la suite d'un REJ.
+     */
+    long getRejRetransmissions();
+
+    /**
+     * Obtient le nombre de trames rejetées pour un CRC incorrect.
+     *
+     * @return Le nombre de trames rejetées pour un CRC incorrect.
+     */
+    long getCrcFailures();
+
+    /**
+     * Obtient le nombre de trames mal formées (flags, échappement, longueur).
+     *
+     * @return Le nombre de trames mal formées (flags, échappement, longueur).
+     */
+    long getMalformedFrames();
+
+    /**
+     * Obtient le nombre de trames hors séquence ignorées par le récepteur.
+     *
+     * @return Le nombre de trames hors séquence ignorées par le récepteur.
+     */
+    long getOutOfSequenceFrames();
+
+    /**
+     * Obtient le nombre de démarrages du timer de retransmission.
+     *
+     * @return Le nombre de démarrages du timer de retransmission.
+     */
+    long getTimerRestarts();
+
+    /**
+     * Obtient le nombre de trames de parité (FEC) envoyées.
+     *
+     * @return Le nombre de trames de parité envoyées par l'émetteur.
+     */
+    long getParityFramesSent();
+
+    /**
+     * Obtient le nombre de trames reconstituées par le récepteur à partir d'une trame de parité.
+     *
+     * @return Le nombre de trames récupérées sans retransmission.
+     */
+    long getFecRecoveries();
+
+    /**
+     * Obtient le nombre de blocs FEC dont la trame manquante n'a pas pu être reconstituée.
+     *
+     * @return Le nombre d'échecs de récupération, suivis d'un REJ.
+     */
+    long getFecFailures();
+
+    /**
+     * Obtient le nombre de trames RNR (récepteur non prêt) envoyées ou reçues.
+     *
+     * @return Le nombre de fois où le récepteur a suspendu l'émetteur faute de place.
+     */
+    long getRnrFrames();
+
+    /**
+     * Obtient le nombre d'interrogations envoyées par le timer de persistance de l'émetteur.
+     *
+     * @return Le nombre d'interrogations du récepteur pendant une suspension.
+     */
+    long getPersistProbes();
+
+    /**
+     * Obtient le nombre de trames actuellement en attente d'acquittement.
+     *
+     * @return Le nombre de trames actuellement en attente d'acquittement.
+     */
+    int getWindowOccupancy();
+
+    /**
+     * Obtient l'occupation moyenne de la fenêtre au moment des envois.
+     *
+     * @return L'occupation moyenne de la fenêtre au moment des envois.
+     */
+    double getMeanWindowOccupancy();
+
+    /**
+     * Obtient la fenêtre de congestion courante de l'émetteur.
+     *
+     * @return La fenêtre de congestion en trames, 0 sans contrôle de congestion.
+     */
+    int getCongestionWindow();
+
+    /**
+     * Obtient la moyenne des valeurs prises par la fenêtre de congestion.
+     *
+     * @return La fenêtre de congestion moyenne, en trames.
+     */
+    double getMeanCongestionWindow();
+
+    /**
+     * Obtient les dernières valeurs de la fenêtre de congestion, de la plus ancienne à la plus récente
+     * (au plus {@link ProtocolMetrics#TRAJECTORY_LENGTH}), pour suivre sa convergence.
+     *
+     * @return La trajectoire de la fenêtre de congestion.
+     */
+    int[] getCongestionWindowTrajectory();
+
+    /**
+     * Obtient le nombre de mesures de RTT des ACK.
+     *
+     * @return Le nombre de mesures de RTT des ACK.
+     */
+    long getAckRttSamples();
+
+    /**
+     * Obtient le RTT moyen des ACK, en microsecondes.
+     *
+     * @return Le RTT moyen des ACK, en microsecondes.
+     */
+    double getAckRttMeanMicros();
+
+    /**
+     * Obtient le RTT médian approché des ACK, en microsecondes.
+     *
+     * @return Le RTT médian approché des ACK, en microsecondes.
+     */
+    long getAckRttP50Micros();
+
+    /**
+     * Obtient le 99e percentile approché du RTT des ACK, en microsecondes.
+     *
+     * @return Le 99e percentile approché du RTT des ACK, en microsecondes.
+     */
+    long getAckRttP99Micros();
+
+    /**
+     * Obtient le RTT maximal des ACK, en microsecondes.
+     *
+     * @return Le RTT maximal des ACK, en microsecondes.
+     */
+    long getAckRttMaxMicros();
+
+    /**
+     * Remet tous les compteurs à zéro.
+     */
+    void reset();
+}
@@ -0,0 +1,344 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+
+/**
+ * Puits qui publie les données reçues dans l'ordre à un abonné {@link Flow.Subscriber}, pour intégrer
+ * le récepteur à une chaîne de traitement en flux sans fichier intermédiaire.
+ *
+ * <p>Les données livrées sont copiées dans une file bornée et remises par {@code onNext} depuis un
+ * thread dédié ("gbn-publisher"), seulement dans la limite de la demande de l'abonné
+ * ({@link Flow.Subscription#request(long)}). Chaque tampon remis appartient à l'abonné. Le nombre de
+ * places libres de la file est le crédit ({@link #credit()}) que le récepteur annonce à l'émetteur
+ * lorsque le contrôle de flux est négocié : un abonné qui ne demande plus rien remplit la file, et le
+ * récepteur suspend l'émetteur (RNR) au lieu de mettre les données en attente sans limite. Lorsque la
+ * file, après avoir été pleine, redescend à la moitié de sa capacité, l'action définie par
+ * {@link #setCreditListener(Runnable)} est exécutée (RR après RNR). Sans contrôle de flux,
+ * {@link #deliver(ByteBuffer)} bloque tant que la file est pleine : le récepteur cesse alors
+ * d'acquitter, et l'émetteur attend son timeout.</p>
+ *
+ * <p>Un seul abonné est accepté ; les données livrées avant son abonnement l'attendent dans la file.
+ * {@link #complete()} se traduit par {@code onComplete}, {@link #close()} avant la fin de la
+ * transmission par {@code onError}, dans les deux cas après les données encore en file. Après
+ * l'annulation de l'abonnement, les données reçues sont ignorées. La reprise d'un transfert
+ * interrompu n'est pas supportée.</p>
+ */
+public class PublisherSink implements DeliverySink, Flow.Publisher<ByteBuffer> {
+    /**
+     * Journal de la classe.
+     */
+    private static final Log LOG = Log.getLog(PublisherSink.class);
+
+    /**
+     * Capacité par défaut de la file, en trames.
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * Nombre maximal de trames en attente de demande.
+     */
+    private final int capacity;
+
+    /**
+     * Données en attente de demande, dans l'ordre de livraison.
+     */
+    private final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>();
+
+    /**
+     * Abonné, ou {@code null} avant l'abonnement.
+     */
+    private Flow.Subscriber<? super ByteBuffer> subscriber;
+
+    /**
+     * Nombre de trames demandées par l'abonné et pas encore remises ; {@link Long#MAX_VALUE} pour une demande illimitée.
+     */
+    private long demand;
+
+    /**
+     * Demande invalide de l'abonné, signalée par {@code onError}, ou {@code null}.
+     */
+    private IllegalArgumentException invalidRequest;
+
+    /**
+     * Indique que l'abonnement est annulé.
+     */
+    private boolean cancelled;
+
+    /**
+     * Indique que la transmission est terminée avec succès.
+     */
+    private boolean completed;
+
+    /**
+     * Erreur qui termine la publication après les données en file, ou {@code null}.
+     */
+    private Throwable failure;
+
+    /**
+     * Action exécutée lorsque la file a de nouveau de la place, ou {@code null}.
+     */
+    private volatile Runnable creditListener;
+
+    /**
+     * Indique que la file a été pleine depuis la dernière notification du crédit.
+     */
+    private boolean stalled;
+
+    /**
+     * Abonnement de l'abonné unique.
+     */
+    private final Flow.Subscription subscription = new Flow.Subscription() {
+        @Override
+        public void request(long n) {
+            synchronized (PublisherSink.this) {
+                if (n <= 0) {
+                    invalidRequest = new IllegalArgumentException("Demande invalide : " + n);
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+                PublisherSink.this.notifyAll();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            PublisherSink.this.cancel();
+        }
+    };
+
+    /**
+     * Crée un puits avec une file de capacité par défaut.
+     */
+    public PublisherSink() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Crée un puits avec une file de capacité donnée.
+     *
+     * @param capacity Le nombre maximal de trames en attente de demande.
+     * @throws IllegalArgumentException Si la capacité n'est pas positive.
+     */
+    public PublisherSink(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacité de file invalide : " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Abonne l'abonné unique et démarre le thread de publication, qui appelle {@code onSubscribe}.
+     * Un abonné supplémentaire reçoit {@code onError} avec une {@link IllegalStateException}.
+     *
+     * @param subscriber L'abonné.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        Objects.requireNonNull(subscriber);
+        synchronized (this) {
+            if (this.subscriber == null) {
+                this.subscriber = subscriber;
+                Thread publisher = new Thread(this::publish, "gbn-publisher");
+                publisher.setDaemon(true);
+                publisher.start();
+                return;
+            }
+        }
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {}
+
+            @Override
+            public void cancel() {}
+        });
+        subscriber.onError(new IllegalStateException("Un seul abonné est accepté"));
+    }
+
+    /**
+     * Annule l'abonnement : les données en file et celles reçues ensuite sont ignorées.
+     */
+    private void cancel() {
+        boolean notify;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            queue.clear();
+            notify = stalled;
+            stalled = false;
+            notifyAll();
+        }
+        LOG.debug("Subscription cancelled, discarding received data");
+        Runnable listener = creditListener;
+        if (notify && listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Boucle du thread de publication : remet les données à l'abonné selon sa demande, puis le signal de fin.
+     */
+    private void publish() {
+        Flow.Subscriber<? super ByteBuffer> target;
+        synchronized (this) {
+            target = subscriber;
+        }
+        target.onSubscribe(subscription);
+        while (true) {
+            ByteBuffer next;
+            boolean notify = false;
+            Throwable error = null;
+            boolean violation = false;
+            synchronized (this) {
+                try {
+                    while (!cancelled && invalidRequest == null && (queue.isEmpty() || demand == 0)
+                            && !(queue.isEmpty() && (completed || failure != null))) {
+                        wait();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (cancelled) {
+                    return;
+                }
+                next = invalidRequest == null ? queue.pollFirst() : null;
+                if (next != null) {
+                    if (demand != Long.MAX_VALUE) {
+                        demand--;
+                    }
+                    notify = stalled && queue.size() <= capacity / 2;
+                    if (notify) {
+                        stalled = false;
+                    }
+                    notifyAll();
+                } else {
+                    violation = invalidRequest != null;
+                    error = violation ? invalidRequest : failure;
+                }
+            }
+            if (next == null) {
+                if (error != null) {
+                    target.onError(error);
+                } else {
+                    target.onComplete();
+                }
+                if (violation) {
+                    cancel();
+                }
+                return;
+            }
+            try {
+                target.onNext(next);
+            } catch (RuntimeException e) {
+                LOG.error("Subscriber failed, cancelling subscription: {}", e.getMessage());
+                cancel();
+                return;
+            }
+            Runnable listener = creditListener;
+            if (notify && listener != null) {
+                listener.run();
+            }
+        }
+    }
+
+    /**
+     * Aucune préparation n'est nécessaire. La reprise n'est pas supportée.
+     *
+     * @param transferId   L'identifiant du transfert (ignoré).
+     * @param expectedSize La taille annoncée par l'émetteur (ignorée).
+     * @return Toujours {@code 0}.
+     */
+    @Override
+    public long open(String transferId, long expectedSize) {
+        return 0;
+    }
+
+    /**
+     * Copie les données dans la file, en attendant une place si elle est pleine.
+     * Les données sont ignorées si l'abonnement est annulé.
+     *
+     * @param payload Les données de la trame.
+     * @throws IOException Si le puits est fermé, y compris pendant l'attente, ou si l'attente est interrompue.
+     */
+    @Override
+    public synchronized void deliver(ByteBuffer payload) throws IOException {
+        try {
+            while (queue.size() >= capacity && !cancelled && failure == null) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for subscriber demand");
+        }
+        if (failure != null) {
+            throw new IOException("Publisher sink closed", failure);
+        }
+        if (cancelled) {
+            payload.position(payload.limit());
+            return;
+        }
+        ByteBuffer copy = ByteBuffer.allocate(payload.remaining());
+        copy.put(payload).flip();
+        queue.addLast(copy);
+        if (queue.size() >= capacity) {
+            stalled = true;
+        }
+        notifyAll();
+    }
+
+    /**
+     * Obtient le nombre de places libres dans la file.
+     *
+     * @return Le nombre de trames que la file peut encore recevoir, toute la capacité après l'annulation.
+     */
+    @Override
+    public synchronized int credit() {
+        return cancelled ? capacity : capacity - queue.size();
+    }
+
+    @Override
+    public void setCreditListener(Runnable listener) {
+        this.creditListener = listener;
+    }
+
+    /**
+     * Sans effet : les données en file attendent la demande de l'abonné.
+     */
+    @Override
+    public void flush() {}
+
+    /**
+     * Termine la publication : l'abonné reçoit {@code onComplete} après les données en file.
+     */
+    @Override
+    public synchronized void complete() {
+        if (failure == null) {
+            completed = true;
+        }
+        notifyAll();
+    }
+
+    /**
+     * Ferme le puits. Si la transmission n'est pas terminée, l'abonné reçoit {@code onError}
+     * après les données en file. Les appels répétés n'ont aucun effet.
+     */
+    @Override
+    public synchronized void close() {
+        if (!completed && failure == null) {
+            failure = new IOException("Transmission interrompue avant la fin");
+        }
+        notifyAll();
+    }
+
+    /**
+     * Obtient le nombre de trames en attente de demande.
+     *
+     * @return La longueur de la file.
+     */
+    public synchronized int getQueueLength() {
+        return queue.size();
+    }
+}
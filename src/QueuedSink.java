@@ -0,0 +1,285 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Puits qui découple le récepteur d'un puits lent (disque, traitement en aval) par une file bornée.
+ *
+ * <p>Les données livrées sont copiées dans la file et remises au puits délégué par un thread dédié ;
+ * le récepteur continue donc de lire le transport pendant les écritures. Les copies viennent du
+ * {@link BufferPool} partagé et lui sont rendues une fois écrites. Le nombre de places libres
+ * de la file est le crédit ({@link #credit()}) que le récepteur annonce à l'émetteur lorsque le
+ * contrôle de flux est négocié : l'émetteur n'envoie pas plus de trames que la file ne peut en
+ * recevoir, et un récepteur saturé le suspend (RNR) au lieu de perdre des trames.</p>
+ *
+ * <p>Lorsque la file, après avoir été pleine, redescend à la moitié de sa capacité, l'action définie
+ * par {@link #setCreditListener(Runnable)} est exécutée depuis le thread d'écriture. Si l'émetteur
+ * dépasse malgré tout le crédit, {@link #deliver(ByteBuffer)} bloque jusqu'à ce qu'une place se libère.</p>
+ */
+public class QueuedSink implements DeliverySink {
+    /**
+     * Journal de la classe.
+     */
+    private static final Log LOG = Log.getLog(QueuedSink.class);
+
+    /**
+     * Capacité par défaut de la file, en trames.
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * Puits auquel les données sont remises.
+     */
+    private final DeliverySink delegate;
+
+    /**
+     * Nombre maximal de trames en attente d'écriture.
+     */
+    private final int capacity;
+
+    /**
+     * Pool fournissant les copies des données en file.
+     */
+    private final BufferPool pool = BufferPool.shared();
+
+    /**
+     * Données en attente d'écriture ; la tête reste dans la file pendant son écriture.
+     */
+    private final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>();
+
+    /**
+     * Action exécutée lorsque la file a de nouveau de la place, ou {@code null}.
+     */
+    private volatile Runnable creditListener;
+
+    /**
+     * Indique que la file a été pleine depuis la dernière notification du crédit.
+     */
+    private boolean stalled;
+
+    /**
+     * Première erreur du puits délégué, signalée au récepteur à la livraison suivante.
+     */
+    private IOException failure;
+
+    /**
+     * Indique que le thread d'écriture doit s'arrêter une fois la file vide.
+     */
+    private boolean stopping;
+
+    /**
+     * Thread d'écriture, ou {@code null} avant l'ouverture et après l'arrêt.
+     */
+    private Thread writer;
+
+    /**
+     * Crée un puits avec une file de capacité par défaut.
+     *
+     * @param delegate Le puits auquel remettre les données.
+     */
+    public QueuedSink(DeliverySink delegate) {
+        this(delegate, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Crée un puits avec une file de capacité donnée.
+     *
+     * @param delegate Le puits auquel remettre les données.
+     * @param capacity Le nombre maximal de trames en attente d'écriture.
+     * @throws IllegalArgumentException Si la capacité n'est pas positive.
+     */
+    public QueuedSink(DeliverySink delegate, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacité de file invalide : " + capacity);
+        }
+        this.delegate = delegate;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Ouvre le puits délégué et démarre le thread d'écriture.
+     *
+     * @param transferId   L'identifiant du transfert annoncé par l'émetteur.
+     * @param expectedSize La taille annoncée par l'émetteur en octets.
+     * @return La position de reprise indiquée par le puits délégué.
+     * @throws IOException Si le puits délégué ne peut pas être ouvert.
+     */
+    @Override
+    public synchronized long open(String transferId, long expectedSize) throws IOException {
+        long offset = delegate.open(transferId, expectedSize);
+        stopping = false;
+        writer = new Thread(this::drain, "gbn-sink");
+        writer.setDaemon(true);
+        writer.start();
+        return offset;
+    }
+
+    /**
+     * Copie les données dans la file, en attendant une place si elle est pleine.
+     *
+     * @param payload Les données de la trame.
+     * @throws IOException Si le puits délégué a échoué ou si l'attente est interrompue.
+     */
+    @Override
+    public synchronized void deliver(ByteBuffer payload) throws IOException {
+        ByteBuffer copy = pool.acquire(payload.remaining());
+        copy.put(payload).flip();
+        try {
+            while (queue.size() >= capacity && failure == null) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            pool.release(copy);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for sink space");
+        }
+        if (failure != null) {
+            pool.release(copy);
+            throw failure;
+        }
+        queue.addLast(copy);
+        if (queue.size() >= capacity) {
+            stalled = true;
+        }
+        notifyAll();
+    }
+
+    /**
+     * Obtient le nombre de places libres dans la file.
+     *
+     * @return Le nombre de trames que la file peut encore recevoir.
+     */
+    @Override
+    public synchronized int credit() {
+        return capacity - queue.size();
+    }
+
+    @Override
+    public void setCreditListener(Runnable listener) {
+        this.creditListener = listener;
+    }
+
+    /**
+     * Boucle du thread d'écriture : remet les données au puits délégué dans l'ordre de livraison.
+     */
+    private void drain() {
+        while (true) {
+            ByteBuffer next;
+            synchronized (this) {
+                while (queue.isEmpty() && !stopping) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (queue.isEmpty()) {
+                    return;
+                }
+                next = queue.peekFirst();
+            }
+            try {
+                delegate.deliver(next);
+            } catch (IOException e) {
+                LOG.error("Error delivering queued data: {}", e.getMessage());
+                synchronized (this) {
+                    failure = e;
+                    queue.forEach(pool::release);
+                    queue.clear();
+                    notifyAll();
+                }
+                return;
+            }
+            boolean notify;
+            synchronized (this) {
+                pool.release(queue.removeFirst());
+                notify = stalled && queue.size() <= capacity / 2 && !stopping; // Pas de RR pendant la fermeture
+                if (notify) {
+                    stalled = false;
+                }
+                notifyAll();
+            }
+            Runnable listener = creditListener;
+            if (notify && listener != null) {
+                listener.run();
+            }
+        }
+    }
+
+    /**
+     * Attend que toutes les données en file aient été remises au puits délégué, puis arrête le thread
+     * d'écriture.
+     *
+     * @throws IOException Si le puits délégué a échoué.
+     */
+    private void stopWriter() throws IOException {
+        Thread thread;
+        synchronized (this) {
+            stopping = true;
+            notifyAll();
+            thread = writer;
+            writer = null;
+        }
+        if (thread != null && thread != Thread.currentThread()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while draining sink queue");
+            }
+        }
+        synchronized (this) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Attend que la file soit vide, puis vide le puits délégué.
+     *
+     * @throws IOException Si le puits délégué a échoué ou si l'attente est interrompue.
+     */
+    @Override
+    public void flush() throws IOException {
+        synchronized (this) {
+            try {
+                while (!queue.isEmpty() && failure == null) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while flushing sink queue");
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+        delegate.flush();
+    }
+
+    /**
+     * Écrit les données en file, puis termine le puits délégué.
+     *
+     * @throws IOException Si le puits délégué a échoué.
+     */
+    @Override
+    public void complete() throws IOException {
+        stopWriter();
+        delegate.complete();
+    }
+
+    /**
+     * Écrit les données en file, afin qu'une reprise reparte après elles, puis ferme le puits délégué.
+     *
+     * @throws IOException Si le puits délégué a échoué.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            stopWriter();
+        } finally {
+            delegate.close();
+        }
+    }
+}
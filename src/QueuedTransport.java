@@ -0,0 +1,272 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Transport dont toutes les écritures passent par un thread dédié.
+ *
+ * <p>Les threads qui envoient (producteur de l'émetteur, thread de réception, timers, thread du puits)
+ * déposent leurs trames dans des files et rendent la main ; un seul thread, "gbn-writer", les écrit
+ * sur le transport délégué. Aucun thread n'attend donc qu'un autre ait fini d'écrire, et le transport
+ * délégué n'est jamais utilisé par deux threads à la fois.</p>
+ *
+ * <p>Les trames de contrôle ({@link #sendControl(ByteBuffer, boolean)} : ACK, RR, RNR, REJ, SREJ...)
+ * passent avant les données en attente, si bien qu'un acquittement n'attend jamais derrière une
+ * rafale de trames d'information. Un ACK, RR ou RNR encore en file est remplacé par le suivant,
+ * qui le rend inutile puisque les acquittements sont cumulatifs. Les données
+ * ({@link #send(ByteBuffer)}) passent par une file bornée : un émetteur plus rapide que le lien
+ * attend qu'une place se libère.</p>
+ *
+ * <p>Le thread d'écriture remet au transport délégué tout ce qui est en file, jusqu'à
+ * {@link #MAX_BATCH} trames à la fois, en un seul appel à {@link Transport#send(ByteBuffer[])} :
+ * un seul vidage du flux en TCP, un seul datagramme en UDP lorsque les trames y tiennent.</p>
+ */
+public class QueuedTransport implements Transport {
+    /**
+     * Journal de la classe.
+     */
+    private static final Log LOG = Log.getLog(QueuedTransport.class);
+
+    /**
+     * Capacité par défaut de la file des données, en trames.
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /**
+     * Nombre maximal de trames remises ensemble au transport délégué.
+     */
+    public static final int MAX_BATCH = 32;
+
+    /**
+     * Attente maximale, à la fermeture, de l'écriture des trames encore en file.
+     */
+    private static final long CLOSE_TIMEOUT_MS = 1000;
+
+    /**
+     * Transport sur lequel les trames sont écrites.
+     */
+    private final Transport delegate;
+
+    /**
+     * Trames de données en attente, dans l'ordre d'envoi.
+     */
+    private final BlockingQueue<ByteBuffer> data;
+
+    /**
+     * Trames de contrôle en attente, écrites avant les données. Chacune répond à une trame reçue :
+     * leur nombre est borné par le trafic entrant.
+     */
+    private final ConcurrentLinkedQueue<ByteBuffer> control = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Dernier acquittement cumulatif (ACK, RR ou RNR) pas encore écrit, ou {@code null}.
+     */
+    private final AtomicReference<ByteBuffer> status = new AtomicReference<>();
+
+    /**
+     * Acquittements remplacés par un plus récent avant d'avoir été écrits.
+     */
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Thread d'écriture.
+     */
+    private final Thread writer;
+
+    /**
+     * Indique que le thread d'écriture doit s'arrêter une fois les files vides.
+     */
+    private volatile boolean closing;
+
+    /**
+     * Première erreur d'écriture, signalée à l'envoi suivant.
+     */
+    private volatile IOException failure;
+
+    /**
+     * Crée un transport avec une file de données de capacité par défaut.
+     *
+     * @param delegate Le transport sur lequel écrire les trames.
+     */
+    public QueuedTransport(Transport delegate) {
+        this(delegate, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Crée un transport avec une file de données de capacité donnée.
+     *
+     * @param delegate Le transport sur lequel écrire les trames.
+     * @param capacity Le nombre maximal de trames de données en attente d'écriture.
+     * @throws IllegalArgumentException Si la capacité n'est pas positive.
+     */
+    public QueuedTransport(Transport delegate, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacité de file invalide : " + capacity);
+        }
+        this.delegate = delegate;
+        this.data = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::drain, "gbn-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Met une trame de données en file, en attendant une place si la file est pleine.
+     *
+     * @param buffer La trame à envoyer.
+     * @throws IOException Si une écriture précédente a échoué, si le transport est fermé ou si l'attente est interrompue.
+     */
+    @Override
+    public void send(ByteBuffer buffer) throws IOException {
+        throwIfFailed();
+        try {
+            data.put(buffer);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Envoi interrompu");
+        }
+        LockSupport.unpark(writer);
+    }
+
+    @Override
+    public void send(ByteBuffer[] buffers) throws IOException {
+        throwIfFailed();
+        try {
+            for (ByteBuffer buffer : buffers) {
+                data.put(buffer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Envoi interrompu");
+        } finally {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Met une trame de contrôle en file, sans jamais attendre : elle sera écrite avant les données en attente.
+     *
+     * @param buffer     La trame à envoyer.
+     * @param cumulative {@code true} pour un ACK, RR ou RNR, qui remplace celui encore en file.
+     * @throws IOException Si une écriture précédente a échoué ou si le transport est fermé.
+     */
+    @Override
+    public void sendControl(ByteBuffer buffer, boolean cumulative) throws IOException {
+        throwIfFailed();
+        if (!cumulative) {
+            control.add(buffer);
+        } else if (status.getAndSet(buffer) != null) {
+            coalesced.increment();
+        }
+        LockSupport.unpark(writer);
+    }
+
+    /**
+     * Obtient le nombre de trames de données en attente d'écriture.
+     *
+     * @return La longueur de la file des données.
+     */
+    public int getQueueLength() {
+        return data.size();
+    }
+
+    /**
+     * Obtient le nombre d'acquittements remplacés avant d'avoir été écrits.
+     *
+     * @return Le nombre d'acquittements regroupés.
+     */
+    public long getCoalescedFrames() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Boucle du thread d'écriture : contrôle d'abord, puis le dernier acquittement, puis les données,
+     * remis ensemble au transport délégué.
+     */
+    private void drain() {
+        ByteBuffer[] batch = new ByteBuffer[MAX_BATCH];
+        while (true) {
+            int count = 0;
+            ByteBuffer next;
+            while (count < MAX_BATCH - 1 && (next = control.poll()) != null) {
+                batch[count++] = next;
+            }
+            next = status.getAndSet(null);
+            if (next != null) {
+                batch[count++] = next;
+            }
+            while (count < MAX_BATCH && (next = data.poll()) != null) {
+                batch[count++] = next;
+            }
+            if (count == 0) {
+                if (closing) {
+                    return;
+                }
+                LockSupport.park(this);
+                continue;
+            }
+            try {
+                delegate.send(count == MAX_BATCH ? batch : Arrays.copyOf(batch, count));
+            } catch (IOException e) {
+                LOG.error("Error writing queued frames: {}", e.getMessage());
+                failure = e;
+                data.clear();
+                control.clear();
+                status.set(null);
+                return;
+            } finally {
+                Arrays.fill(batch, 0, count, null);
+            }
+        }
+    }
+
+    /**
+     * Signale l'échec d'une écriture précédente ou la fermeture du transport.
+     *
+     * @throws IOException L'erreur d'écriture, ou une erreur si le transport est fermé.
+     */
+    private void throwIfFailed() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        if (closing) {
+            throw new IOException("Transport fermé");
+        }
+    }
+
+    @Override
+    public ByteBuffer receive() throws IOException {
+        return delegate.receive();
+    }
+
+    /**
+     * Écrit les trames encore en file (par exemple l'ACK de la trame de fin), en attendant au plus
+     * {@link #CLOSE_TIMEOUT_MS} millisecondes, puis ferme le transport délégué.
+     *
+     * @throws IOException Si la fermeture échoue.
+     */
+    @Override
+    public void close() throws IOException {
+        closing = true;
+        LockSupport.unpark(writer);
+        if (writer != Thread.currentThread()) {
+            try {
+                writer.join(CLOSE_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (writer.isAlive()) {
+                LOG.debug("Writer still busy after {} ms, abandoning queued frames", CLOSE_TIMEOUT_MS);
+                writer.interrupt();
+            }
+        }
+        delegate.close();
+    }
+}
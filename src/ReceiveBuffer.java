@@ -0,0 +1,254 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Trames conservées par le récepteur au-delà de la trame attendue, pour le rejet sélectif
+ * (trames 'S') et la correction d'erreurs par parité ({@link ParityBlock}).
+ *
+ * <p>Le récepteur Go-Back-N ne livre que la trame attendue et ignore les suivantes. Avec le rejet
+ * sélectif ou la FEC, il conserve les trames arrivées après un trou : une fois le trou comblé, par
+ * une retransmission ou par la parité, elles sont livrées sans attendre leur propre retransmission.
+ * Avec la FEC, il garde aussi une copie des trames déjà livrées du bloc en cours, nécessaires à la
+ * reconstitution.</p>
+ *
+ * <p>Les copies des données viennent du {@link BufferPool} partagé : le tampon d'une case lui est
+ * rendu lorsque la case est réutilisée par un tour suivant des numéros, ou par {@link #release()}.</p>
+ *
+ * <p>Les numéros de séquence sont convertis en indices absolus (nombre de trames livrées depuis
+ * la connexion) : une case n'est utilisée que si son indice correspond, ce qui écarte les données
+ * d'un tour précédent des numéros. La négociation garantit que les numéros utiles, du début du bloc
+ * de la trame attendue jusqu'à la fin de la fenêtre, sont distincts modulo le modulo.</p>
+ */
+public class ReceiveBuffer {
+    /**
+     * Modulo des numéros de séquence.
+     */
+    private final int modulus;
+
+    /**
+     * Taille de la fenêtre de l'émetteur.
+     */
+    private final int window;
+
+    /**
+     * Taille maximale d'un bloc de parité, 0 sans FEC.
+     */
+    private final int block;
+
+    /**
+     * Données conservées, indexées par numéro de séquence.
+     */
+    private final ByteBuffer[] slots;
+
+    /**
+     * Pool fournissant les copies des données conservées.
+     */
+    private final BufferPool pool = BufferPool.shared();
+
+    /**
+     * Indice absolu des données de chaque case, ou {@code -1} si la case est vide.
+     */
+    private final long[] slotIndex;
+
+    /**
+     * Indice absolu de la trame attendue.
+     */
+    private long expectedIndex;
+
+    /**
+     * Indice absolu de la trame reçue la plus lointaine, conservée ou livrée.
+     */
+    private long highestIndex = -1;
+
+    /**
+     * Crée un tampon de réception pour les paramètres du lien négociés.
+     *
+     * @param modulus Le modulo des numéros de séquence.
+     * @param window  La taille de la fenêtre de l'émetteur.
+     * @param block   La taille maximale d'un bloc de parité, 0 sans FEC.
+     */
+    public ReceiveBuffer(int modulus, int window, int block) {
+        this.modulus = modulus;
+        this.window = window;
+        this.block = block;
+        this.slots = new ByteBuffer[modulus];
+        this.slotIndex = new long[modulus];
+        Arrays.fill(slotIndex, -1);
+    }
+
+    /**
+     * Convertit un numéro de séquence en indice absolu : les numéros de la fenêtre à partir de la
+     * trame attendue sont à venir, les autres sont passés.
+     *
+     * @param num Le numéro de séquence.
+     * @return L'indice absolu de la trame.
+     */
+    private long indexOf(int num) {
+        int distance = Math.floorMod(num - (int) (expectedIndex % modulus), modulus);
+        return distance < window ? expectedIndex + distance : expectedIndex - (modulus - distance);
+    }
+
+    /**
+     * Obtient la position d'une trame par rapport à la trame attendue.
+     *
+     * @param num Le numéro de la trame.
+     * @return 0 pour la trame attendue, un nombre positif pour une trame suivante de la fenêtre,
+     *         un nombre négatif pour une trame déjà livrée.
+     */
+    public int offsetOf(int num) {
+        return (int) (indexOf(num) - expectedIndex);
+    }
+
+    /**
+     * Conserve une copie des données d'une trame dans sa case. Une case qui contient déjà cette
+     * trame (trame conservée puis livrée) est laissée telle quelle.
+     *
+     * @param index L'indice absolu de la trame.
+     * @param data  Les données (la position n'est pas modifiée).
+     */
+    private void keep(long index, ByteBuffer data) {
+        int slot = (int) Math.floorMod(index, (long) modulus);
+        if (slotIndex[slot] == index) {
+            return;
+        }
+        ByteBuffer copy = pool.acquire(data.remaining());
+        copy.put(data.duplicate()).flip();
+        if (slots[slot] != null) {
+            pool.release(slots[slot]);
+        }
+        slots[slot] = copy;
+        slotIndex[slot] = index;
+    }
+
+    /**
+     * Enregistre la livraison de la trame attendue et passe à la suivante.
+     * Avec la FEC, une copie des données est gardée pour reconstituer une autre trame du bloc.
+     *
+     * @param data Les données de la trame livrée, telles que reçues (avant décompression).
+     */
+    public void accepted(ByteBuffer data) {
+        if (block > 0) {
+            keep(expectedIndex, data);
+        }
+        highestIndex = Math.max(highestIndex, expectedIndex);
+        expectedIndex++;
+    }
+
+    /**
+     * Conserve une trame de la fenêtre arrivée après un trou.
+     *
+     * @param num  Le numéro de la trame, suivant la trame attendue ({@link #offsetOf(int)} positif).
+     * @param data Les données de la trame.
+     * @return {@code true} si la trame ouvre un nouveau trou, c'est-à-dire si des trames manquent
+     *         entre elle et la trame reçue la plus lointaine jusqu'ici.
+     */
+    public boolean store(int num, ByteBuffer data) {
+        long index = indexOf(num);
+        if (index <= expectedIndex) {
+            return false;
+        }
+        keep(index, data);
+        boolean newGap = index > Math.max(highestIndex, expectedIndex - 1) + 1;
+        highestIndex = Math.max(highestIndex, index);
+        return newGap;
+    }
+
+    /**
+     * Indique si un trou avant une trame peut encore être comblé par la parité du bloc de la
+     * trame attendue, auquel cas le rejet peut attendre la trame de parité.
+     *
+     * @param num Le numéro d'une trame suivant la trame attendue.
+     * @return {@code true} si la FEC est active et si la trame peut appartenir au même bloc.
+     */
+    public boolean awaitsParity(int num) {
+        int offset = offsetOf(num);
+        return offset > 0 && offset < block;
+    }
+
+    /**
+     * Retire la trame attendue si elle a été conservée après un trou désormais comblé.
+     *
+     * @return Une vue sur les données de la trame attendue, valide jusqu'à la réutilisation de sa case,
+     *         ou {@code null} si elle n'a pas été reçue.
+     */
+    public ByteBuffer takeExpected() {
+        int slot = (int) (expectedIndex % modulus);
+        return slotIndex[slot] == expectedIndex ? slots[slot].duplicate() : null;
+    }
+
+    /**
+     * Construit la table des trames reçues au-delà de la trame attendue : le bit {@code i}
+     * (bit de poids fort du premier octet pour {@code i = 0}) indique si la trame attendue
+     * {@code + 1 + i} est conservée.
+     *
+     * @return La table, sur {@code (fenêtre - 1)} bits arrondis à l'octet.
+     */
+    public byte[] bitmap() {
+        byte[] bitmap = new byte[(window - 1 + 7) / 8];
+        for (int i = 0; i < window - 1; i++) {
+            long index = expectedIndex + 1 + i;
+            if (slotIndex[(int) (index % modulus)] == index) {
+                bitmap[i / 8] |= (byte) (0x80 >>> (i % 8));
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * Indique la position d'un bloc de parité par rapport à la trame attendue.
+     *
+     * @param start Le numéro de la première trame du bloc.
+     * @param count Le nombre de trames du bloc.
+     * @return Un nombre négatif si le bloc est entièrement livré, zéro s'il contient la trame attendue,
+     *         un nombre positif s'il commence après elle.
+     */
+    public int locate(int start, int count) {
+        long first = indexOf(start);
+        if (first > expectedIndex) {
+            return 1;
+        }
+        return first + count - 1 < expectedIndex ? -1 : 0;
+    }
+
+    /**
+     * Reconstitue la trame attendue à partir de la parité de son bloc.
+     *
+     * @param start         Le numéro de la première trame du bloc.
+     * @param parityPayload Les données de la trame de parité.
+     * @return Les données de la trame attendue, ou {@code null} s'il manque une autre trame du bloc.
+     * @throws IllegalArgumentException Si la parité est incohérente.
+     */
+    public byte[] recover(int start, ByteBuffer parityPayload) {
+        int count = ParityBlock.blockCount(parityPayload);
+        if (count < 1) {
+            throw new IllegalArgumentException("Bloc de parité vide.");
+        }
+        long first = indexOf(start);
+        ByteBuffer[] others = new ByteBuffer[count - 1];
+        int n = 0;
+        for (long index = first; index < first + count; index++) {
+            if (index == expectedIndex) {
+                continue;
+            }
+            int slot = (int) Math.floorMod(index, (long) modulus);
+            if (slotIndex[slot] != index) {
+                return null;
+            }
+            others[n++] = slots[slot].duplicate();
+        }
+        return ParityBlock.recover(parityPayload, others);
+    }
+
+    /**
+     * Rend au pool les tampons de toutes les cases, qui sont vidées.
+     */
+    public void release() {
+        for (int slot = 0; slot < modulus; slot++) {
+            if (slots[slot] != null) {
+                pool.release(slots[slot]);
+                slots[slot] = null;
+            }
+            slotIndex[slot] = -1;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Chaîne de réception en trois étages, pour répartir le décodage des grandes trames sur plusieurs cœurs.
+ *
+ * <ol>
+ *   <li>Un thread de lecture ("gbn-reader") découpe les octets reçus en trames sur les flags
+ *       ({@link FrameReader}) et copie chacune dans une case d'un anneau borné.</li>
+ *   <li>Un groupe de threads de décodage ("gbn-decoder-N"), chacun avec son {@link FrameDecoder},
+ *       retire l'échappement et le bit stuffing et vérifie la séquence de contrôle. Ce travail ne
+ *       dépend pas de l'ordre des trames : les cases sont décodées en parallèle.</li>
+ *   <li>Le thread qui appelle {@link #next()} (le séquenceur) reprend les cases dans l'ordre
+ *       d'arrivée et applique le protocole : numéros de séquence, ACK, remise au puits.</li>
+ * </ol>
+ *
+ * <p>L'anneau borne le nombre de trames entre la lecture et le séquenceur : le lecteur attend qu'une
+ * case se libère, et le transport (ou le contrôle de flux) ralentit alors l'émetteur. Les cases sont
+ * réutilisées ; les données d'une case restent valides jusqu'à l'appel suivant de {@link #next()}.</p>
+ */
+public class ReceivePipeline {
+    /**
+     * Journal de la classe.
+     */
+    private static final Log LOG = Log.getLog(ReceivePipeline.class);
+
+    /**
+     * Nombre de cases par défaut entre la lecture et le séquenceur.
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * Trame en transit dans la chaîne : octets reçus, puis résultat du décodage.
+     */
+    public static final class Slot {
+        /**
+         * Octets de la trame reçue, flags compris.
+         */
+        private byte[] wire = new byte[256];
+
+        /**
+         * Vue sur {@link #wire}, limitée à la trame.
+         */
+        private ByteBuffer wireBuffer = ByteBuffer.wrap(wire);
+
+        /**
+         * Données décodées de la trame.
+         */
+        private byte[] payload = new byte[256];
+
+        /**
+         * Vue sur {@link #payload}, limitée aux données.
+         */
+        private ByteBuffer payloadBuffer = ByteBuffer.wrap(payload);
+
+        /**
+         * Vue sur la trame décodée, remise au séquenceur.
+         */
+        private final FrameView view = new FrameView();
+
+        /**
+         * Résultat du décodage.
+         */
+        private DecodeStatus status;
+
+        /**
+         * Indique que le décodage est terminé ; écrit par le décodeur, lu par le séquenceur.
+         */
+        private volatile boolean decoded;
+
+        /**
+         * Crée une case vide.
+         */
+        Slot() {}
+
+        /**
+         * Copie une trame reçue dans la case.
+         *
+         * @param frame La trame, flags compris (la position n'est pas modifiée).
+         */
+        void fill(ByteBuffer frame) {
+            int length = frame.remaining();
+            if (wire.length < length) {
+                wire = new byte[Integer.highestOneBit(length) << 1];
+                wireBuffer = ByteBuffer.wrap(wire);
+            }
+            frame.duplicate().get(wire, 0, length);
+            wireBuffer.clear().limit(length);
+        }
+
+        /**
+         * Décode la trame de la case et copie ses données hors du tampon du décodeur.
+         *
+         * @param decoder Le décodeur du thread courant.
+         * @param scratch La vue de travail du décodeur.
+         * @param check   Le contrôle négocié.
+         */
+        void decode(FrameDecoder decoder, FrameView scratch, FrameCheck check) {
+            status = decoder.tryDecode(wireBuffer, scratch, check);
+            if (status.isOk()) {
+                ByteBuffer data = scratch.getPayload();
+                int length = data.remaining();
+                if (payload.length < length) {
+                    payload = new byte[Integer.highestOneBit(length) << 1];
+                    payloadBuffer = ByteBuffer.wrap(payload);
+                }
+                data.duplicate().get(payload, 0, length);
+                payloadBuffer.clear().limit(length);
+                view.set(scratch.getType(), scratch.getNum(), payloadBuffer, scratch.getFcs(), scratch.getFrameCheck());
+            }
+        }
+
+        /**
+         * Obtient le résultat du décodage.
+         *
+         * @return Le statut du décodage.
+         */
+        public DecodeStatus getStatus() {
+            return status;
+        }
+
+        /**
+         * Obtient la trame décodée.
+         *
+         * @return La vue sur la trame, remplie seulement si le statut est {@link DecodeStatus#OK}.
+         */
+        public FrameView getView() {
+            return view;
+        }
+
+        /**
+         * Obtient la taille de la trame reçue.
+         *
+         * @return Le nombre d'octets reçus, flags compris.
+         */
+        public int getWireLength() {
+            return wireBuffer.limit();
+        }
+    }
+
+    /**
+     * Anneau des cases, indexé par numéro d'arrivée.
+     */
+    private final Slot[] ring;
+
+    /**
+     * Cases à décoder, dans l'ordre d'arrivée.
+     */
+    private final BlockingQueue<Slot> pending;
+
+    /**
+     * Contrôle négocié, lu au décodage de chaque trame.
+     */
+    private final Supplier<FrameCheck> frameCheck;
+
+    /**
+     * Thread de lecture.
+     */
+    private final Thread reader;
+
+    /**
+     * Threads de décodage.
+     */
+    private final Thread[] decoders;
+
+    /**
+     * Nombre de trames lues ; écrit par le seul thread de lecture.
+     */
+    private volatile long published;
+
+    /**
+     * Nombre de cases rendues par le séquenceur ; écrit par le seul séquenceur.
+     */
+    private volatile long consumed;
+
+    /**
+     * Indique que la case courante du séquenceur doit être rendue à l'appel suivant de {@link #next()}.
+     */
+    private boolean holding;
+
+    /**
+     * Thread du séquenceur, réveillé à la fin d'un décodage.
+     */
+    private volatile Thread sequencer;
+
+    /**
+     * Indique que le thread de lecture a atteint la fin du flux ou une erreur.
+     */
+    private volatile boolean endOfStream;
+
+    /**
+     * Erreur de réception du thread de lecture, signalée au séquenceur.
+     */
+    private volatile IOException failure;
+
+    /**
+     * Indique que la chaîne est arrêtée.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Crée et démarre une chaîne de réception.
+     *
+     * @param transport  Le transport à lire.
+     * @param workers    Le nombre de threads de décodage.
+     * @param capacity   Le nombre de cases entre la lecture et le séquenceur.
+     * @param frameCheck Le contrôle négocié, lu au décodage de chaque trame.
+     * @throws IllegalArgumentException Si le nombre de threads ou la capacité n'est pas positif.
+     */
+    public ReceivePipeline(Transport transport, int workers, int capacity, Supplier<FrameCheck> frameCheck) {
+        if (workers < 1 || capacity < 1) {
+            throw new IllegalArgumentException("Chaîne de réception invalide : " + workers + " décodeurs, "
+                    + capacity + " cases");
+        }
+        this.frameCheck = frameCheck;
+        this.ring = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new Slot();
+        }
+        this.pending = new ArrayBlockingQueue<>(capacity);
+        this.decoders = new Thread[workers];
+        for (int i = 0; i < workers; i++) {
+            decoders[i] = new Thread(this::decodeLoop, "gbn-decoder-" + i);
+            decoders[i].setDaemon(true);
+            decoders[i].start();
+        }
+        FrameReader frameReader = new FrameReader(transport);
+        this.reader = new Thread(() -> readLoop(frameReader), "gbn-reader");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    /**
+     * Boucle du thread de lecture : copie chaque trame dans la case suivante, en attendant
+     * qu'elle soit libre, puis la confie aux décodeurs.
+     *
+     * @param frameReader Le lecteur de trames du transport.
+     */
+    private void readLoop(FrameReader frameReader) {
+        try {
+            while (!closed) {
+                ByteBuffer frame = frameReader.nextFrameBuffer();
+                if (frame == null) {
+                    break;
+                }
+                long index = published;
+                while (index - consumed >= ring.length) {
+                    LockSupport.park(this);
+                    if (closed) {
+                        return;
+                    }
+                }
+                Slot slot = ring[(int) (index % ring.length)];
+                slot.fill(frame);
+                pending.put(slot);
+                published = index + 1;
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                failure = e;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            endOfStream = true;
+            wakeSequencer();
+        }
+    }
+
+    /**
+     * Boucle d'un thread de décodage.
+     */
+    private void decodeLoop() {
+        FrameDecoder decoder = new FrameDecoder();
+        FrameView scratch = new FrameView();
+        try {
+            while (!closed) {
+                Slot slot = pending.take();
+                slot.decode(decoder, scratch, frameCheck.get());
+                slot.decoded = true;
+                wakeSequencer();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Réveille le séquenceur s'il attend une case.
+     */
+    private void wakeSequencer() {
+        Thread thread = sequencer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Rend la case précédente et attend la trame suivante dans l'ordre d'arrivée.
+     * Réservé à un seul thread, le séquenceur.
+     *
+     * @return La case décodée, ou {@code null} en fin de flux.
+     * @throws IOException Si la réception a échoué.
+     */
+    public Slot next() throws IOException {
+        if (holding) {
+            holding = false;
+            ring[(int) (consumed % ring.length)].decoded = false;
+            consumed = consumed + 1;
+            LockSupport.unpark(reader);
+        }
+        sequencer = Thread.currentThread();
+        Slot slot = ring[(int) (consumed % ring.length)];
+        while (!slot.decoded) {
+            if (closed || (endOfStream && consumed == published)) {
+                IOException error = failure;
+                failure = null;
+                if (error != null) {
+                    throw error;
+                }
+                return null;
+            }
+            LockSupport.park(this);
+        }
+        holding = true;
+        return slot;
+    }
+
+    /**
+     * Arrête les threads de la chaîne. Le transport doit être fermé par ailleurs pour débloquer
+     * une lecture en cours.
+     */
+    public void close() {
+        closed = true;
+        reader.interrupt();
+        for (Thread decoder : decoders) {
+            decoder.interrupt();
+        }
+        wakeSequencer();
+        LOG.debug("Receive pipeline stopped after {} frames", published);
+    }
+}
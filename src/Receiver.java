@@ -1,13 +1,22 @@
 import java.io.*;
 import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.concurrent.Flow;
 
 /**
  * Classe représentant un récepteur pour la transmission de données utilisant le protocole Go-Back-N.
  * Le récepteur écoute sur un port donné, traite les trames reçues et envoie des accusés de réception (ACK) ou des rejets (REJ).
+ * Si le rejet sélectif est négocié, il conserve les trames reçues après un trou et envoie des rejets sélectifs (SREJ).
+ * Si le contrôle de flux est négocié, chaque ACK (RR) annonce la place disponible dans le puits,
+ * et un RNR suspend l'émetteur lorsque le puits est plein.
  */
 public class Receiver {
+    /**
+     * Journal de la classe.
+     */
+    private static final Log LOG = Log.getLog(Receiver.class);
+
     /**
      * Socket serveur pour écouter les connexions entrantes.
      */
@@ -19,44 +28,190 @@ public class Receiver {
     private int expectedFrameNumber;
 
     /**
-     * Indique si une connexion est établie avec un émetteur.
+     * Indique si une connexion est établie avec un émetteur ; lu par le thread du puits sans verrou.
+     */
+    private volatile boolean isConnected;
+
+    /**
+     * Transport vers l'émetteur connecté.
+     */
+    private Transport transport;
+
+    /**
+     * Lecteur des trames reçues de l'émetteur.
      */
-    private boolean isConnected;
+    private FrameReader frameReader;
 
     /**
-     * Socket client pour communiquer avec l'émetteur connecté.
+     * Décodeur des trames reçues, dont le tampon de travail est réutilisé d'une trame à l'autre.
      */
-    private Socket clientSocket;
+    private final FrameDecoder decoder = new FrameDecoder();
 
     /**
-     * Flux de sortie vers l'émetteur pour envoyer des ACK ou REJ.
+     * Vue réutilisée sur la dernière trame décodée.
      */
-    private OutputStream out;
+    private final FrameView view = new FrameView();
 
     /**
-     * Flux d'entrée depuis l'émetteur pour recevoir des trames.
+     * Nombre de threads de décodage de la chaîne de réception, ou 0 pour décoder dans le thread de réception.
      */
-    private InputStream in;
+    private int decodeWorkers;
 
     /**
-     * Tampon utilisé pour la lecture des données entrantes.
+     * Chaîne de réception qui décode les trames en parallèle, ou {@code null} sans threads de décodage.
      */
-    private byte[] buffer;
+    private ReceivePipeline pipeline;
 
     /**
      * Indique si le récepteur est en cours d'exécution.
      */
     private volatile boolean running;
 
+    /**
+     * Indique qu'un REJ a déjà été envoyé pour la trame attendue. Comme en HDLC, un seul REJ
+     * est émis par trou ; l'indicateur est levé à la réception de la trame attendue.
+     */
+    private boolean rejSent;
+
+    /**
+     * Réponse envoyée à la trame de connexion, conservée pour répondre à l'identique à une trame C
+     * dupliquée, ou {@code null} avant la connexion.
+     */
+    private String connectionReply;
+
+    /**
+     * Puits auquel sont remises les données reçues dans l'ordre.
+     */
+    private DeliverySink sink;
+
+    /**
+     * Étape de décompression négociée à la connexion, ou {@code null} si les données ne sont pas compressées.
+     */
+    private CompressionStage compression;
+
+    /**
+     * Séquence de contrôle négociée à la connexion, CRC-16 par défaut ; lue par les threads de décodage.
+     */
+    private volatile FrameCheck frameCheck = FrameCheck.CRC16;
+
+    /**
+     * ACK, REJ, RNR et RR déjà encodés pour le contrôle et le modulo négociés ; remplacée à la négociation du lien.
+     */
+    private volatile ControlFrames controlFrames = new ControlFrames(FrameCheck.CRC16, ConnectionParameters.DEFAULT_MODULUS);
+
+    /**
+     * Limites du récepteur appliquées aux paramètres du lien proposés par l'émetteur.
+     */
+    private final ConnectionParameters limits = new ConnectionParameters();
+
+    /**
+     * Modulo des numéros de séquence, négocié à la connexion.
+     */
+    private int modulus = ConnectionParameters.DEFAULT_MODULUS;
+
+    /**
+     * Nombre de trames reçues dans l'ordre acquittées par un même ACK, négocié à la connexion.
+     */
+    private int ackEvery = ConnectionParameters.DEFAULT_ACK_EVERY;
+
+    /**
+     * Nombre de trames reçues dans l'ordre et pas encore acquittées.
+     */
+    private int unackedFrames;
+
+    /**
+     * Numéro de la dernière trame reçue dans l'ordre, acquittée par l'ACK retardé.
+     */
+    private int lastAccepted;
+
+    /**
+     * Trames conservées après un trou, pour le rejet sélectif ou la correction d'erreurs par parité,
+     * ou {@code null} si aucun des deux n'est négocié.
+     */
+    private ReceiveBuffer reorder;
+
+    /**
+     * Indique si la correction d'erreurs par parité est négociée.
+     */
+    private boolean fecEnabled;
+
+    /**
+     * Indique si le rejet sélectif est négocié : les rejets sont alors des trames 'S'.
+     */
+    private boolean selectiveReject;
+
+    /**
+     * Indique si le contrôle de flux par crédit est négocié.
+     */
+    private boolean flowControl;
+
+    /**
+     * Taille de la fenêtre de l'émetteur, négociée à la connexion : le crédit annoncé ne la dépasse pas.
+     */
+    private int windowSize = ConnectionParameters.DEFAULT_WINDOW_SIZE;
+
+    /**
+     * Dernier crédit annoncé à l'émetteur.
+     */
+    private int advertisedCredit;
+
+    /**
+     * Timer de l'ACK retardé, lorsque la politique d'acquittement regroupe plusieurs trames.
+     */
+    private final Timer ackTimer;
+
+    /**
+     * Indique si le timer de l'ACK retardé est armé.
+     */
+    private boolean ackTimerArmed;
+
+    /**
+     * Timer de l'attente après l'ACK de la trame de fin : si cet ACK est perdu, l'émetteur renvoie
+     * la trame 'F', que le récepteur acquitte de nouveau jusqu'à l'expiration du timer.
+     */
+    private final Timer lingerTimer;
+
+    /**
+     * Indique que la trame de fin a été reçue et acquittée.
+     */
+    private boolean finished;
+
+    /**
+     * Métriques de la session, publiées via JMX.
+     */
+    private final ProtocolMetrics metrics;
+
     /**
      * Constructeur par défaut du Receiver.
-     * Initialise les variables nécessaires.
+     * Initialise les variables nécessaires. Les données reçues sont affichées sur la console.
      */
     public Receiver() {
+        this(new ConsoleSink());
+    }
+
+    /**
+     * Constructeur du Receiver avec un puits de livraison spécifique.
+     *
+     * @param sink Le puits auquel remettre les données reçues dans l'ordre.
+     */
+    public Receiver(DeliverySink sink) {
         this.expectedFrameNumber = 0;
         this.isConnected = false;
-        this.buffer = new byte[1024];
         this.running = true;
+        this.sink = sink;
+        this.limits.setModulus(ConnectionParameters.MAX_MODULUS);
+        this.limits.setWindowSize(ConnectionParameters.MAX_MODULUS - 1);
+        this.limits.setMaxPayload(ConnectionParameters.MAX_PAYLOAD);
+        this.limits.setAckEvery(ConnectionParameters.MAX_MODULUS - 1);
+        this.limits.setFecBlock(ConnectionParameters.MAX_MODULUS - 1);
+        this.limits.setSelectiveReject(true);
+        this.limits.setFlowControl(true);
+        this.ackTimer = new Timer(ConnectionParameters.DEFAULT_TIMEOUT / 4);
+        this.ackTimer.setTimeoutHandler(this::flushDelayedAck);
+        this.lingerTimer = new Timer(2 * ConnectionParameters.DEFAULT_TIMEOUT);
+        this.lingerTimer.setTimeoutHandler(this::lingerExpired);
+        this.metrics = new ProtocolMetrics("Receiver");
+        this.metrics.register();
     }
 
     /**
@@ -67,7 +222,7 @@ public class Receiver {
      */
     public void initialize(int port) throws IOException {
         this.serverSocket = new ServerSocket(port);
-        System.out.println("Receiver initialized and waiting on port " + port);
+        LOG.info("Receiver initialized and waiting on port {}", port);
     }
 
     /**
@@ -76,132 +231,496 @@ public class Receiver {
      * @throws IOException Si une erreur d'entrée/sortie se produit lors de l'acceptation de la connexion.
      */
     public void acceptConnection() throws IOException {
-        System.out.println("Waiting for connection...");
-        clientSocket = serverSocket.accept();
-        out = clientSocket.getOutputStream();
-        in = clientSocket.getInputStream();
+        LOG.info("Waiting for connection...");
+        TcpTransport tcp = new TcpTransport(serverSocket.accept());
+        acceptConnection(tcp);
+        LOG.info("Connected to sender: {}", tcp.getRemoteAddress());
+    }
+
+    /**
+     * Accepte une connexion sur un transport déjà établi (TCP, UDP, tube en mémoire ou lien simulé).
+     * Les trames envoyées (ACK, REJ...) depuis le thread de réception, le timer de l'ACK retardé ou
+     * le thread du puits sont écrites par le thread d'un {@link QueuedTransport}. Avec des threads de
+     * décodage ({@link #setDecodeWorkers(int)}), les trames sont lues et décodées par une
+     * {@link ReceivePipeline} ; le thread de réception ne fait plus que les traiter dans l'ordre.
+     *
+     * @param transport Le transport vers l'émetteur.
+     */
+    public void acceptConnection(Transport transport) {
+        this.transport = new QueuedTransport(transport);
+        if (decodeWorkers > 0) {
+            this.pipeline = new ReceivePipeline(transport, decodeWorkers, ReceivePipeline.DEFAULT_CAPACITY,
+                    () -> frameCheck);
+        } else {
+            this.frameReader = new FrameReader(transport);
+        }
         isConnected = true;
-        System.out.println("Connected to sender: " + clientSocket.getInetAddress());
+        LOG.debug("Receiver attached to {}", transport.getClass().getSimpleName());
     }
 
     /**
-     * Reçoit une trame depuis l'entrée du socket.
+     * Reçoit une trame depuis le transport.
      *
      * @return Une instance de la classe {@link Frame} représentant la trame reçue, ou {@code null} en cas d'erreur.
      */
     public Frame receiveFrame() {
+        FrameView received = receiveFrameView();
+        return received != null ? received.toFrame() : null;
+    }
+
+    /**
+     * Reçoit une trame depuis le transport sans copier ses données : la vue retournée est réutilisée
+     * et ses données ne sont valides que jusqu'à la réception suivante. Une trame corrompue reçue en
+     * cours de session déclenche immédiatement le rejet, sans attendre la trame hors séquence suivante.
+     *
+     * @return La vue sur la trame reçue, ou {@code null} en cas d'erreur ou en fin de flux.
+     */
+    public FrameView receiveFrameView() {
         try {
-            ByteArrayOutputStream frameBuffer = new ByteArrayOutputStream();
-            int b;
-            boolean startFlagFound = false;
-
-            // Lire jusqu'à trouver le FLAG de début
-            while ((b = in.read()) != -1) {
-                if ((byte) b == Frame.FLAG) {
-                    startFlagFound = true;
-                    break;
+            DecodeStatus status;
+            FrameView decoded;
+            int length;
+            if (pipeline != null) {
+                ReceivePipeline.Slot slot = pipeline.next();
+                if (slot == null) {
+                    peerClosed();
+                    return null;
+                }
+                status = slot.getStatus();
+                decoded = slot.getView();
+                length = slot.getWireLength();
+            } else {
+                ByteBuffer frameBytes = frameReader.nextFrameBuffer();
+                if (frameBytes == null) {
+                    peerClosed();
+                    return null;
                 }
+                length = frameBytes.remaining();
+                status = decoder.tryDecode(frameBytes, view, frameCheck);
+                decoded = view;
             }
-
-            if (!startFlagFound) {
-                return null;
+            if (status.isOk()) {
+                metrics.frameReceived(length);
+                return decoded;
             }
-
-            // Lire jusqu'au FLAG de fin
-            while ((b = in.read()) != -1) {
-                if ((byte) b == Frame.FLAG) {
-                    break;
-                }
-                frameBuffer.write(b);
+            metrics.decodeFailure(status);
+            LOG.debug("Error parsing frame: {}", status);
+            if (status == DecodeStatus.CRC_MISMATCH && connectionReply != null) {
+                // Trame corrompue : demander la retransmission sans attendre la trame suivante
+                frameCorrupted();
             }
 
-            byte[] frameContent = frameBuffer.toByteArray();
-            byte[] fullFrame = new byte[frameContent.length + 2];
-            fullFrame[0] = Frame.FLAG;
-            System.arraycopy(frameContent, 0, fullFrame, 1, frameContent.length);
-            fullFrame[fullFrame.length - 1] = Frame.FLAG;
-
-            return Frame.parseFrame(fullFrame);
-
         } catch (IOException e) {
-            System.out.println("Error receiving frame: " + e.getMessage());
-        } catch (Exception e) {
-            System.out.println("Error parsing frame: " + e.getMessage());
+            if (running) {
+                LOG.error("Error receiving frame: {}", e.toString());
+            }
         }
         return null;
     }
 
+    /**
+     * Réagit à la fin du flux : après la trame de fin, l'émetteur a fermé la connexion et
+     * aucune trame 'F' ne sera plus renvoyée, l'attente est donc inutile.
+     */
+    private void peerClosed() {
+        if (finished && running) {
+            lingerTimer.stop();
+            LOG.info("Closing connection...");
+            close();
+        }
+    }
+
+    /**
+     * Ferme la connexion à l'expiration de l'attente qui suit l'ACK de la trame de fin,
+     * sur le thread du timer.
+     */
+    private void lingerExpired() {
+        if (running) {
+            LOG.info("Closing connection...");
+            close();
+        }
+    }
+
     /**
      * Traite une trame reçue et envoie un ACK ou un REJ en fonction du numéro de trame.
      *
      * @param frame La trame à traiter.
      */
     public void processFrame(Frame frame) {
+        processFrame(frame != null ? FrameView.of(frame) : null);
+    }
+
+    /**
+     * Traite une trame reçue et envoie un ACK ou un REJ en fonction du numéro de trame.
+     * Les données d'une trame d'information sont remises au puits sans copie lorsqu'elles ne sont pas compressées.
+     *
+     * @param frame La vue sur la trame à traiter.
+     */
+    public void processFrame(FrameView frame) {
         if (frame == null) {
-            System.out.println("Received invalid frame, sending REJ");
-            sendRej(expectedFrameNumber);
+            frameCorrupted();
             return;
         }
 
         try {
             switch ((char) frame.getType()) {
                 case 'C':
-                    System.out.println("Received connection request");
-                    sendAck(0);
-                    System.out.println("Connection established");
+                    LOG.info("Received connection request");
+                    if (connectionReply != null) {
+                        // Trame C renvoyée parce que notre ACK a été perdu : répondre à l'identique
+                        sendAck(0, connectionReply, FrameCheck.CRC16, false);
+                        break;
+                    }
+                    ConnectionParameters params = ConnectionParameters.decode(frame.getDataAsString());
+                    ConnectionParameters reply = params.negotiate(limits);
+                    reply.setResumeOffset(sink.open(params.getTransferId(), params.getFileSize()));
+                    if (CompressionCodecs.isSupported(params.getCompression())) {
+                        compression = new CompressionStage(CompressionCodecs.create(params.getCompression()),
+                                reply.getMaxPayload());
+                        reply.setCompression(params.getCompression());
+                    }
+                    FrameCheck requestedCheck = FrameCheck.forName(params.getFrameCheck());
+                    if (requestedCheck != null) {
+                        reply.setFrameCheck(requestedCheck.getName());
+                    }
+                    connectionReply = reply.encode();
+                    // Changer de contrôle avant de répondre : les threads de décodage l'appliquent
+                    // aux trames qui suivent la réponse
+                    if (requestedCheck != null) {
+                        frameCheck = requestedCheck;
+                        LOG.info("Frame check sequence: {}", frameCheck.getName());
+                    }
+                    // La réponse précède la négociation côté émetteur : elle reste protégée par le CRC-16
+                    sendAck(0, connectionReply, FrameCheck.CRC16, false);
+                    configureLink(reply);
+                    LOG.info("Connection established");
                     break;
 
                 case 'I':
-                    int frameNum = frame.getNum() & 0b00000111;
+                    int frameNum = frame.getNum();
                     if (frameNum == expectedFrameNumber) {
-                        String receivedData = frame.getData();
-                        System.out.println("Received frame " + expectedFrameNumber + ": " + receivedData);
-                        sendAck(expectedFrameNumber);
-                        expectedFrameNumber = (expectedFrameNumber + 1) % 8;
+                        deliverInSequence(frame.getPayload());
+                        deliverStored();
+                    } else if (reorder != null && reorder.offsetOf(frameNum) > 0) {
+                        metrics.outOfSequence();
+                        boolean newGap = reorder.store(frameNum, frame.getPayload());
+                        if (fecEnabled && reorder.awaitsParity(frameNum)) {
+                            // Le trou appartient peut-être au bloc en cours : attendre sa parité avant un rejet
+                            LOG.debug("Out of sequence. Expected {}, got {}, waiting for parity", expectedFrameNumber, frameNum);
+                        } else if (newGap) {
+                            LOG.debug("Out of sequence. Expected {}, got {}, new gap", expectedFrameNumber, frameNum);
+                            reportGap();
+                        } else {
+                            LOG.debug("Out of sequence. Expected {}, got {}", expectedFrameNumber, frameNum);
+                            rejectOutOfSequence();
+                        }
+                    } else if (isDuplicate(frameNum)) {
+                        // Trame déjà livrée : son ACK a été perdu, le renvoyer à chaque retransmission
+                        LOG.debug("Duplicate frame. Expected {}, got {}", expectedFrameNumber, frameNum);
+                        metrics.outOfSequence();
+                        sendReceiveStatus();
                     } else {
-                        System.out.println("Out of sequence. Expected " + expectedFrameNumber + ", got " + frameNum);
-                        sendRej(expectedFrameNumber);
+                        LOG.debug("Out of sequence. Expected {}, got {}", expectedFrameNumber, frameNum);
+                        metrics.outOfSequence();
+                        rejectOutOfSequence();
                     }
                     break;
 
                 case 'F':
-                    System.out.println("End of transmission received");
-                    int finalFrameNum = frame.getNum() & 0b00000111;
+                    LOG.info("End of transmission received");
+                    int finalFrameNum = frame.getNum();
                     if (finalFrameNum == expectedFrameNumber) {
-                        sendAck(finalFrameNum);
-                        expectedFrameNumber = (expectedFrameNumber + 1) % 8;
-                        System.out.println("Closing connection...");
-                        close();
+                        sink.complete();
+                        acknowledge(finalFrameNum, true);
+                        expectedFrameNumber = (expectedFrameNumber + 1) % modulus;
+                        // Rester à l'écoute : l'ACK de la trame de fin peut être perdu
+                        finished = true;
+                        lingerTimer.start();
+                        LOG.debug("Lingering {} ms for a retransmitted F frame", lingerTimer.getTimeout());
+                    } else if (finished && isDuplicate(finalFrameNum)) {
+                        LOG.debug("Duplicate F frame, acknowledging again");
+                        sendReceiveStatus();
+                        lingerTimer.start();
                     } else {
-                        System.out.println("Out of sequence for F frame. Expected " + expectedFrameNumber + ", got " + finalFrameNum);
-                        sendRej(expectedFrameNumber);
+                        LOG.debug("Out of sequence for F frame. Expected {}, got {}", expectedFrameNumber, finalFrameNum);
+                        metrics.outOfSequence();
+                        rejectOutOfSequence();
+                    }
+                    break;
+
+                case 'Q':
+                    // Interrogation par le timer de persistance de l'émetteur suspendu
+                    sendReceiveStatus();
+                    break;
+
+                case 'P':
+                    if (fecEnabled) {
+                        handleParity(frame);
+                        break;
                     }
+                    LOG.warn("Unexpected parity frame without FEC");
                     break;
 
                 default:
-                    System.out.println("Unknown frame type: " + (char) frame.getType());
+                    LOG.warn("Unknown frame type: {}", (char) frame.getType());
             }
         } catch (Exception e) {
-            System.out.println("Error processing frame: " + e.getMessage());
+            LOG.error("Error processing frame: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Livre les données de la trame attendue, l'acquitte et passe à la suivante.
+     *
+     * @param payload Les données de la trame, telles que reçues (avant décompression).
+     * @throws IOException Si la livraison échoue.
+     */
+    private void deliverInSequence(ByteBuffer payload) throws IOException {
+        if (reorder != null) {
+            reorder.accepted(payload);
+        }
+        ByteBuffer receivedData = payload;
+        if (compression != null) {
+            receivedData = compression.decode(receivedData);
+        }
+        int receivedLength = receivedData.remaining();
+        LOG.debug("Received frame {} ({} bytes)", expectedFrameNumber, receivedLength);
+        sink.deliver(receivedData);
+        metrics.payload(receivedLength);
+        acknowledge(expectedFrameNumber, false);
+        expectedFrameNumber = (expectedFrameNumber + 1) % modulus;
+        rejSent = false;
+    }
+
+    /**
+     * Livre les trames conservées après un trou, tant qu'elles suivent la trame attendue.
+     *
+     * @throws IOException Si la livraison échoue.
+     */
+    private void deliverStored() throws IOException {
+        ByteBuffer stored;
+        while (reorder != null && (stored = reorder.takeExpected()) != null) {
+            deliverInSequence(stored);
+        }
+    }
+
+    /**
+     * Traite une trame de parité : si son bloc contient la trame attendue et qu'il n'y manque
+     * qu'elle, la trame est reconstituée et livrée avec les trames conservées qui la suivent ;
+     * sinon, la retransmission est demandée par un rejet.
+     *
+     * @param frame La vue sur la trame de parité, numérotée comme la première trame de son bloc.
+     * @throws IOException Si la livraison échoue.
+     */
+    private void handleParity(FrameView frame) throws IOException {
+        ByteBuffer parity = frame.getPayload();
+        int position = reorder.locate(frame.getNum(), ParityBlock.blockCount(parity));
+        if (position < 0) {
+            return; // Bloc reçu en entier : parité inutile
+        }
+        byte[] recovered = position == 0 ? reorder.recover(frame.getNum(), parity) : null;
+        if (recovered == null) {
+            LOG.debug("Unable to recover frame {} from parity of block {}", expectedFrameNumber, frame.getNum());
+            metrics.fecFailure();
+            rejectOutOfSequence();
+            return;
+        }
+        LOG.debug("Recovered frame {} from parity of block {}", expectedFrameNumber, frame.getNum());
+        metrics.fecRecovery();
+        deliverInSequence(ByteBuffer.wrap(recovered));
+        deliverStored();
+    }
+
+    /**
+     * Configure les numéros de séquence et la politique d'acquittement à partir des paramètres
+     * du lien retenus à la connexion.
+     *
+     * @param link Les paramètres du lien envoyés dans la réponse à la trame de connexion.
+     */
+    private void configureLink(ConnectionParameters link) {
+        modulus = link.getModulus();
+        controlFrames = new ControlFrames(frameCheck, modulus);
+        windowSize = link.getWindowSize();
+        ackEvery = link.getAckEvery();
+        lastAccepted = modulus - 1; // Aucune trame reçue : acquitter la précédente de la trame 0
+        flowControl = link.isFlowControl();
+        if (flowControl) {
+            sink.setCreditListener(this::creditAvailable);
+        }
+        fecEnabled = link.getFecBlock() > 0;
+        selectiveReject = link.isSelectiveReject();
+        reorder = fecEnabled || selectiveReject
+                ? new ReceiveBuffer(modulus, link.getWindowSize(), link.getFecBlock()) : null;
+        // L'ACK retardé doit parvenir à l'émetteur bien avant l'expiration de son timer
+        ackTimer.setTimeout(Math.max(1, link.getTimeout() / 4));
+        // Deux timeouts : une trame 'F' renvoyée après chaque timeout relance l'attente avant son expiration
+        lingerTimer.setTimeout(2 * link.getTimeout());
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Link parameters: window=" + link.getWindowSize() + ", modulus=" + modulus
+                    + ", payload=" + link.getMaxPayload() + ", ack=" + ackEvery + ", fec=" + link.getFecBlock() + ", srej=" + selectiveReject + ", flow=" + flowControl);
+        }
+    }
+
+    /**
+     * Acquitte une trame reçue dans l'ordre selon la politique d'acquittement : immédiatement,
+     * ou après {@code ackEvery} trames, ou à l'expiration du timer de l'ACK retardé.
+     * Les ACK étant cumulatifs, le dernier numéro acquitte toutes les trames en attente.
+     *
+     * @param frameNum  Le numéro de la trame reçue.
+     * @param immediate {@code true} pour acquitter sans attendre (trame de fin).
+     */
+    private synchronized void acknowledge(int frameNum, boolean immediate) {
+        lastAccepted = frameNum;
+        if (immediate || ++unackedFrames >= ackEvery) {
+            unackedFrames = 0;
+            if (ackTimerArmed) {
+                ackTimer.stop();
+                ackTimerArmed = false;
+            }
+            sendAck(frameNum);
+        } else if (!ackTimerArmed) {
+            ackTimer.start();
+            ackTimerArmed = true;
         }
     }
 
     /**
-     * Envoie un accusé de réception (ACK) pour une trame donnée.
+     * Envoie l'ACK retardé des trames reçues dans l'ordre et pas encore acquittées.
+     */
+    private synchronized void flushDelayedAck() {
+        ackTimerArmed = false;
+        if (unackedFrames > 0) {
+            unackedFrames = 0;
+            sendAck(lastAccepted);
+        }
+    }
+
+    /**
+     * Répond à une interrogation de l'émetteur, lève sa suspension ou répond à une trame déjà livrée :
+     * acquitte la dernière trame reçue dans l'ordre en annonçant le crédit courant. Les trames en
+     * attente d'un ACK retardé sont acquittées du même coup.
+     */
+    private synchronized void sendReceiveStatus() {
+        unackedFrames = 0;
+        if (ackTimerArmed) {
+            ackTimer.stop();
+            ackTimerArmed = false;
+        }
+        sendAck(lastAccepted);
+    }
+
+    /**
+     * Appelé par le puits lorsqu'il a de nouveau de la place : si l'émetteur a été suspendu ou
+     * ralenti, un RR lui annonce le nouveau crédit.
+     */
+    private void creditAvailable() {
+        if (!isConnected) {
+            return; // Récepteur en cours de fermeture : ne pas attendre son moniteur
+        }
+        synchronized (this) {
+            if (isConnected && advertisedCredit < currentCredit()) {
+                LOG.debug("Sink has room again, sending RR");
+                sendReceiveStatus();
+            }
+        }
+    }
+
+    /**
+     * Calcule le crédit à annoncer : la place disponible dans le puits, sans dépasser la fenêtre.
+     *
+     * @return Le nombre de trames que l'émetteur peut envoyer après la trame acquittée.
+     */
+    private int currentCredit() {
+        return Math.max(0, Math.min(windowSize, sink.credit()));
+    }
+
+    /**
+     * Envoie un accusé de réception (ACK) pour une trame donnée. Avec le contrôle de flux, l'ACK est
+     * un RR portant le crédit sur un octet, ou un RNR ('N') si le puits est plein. Les octets de la trame
+     * viennent de la table {@link ControlFrames} : aucune trame n'est encodée à l'envoi.
      *
      * @param frameNum Le numéro de trame à accuser réception.
      */
     public void sendAck(int frameNum) {
+        if (!flowControl) {
+            if (sendControl(controlFrames.get((byte) 'A', frameNum), true)) {
+                LOG.debug("Sent ACK for frame {}", frameNum);
+            }
+            return;
+        }
+        int credit = currentCredit();
+        advertisedCredit = credit;
+        if (credit > 0) {
+            if (sendControl(controlFrames.rr(frameNum, credit), true)) {
+                LOG.debug("Sent RR for frame {}, credit {}", frameNum, credit);
+            }
+        } else {
+            sendRnr(frameNum);
+        }
+    }
+
+    /**
+     * Envoie une trame de contrôle déjà encodée ({@link ControlFrames}).
+     *
+     * @param frame      Les octets de la trame, flags compris.
+     * @param cumulative {@code true} si l'acquittement suivant la rend inutile.
+     * @return {@code true} si la trame a été confiée au transport.
+     */
+    private boolean sendControl(ByteBuffer frame, boolean cumulative) {
+        if (!isConnected) return false;
+        try {
+            int length = frame.remaining();
+            transport.sendControl(frame, cumulative);
+            metrics.frameSent(length);
+            return true;
+        } catch (IOException e) {
+            LOG.error("Error sending control frame: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Envoie un RNR (récepteur non prêt) : acquitte une trame et suspend l'émetteur jusqu'au prochain RR.
+     *
+     * @param frameNum Le numéro de la dernière trame reçue dans l'ordre.
+     */
+    private void sendRnr(int frameNum) {
+        if (sendControl(controlFrames.get((byte) 'N', frameNum), true)) {
+            metrics.rnr();
+            LOG.debug("Sent RNR for frame {}", frameNum);
+        }
+    }
+
+    /**
+     * Envoie un accusé de réception (ACK) portant des données, utilisé pour répondre à la trame de connexion.
+     *
+     * @param frameNum Le numéro de trame à accuser réception.
+     * @param data     Les données de l'ACK.
+     */
+    public void sendAck(int frameNum, String data) {
+        sendAck(frameNum, data, frameCheck, false);
+    }
+
+    /**
+     * Envoie un accusé de réception (ACK) portant des données avec une séquence de contrôle donnée.
+     *
+     * @param frameNum   Le numéro de trame à accuser réception.
+     * @param data       Les données de l'ACK.
+     * @param check      La séquence de contrôle de l'ACK.
+     * @param cumulative {@code true} si l'ACK suivant le rend inutile (pas pour la réponse à la connexion).
+     */
+    private void sendAck(int frameNum, String data, FrameCheck check, boolean cumulative) {
         try {
             if (!isConnected) return;
 
-            Frame ackFrame = new Frame((byte) 'A', (byte) frameNum, "", new CRC());
+            Frame ackFrame = new Frame((byte) 'A', (byte) frameNum, data);
+            ackFrame.setFrameCheck(check);
             byte[] ackBytes = ackFrame.buildFrame();
-            out.write(ackBytes);
-            out.flush();
-            System.out.println("Sent ACK for frame " + frameNum + "\n");
+            transport.sendControl(ByteBuffer.wrap(ackBytes), cumulative);
+            metrics.frameSent(ackBytes.length);
+            LOG.debug("Sent ACK for frame {}", frameNum);
         } catch (IOException e) {
-            System.out.println("\nError sending ACK: " + e.getMessage() + "\n");
+            LOG.error("Error sending ACK: {}", e.getMessage());
         }
     }
 
@@ -211,39 +730,125 @@ public class Receiver {
      * @param frameNum Le numéro de trame à rejeter.
      */
     public void sendRej(int frameNum) {
+        if (sendControl(controlFrames.get((byte) 'R', frameNum), false)) {
+            LOG.debug("Sent REJ for frame {}", frameNum);
+        }
+    }
+
+    /**
+     * Envoie un rejet sélectif (SREJ) : son numéro est celui de la trame attendue, qui acquitte
+     * les précédentes, et ses données la table des trames conservées au-delà
+     * ({@link ReceiveBuffer#bitmap()}). L'émetteur retransmet seulement les trous.
+     */
+    public void sendSelectiveReject() {
         try {
             if (!isConnected) return;
 
-            Frame rejFrame = new Frame((byte) 'R', (byte) frameNum, "", new CRC());
-            byte[] rejBytes = rejFrame.buildFrame();
-            out.write(rejBytes);
-            out.flush();
-            System.out.println("Sent REJ for frame " + frameNum);
+            byte[] bitmap = reorder.bitmap();
+            Frame srejFrame = new Frame((byte) 'S', (byte) expectedFrameNumber, ByteBuffer.wrap(bitmap));
+            srejFrame.setFrameCheck(frameCheck);
+            byte[] srejBytes = srejFrame.buildFrame();
+            transport.sendControl(ByteBuffer.wrap(srejBytes), false);
+            metrics.frameSent(srejBytes.length);
+            LOG.debug("Sent SREJ for frame {}", expectedFrameNumber);
         } catch (IOException e) {
-            System.out.println("Error sending REJ: " + e.getMessage());
+            LOG.error("Error sending SREJ: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Indique si une trame hors séquence a déjà été livrée : comme pour {@link ReceiveBuffer#offsetOf(int)},
+     * les numéros de la fenêtre à partir de la trame attendue sont à venir, les autres sont passés.
+     *
+     * @param frameNum Le numéro de la trame.
+     * @return {@code true} si la trame précède la trame attendue.
+     */
+    private boolean isDuplicate(int frameNum) {
+        if (reorder != null) {
+            return reorder.offsetOf(frameNum) < 0;
+        }
+        return Math.floorMod(frameNum - expectedFrameNumber, modulus) >= windowSize;
+    }
+
+    /**
+     * Demande la retransmission à partir de la trame attendue, si ce n'est pas déjà fait
+     * pour ce trou. Les trames suivantes de la même fenêtre sont ignorées sans nouveau REJ ;
+     * si la retransmission est elle-même perdue, le timeout de l'émetteur prend le relais.
+     * Les trames déjà livrées ne passent pas par ici : chacune est acquittée de nouveau.
+     * Avec le rejet sélectif, le rejet est un SREJ décrivant les trous de la fenêtre.
+     */
+    private synchronized void rejectOutOfSequence() {
+        if (!rejSent) {
+            flushDelayedAck();
+            if (selectiveReject) {
+                sendSelectiveReject();
+            } else {
+                sendRej(expectedFrameNumber);
+            }
+            rejSent = true;
+        }
+    }
+
+    /**
+     * Réagit à une trame invalide : avec la FEC, la parité du bloc peut reconstituer la trame et
+     * les trames suivantes diront s'il en manque une ; sinon un REJ (ou un SREJ) est envoyé.
+     */
+    private void frameCorrupted() {
+        if (fecEnabled) {
+            LOG.debug("Received invalid frame, waiting for parity");
+            return;
         }
+        LOG.debug("Received invalid frame, sending REJ");
+        rejectOutOfSequence();
+    }
+
+    /**
+     * Signale un nouveau trou apparu au-delà de ceux déjà signalés. Avec le rejet sélectif,
+     * un SREJ est envoyé même si un rejet l'a déjà été pour la trame attendue : l'émetteur ne
+     * retransmet que les trous qu'il n'a pas déjà retransmis pendant le RTT en cours.
+     */
+    private synchronized void reportGap() {
+        if (selectiveReject) {
+            rejSent = false;
+        }
+        rejectOutOfSequence();
     }
 
     /**
      * Ferme toutes les ressources associées au récepteur.
-     * Cela inclut les flux, les sockets et le serveur.
+     * Cela inclut le transport et le serveur.
+     *
+     * <p>Le puits est fermé hors du moniteur du récepteur : sa fermeture peut attendre un thread
+     * (celui d'un {@link QueuedSink}) qui notifie le crédit par {@link #creditAvailable()}.</p>
      */
-    public synchronized void close() {
+    public void close() {
         try {
-            running = false;
-            isConnected = false;
-
-            if (out != null) {
-                out.flush();
-                out.close();
+            synchronized (this) {
+                running = false;
+                isConnected = false;
+                ackTimer.stop();
+
+                if (transport != null) transport.close();
+                if (pipeline != null) pipeline.close();
+                if (serverSocket != null) serverSocket.close();
+                if (compression != null) {
+                    compression.close();
+                    compression = null;
+                }
+            }
+            sink.close();
+            synchronized (this) {
+                if (reorder != null) {
+                    reorder.release();
+                }
             }
-            if (in != null) in.close();
-            if (clientSocket != null) clientSocket.close();
-            if (serverSocket != null) serverSocket.close();
 
-            System.out.println("Receiver closed");
+            LOG.info("Receiver closed");
+            LOG.info("{}", metrics);
+            LOG.debug("{}", BufferPool.shared());
+            metrics.unregister();
         } catch (IOException e) {
-            System.out.println("Error closing receiver: " + e.getMessage());
+            LOG.error("Error closing receiver: {}", e.getMessage());
         }
     }
 
@@ -256,51 +861,118 @@ public class Receiver {
         return running;
     }
 
+    /**
+     * Obtient les métriques de la session.
+     *
+     * @return Le registre de métriques du récepteur.
+     */
+    public ProtocolMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Obtient les limites du récepteur pour les paramètres du lien (fenêtre, modulo, taille des blocs
+     * et politique d'acquittement). Elles peuvent être réduites avant la connexion ; les valeurs
+     * retenues sont les plus petites entre la proposition de l'émetteur et ces limites.
+     *
+     * @return Les limites du récepteur.
+     */
+    public ConnectionParameters getLimits() {
+        return limits;
+    }
+
+    /**
+     * Définit le nombre de threads qui décodent et vérifient les trames reçues, en parallèle du
+     * traitement dans l'ordre. Utile avec de grandes trames, dont le décodage et le calcul de la
+     * séquence de contrôle occupent un cœur. Doit être appelé avant l'acceptation de la connexion.
+     *
+     * @param workers Le nombre de threads de décodage, ou 0 pour décoder dans le thread de réception.
+     * @throws IllegalArgumentException Si le nombre est négatif.
+     */
+    public void setDecodeWorkers(int workers) {
+        if (workers < 0) {
+            throw new IllegalArgumentException("Nombre de threads de décodage invalide : " + workers);
+        }
+        this.decodeWorkers = workers;
+    }
+
+    /**
+     * Obtient le puits de livraison du récepteur.
+     *
+     * @return Le puits auquel sont remises les données reçues.
+     */
+    public DeliverySink getSink() {
+        return sink;
+    }
+
+    /**
+     * Définit le puits de livraison du récepteur. Doit être appelé avant la réception de la trame de connexion.
+     *
+     * @param sink Le puits auquel remettre les données reçues dans l'ordre.
+     */
+    public void setSink(DeliverySink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Publie les données reçues dans l'ordre à un abonné plutôt qu'au puits courant, qui est remplacé
+     * par un {@link PublisherSink}. Doit être appelé avant la réception de la trame de connexion.
+     * La demande de l'abonné règle le crédit annoncé à l'émetteur lorsque le contrôle de flux est négocié.
+     *
+     * @return L'éditeur des données reçues, qui accepte un seul abonné.
+     */
+    public Flow.Publisher<ByteBuffer> publish() {
+        return publish(PublisherSink.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Publie les données reçues dans l'ordre à un abonné, avec une file de capacité donnée.
+     *
+     * @param capacity Le nombre maximal de trames reçues en attente de la demande de l'abonné.
+     * @return L'éditeur des données reçues, qui accepte un seul abonné.
+     * @throws IllegalArgumentException Si la capacité n'est pas positive.
+     */
+    public Flow.Publisher<ByteBuffer> publish(int capacity) {
+        PublisherSink publisher = new PublisherSink(capacity);
+        setSink(publisher);
+        return publisher;
+    }
+
     /**
      * Point d'entrée principal pour le récepteur.
      * Initialise et démarre le récepteur sur un port spécifié.
      *
-     * @param args Arguments de la ligne de commande. Doit contenir un seul argument : le port.
+     * @param args Arguments de la ligne de commande. Doit contenir le port,
+     *             suivi éventuellement du fichier dans lequel écrire les données reçues.
      */
     public static void main(String[] args) {
-        if (args.length != 1) {
-            System.out.println("Usage: java Receiver <port>");
+        if (args.length != 1 && args.length != 2) {
+            System.out.println("Usage: java Receiver <port> [output file]");
             return;
         }
 
         int port = Integer.parseInt(args[0]);
-        Receiver receiver = new Receiver();
+        Receiver receiver = args.length == 2
+                ? new Receiver(new FileChannelSink(Paths.get(args[1])))
+                : new Receiver();
 
         try {
             receiver.initialize(port);
             receiver.acceptConnection();
 
             while (receiver.running) {
-                Frame frame = receiver.receiveFrame();
+                FrameView frame = receiver.receiveFrameView();
                 if (frame != null) {
                     receiver.processFrame(frame);
                 } else {
-                    System.out.println("No frame received or invalid frame.");
+                    LOG.debug("No frame received or invalid frame.");
                 }
             }
         } catch (Exception e) {
-            System.out.println("Error: " + e.getMessage());
+            LOG.error("Error: {}", e.getMessage());
         } finally {
             receiver.close();
+            Log.flush();
         }
     }
-
-    /**
-     * Méthode utilitaire pour ajouter les flags de début et de fin à une trame de contenu.
-     *
-     * @param content Le contenu de la trame sans flags.
-     * @return Un tableau de bytes représentant la trame complète avec flags.
-     */
-    private byte[] concatenateFlags(byte[] content) {
-        byte[] framed = new byte[content.length + 2];
-        framed[0] = Frame.FLAG;
-        System.arraycopy(content, 0, framed, 1, content.length);
-        framed[framed.length - 1] = Frame.FLAG;
-        return framed;
-    }
 }
@@ -0,0 +1,283 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Fenêtre d'émission : anneau des trames envoyées et non acquittées, indexé par numéro de séquence,
+ * dont les indices {@code base} et {@code next} sont publiés sans verrou.
+ *
+ * <p>Chaque indice n'a qu'un écrivain. Le thread producteur, qui lit le fichier, est le seul à ajouter
+ * des trames : il remplit la case de {@code next} puis publie le nouvel indice par une écriture
+ * <i>release</i>. Le thread d'écoute des ACK est le seul à avancer {@code base}, de la même façon.
+ * Les autres threads lisent les indices par une lecture <i>acquire</i> : une trame comprise entre
+ * {@code base} et {@code next} est alors entièrement visible.</p>
+ *
+ * <p>Les retransmissions demandées par un REJ, un SREJ ou le timeout sont déposées ici par le thread
+ * qui les détecte et exécutées par le producteur, seul à écrire les trames d'information sur le
+ * transport : le traitement des ACK ne bloque jamais sur un envoi, et le timer ne modifie pas la
+ * fenêtre.</p>
+ */
+public class SendWindow {
+    /**
+     * Retransmission de toute la fenêtre demandée par un REJ.
+     */
+    public static final int GO_BACK_REJECT = 1;
+
+    /**
+     * Retransmission de toute la fenêtre demandée par le timeout.
+     */
+    public static final int GO_BACK_TIMEOUT = 2;
+
+    /**
+     * Accès acquire/release à {@link #base}.
+     */
+    private static final VarHandle BASE;
+
+    /**
+     * Accès acquire/release à {@link #next}.
+     */
+    private static final VarHandle NEXT;
+
+    /**
+     * Accès atomique à {@link #goBack}.
+     */
+    private static final VarHandle GO_BACK;
+
+    /**
+     * Accès atomique à {@link #selectiveReject}.
+     */
+    private static final VarHandle SELECTIVE_REJECT;
+
+    /**
+     * Accès acquire/release aux cases de {@link #resendTimes}.
+     */
+    private static final VarHandle TIMES = MethodHandles.arrayElementVarHandle(long[].class);
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            BASE = lookup.findVarHandle(SendWindow.class, "base", int.class);
+            NEXT = lookup.findVarHandle(SendWindow.class, "next", int.class);
+            GO_BACK = lookup.findVarHandle(SendWindow.class, "goBack", int.class);
+            SELECTIVE_REJECT = lookup.findVarHandle(SendWindow.class, "selectiveReject", Frame.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Modulo des numéros de séquence, égal au nombre de cases de l'anneau.
+     */
+    private final int modulus;
+
+    /**
+     * Trames envoyées, indexées par numéro de séquence.
+     */
+    private final Frame[] frames;
+
+    /**
+     * Octets des trames envoyées, réutilisés tels quels par les retransmissions.
+     */
+    private final byte[][] encoded;
+
+    /**
+     * Instants du premier envoi des trames, en nanosecondes.
+     */
+    private final long[] sendTimes;
+
+    /**
+     * Instants de la dernière retransmission des trames (0 si la trame n'a pas été retransmise),
+     * lus par le thread d'écoute pour écarter les mesures de RTT ambiguës.
+     */
+    private final long[] resendTimes;
+
+    /**
+     * Numéro de la plus ancienne trame non acquittée ; écrit par le seul thread d'écoute des ACK.
+     */
+    private int base;
+
+    /**
+     * Numéro de la prochaine trame à envoyer ; écrit par le seul producteur.
+     */
+    private int next;
+
+    /**
+     * Retransmission complète demandée ({@link #GO_BACK_REJECT}, {@link #GO_BACK_TIMEOUT} ou les deux).
+     */
+    private int goBack;
+
+    /**
+     * Dernier SREJ reçu et pas encore traité par le producteur ; il remplace les précédents,
+     * puisque son bitmap décrit tous les trous de la fenêtre.
+     */
+    private Frame selectiveReject;
+
+    /**
+     * Crée une fenêtre vide.
+     *
+     * @param modulus Le modulo des numéros de séquence.
+     */
+    public SendWindow(int modulus) {
+        this.modulus = modulus;
+        this.frames = new Frame[modulus];
+        this.encoded = new byte[modulus][];
+        this.sendTimes = new long[modulus];
+        this.resendTimes = new long[modulus];
+    }
+
+    /**
+     * Obtient le numéro de la plus ancienne trame non acquittée.
+     *
+     * @return Le numéro de base de la fenêtre.
+     */
+    public int getBase() {
+        return (int) BASE.getAcquire(this);
+    }
+
+    /**
+     * Obtient le numéro de la prochaine trame à envoyer.
+     *
+     * @return Le numéro de la prochaine trame.
+     */
+    public int getNext() {
+        return (int) NEXT.getAcquire(this);
+    }
+
+    /**
+     * Obtient le nombre de trames envoyées et non acquittées.
+     *
+     * @return Le nombre de trames en vol.
+     */
+    public int size() {
+        return (getNext() - getBase() + modulus) % modulus;
+    }
+
+    /**
+     * Indique si toutes les trames envoyées ont été acquittées.
+     *
+     * @return {@code true} si aucune trame n'est en attente d'ACK.
+     */
+    public boolean isEmpty() {
+        return getBase() == getNext();
+    }
+
+    /**
+     * Ajoute une trame à la fenêtre et la publie. Réservé au producteur.
+     *
+     * @param frame      La trame, dont le numéro est {@link #getNext()}.
+     * @param frameBytes Les octets de la trame, flags compris.
+     * @param now        L'instant de l'envoi, en nanosecondes.
+     */
+    public void add(Frame frame, byte[] frameBytes, long now) {
+        int num = next;
+        frames[num] = frame;
+        encoded[num] = frameBytes;
+        sendTimes[num] = now;
+        TIMES.setRelease(resendTimes, num, 0L);
+        NEXT.setRelease(this, (num + 1) % modulus);
+    }
+
+    /**
+     * Avance la base de la fenêtre. Réservé au thread d'écoute des ACK.
+     *
+     * @param num Le numéro de la plus ancienne trame encore non acquittée.
+     */
+    public void advance(int num) {
+        BASE.setRelease(this, num);
+    }
+
+    /**
+     * Obtient une trame de la fenêtre.
+     *
+     * @param num Le numéro de la trame.
+     * @return La trame, ou {@code null} si aucune trame n'a encore occupé cette case.
+     */
+    public Frame get(int num) {
+        return frames[num];
+    }
+
+    /**
+     * Obtient les octets d'une trame de la fenêtre, pour la retransmettre sans la réencoder.
+     *
+     * @param num Le numéro de la trame.
+     * @return Les octets de la trame, ou {@code null} si aucune trame n'a encore occupé cette case.
+     */
+    public byte[] getEncoded(int num) {
+        return encoded[num];
+    }
+
+    /**
+     * Obtient l'instant du premier envoi d'une trame.
+     *
+     * @param num Le numéro de la trame.
+     * @return L'instant de l'envoi, en nanosecondes.
+     */
+    public long getSendTime(int num) {
+        return sendTimes[num];
+    }
+
+    /**
+     * Enregistre la retransmission d'une trame. Réservé au producteur.
+     *
+     * @param num Le numéro de la trame.
+     * @param now L'instant de la retransmission, en nanosecondes.
+     */
+    public void markRetransmitted(int num, long now) {
+        TIMES.setRelease(resendTimes, num, now);
+    }
+
+    /**
+     * Indique si une trame a été retransmise depuis son premier envoi.
+     *
+     * @param num Le numéro de la trame.
+     * @return {@code true} si la trame a été retransmise.
+     */
+    public boolean isRetransmitted(int num) {
+        return getResendTime(num) != 0;
+    }
+
+    /**
+     * Obtient l'instant de la dernière retransmission d'une trame.
+     *
+     * @param num Le numéro de la trame.
+     * @return L'instant en nanosecondes, ou 0 si la trame n'a pas été retransmise.
+     */
+    public long getResendTime(int num) {
+        return (long) TIMES.getAcquire(resendTimes, num);
+    }
+
+    /**
+     * Demande la retransmission de toute la fenêtre à partir de la base.
+     *
+     * @param cause {@link #GO_BACK_REJECT} ou {@link #GO_BACK_TIMEOUT}.
+     */
+    public void requestGoBack(int cause) {
+        GO_BACK.getAndBitwiseOr(this, cause);
+    }
+
+    /**
+     * Retire la demande de retransmission complète.
+     *
+     * @return Les causes de la demande, ou 0 s'il n'y en a pas.
+     */
+    public int takeGoBack() {
+        return (int) GO_BACK.getAndSet(this, 0);
+    }
+
+    /**
+     * Demande la retransmission des trous décrits par un SREJ.
+     *
+     * @param srejFrame Le SREJ reçu.
+     */
+    public void requestSelectiveReject(Frame srejFrame) {
+        SELECTIVE_REJECT.setRelease(this, srejFrame);
+    }
+
+    /**
+     * Retire la demande de retransmission sélective.
+     *
+     * @return Le dernier SREJ reçu, ou {@code null} s'il n'y en a pas.
+     */
+    public Frame takeSelectiveReject() {
+        return (Frame) SELECTIVE_REJECT.getAndSet(this, (Frame) null);
+    }
+}
@@ -1,41 +1,188 @@
 import java.io.*;
-import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Classe représentant un émetteur (Sender) pour la transmission de données utilisant le protocole Go-Back-N.
  * Gère l'envoi de trames, la gestion de la fenêtre de transmission, le traitement des accusés de réception (ACK)
  * et des rejets (REJ), ainsi que la gestion des temporisations pour la retransmission des trames.
+ * Si le rejet sélectif est négocié, un rejet sélectif (SREJ) ne fait retransmettre que les trames manquantes.
+ * Si le contrôle de flux est négocié, l'émetteur respecte le crédit annoncé par le récepteur et
+ * l'interroge périodiquement (timer de persistance) tant qu'il est suspendu.
+ * Un contrôle de congestion AIMD facultatif ({@link CongestionControl}) limite en plus la fenêtre utilisée,
+ * et l'espacement facultatif des envois ({@link PacedTransport}) étale les départs au lieu de rafales.
+ *
+ * <p>Trois threads se partagent la session sans verrou commun : le producteur (celui qui appelle
+ * {@link #readData()}) est le seul à émettre des trames ; le thread d'écoute traite les ACK, REJ
+ * et SREJ et avance la base de la fenêtre ({@link SendWindow}) ; les timers de retransmission et de
+ * persistance ne font que déposer des demandes que le producteur exécute. Les trames émises sont
+ * écrites sur le transport par le thread d'un {@link QueuedTransport}, qui fait passer les trames
+ * de contrôle avant les données.</p>
  */
 public class Sender {
     /**
-     * Taille de la fenêtre de transmission.
+     * Journal de la classe.
      */
-    private static final int WINDOW_SIZE = 4; // Réduit de 8 à 4
+    private static final Log LOG = Log.getLog(Sender.class);
 
     /**
-     * Durée du timeout en millisecondes pour la retransmission des trames.
+     * Attente maximale du producteur entre deux vérifications de la fenêtre, s'il n'est pas réveillé avant.
      */
-    private static final int TIMEOUT = 3000;
+    private static final long WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
 
     /**
-     * Socket de connexion vers le récepteur.
+     * Nombre d'envois de la trame de connexion avant d'abandonner.
      */
-    private Socket socket;
+    private static final int CONNECT_ATTEMPTS = 3;
 
     /**
-     * Numéro de la prochaine trame à envoyer.
+     * Nombre maximal d'envois de la trame de fin ('F') sans ACK. Le récepteur ne la réacquitte que
+     * pendant un court délai après l'avoir reçue : au-delà, le transfert est considéré comme terminé.
      */
-    private int nextFrameToSend;
+    private static final int END_ATTEMPTS = 4;
 
     /**
-     * Numéro de la première trame non encore acquittée dans la fenêtre.
+     * Paramètres du lien proposés au récepteur, modifiables avant la connexion.
      */
-    private int base;
+    private final ConnectionParameters proposal = new ConnectionParameters();
 
     /**
-     * Tableau représentant la fenêtre de transmission contenant les trames envoyées mais non encore acquittées.
+     * Taille de la fenêtre de transmission, négociée à la connexion.
      */
-    private Frame[] window;
+    private int windowSize = ConnectionParameters.DEFAULT_WINDOW_SIZE;
+
+    /**
+     * Modulo des numéros de séquence, négocié à la connexion.
+     */
+    private int modulus = ConnectionParameters.DEFAULT_MODULUS;
+
+    /**
+     * Plus petite taille d'un bloc FEC lorsque le lien perd des trames.
+     */
+    private static final int MIN_FEC_BLOCK = 2;
+
+    /**
+     * Taille maximale d'un bloc FEC négociée, 0 sans FEC.
+     */
+    private int fecBlock;
+
+    /**
+     * Taille courante des blocs FEC, adaptée aux pertes observées entre {@link #MIN_FEC_BLOCK} et {@link #fecBlock}.
+     */
+    private int parityInterval;
+
+    /**
+     * Parité du bloc en cours.
+     */
+    private final ParityBlock parity = new ParityBlock();
+
+    /**
+     * Indique si une perte (REJ ou timeout) a été observée pendant le bloc en cours.
+     */
+    private boolean lossInBlock;
+
+    /**
+     * Indique si le rejet sélectif est négocié.
+     */
+    private boolean selectiveReject;
+
+    /**
+     * Indique si le contrôle de flux par crédit est négocié.
+     */
+    private boolean flowControl;
+
+    /**
+     * Dernier crédit reçu, publié d'un bloc par le thread d'écoute : numéro de la première trame
+     * couverte (trame suivant celle acquittée) dans les bits 8 à 15, nombre de trames que le
+     * récepteur accepte à partir de celle-ci dans les bits 0 à 7.
+     */
+    private volatile int creditWindow;
+
+    /**
+     * Indique que le timer de persistance a expiré et que le producteur doit interroger le récepteur.
+     */
+    private volatile boolean probeRequested;
+
+    /**
+     * Timer de persistance : tant que le crédit est épuisé et qu'aucune trame n'attend d'ACK,
+     * il interroge le récepteur au cas où le RR levant la suspension aurait été perdu.
+     */
+    private final Timer persistTimer;
+
+    /**
+     * Contrôle de congestion limitant la fenêtre utilisée, ou {@code null} s'il est désactivé.
+     */
+    private CongestionControl congestion;
+
+    /**
+     * Débit d'espacement des envois en octets par seconde, 0 sans espacement ;
+     * {@link Double#POSITIVE_INFINITY} en espacement adaptatif, jusqu'à la première mesure du RTT.
+     */
+    private double pacingRate;
+
+    /**
+     * Taille de rafale de l'espacement, en octets.
+     */
+    private int pacingBurst;
+
+    /**
+     * Indique si le débit d'espacement est déduit du RTT et de la fenêtre.
+     */
+    private boolean adaptivePacing;
+
+    /**
+     * Transport espacé enveloppant le transport, ou {@code null} sans espacement.
+     */
+    private PacedTransport pacer;
+
+    /**
+     * Plus petit RTT mesuré (en nanosecondes), estimation du RTT sans file d'attente ; 0 avant la première mesure.
+     */
+    private long minRtt;
+
+    /**
+     * RTT lissé (moyenne mobile exponentielle, en nanosecondes), 0 avant la première mesure.
+     */
+    private volatile long smoothedRtt;
+
+    /**
+     * Transport vers le récepteur.
+     */
+    private Transport transport;
+
+    /**
+     * Lecteur des trames reçues du récepteur.
+     */
+    private FrameReader frameReader;
+
+    /**
+     * Décodeur des trames reçues, propre au thread d'écoute des ACK.
+     */
+    private final FrameDecoder decoder = new FrameDecoder();
+
+    /**
+     * Vue réutilisée pour décoder les trames reçues.
+     */
+    private final FrameView view = new FrameView();
+
+    /**
+     * Trames envoyées mais non encore acquittées, avec la base et la prochaine trame à envoyer.
+     */
+    private SendWindow window;
+
+    /**
+     * Thread producteur, réveillé lorsque la fenêtre s'ouvre ou qu'une retransmission est demandée.
+     */
+    private volatile Thread producer;
 
     /**
      * Timer utilisé pour gérer les temporisations des trames envoyées.
@@ -48,57 +195,90 @@ public class Sender {
     private String filename;
 
     /**
-     * Indique si une connexion est établie avec le récepteur.
+     * Position (en octets) à partir de laquelle reprendre la lecture du fichier,
+     * annoncée par le récepteur en réponse à la trame de connexion.
+     */
+    private long resumeOffset;
+
+    /**
+     * Nom du codec de compression à proposer au récepteur, ou {@code null} pour ne pas compresser.
      */
-    private boolean isConnected;
+    private String requestedCompression;
 
     /**
-     * Flux de sortie vers le récepteur.
+     * Étape de compression acceptée par le récepteur, ou {@code null} si les données sont envoyées telles quelles.
      */
-    private OutputStream out;
+    private CompressionStage compression;
 
     /**
-     * Flux d'entrée depuis le récepteur.
+     * Séquence de contrôle à proposer au récepteur, ou {@code null} pour garder le CRC-16.
      */
-    private InputStream in;
+    private FrameCheck requestedFrameCheck;
 
     /**
-     * Tampon utilisé pour la lecture des données.
+     * Séquence de contrôle des trames, CRC-16 tant que le récepteur n'en a pas accepté une autre.
+     */
+    private FrameCheck frameCheck = FrameCheck.CRC16;
+
+    /**
+     * Indique si une connexion est établie avec le récepteur.
+     */
+    private volatile boolean isConnected;
+
+    /**
+     * Tampon utilisé pour la lecture des blocs de données du fichier.
      */
     private byte[] buffer;
 
+    /**
+     * Nombre de threads qui encodent d'avance les trames d'information, ou 0 pour les encoder au moment de l'envoi.
+     */
+    private int encodeWorkers = 1;
+
     /**
      * Thread dédié à l'écoute des accusés de réception (ACK) et des rejets (REJ) depuis le récepteur.
      */
     private Thread ackListenerThread;
 
+    /**
+     * Indique que le thread d'écoute doit continuer à lire les trames du récepteur.
+     */
+    private volatile boolean listening;
+
     /**
      * Indique si la trame de fin ('F') a été envoyée.
      */
-    private boolean fSent = false;
+    private volatile boolean fSent = false;
 
     /**
      * Indique si la trame de fin ('F') a été acquittée.
      */
-    private boolean fAcked = false;
+    private volatile boolean fAcked = false;
 
     /**
-     * Objet utilisé pour synchroniser l'attente de l'acquittement de la trame de fin.
+     * Nombre de timeouts survenus depuis l'envoi de la trame de fin.
      */
-    private final Object ackLock = new Object();
+    private volatile int endTimeouts;
+
+    /**
+     * Métriques de la session, publiées via JMX.
+     */
+    private final ProtocolMetrics metrics;
 
     /**
      * Constructeur par défaut du Sender.
      * Initialise les variables nécessaires à la transmission.
      */
     public Sender() {
-        this.nextFrameToSend = 0;
-        this.base = 0;
-        this.window = new Frame[WINDOW_SIZE];
         this.isConnected = false;
-        this.buffer = new byte[1024];
-        this.timer = new Timer(TIMEOUT);
+        this.timer = new Timer(ConnectionParameters.DEFAULT_TIMEOUT);
         this.timer.setTimeoutHandler(this::handleTimeout);
+        this.persistTimer = new Timer(ConnectionParameters.DEFAULT_TIMEOUT);
+        this.persistTimer.setTimeoutHandler(this::probeReceiver);
+        configureLink(proposal);
+        this.metrics = new ProtocolMetrics("Sender");
+        this.metrics.setWindowGauge(() -> window.size());
+        this.metrics.register();
     }
 
     /**
@@ -109,39 +289,53 @@ public class Sender {
      * @param filename Le nom du fichier à envoyer.
      */
     public void initialize(String hostName, int port, String filename) {
-        this.filename = filename;
         try {
-            this.socket = new Socket(hostName, port);
-            this.out = socket.getOutputStream();
-            this.in = socket.getInputStream();
-            System.out.println("Sender initialized - Connected to " + hostName + ":" + port);
+            initialize(TcpTransport.connect(hostName, port), filename);
+            LOG.info("Sender initialized - Connected to {}:{}", hostName, port);
         } catch (Exception e) {
-            e.printStackTrace();
+            this.filename = filename;
+            LOG.error("Unable to connect: {}", e);
+        }
+    }
+
+    /**
+     * Initialise le Sender sur un transport déjà établi (TCP, UDP, tube en mémoire ou lien simulé).
+     *
+     * @param transport Le transport vers le récepteur.
+     * @param filename  Le nom du fichier à envoyer.
+     */
+    public void initialize(Transport transport, String filename) {
+        this.filename = filename;
+        if (pacingRate > 0) {
+            pacer = new PacedTransport(transport, pacingRate, pacingBurst);
+            transport = pacer;
         }
+        this.transport = new QueuedTransport(transport);
+        this.frameReader = new FrameReader(transport);
+        LOG.debug("Sender initialized on {}", transport.getClass().getSimpleName());
     }
 
     /**
-     * Gère le timeout en cas de non-acquittement des trames envoyées.
-     * Retransmet toutes les trames non acquittées dans la fenêtre de transmission.
+     * Gère le timeout en cas de non-acquittement des trames envoyées, sur le thread du timer.
+     * Demande au producteur de retransmettre toutes les trames non acquittées de la fenêtre.
      */
     private void handleTimeout() {
-        System.out.println("Timeout - Resending frames from " + base + " to " + ((nextFrameToSend - 1 + 8) % 8));
-        int i = base;
-        while (i != nextFrameToSend) {
-            Frame frame = window[i % WINDOW_SIZE];
-            if (frame != null) {
-                try {
-                    byte[] frameBytes = frame.buildFrame();
-                    out.write(frameBytes);
-                    out.flush();
-                    System.out.println("Resent frame " + (frame.getNum() & 0b00000111));
-                } catch (IOException e) {
-                    System.out.println("Error resending frame: " + e.getMessage());
-                }
-            }
-            i = (i + 1) % 8;
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Timeout - Resending frames from " + window.getBase() + " to "
+                    + (window.getNext() - 1 + modulus) % modulus);
+        }
+        if (congestion != null) {
+            int before = congestion.getWindow();
+            congestion.onTimeout(System.nanoTime());
+            recordCongestionWindow(before);
         }
+        if (fSent) {
+            endTimeouts++;
+        }
+        window.requestGoBack(SendWindow.GO_BACK_TIMEOUT);
+        wakeProducer();
         timer.start();
+        metrics.timerRestart();
     }
 
     /**
@@ -149,28 +343,44 @@ public class Sender {
      */
     public void connect() {
         try {
-            System.out.println("Initiating connection with Go-Back-N...");
-            CRC crc = new CRC();
-            Frame connFrame = new Frame((byte) 'C', (byte) 0, "Go-Back-N", crc);
-            sendFrame(connFrame);
-
-            long startTime = System.currentTimeMillis();
-            while (!isConnected && (System.currentTimeMillis() - startTime) < TIMEOUT) {
-                Frame respFrame = receiveFrame();
-                if (respFrame != null && respFrame.getType() == 'A') {
-                    isConnected = true;
-                    System.out.println("Connection established with Go-Back-N");
-                    break;
+            LOG.info("Initiating connection with Go-Back-N...");
+            Path path = Paths.get(filename);
+            ConnectionParameters params = new ConnectionParameters();
+            params.setFileSize(Files.size(path));
+            params.setTransferId(computeTransferId(path));
+            params.setCompression(requestedCompression);
+            params.setWindowSize(proposal.getWindowSize());
+            params.setModulus(proposal.getModulus());
+            params.setMaxPayload(proposal.getMaxPayload());
+            params.setTimeout(proposal.getTimeout());
+            params.setAckEvery(proposal.getAckEvery());
+            params.setFecBlock(proposal.getFecBlock());
+            params.setSelectiveReject(proposal.isSelectiveReject());
+            params.setFlowControl(proposal.isFlowControl());
+            if (requestedFrameCheck != null) {
+                params.setFrameCheck(requestedFrameCheck.getName());
+            }
+            Frame connFrame = new Frame((byte) 'C', (byte) 0, params.encode());
+
+            // L'ACK de connexion est lu par le thread d'écoute : l'attente a ainsi une échéance,
+            // même sur un transport dont la lecture bloque
+            if (ackListenerThread == null) {
+                startAckListener();
+            }
+
+            // Sur un transport non fiable (UDP), la trame C ou son ACK peut être perdu : la renvoyer
+            for (int attempt = 1; attempt <= CONNECT_ATTEMPTS && !isConnected; attempt++) {
+                if (attempt > 1) {
+                    LOG.info("No connection acknowledgement, retrying ({}/{})", attempt, CONNECT_ATTEMPTS);
                 }
-                Thread.sleep(100);
+                sendFrame(connFrame); // Attend l'ACK pendant au plus le délai de retransmission proposé
             }
 
             if (!isConnected) {
                 throw new IOException("Connection timeout");
             }
         } catch (Exception e) {
-            System.out.println("Connection failed: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Connection failed: {}", e);
         }
     }
 
@@ -179,127 +389,490 @@ public class Sender {
      * Gère l'envoi des trames, la gestion de la fenêtre de transmission, et l'envoi de la trame de fin.
      */
     public void readData() {
+        producer = Thread.currentThread();
         if (!isConnected) {
             connect();
             if (!isConnected) {
-                System.out.println("Unable to establish connection. Exiting.");
+                LOG.error("Unable to establish connection. Exiting.");
+                close(); // Termine aussi le thread d'écoute
                 return;
             }
-            startAckListener(); // Start the ACK listener after the connection is established
         }
 
-        try (BufferedReader fileReader = new BufferedReader(new FileReader(filename))) {
-            boolean endOfFileReached = false;
-            String nextLine = null;
+        try (FileChannel fileChannel = FileChannel.open(Paths.get(filename));
+             InputStream fileInput = new BufferedInputStream(Channels.newInputStream(fileChannel))) {
+            if (resumeOffset > fileChannel.size()) {
+                throw new IOException("Invalid resume offset " + resumeOffset);
+            }
+            if (resumeOffset > 0) {
+                // Reprendre là où le récepteur s'est arrêté au lieu de tout renvoyer
+                fileChannel.position(resumeOffset);
+                LOG.info("Resuming transfer at offset {}", resumeOffset);
+            }
 
-            // Lire la première ligne du fichier
-            nextLine = fileReader.readLine();
-            if (nextLine == null) {
-                // Le fichier est vide, envoyer directement la trame de fin
-                Frame endFrame = new Frame((byte) 'F', (byte) (nextFrameToSend & 0x07), "", new CRC());
-                sendFrame(endFrame);
-                fSent = true;
+            // Les blocs suivants sont lus et encodés d'avance pendant que la fenêtre est en vol
+            try (EncodeAhead ahead = new EncodeAhead(() -> readBlock(fileInput), window.getNext(), modulus,
+                    frameCheck, encodeWorkers, EncodeAhead.DEFAULT_DEPTH)) {
+                boolean endOfFileReached = false;
 
-                // Attendre l'ACK de la trame 'F'
-                synchronized (ackLock) {
-                    while (!fAcked) {
-                        ackLock.wait();
-                    }
+                // Lire le premier bloc du fichier
+                EncodeAhead.Encoded nextBlock = ahead.next();
+                if (nextBlock == null) {
+                    // Le fichier est vide, envoyer directement la trame de fin
+                    Frame endFrame = new Frame((byte) 'F', (byte) window.getNext(), "");
+                    fSent = true; // Avant l'envoi : l'ACK peut arriver avant le retour de sendFrame
+                    sendFrame(endFrame);
+                    awaitEndAck();
+                    return;
                 }
-                return;
-            }
 
-            while (true) {
-                // Envoyer des trames si la fenêtre n'est pas pleine et que le fichier n'est pas terminé
-                while (canSendNextFrame() && !endOfFileReached) {
-                    byte num = (byte) (nextFrameToSend & 0b00000111);
-                    CRC crc = new CRC();
-                    Frame frame = new Frame((byte) 'I', num, nextLine, crc);
-                    sendFrame(frame);
-
-                    // Lire la prochaine ligne pour la prochaine itération
-                    nextLine = fileReader.readLine();
-                    if (nextLine == null) {
-                        endOfFileReached = true;
+                while (true) {
+                    if (!isConnected) {
+                        throw new IOException("Connection lost before the end of the transfer");
                     }
-                }
 
-                // Vérifier si le fichier est terminé et toutes les trames sont acquittées
-                if (endOfFileReached && base == nextFrameToSend) {
-                    // Envoyer la trame de fin
-                    Frame endFrame = new Frame((byte) 'F', (byte) (nextFrameToSend & 0x07), "", new CRC());
-                    sendFrame(endFrame);
-                    fSent = true;
+                    // Envoyer des trames si la fenêtre n'est pas pleine et que le fichier n'est pas terminé
+                    serviceRequests();
+                    while (canSendNextFrame() && !endOfFileReached) {
+                        // Le numéro est attribué à l'envoi ; la trame a été encodée avec le même numéro
+                        int num = window.getNext();
+                        sendFrame(nextBlock.getFrame(), nextBlock.encodeAs(num));
 
-                    // Attendre l'ACK de la trame 'F'
-                    synchronized (ackLock) {
-                        while (!fAcked) {
-                            ackLock.wait();
+                        // Prendre le prochain bloc pour la prochaine itération
+                        nextBlock = ahead.next();
+                        if (nextBlock == null) {
+                            endOfFileReached = true;
+                            flushParity(); // Le dernier bloc peut être incomplet
                         }
+                        serviceRequests(); // Les retransmissions passent avant les nouvelles trames
                     }
-                    break;
-                }
 
-                // Attendre un petit moment avant de vérifier à nouveau
-                Thread.sleep(10);
+                    // Vérifier si le fichier est terminé et toutes les trames sont acquittées
+                    if (endOfFileReached && window.isEmpty()) {
+                        // Envoyer la trame de fin
+                        Frame endFrame = new Frame((byte) 'F', (byte) window.getNext(), "");
+                        fSent = true; // Avant l'envoi : l'ACK peut arriver avant le retour de sendFrame
+                        sendFrame(endFrame);
+                        awaitEndAck();
+                        break;
+                    }
+
+                    // Attendre un ACK, une demande de retransmission ou, au plus, un petit moment
+                    awaitEvent();
+                }
             }
 
         } catch (IOException | InterruptedException e) {
-            System.out.println("Error: " + e.getMessage());
+            LOG.error("Error: {}", e.getMessage());
         } finally {
             close();
         }
     }
 
+    /**
+     * Attend l'ACK de la trame de fin en exécutant les retransmissions demandées entre-temps,
+     * puisque la trame 'F' peut elle-même être perdue. L'attente cesse après {@link #END_ATTEMPTS}
+     * envois sans ACK, ou si le récepteur a fermé la connexion.
+     *
+     * @throws InterruptedException Si le producteur est interrompu.
+     */
+    private void awaitEndAck() throws InterruptedException {
+        while (!fAcked) {
+            if (!isConnected) {
+                LOG.warn("Receiver disconnected before acknowledging the end of transmission");
+                return;
+            }
+            if (endTimeouts >= END_ATTEMPTS) {
+                LOG.warn("End of transmission not acknowledged after {} attempts, assuming transfer complete", END_ATTEMPTS);
+                return;
+            }
+            serviceRequests();
+            awaitEvent();
+        }
+    }
+
+    /**
+     * Suspend le producteur jusqu'à ce qu'il soit réveillé ({@link #wakeProducer()}) ou au plus
+     * {@link #WAIT_NANOS}.
+     *
+     * @throws InterruptedException Si le producteur est interrompu.
+     */
+    private void awaitEvent() throws InterruptedException {
+        LockSupport.parkNanos(this, WAIT_NANOS);
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Réveille le producteur : la fenêtre s'est ouverte ou une retransmission est demandée.
+     */
+    private void wakeProducer() {
+        Thread thread = producer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Exécute, sur le producteur, les retransmissions demandées par le thread d'écoute ou le timer,
+     * puis l'interrogation demandée par le timer de persistance. Une retransmission complète
+     * rend inutile le SREJ en attente.
+     */
+    private void serviceRequests() {
+        int goBack = window.takeGoBack();
+        Frame srejFrame = window.takeSelectiveReject();
+        if (goBack != 0) {
+            int from = window.getBase();
+            LOG.debug("Retransmitting from frame {}", from);
+            resendFrom(from, (goBack & SendWindow.GO_BACK_TIMEOUT) != 0);
+        } else if (srejFrame != null) {
+            resendSelective(srejFrame);
+        }
+        if (probeRequested) {
+            probeRequested = false;
+            if (isConnected && creditExhausted() && window.isEmpty()) {
+                LOG.debug("Persist timer expired, polling receiver");
+                sendFrame(new Frame((byte) 'Q', (byte) window.getBase(), ""));
+                metrics.persistProbe();
+                persistTimer.start();
+            }
+        }
+    }
+
+    /**
+     * Calcule un identifiant de transfert stable pour un fichier, dérivé de son chemin absolu,
+     * de sa taille et de sa date de modification. Un même fichier non modifié produit toujours
+     * le même identifiant, ce qui permet au récepteur de reconnaître un transfert à reprendre.
+     *
+     * @param path Le chemin du fichier à envoyer.
+     * @return L'identifiant du transfert.
+     * @throws IOException Si les attributs du fichier ne peuvent pas être lus.
+     */
+    private static String computeTransferId(Path path) throws IOException {
+        String key = path.toAbsolutePath() + "|" + Files.size(path) + "|" + Files.getLastModifiedTime(path).toMillis();
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    /**
+     * Lit le prochain bloc de données du fichier : une ligne, saut de ligne compris,
+     * limitée à la taille de bloc négociée. Lorsque la compression est active, le bloc
+     * est rempli jusqu'à cette taille sans s'arrêter aux fins de ligne,
+     * puis passe par l'étape de compression.
+     * Les octets sont placés tels quels dans la chaîne (un caractère ISO-8859-1 par octet)
+     * afin que le récepteur puisse reconstituer le fichier à l'identique.
+     *
+     * @param input Le flux d'entrée du fichier.
+     * @return Le bloc lu, ou {@code null} si la fin du fichier est atteinte.
+     * @throws IOException Si une erreur de lecture se produit.
+     */
+    private String readBlock(InputStream input) throws IOException {
+        int length = 0;
+        int b;
+        while (length < buffer.length && (b = input.read()) != -1) {
+            buffer[length++] = (byte) b;
+            if (b == '\n' && compression == null) {
+                break;
+            }
+        }
+        if (length == 0) {
+            return null;
+        }
+        if (compression != null) {
+            return new String(compression.encode(buffer, length), StandardCharsets.ISO_8859_1);
+        }
+        return new String(buffer, 0, length, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Demande la compression des données avec le codec indiqué.
+     * Doit être appelé avant la connexion ; la compression n'est utilisée que si le récepteur l'accepte.
+     *
+     * @param codecName Le nom du codec (par exemple "deflate"), ou {@code null} pour ne pas compresser.
+     * @throws IllegalArgumentException Si le codec n'est pas disponible.
+     */
+    public void setCompression(String codecName) {
+        if (codecName != null && !CompressionCodecs.isSupported(codecName)) {
+            throw new IllegalArgumentException("Codec de compression inconnu : " + codecName);
+        }
+        this.requestedCompression = codecName;
+    }
+
+    /**
+     * Demande une séquence de contrôle des trames autre que le CRC-16.
+     * Doit être appelé avant la connexion ; le contrôle n'est utilisé que si le récepteur l'accepte.
+     *
+     * @param name Le nom du contrôle (par exemple "crc32c"), ou {@code null} pour garder le CRC-16.
+     * @throws IllegalArgumentException Si le contrôle est inconnu.
+     */
+    public void setFrameCheck(String name) {
+        FrameCheck check = name != null ? FrameCheck.forName(name) : null;
+        if (name != null && check == null) {
+            throw new IllegalArgumentException("Séquence de contrôle inconnue : " + name);
+        }
+        this.requestedFrameCheck = check;
+    }
+
+    /**
+     * Active ou désactive le contrôle de congestion AIMD. La fenêtre utilisée part alors d'une trame
+     * et croît jusqu'à la fenêtre négociée tant que le lien ne perd pas de trames.
+     * Doit être appelé avant la connexion.
+     *
+     * @param enabled {@code true} pour activer le contrôle de congestion.
+     */
+    public void setCongestionControl(boolean enabled) {
+        congestion = enabled ? new CongestionControl(windowSize) : null;
+        if (enabled) {
+            metrics.congestionWindow(congestion.getWindow());
+        }
+    }
+
+    /**
+     * Définit le nombre de threads qui encodent d'avance les trames d'information (séquence de contrôle,
+     * bit stuffing et byte stuffing) pendant que les trames précédentes sont en vol. Un thread par défaut ;
+     * davantage pour de grandes trames sur un lien rapide. Doit être appelé avant {@link #readData()}.
+     *
+     * @param workers Le nombre de threads d'encodage, ou 0 pour lire et encoder chaque bloc au moment de l'envoi.
+     * @throws IllegalArgumentException Si le nombre est négatif.
+     */
+    public void setEncodeWorkers(int workers) {
+        if (workers < 0) {
+            throw new IllegalArgumentException("Nombre de threads d'encodage invalide : " + workers);
+        }
+        this.encodeWorkers = workers;
+    }
+
+    /**
+     * Espace les envois à un débit fixe. Doit être appelé avant l'initialisation du transport.
+     *
+     * @param bytesPerSecond Le débit, en octets par seconde.
+     * @param burst          La taille de rafale, en octets.
+     * @throws IllegalArgumentException Si le débit ou la rafale n'est pas positif.
+     */
+    public void setPacing(double bytesPerSecond, int burst) {
+        if (!(bytesPerSecond > 0) || burst < 1) {
+            throw new IllegalArgumentException("Espacement invalide : " + bytesPerSecond + " o/s, rafale " + burst);
+        }
+        this.pacingRate = bytesPerSecond;
+        this.pacingBurst = burst;
+        this.adaptivePacing = false;
+    }
+
+    /**
+     * Espace les envois à un débit déduit des mesures : une fenêtre de trames (la fenêtre de congestion
+     * si elle est active) par RTT minimal mesuré. Avant la première mesure, seule la fenêtre limite les
+     * envois. Doit être appelé avant l'initialisation du transport.
+     *
+     * @param burst La taille de rafale, en octets.
+     * @throws IllegalArgumentException Si la rafale n'est pas positive.
+     */
+    public void setAdaptivePacing(int burst) {
+        setPacing(Double.POSITIVE_INFINITY, burst);
+        this.adaptivePacing = true;
+    }
+
+    /**
+     * Obtient le débit d'espacement courant.
+     *
+     * @return Le débit en octets par seconde, 0 sans espacement.
+     */
+    public double getPacingRate() {
+        return pacer != null ? pacer.getRate() : 0;
+    }
+
+    /**
+     * Obtient le contrôle de congestion.
+     *
+     * @return Le contrôle de congestion, ou {@code null} s'il est désactivé.
+     */
+    public CongestionControl getCongestionControl() {
+        return congestion;
+    }
+
+    /**
+     * Obtient les paramètres du lien proposés au récepteur (fenêtre, modulo, taille des blocs,
+     * délai de retransmission, politique d'acquittement, FEC, rejet sélectif et contrôle de flux). Ils peuvent être modifiés avant la
+     * connexion ; le récepteur peut les réduire dans sa réponse.
+     *
+     * @return Les paramètres proposés.
+     */
+    public ConnectionParameters getProposal() {
+        return proposal;
+    }
+
+    /**
+     * Configure la fenêtre, les numéros de séquence, la taille des blocs et le timer à partir
+     * des paramètres du lien. Appelé avant l'envoi de la première trame d'information.
+     *
+     * @param link Les paramètres du lien.
+     */
+    private void configureLink(ConnectionParameters link) {
+        windowSize = link.getWindowSize();
+        modulus = link.getModulus();
+        window = new SendWindow(modulus);
+        buffer = new byte[link.getMaxPayload()];
+        timer.setTimeout(link.getTimeout());
+        fecBlock = link.getFecBlock();
+        parityInterval = fecBlock;
+        parity.reset();
+        selectiveReject = link.isSelectiveReject();
+        flowControl = link.isFlowControl();
+        creditWindow = (window.getNext() << 8) | windowSize;
+        persistTimer.setTimeout(link.getTimeout());
+        if (congestion != null) {
+            // La fenêtre de congestion est bornée par la fenêtre négociée
+            congestion = new CongestionControl(windowSize);
+        }
+    }
+
     /**
      * Envoie une trame au récepteur et met à jour la fenêtre de transmission si nécessaire.
+     * Réservé au producteur : une trame d'information ou de fin est publiée dans la fenêtre avant
+     * d'être écrite sur le transport, pour que son ACK la trouve même s'il arrive avant la fin de l'envoi.
      *
      * @param frame La trame à envoyer.
      */
-    public synchronized void sendFrame(Frame frame) {
-        try {
-            byte[] frameBytes = frame.buildFrame();
-            out.write(frameBytes);
-            out.flush();
+    public void sendFrame(Frame frame) {
+        frame.setFrameCheck(frameCheck);
+        sendFrame(frame, frame.buildFrame());
+    }
 
+    /**
+     * Envoie une trame déjà encodée, par exemple par {@link EncodeAhead}.
+     *
+     * @param frame      La trame à envoyer.
+     * @param frameBytes Les octets de la trame, flags compris.
+     */
+    private void sendFrame(Frame frame, byte[] frameBytes) {
+        try {
             if (frame.getType() == 'I' || frame.getType() == 'F') {
-                window[nextFrameToSend % WINDOW_SIZE] = frame;
-                System.out.println("Sent frame " + (frame.getNum() & 0b00000111) +
-                        " (Type: " + (char) frame.getType() + ", Data length: " + frame.getData().length() + ")");
-
-                if (base == nextFrameToSend) {
+                int num = window.getNext();
+                metrics.windowOccupancy(window.size());
+                if (frame.getType() == 'I') {
+                    metrics.payload(frame.getPayloadLength());
+                    if (fecBlock > 0) {
+                        parity.add(num, frame.getPayload());
+                    }
+                }
+                boolean empty = window.isEmpty();
+                window.add(frame, frameBytes, System.nanoTime());
+                if (empty) {
                     timer.start();
+                    metrics.timerRestart();
+                }
+                transport.send(frameBytes);
+                metrics.frameSent(frameBytes.length);
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Sent frame " + frame.getNum() +
+                            " (Type: " + (char) frame.getType() + ", Data length: " + frame.getPayloadLength() + ")");
+                }
+
+                if (parity.getCount() >= parityInterval && fecBlock > 0) {
+                    flushParity();
                 }
-                nextFrameToSend = (nextFrameToSend + 1) % 8;
             } else {
-                System.out.println("Sent control frame: Type=" + (char) frame.getType() +
-                        ", Num=" + (frame.getNum() & 0b00000111));
+                transport.sendControl(ByteBuffer.wrap(frameBytes), false);
+                metrics.frameSent(frameBytes.length);
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Sent control frame: Type=" + (char) frame.getType() +
+                            ", Num=" + frame.getNum());
+                }
                 if (frame.getType() == 'C') {
                     waitForConnectionAck();
                 }
             }
 
         } catch (IOException e) {
-            System.out.println("Error sending frame: " + e.getMessage());
+            LOG.error("Error sending frame: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Envoie la trame de parité du bloc en cours, s'il contient des trames, et commence un nouveau bloc.
+     * Un bloc terminé sans perte allonge le bloc suivant d'une trame, jusqu'à la taille négociée.
+     */
+    private void flushParity() {
+        if (parity.getCount() == 0) {
+            return;
+        }
+        Frame parityFrame = new Frame((byte) 'P', (byte) parity.getStart(), ByteBuffer.wrap(parity.toPayload()));
+        parityFrame.setFrameCheck(frameCheck);
+        try {
+            byte[] frameBytes = parityFrame.buildFrame();
+            transport.send(frameBytes);
+            metrics.frameSent(frameBytes.length);
+            metrics.paritySent();
+            LOG.debug("Sent parity for {} frames from {}", parity.getCount(), parity.getStart());
+        } catch (IOException e) {
+            LOG.error("Error sending parity frame: {}", e.getMessage());
+        }
+        if (!lossInBlock && parityInterval < fecBlock) {
+            parityInterval++;
         }
+        lossInBlock = false;
+        parity.reset();
+    }
+
+    /**
+     * Signale une perte au codage FEC : le bloc en cours est abandonné, puisque les trames
+     * retransmises ne sont pas couvertes, et les blocs suivants sont raccourcis de moitié.
+     */
+    private void fecLoss() {
+        if (fecBlock == 0) {
+            return;
+        }
+        parity.reset();
+        lossInBlock = true;
+        parityInterval = Math.max(Math.min(MIN_FEC_BLOCK, fecBlock), parityInterval / 2);
     }
 
     /**
      * Démarre un thread dédié à l'écoute des accusés de réception (ACK) et des rejets (REJ) depuis le récepteur.
+     * Il est démarré avant l'envoi de la trame de connexion, dont il reçoit aussi l'ACK
+     * ({@link #acceptConnection(Frame)}).
      */
     private void startAckListener() {
+        listening = true;
         ackListenerThread = new Thread(() -> {
-            while (isConnected) {
-                Frame response = receiveFrame();
+            while (listening) {
+                Frame response;
+                try {
+                    response = readFrame();
+                } catch (IOException e) {
+                    if (!isConnected && !(e instanceof EOFException)) {
+                        // Avant la connexion (UDP), une erreur peut précéder le démarrage du récepteur
+                        LOG.debug("Error receiving frame: {}", e.toString());
+                        response = null;
+                    } else {
+                        receiverDisconnected(e);
+                        return;
+                    }
+                }
                 if (response != null) {
-                    if (response.getType() == 'A') {
+                    if (!isConnected) {
+                        if (response.getType() == 'A') {
+                            try {
+                                acceptConnection(response);
+                            } catch (IllegalArgumentException e) {
+                                LOG.error("Invalid connection acknowledgement: {}", e.getMessage());
+                            }
+                        }
+                    } else if (response.getType() == 'A' && response.getPayloadLength() > 1) {
+                        // ACK d'une trame C renvoyée : ses données sont les paramètres, pas un crédit
+                        LOG.debug("Ignoring duplicate connection acknowledgement");
+                    } else if (response.getType() == 'A' || response.getType() == 'N') {
                         handleAck(response);
                     } else if (response.getType() == 'R') {
                         handleRejection(response);
+                    } else if (response.getType() == 'S') {
+                        handleSelectiveReject(response);
                     }
+                    continue;
                 }
+                // Petite pause seulement si rien n'a été lu : une pause après chaque trame
+                // accumule du retard sur le lien et fait traiter des REJ périmés
                 try {
-                    Thread.sleep(10); // Petite pause
+                    Thread.sleep(10);
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                 }
@@ -309,179 +882,488 @@ public class Sender {
     }
 
     /**
-     * Gère la réception d'un accusé de réception (ACK).
-     * Met à jour la fenêtre de transmission en fonction du numéro de trame acquittée.
+     * Gère la réception d'un accusé de réception (ACK ou RR, ou RNR avec le contrôle de flux).
+     * Met à jour la fenêtre de transmission en fonction du numéro de trame acquittée et réveille
+     * le producteur, sans jamais attendre ses envois.
      *
      * @param ackFrame La trame ACK reçue.
      */
-    private synchronized void handleAck(Frame ackFrame) {
-        int ackNum = ackFrame.getNum() & 0b00000111;
-        System.out.println("Received ACK for frame " + ackNum);
+    private void handleAck(Frame ackFrame) {
+        int ackNum = ackFrame.getNum();
+        if (ackFrame.getType() == 'N') {
+            metrics.rnr();
+            LOG.debug("Received RNR for frame {}", ackNum);
+        } else {
+            LOG.debug("Received ACK for frame {}", ackNum);
+        }
+
+        int base = window.getBase();
+        int next = window.getNext();
 
         // Vérifier si l'ACK est pour la trame 'F'
-        if (fSent && ackNum == ((nextFrameToSend - 1 + 8) % 8)) {
+        if (fSent && ackNum == ((next - 1 + modulus) % modulus)) {
             fAcked = true;
-            synchronized (ackLock) {
-                ackLock.notifyAll();
-            }
         }
 
-        // Gestion des ACK pour les trames de données
-        if (isSeqNumBetween(base, (nextFrameToSend - 1 + 8) % 8, ackNum)) {
-            base = (ackNum + 1) % 8;
-            if (base == nextFrameToSend) {
+        // Gestion des ACK pour les trames de données ; sans trame en attente, l'ACK est un doublon
+        if (base != next && isSeqNumBetween(base, (next - 1 + modulus) % modulus, ackNum)) {
+            congestionAck((ackNum - base + 1 + modulus) % modulus);
+            if (!window.isRetransmitted(ackNum)) {
+                long rtt = System.nanoTime() - window.getSendTime(ackNum);
+                metrics.ackRtt(rtt);
+                smoothedRtt = smoothedRtt == 0 ? rtt : smoothedRtt + (rtt - smoothedRtt) / 8;
+                if (adaptivePacing && pacer != null) {
+                    updatePacingRate(rtt);
+                }
+            }
+            base = (ackNum + 1) % modulus;
+            window.advance(base);
+            if (base == next) {
                 timer.stop();
             } else {
                 timer.stop();
                 timer.start();
+                metrics.timerRestart();
+            }
+        }
+
+        if (flowControl && isSeqNumBetween(base - 1, next - 1, ackNum)) {
+            updateCredit(ackNum, ackFrame);
+        }
+        wakeProducer();
+    }
+
+    /**
+     * Enregistre le crédit annoncé par un RR (premier octet des données) ou un RNR (crédit nul),
+     * puis arme le timer de persistance si l'émetteur est suspendu sans trame en attente d'ACK.
+     *
+     * @param ackNum   Le numéro de la trame acquittée.
+     * @param ackFrame Le RR ou le RNR reçu.
+     */
+    private void updateCredit(int ackNum, Frame ackFrame) {
+        ByteBuffer data = ackFrame.getPayload();
+        int credit = ackFrame.getType() == 'N' || !data.hasRemaining() ? 0 : data.get(0) & 0xFF;
+        creditWindow = (((ackNum + 1) % modulus) << 8) | credit;
+        if (creditExhausted() && window.isEmpty()) {
+            if (!persistTimer.isRunning()) {
+                LOG.debug("Receiver not ready, starting persist timer");
+                persistTimer.start();
             }
+        } else {
+            persistTimer.stop();
         }
     }
 
     /**
-     * Gère la réception d'un rejet (REJ) pour une trame spécifique.
-     * Retransmet toutes les trames à partir de la trame rejetée.
+     * Indique si toutes les trames couvertes par le dernier crédit ont été envoyées.
+     *
+     * @return {@code true} si le récepteur ne peut pas accepter la prochaine trame.
+     */
+    private boolean creditExhausted() {
+        if (!flowControl) {
+            return false;
+        }
+        int state = creditWindow;
+        return (window.getNext() - (state >>> 8) + modulus) % modulus >= (state & 0xFF);
+    }
+
+    /**
+     * Demande au producteur d'interroger le récepteur ('Q') à l'expiration du timer de persistance,
+     * tant que l'émetteur est suspendu : la réponse est un RR ou un RNR portant le crédit courant.
+     */
+    private void probeReceiver() {
+        if (!isConnected || !creditExhausted() || !window.isEmpty()) {
+            return;
+        }
+        probeRequested = true;
+        wakeProducer();
+    }
+
+    /**
+     * Gère la réception d'un rejet (REJ) pour une trame spécifique : les trames précédentes sont
+     * acquittées et le producteur retransmet toutes les trames à partir de la trame rejetée.
      *
      * @param rejFrame La trame REJ reçue.
      */
-    private synchronized void handleRejection(Frame rejFrame) {
-        int rejNum = rejFrame.getNum() & 0b00000111;
-        System.out.println("Received REJ for frame " + rejNum);
+    private void handleRejection(Frame rejFrame) {
+        int rejNum = rejFrame.getNum();
+        LOG.debug("Received REJ for frame {}", rejNum);
+
+        // Un REJ hors de la fenêtre est un doublon retardé : le suivre ferait reculer la base
+        // sur des trames déjà acquittées dont les cases contiennent désormais d'autres trames
+        int base = window.getBase();
+        if (!isSeqNumBetween(base, window.getNext(), rejNum)) {
+            LOG.debug("Ignoring stale REJ for frame {}", rejNum);
+            return;
+        }
         timer.stop();
-        base = rejNum;
-
-        // Retransmettre les trames à partir de rejNum jusqu'à nextFrameToSend - 1
-        System.out.println("Retransmitting from frame " + rejNum);
-        int i = base;
-        while (i != nextFrameToSend) {
-            Frame frame = window[i % WINDOW_SIZE];
-            if (frame != null) {
-                try {
-                    byte[] frameBytes = frame.buildFrame();
-                    out.write(frameBytes);
-                    out.flush();
-                    System.out.println("Retransmitted frame " + (frame.getNum() & 0b00000111));
-                } catch (IOException e) {
-                    System.out.println("Error retransmitting frame: " + e.getMessage());
-                }
-            }
-            i = (i + 1) % 8;
+        congestionAck((rejNum - base + modulus) % modulus);
+        congestionLoss();
+        window.advance(rejNum);
+
+        // Retransmettre les trames à partir de rejNum jusqu'à la dernière envoyée
+        window.requestGoBack(SendWindow.GO_BACK_REJECT);
+        wakeProducer();
+        timer.start(); // Redémarrer le timer pour la retransmission
+        metrics.timerRestart();
+    }
+
+    /**
+     * Gère la réception d'un rejet sélectif (SREJ). Son numéro est celui de la première trame
+     * manquante, qui acquitte les précédentes ; le producteur retransmet ensuite les trous
+     * ({@link #resendSelective(Frame)}).
+     *
+     * @param srejFrame La trame SREJ reçue.
+     */
+    private void handleSelectiveReject(Frame srejFrame) {
+        int srejNum = srejFrame.getNum();
+        LOG.debug("Received SREJ for frame {}", srejNum);
+
+        int base = window.getBase();
+        int next = window.getNext();
+        if (!isSeqNumBetween(base, next, srejNum)) {
+            LOG.debug("Ignoring stale SREJ for frame {}", srejNum);
+            return;
+        }
+        timer.stop();
+        congestionAck((srejNum - base + modulus) % modulus);
+        congestionLoss();
+        window.advance(srejNum);
+        window.requestSelectiveReject(srejFrame);
+        wakeProducer();
+        if (srejNum != next) {
+            timer.start();
+            metrics.timerRestart();
         }
-        timer.start(); // Redémarrer le timer après la retransmission
     }
 
     /**
-     * Attend l'acquittement de la trame de connexion ('C') envoyée.
-     * Bloque jusqu'à ce que l'ACK soit reçu ou que le timeout soit atteint.
+     * Retransmet les trous décrits par un SREJ. Ses données indiquent les trames suivant la première
+     * manquante déjà reçues ({@link ReceiveBuffer#bitmap()}). Seuls les trous jusqu'à la dernière trame
+     * reçue et encore dans la fenêtre sont retransmis, et un trou déjà retransmis depuis moins d'un
+     * RTT ne l'est pas de nouveau : le SREJ a croisé la retransmission.
+     *
+     * @param srejFrame Le SREJ à traiter.
      */
-    private void waitForConnectionAck() {
-        long startTime = System.currentTimeMillis();
-        while (System.currentTimeMillis() - startTime < TIMEOUT) {
-            try {
-                Frame ackFrame = receiveFrame();
-                if (ackFrame != null && ackFrame.getType() == 'A') {
-                    System.out.println("Connection acknowledged");
-                    isConnected = true;
-                    return;
-                }
-                Thread.sleep(50);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
+    private void resendSelective(Frame srejFrame) {
+        int srejNum = srejFrame.getNum();
+        ByteBuffer payload = srejFrame.getPayload();
+        byte[] bitmap = new byte[payload.remaining()];
+        payload.get(bitmap);
+        int lastReceived = 0;
+        for (int i = 0; i < bitmap.length * 8; i++) {
+            if ((bitmap[i / 8] & (0x80 >>> (i % 8))) != 0) {
+                lastReceived = i + 1;
             }
         }
+
+        fecLoss();
+        int base = window.getBase();
+        int next = window.getNext();
+        long now = System.nanoTime();
+        long guard = rttEstimate();
+        ByteBuffer[] frames = new ByteBuffer[windowSize];
+        int count = 0;
+        for (int offset = 0, i = srejNum; offset <= lastReceived && i != next;
+                offset++, i = (i + 1) % modulus) {
+            if (offset > 0 && (bitmap[(offset - 1) / 8] & (0x80 >>> ((offset - 1) % 8))) != 0) {
+                continue; // Trame déjà reçue
+            }
+            if (!isSeqNumBetween(base, next, i)) {
+                continue; // Acquittée depuis le SREJ
+            }
+            if (window.isRetransmitted(i) && now - window.getResendTime(i) < guard) {
+                LOG.debug("Frame {} already retransmitted within RTT", i);
+                continue;
+            }
+            count = addRetransmission(frames, count, i, false);
+        }
+        sendRetransmissions(frames, count);
     }
 
     /**
-     * Reçoit une trame depuis l'entrée du socket.
+     * Estime le RTT : le RTT lissé, ou le délai de retransmission avant la première mesure.
      *
-     * @return Une instance de la classe `Frame` représentant la trame reçue, ou `null` en cas d'erreur.
+     * @return L'estimation du RTT, en nanosecondes.
      */
-    public Frame receiveFrame() {
+    private long rttEstimate() {
+        return smoothedRtt > 0 ? smoothedRtt : timer.getTimeout() * 1_000_000L;
+    }
+
+    /**
+     * Recalcule le débit d'espacement adaptatif : une fenêtre de trames de taille moyenne par RTT minimal.
+     * Le RTT minimal exclut l'attente dans la file d'espacement, qui sinon réduirait le débit à chaque mesure.
+     *
+     * @param rtt La nouvelle mesure du RTT, en nanosecondes.
+     */
+    private void updatePacingRate(long rtt) {
+        minRtt = minRtt == 0 ? rtt : Math.min(minRtt, rtt);
+        int frames = congestion != null ? congestion.getWindow() : windowSize;
+        double frameBytes = (double) metrics.getBytesSent() / Math.max(1, metrics.getFramesSent());
+        pacer.setRate(frames * frameBytes * 1e9 / Math.max(1, minRtt));
+    }
+
+    /**
+     * Signale au contrôle de congestion des trames nouvellement acquittées.
+     *
+     * @param acked Le nombre de trames acquittées.
+     */
+    private void congestionAck(int acked) {
+        if (congestion != null && acked > 0) {
+            int before = congestion.getWindow();
+            congestion.onAck(acked);
+            recordCongestionWindow(before);
+        }
+    }
+
+    /**
+     * Signale une perte (REJ ou SREJ) au contrôle de congestion.
+     */
+    private void congestionLoss() {
+        if (congestion != null) {
+            int before = congestion.getWindow();
+            congestion.onLoss(System.nanoTime(), rttEstimate());
+            recordCongestionWindow(before);
+        }
+    }
+
+    /**
+     * Publie la fenêtre de congestion dans les métriques si elle a changé.
+     *
+     * @param before La fenêtre avant l'événement.
+     */
+    private void recordCongestionWindow(int before) {
+        int after = congestion.getWindow();
+        if (after != before) {
+            metrics.congestionWindow(after);
+            LOG.debug("Congestion window {} -> {}", before, after);
+        }
+    }
+
+    /**
+     * Retransmet les trames de la fenêtre depuis un numéro donné jusqu'à la dernière envoyée.
+     * Les trames sont remises ensemble au transport, qui peut les regrouper (un seul datagramme en UDP).
+     *
+     * @param from    Le numéro de la première trame à retransmettre.
+     * @param timeout {@code true} si la retransmission fait suite à un timeout, {@code false} à un REJ.
+     */
+    private void resendFrom(int from, boolean timeout) {
+        fecLoss();
+        ByteBuffer[] frames = new ByteBuffer[windowSize];
+        int count = 0;
+        int next = window.getNext();
+        for (int i = from; i != next; i = (i + 1) % modulus) {
+            count = addRetransmission(frames, count, i, timeout);
+        }
+        sendRetransmissions(frames, count);
+    }
+
+    /**
+     * Prépare la retransmission d'une trame de la fenêtre.
+     *
+     * @param frames  Les trames à retransmettre ensemble.
+     * @param count   Le nombre de trames déjà préparées.
+     * @param num     Le numéro de la trame à retransmettre.
+     * @param timeout {@code true} si la retransmission fait suite à un timeout, {@code false} à un rejet.
+     * @return Le nouveau nombre de trames préparées.
+     */
+    private int addRetransmission(ByteBuffer[] frames, int count, int num, boolean timeout) {
+        Frame frame = window.get(num);
+        if (frame == null) {
+            return count;
+        }
+        byte[] frameBytes = window.getEncoded(num);
+        frames[count++] = ByteBuffer.wrap(frameBytes);
+        metrics.frameSent(frameBytes.length);
+        if (timeout) {
+            metrics.timeoutRetransmission();
+        } else {
+            metrics.rejRetransmission();
+        }
+        window.markRetransmitted(num, System.nanoTime());
+        LOG.debug("Retransmitted frame {}", frame.getNum());
+        return count;
+    }
+
+    /**
+     * Remet ensemble au transport les trames préparées pour la retransmission.
+     *
+     * @param frames Les trames préparées.
+     * @param count  Le nombre de trames préparées.
+     */
+    private void sendRetransmissions(ByteBuffer[] frames, int count) {
+        if (count == 0) {
+            return;
+        }
         try {
-            // Lire jusqu'au flag de début
-            ByteArrayOutputStream frameBuffer = new ByteArrayOutputStream();
-            int b;
-            boolean startFlagFound = false;
-
-            while ((b = in.read()) != -1) {
-                if (b == Frame.FLAG) {
-                    startFlagFound = true;
-                    break;
-                }
-            }
+            transport.send(count == frames.length ? frames : Arrays.copyOf(frames, count));
+        } catch (IOException e) {
+            LOG.error("Error retransmitting frames: {}", e.getMessage());
+        }
+    }
 
-            if (!startFlagFound) {
-                return null;
+    /**
+     * Attend l'acquittement de la trame de connexion ('C') envoyée, reçu par le thread d'écoute.
+     * Bloque jusqu'à ce que l'ACK soit reçu ou que le timeout soit atteint.
+     */
+    private void waitForConnectionAck() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(proposal.getTimeout());
+        long remaining;
+        while (!isConnected && (remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(this, Math.min(remaining, WAIT_NANOS));
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                return;
             }
+        }
+    }
 
-            // Lire jusqu'au flag de fin
-            while ((b = in.read()) != -1) {
-                if (b == Frame.FLAG) {
-                    break;
-                }
-                frameBuffer.write(b);
+    /**
+     * Termine la connexion à la réception de son ACK, sur le thread d'écoute : applique les paramètres
+     * négociés, puis réveille l'émetteur qui attend dans {@link #waitForConnectionAck()}.
+     *
+     * @param ackFrame L'ACK de la trame de connexion.
+     */
+    private void acceptConnection(Frame ackFrame) {
+        LOG.info("Connection acknowledged");
+        // Un récepteur sans négociation répond sans données : paramètres par défaut
+        ConnectionParameters reply = ackFrame.getData().isEmpty()
+                ? new ConnectionParameters() : ConnectionParameters.decode(ackFrame.getData());
+        ConnectionParameters link = proposal.negotiate(reply);
+        configureLink(link);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Link parameters: window=" + link.getWindowSize() + ", modulus=" + link.getModulus()
+                    + ", payload=" + link.getMaxPayload() + ", timeout=" + link.getTimeout()
+                    + ", ack=" + link.getAckEvery() + ", srej=" + link.isSelectiveReject());
+        }
+        if (!ackFrame.getData().isEmpty()) {
+            resumeOffset = reply.getResumeOffset();
+            if (reply.getCompression() != null && reply.getCompression().equals(requestedCompression)) {
+                compression = new CompressionStage(CompressionCodecs.create(reply.getCompression()), link.getMaxPayload());
+                LOG.info("Compression enabled: {}", reply.getCompression());
             }
-
-            if (b != Frame.FLAG) {
-                throw new Exception("Trame invalide : flag de fin manquant.");
+            if (requestedFrameCheck != null && requestedFrameCheck.getName().equals(reply.getFrameCheck())) {
+                frameCheck = requestedFrameCheck;
+                LOG.info("Frame check sequence: {}", frameCheck.getName());
             }
+        }
+        isConnected = true;
+        wakeProducer();
+    }
 
-            byte[] frameContent = frameBuffer.toByteArray();
-            return Frame.parseFrame(concatenateFlags(frameContent));
+    /**
+     * Réagit à la fin du flux ou à une erreur du transport sur le thread d'écoute : le récepteur est
+     * considéré comme déconnecté, et le producteur, réveillé, termine le transfert. Rien n'est signalé
+     * si l'émetteur est lui-même en cours de fermeture.
+     *
+     * @param cause La fin du flux ({@link EOFException}) ou l'erreur du transport.
+     */
+    private void receiverDisconnected(IOException cause) {
+        if (!listening) {
+            return;
+        }
+        if (cause instanceof EOFException) {
+            LOG.info("Receiver closed the connection");
+        } else {
+            LOG.error("Error receiving frame: {}", cause.toString());
+        }
+        isConnected = false;
+        timer.stop();
+        persistTimer.stop();
+        wakeProducer();
+    }
 
+    /**
+     * Reçoit une trame depuis le transport.
+     *
+     * @return Une instance de la classe `Frame` représentant la trame reçue, ou `null` en cas d'erreur.
+     */
+    public Frame receiveFrame() {
+        try {
+            return readFrame();
         } catch (IOException e) {
-            System.out.println("Error receiving frame: " + e.getMessage());
-        } catch (Exception e) {
-            System.out.println("Error parsing frame: " + e.getMessage());
+            LOG.error("Error receiving frame: {}", e.toString());
         }
         return null;
     }
 
     /**
-     * Ajoute les flags de début et de fin à une trame de contenu.
+     * Lit et décode la prochaine trame du transport.
      *
-     * @param content Le contenu de la trame sans flags.
-     * @return Un tableau de bytes représentant la trame complète avec flags.
+     * @return La trame reçue, ou {@code null} si elle est invalide.
+     * @throws EOFException Si le récepteur a fermé la connexion.
+     * @throws IOException  Si la réception échoue.
      */
-    private byte[] concatenateFlags(byte[] content) {
-        byte[] framed = new byte[content.length + 2];
-        framed[0] = Frame.FLAG;
-        System.arraycopy(content, 0, framed, 1, content.length);
-        framed[framed.length - 1] = Frame.FLAG;
-        return framed;
+    private Frame readFrame() throws IOException {
+        ByteBuffer frameBytes = frameReader.nextFrameBuffer();
+        if (frameBytes == null) {
+            throw new EOFException("Connection closed by receiver");
+        }
+        DecodeStatus status = decoder.tryDecode(frameBytes, view, frameCheck);
+        if (status.isOk()) {
+            metrics.frameReceived(frameBytes.remaining());
+            return view.toFrame();
+        }
+        metrics.decodeFailure(status);
+        LOG.debug("Error parsing frame: {}", status);
+        return null;
+    }
+
+    /**
+     * Obtient la séquence de contrôle des trames.
+     *
+     * @return Le contrôle négocié avec le récepteur, ou le CRC-16 s'il n'y a pas eu d'accord.
+     */
+    public FrameCheck getFrameCheck() {
+        return frameCheck;
     }
 
     /**
-     * Vérifie si la fenêtre de transmission peut accepter une nouvelle trame à envoyer.
+     * Obtient les métriques de la session.
+     *
+     * @return Le registre de métriques de l'émetteur.
+     */
+    public ProtocolMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Vérifie si la fenêtre de transmission peut accepter une nouvelle trame à envoyer
+     * et, avec le contrôle de flux, si le récepteur a annoncé assez de crédit.
+     * Avec le contrôle de congestion, la fenêtre utilisée est la fenêtre de congestion.
      *
      * @return `true` si une nouvelle trame peut être envoyée, sinon `false`.
      */
     private boolean canSendNextFrame() {
-        return ((nextFrameToSend - base + 8) % 8) < WINDOW_SIZE;
+        int limit = congestion != null ? congestion.getWindow() : windowSize;
+        return window.size() < limit && !creditExhausted();
     }
 
     /**
-     * Ferme toutes les ressources associées au Sender, y compris les flux, les sockets et les threads.
+     * Ferme toutes les ressources associées au Sender, y compris le transport et les threads.
      * Arrête également le timer de temporisation.
      */
-    public synchronized void close() {
+    public void close() {
         try {
+            listening = false; // Avant la déconnexion : la fermeture du transport n'est pas une erreur du récepteur
             isConnected = false;
             timer.stop();
+            persistTimer.stop();
             if (ackListenerThread != null) {
                 ackListenerThread.interrupt();
                 ackListenerThread = null;
             }
-            if (out != null) {
-                out.flush();
-                out.close();
+            if (transport != null) transport.close();
+            if (compression != null) {
+                LOG.info("Compression ratio: {}", String.format("%.2f", compression.getRatio()));
+                compression.close();
+                compression = null;
             }
-            if (in != null) in.close();
-            if (socket != null) socket.close();
-            System.out.println("Sender closed");
+            LOG.info("Sender closed");
+            LOG.info("{}", metrics);
+            metrics.unregister();
         } catch (IOException e) {
-            System.out.println("Error closing sender: " + e.getMessage());
+            LOG.error("Error closing sender: {}", e.getMessage());
         }
     }
 
@@ -495,9 +1377,9 @@ public class Sender {
      * @return `true` si le numéro est compris entre `start` et `end`, sinon `false`.
      */
     private boolean isSeqNumBetween(int start, int end, int num) {
-        start = (start + 8) % 8;
-        end = (end + 8) % 8;
-        num = (num + 8) % 8;
+        start = (start + modulus) % modulus;
+        end = (end + modulus) % modulus;
+        num = (num + modulus) % modulus;
 
         if (start <= end) {
             return num >= start && num <= end;
@@ -512,15 +1394,16 @@ public class Sender {
      * Initialise et démarre le processus d'envoi de données en mode émetteur.
      *
      * @param args Arguments de la ligne de commande.
-     *             Doit contenir quatre arguments :
+     *             Doit contenir quatre arguments, suivis éventuellement d'un cinquième :
      *             <hostname> : Nom d'hôte ou adresse IP du récepteur.
      *             <port> : Port de connexion du récepteur.
      *             <filename> : Nom du fichier à envoyer.
      *             <0> : Argument spécifique au protocole Go-Back-N (doit être "0").
+     *             [compression] : Codec de compression à proposer (par exemple "deflate").
      */
     public static void main(String[] args) {
-        if (args.length != 4) {
-            System.out.println("Usage: java Sender <hostname> <port> <filename> <0>");
+        if (args.length != 4 && args.length != 5) {
+            System.out.println("Usage: java Sender <hostname> <port> <filename> <0> [compression]");
             return;
         }
 
@@ -529,11 +1412,15 @@ public class Sender {
         String filename = args[2];
 
         Sender sender = new Sender();
+        if (args.length == 5) {
+            sender.setCompression(args[4]);
+        }
         sender.initialize(hostname, port, filename);
         try {
             sender.readData();
         } finally {
             sender.close();
+            Log.flush();
         }
     }
 }
@@ -0,0 +1,102 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Transport au-dessus d'une paire de flux d'octets ({@link InputStream}, {@link OutputStream}).
+ * Sert de base à {@link TcpTransport} et permet de brancher le protocole sur le {@link LinkSimulator}.
+ */
+public class StreamTransport implements Transport {
+    /**
+     * Taille du tampon de réception par défaut, en octets.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /**
+     * Flux d'entrée depuis le pair.
+     */
+    private final InputStream in;
+
+    /**
+     * Flux de sortie vers le pair.
+     */
+    private final OutputStream out;
+
+    /**
+     * Tampon de réception réutilisé à chaque appel de {@link #receive()}.
+     */
+    private final byte[] receiveBuffer;
+
+    /**
+     * Vue sur le tampon de réception retournée à l'appelant.
+     */
+    private final ByteBuffer chunk;
+
+    /**
+     * Crée un transport sur une paire de flux.
+     *
+     * @param in  Le flux d'entrée depuis le pair.
+     * @param out Le flux de sortie vers le pair.
+     */
+    public StreamTransport(InputStream in, OutputStream out) {
+        this.in = in;
+        this.out = out;
+        this.receiveBuffer = new byte[DEFAULT_BUFFER_SIZE];
+        this.chunk = ByteBuffer.wrap(receiveBuffer);
+    }
+
+    @Override
+    public void send(ByteBuffer data) throws IOException {
+        write(data);
+        out.flush();
+    }
+
+    /**
+     * Écrit plusieurs tampons à la suite et ne vide le flux qu'une fois.
+     */
+    @Override
+    public void send(ByteBuffer[] data) throws IOException {
+        for (ByteBuffer buffer : data) {
+            write(buffer);
+        }
+        out.flush();
+    }
+
+    /**
+     * Écrit un tampon sur le flux de sortie sans le vider.
+     *
+     * @param data Les octets à écrire, entre la position et la limite du tampon.
+     * @throws IOException Si l'écriture échoue.
+     */
+    private void write(ByteBuffer data) throws IOException {
+        if (data.hasArray()) {
+            out.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+            data.position(data.limit());
+        } else {
+            byte[] copy = new byte[data.remaining()];
+            data.get(copy);
+            out.write(copy);
+        }
+    }
+
+    @Override
+    public ByteBuffer receive() throws IOException {
+        int n = in.read(receiveBuffer);
+        if (n < 0) {
+            return null;
+        }
+        chunk.clear().limit(n);
+        return chunk;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.flush();
+            out.close();
+        } finally {
+            in.close();
+        }
+    }
+}
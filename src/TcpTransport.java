@@ -0,0 +1,58 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * Transport sur une connexion TCP.
+ *
+ * <p>Chaque trame est écrite puis vidée immédiatement ; l'algorithme de Nagle est désactivé
+ * pour que les ACK et REJ, très courts, ne soient pas retardés par la pile réseau.</p>
+ */
+public class TcpTransport extends StreamTransport {
+    /**
+     * Socket de la connexion.
+     */
+    private final Socket socket;
+
+    /**
+     * Crée un transport sur une connexion TCP déjà établie.
+     *
+     * @param socket La socket connectée.
+     * @throws IOException Si les flux de la socket ne peuvent pas être obtenus.
+     */
+    public TcpTransport(Socket socket) throws IOException {
+        super(socket.getInputStream(), socket.getOutputStream());
+        this.socket = socket;
+        socket.setTcpNoDelay(true);
+    }
+
+    /**
+     * Établit une connexion TCP vers un récepteur.
+     *
+     * @param hostName Le nom d'hôte ou l'adresse IP du récepteur.
+     * @param port     Le port du récepteur.
+     * @return Le transport connecté.
+     * @throws IOException Si la connexion échoue.
+     */
+    public static TcpTransport connect(String hostName, int port) throws IOException {
+        return new TcpTransport(new Socket(hostName, port));
+    }
+
+    /**
+     * Obtient l'adresse du pair.
+     *
+     * @return L'adresse distante de la connexion.
+     */
+    public InetAddress getRemoteAddress() {
+        return socket.getInetAddress();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Lien de transport sur lequel le {@link Sender} et le {@link Receiver} échangent leurs trames encodées.
+ *
+ * <p>Le protocole Go-Back-N ne dépend que de cette interface : il peut fonctionner sur TCP
+ * ({@link TcpTransport}), sur UDP ({@link UdpTransport}) ou en mémoire ({@link PipeTransport},
+ * {@link LinkSimulator}). Le découpage en trames est assuré par {@link FrameReader} à partir des flags,
+ * de sorte qu'un transport orienté flux peut livrer des fragments de trame ou plusieurs trames à la fois.</p>
+ */
+public interface Transport extends Closeable {
+    /**
+     * Envoie des octets au pair. Les octets restants du tampon sont consommés.
+     * Le tampon ne doit plus être modifié par l'appelant après l'envoi : un transport en mémoire
+     * peut le remettre tel quel au pair.
+     *
+     * @param data Les octets à envoyer, entre la position et la limite du tampon.
+     * @throws IOException Si l'envoi échoue.
+     */
+    void send(ByteBuffer data) throws IOException;
+
+    /**
+     * Envoie un tableau d'octets au pair, typiquement une trame construite par {@link Frame#buildFrame()}.
+     *
+     * @param data Les octets à envoyer.
+     * @throws IOException Si l'envoi échoue.
+     */
+    default void send(byte[] data) throws IOException {
+        send(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Envoie plusieurs tampons à la suite, par exemple les trames d'une fenêtre retransmise.
+     * Un transport par datagrammes peut les regrouper dans un seul datagramme.
+     *
+     * @param data Les tampons à envoyer, dans l'ordre.
+     * @throws IOException Si l'envoi échoue.
+     */
+    default void send(ByteBuffer[] data) throws IOException {
+        for (ByteBuffer buffer : data) {
+            send(buffer);
+        }
+    }
+
+    /**
+     * Envoie une trame de contrôle (ACK, RR, RNR, REJ, SREJ...). Un transport avec file d'envoi
+     * ({@link QueuedTransport}) la fait passer avant les données en attente et remplace un
+     * acquittement cumulatif encore en file par le suivant ; les autres transports l'envoient
+     * comme des données.
+     *
+     * @param data       Les octets à envoyer.
+     * @param cumulative {@code true} pour un ACK, RR ou RNR, que l'acquittement suivant rend inutile.
+     * @throws IOException Si l'envoi échoue.
+     */
+    default void sendControl(ByteBuffer data, boolean cumulative) throws IOException {
+        send(data);
+    }
+
+    /**
+     * Attend et retourne les prochains octets reçus.
+     * Le tampon retourné appartient au transport et n'est valide que jusqu'au prochain appel.
+     *
+     * @return Les octets reçus, entre la position et la limite du tampon, ou {@code null} en fin de flux.
+     * @throws IOException Si la réception échoue.
+     */
+    ByteBuffer receive() throws IOException;
+
+    /**
+     * Ferme le transport. Un appel à {@link #receive()} bloqué dans un autre thread se termine.
+     *
+     * @throws IOException Si la fermeture échoue.
+     */
+    @Override
+    void close() throws IOException;
+}
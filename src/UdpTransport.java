@@ -0,0 +1,237 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * Transport sur UDP : chaque envoi est un datagramme.
+ *
+ * <p>Contrairement à TCP, UDP ne garantit ni la livraison ni l'ordre : la fiabilité est assurée
+ * par le protocole lui-même (CRC, numéros de séquence, ACK/REJ et timer), sans démarrage lent,
+ * sans algorithme de Nagle et sans blocage en tête de file du transport.</p>
+ *
+ * <p>Le côté émetteur se connecte à l'adresse du récepteur. Le côté récepteur écoute sur un port
+ * et fonctionne selon l'un de deux modes :</p>
+ * <ul>
+ *     <li>connecté : le canal se connecte à l'adresse source du premier datagramme reçu ; le noyau
+ *     filtre ensuite les datagrammes d'autres origines et les envois ne portent plus d'adresse ;</li>
+ *     <li>non connecté : le canal reste ouvert à toutes les origines et répond à l'adresse source
+ *     du dernier datagramme reçu, ce qui tolère un changement d'adresse ou de port de l'émetteur.</li>
+ * </ul>
+ *
+ * <p>Les tampons de socket sont agrandis ({@link #DEFAULT_SOCKET_BUFFER_SIZE}) pour absorber les
+ * rafales d'une fenêtre complète à haut débit ; le système peut plafonner la taille effective.</p>
+ */
+public class UdpTransport implements Transport {
+    /**
+     * Journal de la classe.
+     */
+    private static final Log LOG = Log.getLog(UdpTransport.class);
+
+    /**
+     * Taille maximale d'un datagramme UDP.
+     */
+    public static final int MAX_DATAGRAM_SIZE = 65507;
+
+    /**
+     * Taille demandée par défaut pour les tampons d'émission et de réception de la socket, en octets.
+     */
+    public static final int DEFAULT_SOCKET_BUFFER_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * Canal UDP.
+     */
+    private final DatagramChannel channel;
+
+    /**
+     * Indique si le canal doit se connecter au premier pair reçu.
+     */
+    private final boolean connectOnReceive;
+
+    /**
+     * Adresse du pair en mode non connecté : source du dernier datagramme reçu.
+     */
+    private volatile SocketAddress peer;
+
+    /**
+     * Tampon de réception réutilisé à chaque appel de {@link #receive()}.
+     */
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(MAX_DATAGRAM_SIZE);
+
+    /**
+     * Tampon de regroupement des envois multiples en mode non connecté.
+     */
+    private ByteBuffer batchBuffer;
+
+    /**
+     * Crée un transport sur un canal UDP ouvert.
+     *
+     * @param channel          Le canal, connecté ou seulement lié à un port local.
+     * @param connectOnReceive {@code true} pour connecter le canal au premier pair reçu,
+     *                         {@code false} pour rester non connecté.
+     */
+    public UdpTransport(DatagramChannel channel, boolean connectOnReceive) {
+        this.channel = channel;
+        this.connectOnReceive = connectOnReceive;
+    }
+
+    /**
+     * Ouvre un transport UDP connecté à un récepteur, avec les tampons de socket par défaut.
+     *
+     * @param hostName Le nom d'hôte ou l'adresse IP du récepteur.
+     * @param port     Le port du récepteur.
+     * @return Le transport connecté.
+     * @throws IOException Si l'ouverture du canal échoue.
+     */
+    public static UdpTransport connect(String hostName, int port) throws IOException {
+        DatagramChannel channel = open(DEFAULT_SOCKET_BUFFER_SIZE);
+        channel.connect(new InetSocketAddress(hostName, port));
+        return new UdpTransport(channel, true);
+    }
+
+    /**
+     * Ouvre un transport UDP en écoute sur un port local, en mode connecté, avec les tampons de socket par défaut.
+     *
+     * @param port Le port local.
+     * @return Le transport en écoute.
+     * @throws IOException Si l'ouverture du canal échoue.
+     */
+    public static UdpTransport bind(int port) throws IOException {
+        return bind(port, true, DEFAULT_SOCKET_BUFFER_SIZE);
+    }
+
+    /**
+     * Ouvre un transport UDP en écoute sur un port local.
+     *
+     * @param port             Le port local.
+     * @param connectOnReceive {@code true} pour se connecter au premier pair reçu,
+     *                         {@code false} pour rester non connecté.
+     * @param socketBufferSize La taille demandée pour les tampons de socket, en octets.
+     * @return Le transport en écoute.
+     * @throws IOException Si l'ouverture du canal échoue.
+     */
+    public static UdpTransport bind(int port, boolean connectOnReceive, int socketBufferSize) throws IOException {
+        DatagramChannel channel = open(socketBufferSize);
+        channel.bind(new InetSocketAddress(port));
+        return new UdpTransport(channel, connectOnReceive);
+    }
+
+    /**
+     * Ouvre un canal UDP et dimensionne ses tampons de socket.
+     *
+     * @param socketBufferSize La taille demandée pour les tampons, en octets.
+     * @return Le canal ouvert.
+     * @throws IOException Si l'ouverture ou le réglage échoue.
+     */
+    private static DatagramChannel open(int socketBufferSize) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        channel.setOption(StandardSocketOptions.SO_RCVBUF, socketBufferSize);
+        channel.setOption(StandardSocketOptions.SO_SNDBUF, socketBufferSize);
+        int effective = channel.getOption(StandardSocketOptions.SO_RCVBUF);
+        if (effective < socketBufferSize) {
+            LOG.debug("UDP receive buffer limited by the system to {} bytes", effective);
+        }
+        return channel;
+    }
+
+    @Override
+    public void send(ByteBuffer data) throws IOException {
+        if (channel.isConnected()) {
+            channel.write(data);
+        } else {
+            channel.send(data, requirePeer());
+        }
+    }
+
+    /**
+     * Envoie plusieurs trames dans un seul datagramme lorsque leur taille totale le permet,
+     * sinon un datagramme par trame. Le lecteur de trames sépare ensuite les trames sur leurs flags.
+     */
+    @Override
+    public void send(ByteBuffer[] data) throws IOException {
+        long total = 0;
+        for (ByteBuffer buffer : data) {
+            total += buffer.remaining();
+        }
+        if (total > MAX_DATAGRAM_SIZE) {
+            for (ByteBuffer buffer : data) {
+                send(buffer);
+            }
+        } else if (channel.isConnected()) {
+            channel.write(data);
+        } else {
+            // DatagramChannel.send ne rassemble pas plusieurs tampons : les copier dans un seul
+            if (batchBuffer == null) {
+                batchBuffer = ByteBuffer.allocateDirect(MAX_DATAGRAM_SIZE);
+            }
+            batchBuffer.clear();
+            for (ByteBuffer buffer : data) {
+                batchBuffer.put(buffer);
+            }
+            channel.send(batchBuffer.flip(), requirePeer());
+        }
+    }
+
+    @Override
+    public ByteBuffer receive() throws IOException {
+        receiveBuffer.clear();
+        try {
+            if (channel.isConnected()) {
+                channel.read(receiveBuffer);
+            } else {
+                SocketAddress source = channel.receive(receiveBuffer);
+                if (connectOnReceive) {
+                    channel.connect(source);
+                    LOG.debug("UDP transport connected to {}", source);
+                } else {
+                    peer = source;
+                }
+            }
+        } catch (AsynchronousCloseException e) {
+            return null;
+        }
+        return receiveBuffer.flip();
+    }
+
+    /**
+     * Obtient l'adresse du pair.
+     *
+     * @return L'adresse du pair, ou {@code null} si aucun datagramme n'a encore été reçu.
+     * @throws IOException Si l'adresse ne peut pas être obtenue.
+     */
+    public SocketAddress getRemoteAddress() throws IOException {
+        return channel.isConnected() ? channel.getRemoteAddress() : peer;
+    }
+
+    /**
+     * Obtient la taille effective du tampon de réception de la socket, qui peut être inférieure à la taille demandée.
+     *
+     * @return La taille du tampon de réception en octets.
+     * @throws IOException Si l'option ne peut pas être lue.
+     */
+    public int getReceiveBufferSize() throws IOException {
+        return channel.getOption(StandardSocketOptions.SO_RCVBUF);
+    }
+
+    /**
+     * Obtient l'adresse du pair en mode non connecté.
+     *
+     * @return L'adresse du dernier émetteur reçu.
+     * @throws IOException Si aucun datagramme n'a encore été reçu.
+     */
+    private SocketAddress requirePeer() throws IOException {
+        SocketAddress target = peer;
+        if (target == null) {
+            throw new IOException("Aucun pair UDP connu");
+        }
+        return target;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -1,26 +1,41 @@
 import java.io.*;
+import java.lang.management.ManagementFactory;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 public class MainTest {
     public static void main(String[] args) {
         if (args.length > 0) {
             // Si des arguments sont fournis, exécuter en mode commande
             if (args[0].equalsIgnoreCase("sender")) {
-                // Format: sender <hostname> <port> <filename> <0>
-                if (args.length != 5) {
-                    System.out.println("Usage: java MainTest sender <hostname> <port> <filename> <0>");
+                // Format: sender <hostname> <port> <filename> <0> [compression]
+                if (args.length != 5 && args.length != 6) {
+                    System.out.println("Usage: java MainTest sender <hostname> <port> <filename> <0> [compression]");
                     return;
                 }
-                String[] senderArgs = {args[1], args[2], args[3], args[4]};
+                String[] senderArgs = Arrays.copyOfRange(args, 1, args.length);
                 Sender.main(senderArgs);
             } else if (args[0].equalsIgnoreCase("receiver")) {
-                // Format: receiver <port>
-                if (args.length != 2) {
-                    System.out.println("Usage: java MainTest receiver <port>");
+                // Format: receiver <port> [output file]
+                if (args.length != 2 && args.length != 3) {
+                    System.out.println("Usage: java MainTest receiver <port> [output file]");
                     return;
                 }
-                String[] receiverArgs = {args[1]};
+                String[] receiverArgs = Arrays.copyOfRange(args, 1, args.length);
                 Receiver.main(receiverArgs);
             } else {
                 System.out.println("Invalid mode. Use 'sender' or 'receiver'.");
@@ -32,7 +47,31 @@ public class MainTest {
             testKnownValues();
             testXorOperation();
             testMod2Div();
+            testFrameDecoder();
+            testCompactFrame();
+            testControlFrames();
+            testDecodeStatus();
+            testFrameCheck();
+            testLinkNegotiation();
+            testForwardErrorCorrection();
+            testSendWindow();
+            testEncodeAhead();
+            testSelectiveReject();
+            testFlowControl();
+            testCongestionControl();
+            testPacing();
+            testFileSink();
+            testFileSinkResume();
+            testCompression();
+            testMetrics();
+            testAsyncAppender();
             testCommunication();
+            testLinkSimulator();
+            testTransports();
+            testQueuedTransport();
+            testReceivePipeline();
+            testBufferPool();
+            testPublisherSink();
             testErrorFrames();
         }
     }
@@ -203,12 +242,1069 @@ public class MainTest {
         }
     }
 
+    private static void testFrameDecoder() {
+        System.out.println("\n=== Test Frame Decoder ===");
+        try {
+            java.util.Random random = new java.util.Random(3325);
+            FrameDecoder decoder = new FrameDecoder();
+            FrameView view = new FrameView();
+            boolean isPassed = true;
+
+            for (int n = 0; n < 200 && isPassed; n++) {
+                // Données aléatoires riches en FLAG, ESCAPE et longues suites de '1'
+                byte[] data = new byte[random.nextInt(300)];
+                for (int i = 0; i < data.length; i++) {
+                    int pick = random.nextInt(4);
+                    data[i] = pick == 0 ? Frame.FLAG : pick == 1 ? Frame.ESCAPE : pick == 2 ? (byte) 0xFF : (byte) random.nextInt(256);
+                }
+                String text = new String(data, StandardCharsets.ISO_8859_1);
+                Frame frame = new Frame((byte) 'I', (byte) (n & 7), text, new CRC());
+                byte[] wire = frame.buildFrame();
+
+                decoder.decode(ByteBuffer.wrap(wire), view);
+                byte[] payload = new byte[view.getPayloadLength()];
+                view.getPayload().duplicate().get(payload);
+                String expectedCrc = CRC.computeCRC(toBits(frame));
+                isPassed = view.getType() == 'I' && view.getNum() == (n & 7) && Arrays.equals(data, payload)
+                        && String.format("%16s", Integer.toBinaryString(view.getFcs())).replace(' ', '0').equals(expectedCrc);
+            }
+
+            // Une trame corrompue doit être rejetée par le CRC
+            byte[] wire = new Frame((byte) 'I', (byte) 1, "Troisième ligne", new CRC()).buildFrame();
+            wire[5] ^= 0x04;
+            boolean crcDetected;
+            try {
+                decoder.decode(ByteBuffer.wrap(wire), view);
+                crcDetected = false;
+            } catch (Frame.CrcMismatchException e) {
+                crcDetected = true;
+            }
+
+            System.out.println("Test Frame Decoder " + (isPassed && crcDetected ? "PASSED" : "FAILED"));
+        } catch (Exception e) {
+            System.out.println("Test Frame Decoder FAILED with exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testCompactFrame() {
+        System.out.println("\n=== Test Compact Frame ===");
+        try {
+            // Trame construite sur un tampon : mêmes octets que par l'API par chaînes
+            byte[] data = {0x41, Frame.FLAG, Frame.ESCAPE, (byte) 0xFF, 0x00};
+            Frame fromBuffer = new Frame((byte) 'I', (byte) 5, ByteBuffer.wrap(data));
+            Frame fromString = new Frame((byte) 'I', (byte) 5, new String(data, StandardCharsets.ISO_8859_1), new CRC());
+            byte[] wire = fromBuffer.buildFrame();
+            boolean encodePassed = Arrays.equals(wire, fromString.buildFrame())
+                    && fromBuffer.getFcs() == fromString.getFcs()
+                    && fromBuffer.getPayloadLength() == data.length
+                    && fromBuffer.getData().equals(fromString.getData());
+            System.out.println("Encodage : " + (encodePassed ? "OK" : "KO"));
+
+            // Trame reçue : séquence de contrôle primitive, adaptateur CRC à la demande
+            Frame parsed = Frame.parseFrame(wire);
+            ByteBuffer payload = parsed.getPayload();
+            byte[] received = new byte[payload.remaining()];
+            payload.get(received);
+            boolean parsePassed = parsed.getFcs() == fromBuffer.getFcs() && Arrays.equals(received, data)
+                    && parsed.getPayload().remaining() == data.length // Vue indépendante à chaque appel
+                    && parsed.getCrc().getCrcBits().equals(FrameCheck.CRC16.toBinaryString(fromBuffer.getFcs()));
+            System.out.println("Analyse : " + (parsePassed ? "OK" : "KO"));
+
+            // Un CRC défini par l'ancienne API devient la séquence de contrôle de la trame
+            CRC crc = new CRC();
+            crc.setCrcBits("1000000000000001");
+            Frame adapted = new Frame((byte) 'A', (byte) 2, "");
+            adapted.setCrc(crc);
+            boolean adapterPassed = adapted.getFcs() == 0x8001 && FrameView.of(adapted).getFcs() == 0x8001;
+            boolean rejected;
+            try {
+                new CRC().setCrcBits("100000000000000x");
+                rejected = false;
+            } catch (IllegalArgumentException e) {
+                rejected = true;
+            }
+            System.out.println("Adaptateur CRC : " + (adapterPassed && rejected ? "OK" : "KO"));
+
+            System.out.println("Test Compact Frame " + (encodePassed && parsePassed && adapterPassed && rejected ? "PASSED" : "FAILED"));
+        } catch (Exception e) {
+            System.out.println("Test Compact Frame FAILED with exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testControlFrames() {
+        System.out.println("\n=== Test Control Frames ===");
+        try {
+            ControlFrames table = new ControlFrames(FrameCheck.CRC32C, 128);
+
+            // Mêmes octets que l'encodage complet, et mêmes octets rendus d'un appel à l'autre
+            boolean bytesPassed = true;
+            for (int num = 0; num < 128 && bytesPassed; num++) {
+                for (byte type : new byte[] {'A', 'R', 'N'}) {
+                    Frame frame = new Frame(type, (byte) num, "");
+                    frame.setFrameCheck(FrameCheck.CRC32C);
+                    ByteBuffer cached = table.get(type, num);
+                    bytesPassed &= cached.equals(ByteBuffer.wrap(frame.buildFrame()))
+                            && cached.array() == table.get(type, num).array();
+                }
+            }
+            System.out.println("ACK, REJ et RNR : " + (bytesPassed ? "OK" : "KO"));
+
+            // RR : tous les couples numéro/crédit, au-delà de la taille du cache
+            FrameDecoder decoder = new FrameDecoder();
+            FrameView view = new FrameView();
+            boolean rrPassed = table.rr(3, 17).array() == table.rr(3, 17).array();
+            for (int num = 0; num < 128 && rrPassed; num++) {
+                for (int credit = 0; credit < 256 && rrPassed; credit++) {
+                    decoder.decode(table.rr(num, credit), view, FrameCheck.CRC32C);
+                    rrPassed = view.getType() == 'A' && view.getNum() == num && view.getPayloadLength() == 1
+                            && (view.getPayload().get(view.getPayload().position()) & 0xFF) == credit;
+                }
+            }
+            System.out.println("RR : " + (rrPassed ? "OK" : "KO"));
+
+            boolean rejected;
+            try {
+                table.get((byte) 'I', 0);
+                rejected = false;
+            } catch (IllegalArgumentException e) {
+                rejected = true;
+            }
+            System.out.println("Type refusé : " + (rejected ? "OK" : "KO"));
+
+            System.out.println("Test Control Frames " + (bytesPassed && rrPassed && rejected ? "PASSED" : "FAILED"));
+        } catch (Exception e) {
+            System.out.println("Test Control Frames FAILED with exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testDecodeStatus() {
+        System.out.println("\n=== Test Decode Status ===");
+
+        try {
+            FrameDecoder decoder = new FrameDecoder();
+            FrameView view = new FrameView();
+            byte[] wire = new Frame((byte) 'I', (byte) 3, "Données", new CRC()).buildFrame();
+
+            // Chaque défaut est signalé par un statut, sans exception
+            boolean okPassed = decoder.tryDecode(ByteBuffer.wrap(wire), view, FrameCheck.CRC16) == DecodeStatus.OK
+                    && view.getNum() == 3;
+            ByteBuffer firstPayload = view.getPayload();
+            boolean reusePassed = decoder.tryDecode(ByteBuffer.wrap(wire), view, FrameCheck.CRC16) == DecodeStatus.OK
+                    && view.getPayload() == firstPayload;
+            boolean shortPassed = decoder.tryDecode(ByteBuffer.wrap(new byte[] {Frame.FLAG, Frame.FLAG}), view,
+                    FrameCheck.CRC16) == DecodeStatus.TOO_SHORT;
+            byte[] noFlag = wire.clone();
+            noFlag[noFlag.length - 1] = 0;
+            boolean flagPassed = decoder.tryDecode(ByteBuffer.wrap(noFlag), view, FrameCheck.CRC16) == DecodeStatus.BAD_FLAG;
+            byte[] danglingEscape = Arrays.copyOf(wire, wire.length + 1);
+            danglingEscape[wire.length - 1] = Frame.ESCAPE;
+            danglingEscape[wire.length] = Frame.FLAG;
+            boolean escapePassed = decoder.tryDecode(ByteBuffer.wrap(danglingEscape), view, FrameCheck.CRC16) == DecodeStatus.BAD_ESCAPE;
+            byte[] corrupted = wire.clone();
+            corrupted[5] ^= 0x04;
+            boolean crcPassed = decoder.tryDecode(ByteBuffer.wrap(corrupted), view, FrameCheck.CRC16) == DecodeStatus.CRC_MISMATCH;
+            System.out.println("Statuts : " + (okPassed && reusePassed && shortPassed && flagPassed && escapePassed && crcPassed ? "OK" : "KO"));
+
+            // Une trame corrompue en cours de session déclenche aussitôt un REJ de la trame attendue
+            PipeTransport[] pipe = PipeTransport.createPair();
+            Receiver receiver = new Receiver();
+            receiver.acceptConnection(pipe[1]);
+            FrameReader reader = new FrameReader(pipe[0]);
+            pipe[0].send(ByteBuffer.wrap(new Frame((byte) 'C', (byte) 0, ConnectionParameters.PROTOCOL, new CRC()).buildFrame()));
+            receiver.processFrame(receiver.receiveFrameView());
+            boolean connected = Frame.parseFrame(reader.nextFrame()).getType() == 'A';
+            byte[] first = new Frame((byte) 'I', (byte) 0, "Première ligne", new CRC()).buildFrame();
+            first[5] ^= 0x04;
+            pipe[0].send(ByteBuffer.wrap(first));
+            boolean dropped = receiver.receiveFrameView() == null;
+            Frame rej = Frame.parseFrame(reader.nextFrame());
+            boolean rejPassed = connected && dropped && rej.getType() == 'R' && rej.getNum() == 0
+                    && receiver.getMetrics().getCrcFailures() == 1;
+            System.out.println("REJ immédiat : " + (rejPassed ? "OK" : "KO"));
+            receiver.close();
+
+            boolean isPassed = okPassed && reusePassed && shortPassed && flagPassed && escapePassed && crcPassed && rejPassed;
+            System.out.println("Test Decode Status " + (isPassed ? "PASSED" : "FAILED"));
+        } catch (Exception e) {
+            System.out.println("Test Decode Status FAILED with exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testFrameCheck() {
+        System.out.println("\n=== Test Frame Check ===");
+
+        final String filename = "test_fcs.txt";
+        final String outputFilename = "test_fcs_received.txt";
+
+        try {
+            // Valeur de référence du CRC-32C pour "123456789"
+            byte[] reference = "123456789".getBytes(StandardCharsets.US_ASCII);
+            boolean referencePassed = FrameCheck.CRC32C.compute(reference, 0, reference.length) == 0xE3069283;
+
+            // Aller-retour avec une séquence de contrôle sur 32 bits
+            Frame frame = new Frame((byte) 'I', (byte) 5, "Données \u007E\u007D", new CRC());
+            frame.setFrameCheck(FrameCheck.CRC32C);
+            byte[] wire = frame.buildFrame();
+            Frame parsed = Frame.parseFrame(wire, FrameCheck.CRC32C);
+            boolean roundTripPassed = parsed.getNum() == 5 && parsed.getData().equals(frame.getData())
+                    && parsed.getCrc().getCrcBits().length() == 32
+                    && parsed.getCrc().getCrcBits().equals(frame.getCrc().getCrcBits());
+
+            // La même trame vérifiée avec le CRC-16 est rejetée
+            boolean mismatchDetected;
+            try {
+                Frame.parseFrame(wire, FrameCheck.CRC16);
+                mismatchDetected = false;
+            } catch (Frame.CrcMismatchException e) {
+                mismatchDetected = true;
+            }
+
+            // La trame de connexion reste protégée par le CRC-16
+            Frame connFrame = new Frame((byte) 'C', (byte) 0, ConnectionParameters.PROTOCOL, new CRC());
+            connFrame.setFrameCheck(FrameCheck.CRC32C);
+            boolean connPassed = Frame.parseFrame(connFrame.buildFrame(), FrameCheck.CRC32C).getCrc().getCrcBits().length() == 16;
+
+            // Transfert complet avec négociation du CRC-32C
+            createTestFile(filename);
+            PipeTransport[] pipe = PipeTransport.createPair();
+            Sender sender = new Sender();
+            sender.setFrameCheck(FrameCheck.CRC32C.getName());
+            boolean transferPassed = transfer(sender, pipe[0], pipe[1], filename, outputFilename)
+                    && sender.getFrameCheck() == FrameCheck.CRC32C;
+
+            boolean isPassed = referencePassed && roundTripPassed && mismatchDetected && connPassed && transferPassed;
+            System.out.println("Test Frame Check " + (isPassed ? "PASSED" : "FAILED"));
+        } catch (Exception e) {
+            System.out.println("Test Frame Check FAILED with exception:");
+            e.printStackTrace();
+        } finally {
+            new File(filename).delete();
+            new File(outputFilename).delete();
+        }
+    }
+
+    private static void testLinkNegotiation() {
+        System.out.println("\n=== Test Link Negotiation ===");
+
+        final String filename = "test_negotiation.txt";
+        final String outputFilename = "test_negotiation_received.txt";
+
+        try {
+            // Proposition de l'émetteur, encodée puis décodée comme dans la trame C
+            ConnectionParameters proposal = new ConnectionParameters();
+            proposal.applyOptions("window=12;modulus=16;payload=4096;timeout=500;ack=3");
+            ConnectionParameters received = ConnectionParameters.decode(proposal.encode());
+
+            // Le récepteur limite la fenêtre et la politique d'acquittement
+            ConnectionParameters limits = new ConnectionParameters();
+            limits.applyOptions("window=6;modulus=128;payload=16384;ack=8");
+            ConnectionParameters reply = received.negotiate(limits);
+            ConnectionParameters agreed = proposal.negotiate(ConnectionParameters.decode(reply.encode()));
+            boolean negotiationPassed = agreed.getWindowSize() == 6 && agreed.getModulus() == 16
+                    && agreed.getMaxPayload() == 4096 && agreed.getTimeout() == 500 && agreed.getAckEvery() == 3;
+
+            // La fenêtre reste inférieure au modulo ; un récepteur sans négociation impose les valeurs par défaut
+            proposal.setModulus(4);
+            boolean windowPassed = proposal.negotiate(limits).getWindowSize() == 3;
+            ConnectionParameters legacy = proposal.negotiate(ConnectionParameters.decode(ConnectionParameters.PROTOCOL));
+            boolean legacyPassed = legacy.getWindowSize() == 3 && legacy.getMaxPayload() == ConnectionParameters.DEFAULT_MAX_PAYLOAD;
+
+            boolean invalidRejected;
+            try {
+                proposal.setModulus(12);
+                invalidRejected = false;
+            } catch (IllegalArgumentException e) {
+                invalidRejected = true;
+            }
+
+            // Transfert sur un lien avec erreurs : modulo de 16, grande fenêtre et un ACK toutes les 3 trames
+            try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
+                for (int i = 0; i < 60; i++) {
+                    writer.println("Ligne " + i + " avec des numéros de séquence au-delà de 7");
+                }
+            }
+            LinkSimulator link = new LinkSimulator(
+                    new LinkSimulator.Impairments().bitErrorRate(1e-4).latency(2),
+                    new LinkSimulator.Impairments().latency(2),
+                    11);
+            Sender sender = new Sender();
+            sender.getProposal().applyOptions("window=12;modulus=16;payload=4096;timeout=500;ack=3");
+            boolean transferPassed = transfer(sender, link.getSenderTransport(), link.getReceiverTransport(),
+                    filename, outputFilename);
+            System.out.println("Lien : " + link);
+
+            boolean isPassed = negotiationPassed && windowPassed && legacyPassed && invalidRejected && transferPassed;
+            System.out.println("Test Link Negotiation " + (isPassed ? "PASSED" : "FAILED"));
+        } catch (Exception e) {
+            System.out.println("Test Link Negotiation FAILED with exception:");
+            e.printStackTrace();
+        } finally {
+            new File(filename).delete();
+            new File(outputFilename).delete();
+        }
+    }
+
+    private static void testForwardErrorCorrection() {
+        System.out.println("\n=== Test Forward Error Correction ===");
+
+        final String filename = "test_fec.txt";
+        final String outputFilename = "test_fec_received.txt";
+
+        try {
+            // Toute trame d'un bloc se reconstitue à partir de la parité et des autres trames
+            byte[][] block = {"un".getBytes(StandardCharsets.ISO_8859_1), new byte[] {0x7E, 0x7D, 0x00, (byte) 0xFF},
+                    new byte[0], "quatrième".getBytes(StandardCharsets.ISO_8859_1)};
+            ParityBlock parity = new ParityBlock();
+            for (int i = 0; i < block.length; i++) {
+                parity.add(5 + i, ByteBuffer.wrap(block[i]));
+            }
+            ByteBuffer payload = ByteBuffer.wrap(parity.toPayload());
+            boolean parityPassed = parity.getStart() == 5 && ParityBlock.blockCount(payload) == block.length;
+            for (int missing = 0; missing < block.length; missing++) {
+                byte[][] others = new byte[block.length - 1][];
+                for (int i = 0, n = 0; i < block.length; i++) {
+                    if (i != missing) {
+                        others[n++] = block[i];
+                    }
+                }
+                parityPassed &= Arrays.equals(block[missing], ParityBlock.recover(payload, others));
+            }
+
+            // Transfert sur un lien bruité : les trames corrompues sont reconstituées sans retransmission
+            try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
+                for (int i = 0; i < 200; i++) {
+                    writer.println("Ligne " + i + " protégée par une trame de parité");
+                }
+            }
+            LinkSimulator link = new LinkSimulator(
+                    new LinkSimulator.Impairments().bitErrorRate(2e-4).latency(2),
+                    new LinkSimulator.Impairments().latency(2),
+                    23);
+            Sender sender = new Sender();
+            sender.getProposal().applyOptions("window=7;modulus=16;fec=4");
+            Receiver receiver = new Receiver(new FileChannelSink(Paths.get(outputFilename)));
+            boolean transferPassed = transfer(sender, receiver, link.getSenderTransport(), link.getReceiverTransport(),
+                    filename, outputFilename);
+            System.out.println("Lien : " + link);
+            System.out.println(sender.getMetrics());
+            System.out.println(receiver.getMetrics());
+            boolean recovered = sender.getMetrics().getParityFramesSent() > 0 && receiver.getMetrics().getFecRecoveries() > 0;
+
+            boolean isPassed = parityPassed && transferPassed && recovered;
+            System.out.println("Test Forward Error Correction " + (isPassed ? "PASSED" : "FAILED"));
+        } catch (Exception e) {
+            System.out.println("Test Forward Error Correction FAILED with exception:");
+            e.printStackTrace();
+        } finally {
+            new File(filename).delete();
+            new File(outputFilename).delete();
+        }
+    }
+
+    private static void testSendWindow() {
+        System.out.println("\n=== Test Send Window ===");
+
+        try {
+            // Un producteur publie des trames pendant qu'un autre thread acquitte : toute trame
+            // entre la base et la prochaine trame doit être visible, avec le bon numéro
+            final int modulus = 8;
+            final int total = 200_000;
+            SendWindow window = new SendWindow(modulus);
+            boolean[] consistent = {true};
+            Thread consumer = new Thread(() -> {
+                int acked = 0;
+                while (acked < total) {
+                    int base = window.getBase();
+                    int next = window.getNext();
+                    for (int i = base; i != next; i = (i + 1) % modulus) {
+                        Frame frame = window.get(i);
+                        if (frame == null || frame.getNum() != i) {
+                            consistent[0] = false;
+                        }
+                    }
+                    if (base != next) {
+                        window.advance((base + 1) % modulus);
+                        acked++;
+                    } else {
+                        Thread.yield(); // Céder le cœur au producteur sur une machine à un seul cœur
+                    }
+                }
+            });
+            consumer.start();
+            for (int n = 0; n < total; n++) {
+                while (window.size() >= modulus - 1) {
+                    Thread.yield();
+                }
+                window.add(new Frame((byte) 'I', (byte) window.getNext(), "", new CRC()), new byte[0], System.nanoTime());
+            }
+            consumer.join(30000);
+            boolean ringPassed = consistent[0] && !consumer.isAlive() && window.isEmpty();
+            System.out.println("Anneau : " + (ringPassed ? "OK" : "KO"));
+
+            // Les demandes de retransmission se cumulent jusqu'à ce que le producteur les retire
+            window.requestGoBack(SendWindow.GO_BACK_REJECT);
+            window.requestGoBack(SendWindow.GO_BACK_TIMEOUT);
+            Frame srej = new Frame((byte) 'S', (byte) 2, "", new CRC());
+            window.requestSelectiveReject(srej);
+            boolean requestsPassed = window.takeGoBack() == (SendWindow.GO_BACK_REJECT | SendWindow.GO_BACK_TIMEOUT)
+                    && window.takeGoBack() == 0 && window.takeSelectiveReject() == srej
+                    && window.takeSelectiveReject() == null;
+
+            // Une trame retransmise n'est plus mesurée pour le RTT jusqu'à la réutilisation de sa case
+            window.markRetransmitted(window.getBase(), System.nanoTime());
+            boolean karnPassed = window.isRetransmitted(window.getBase());
+            window.add(new Frame((byte) 'I', (byte) window.getNext(), "", new CRC()), new byte[0], System.nanoTime());
+            karnPassed &= !window.isRetransmitted(window.getBase());
+            System.out.println("Demandes : " + (requestsPassed && karnPassed ? "OK" : "KO"));
+
+            boolean isPassed = ringPassed && requestsPassed && karnPassed;
+            System.out.println("Test Send Window " + (isPassed ? "PASSED" : "FAILED"));
+        } catch (Exception e) {
+            System.out.println("Test Send Window FAILED with exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testEncodeAhead() {
+        System.out.println("\n=== Test Encode Ahead ===");
+
+        final String filename = "test_encode_ahead.txt";
+        final String outputFilename = "test_encode_ahead_received.txt";
+
+        try {
+            // Trois encodeurs : les trames sortent dans l'ordre des blocs, numérotées modulo 8
+            int total = 50;
+            int[] read = {0};
+            EncodeAhead.BlockSource source = () -> read[0] < total ? "Bloc " + read[0]++ + "\n" : null;
+            boolean orderPassed = true;
+            try (EncodeAhead ahead = new EncodeAhead(source, 5, 8, FrameCheck.CRC32C, 3, 4)) {
+                for (int n = 0; n < total; n++) {
+                    EncodeAhead.Encoded encoded = ahead.next();
+                    int num = (5 + n) % 8;
+                    Frame expected = new Frame((byte) 'I', (byte) num, "Bloc " + n + "\n", new CRC());
+                    expected.setFrameCheck(FrameCheck.CRC32C);
+                    orderPassed &= encoded != null && Arrays.equals(expected.buildFrame(), encoded.encodeAs(num));
+                }
+                orderPassed &= ahead.next() == null && ahead.next() == null;
+            }
+            System.out.println("Ordre et numéros : " + (orderPassed ? "OK" : "KO"));
+
+            // Un numéro différent de celui prévu fait réencoder la trame
+            read[0] = 0;
+            boolean renumberPassed;
+            try (EncodeAhead ahead = new EncodeAhead(source, 0, 8, FrameCheck.CRC16, 0, 1)) {
+                byte[] frameBytes = ahead.next().encodeAs(3);
+                Frame decoded = Frame.parseFrame(frameBytes);
+                renumberPassed = decoded.getNum() == 3 && decoded.getData().equals("Bloc 0\n");
+            }
+            System.out.println("Renumérotation : " + (renumberPassed ? "OK" : "KO"));
+
+            // Transfert complet avec plusieurs encodeurs et des retransmissions sur un lien avec pertes
+            createTestFile(filename);
+            LinkSimulator link = new LinkSimulator(new LinkSimulator.Impairments().dropRate(0.05),
+                    new LinkSimulator.Impairments(), 3);
+            Sender sender = new Sender();
+            sender.setEncodeWorkers(3);
+            sender.getProposal().applyOptions("timeout=300");
+            boolean transferPassed = transfer(sender, link.getSenderTransport(), link.getReceiverTransport(),
+                    filename, outputFilename);
+            System.out.println("Transfert, 3 encodeurs : " + (transferPassed ? "OK" : "KO"));
+
+            boolean isPassed = orderPassed && renumberPassed && transferPassed;
+            System.out.println("Test Encode Ahead " + (isPassed ? "PASSED" : "FAILED"));
+        } catch (Exception e) {
+            System.out.println("Test Encode Ahead FAILED with exception:");
+            e.printStackTrace();
+        } finally {
+            new File(filename).delete();
+            new File(outputFilename).delete();
+        }
+    }
+
+    private static void testSelectiveReject() {
+        System.out.println("\n=== Test Selective Reject ===");
+
+        final String filename = "test_srej.txt";
+        final String outputFilename = "test_srej_received.txt";
+
+        try {
+            // Trames 2, 3 et 5 reçues alors que la trame 0 est attendue : trous 0, 1 et 4
+            ReceiveBuffer reorder = new ReceiveBuffer(16, 8, 0);
+            ByteBuffer data = ByteBuffer.wrap("x".getBytes(StandardCharsets.ISO_8859_1));
+            boolean gapsPassed = reorder.store(2, data) && !reorder.store(3, data) && reorder.store(5, data);
+            boolean bitmapPassed = Arrays.equals(reorder.bitmap(), new byte[] {0x68});
+
+            // Le rejet sélectif n'est retenu que si les deux côtés le supportent, avec une fenêtre
+            // d'au plus la moitié du modulo
+            ConnectionParameters proposal = new ConnectionParameters();
+            proposal.applyOptions("window=12;modulus=16;srej=1");
+            ConnectionParameters limits = new ConnectionParameters();
+            limits.applyOptions("window=127;modulus=128");
+            ConnectionParameters withoutSrej = ConnectionParameters.decode(proposal.encode()).negotiate(limits);
+            limits.setSelectiveReject(true);
+            ConnectionParameters withSrej = ConnectionParameters.decode(proposal.encode()).negotiate(limits);
+            boolean negotiationPassed = !withoutSrej.isSelectiveReject() && withoutSrej.getWindowSize() == 12
+                    && withSrej.isSelectiveReject() && withSrej.getWindowSize() == 8;
+
+            // Même lien bruité en Go-Back-N puis en rejet sélectif : seuls les trous sont retransmis
+            try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
+                for (int i = 0; i < 200; i++) {
+                    writer.println("Ligne " + i + " retransmise seule si elle est perdue");
+                }
+            }
+            long[] retransmissions = new long[2];
+            boolean transferPassed = true;
+            for (int run = 0; run < 2; run++) {
+                LinkSimulator link = new LinkSimulator(
+                        new LinkSimulator.Impairments().bitErrorRate(2e-4).latency(2),
+                        new LinkSimulator.Impairments().latency(2),
+                        23);
+                Sender sender = new Sender();
+                sender.getProposal().applyOptions("window=8;modulus=16;srej=" + run);
+                transferPassed &= transfer(sender, link.getSenderTransport(), link.getReceiverTransport(),
+                        filename, outputFilename);
+                retransmissions[run] = sender.getMetrics().getRejRetransmissions()
+                        + sender.getMetrics().getTimeoutRetransmissions();
+                new File(outputFilename).delete();
+            }
+            System.out.println("Retransmissions Go-Back-N : " + retransmissions[0]
+                    + ", rejet sélectif : " + retransmissions[1]);
+            boolean fewerPassed = retransmissions[1] < retransmissions[0];
+
+            // ACK de la dernière trame de la fenêtre perdu, puis le rejet de sa retransmission : chaque
+            // retransmission d'une trame déjà livrée est acquittée de nouveau, en Go-Back-N comme en SREJ
+            byte[] windowData = new byte[4 * 64];
+            Arrays.fill(windowData, (byte) 'w');
+            Files.write(Paths.get(filename), windowData);
+            boolean lostAckPassed = true;
+            for (int run = 0; run < 2; run++) {
+                // Sens retour : l'ACK de la trame 3, dernière de la fenêtre, et la réponse suivante sont perdus
+                int[] lost = new int[1];
+                LinkSimulator link = new LinkSimulator(new LinkSimulator.Impairments(),
+                        new LinkSimulator.Impairments().dropWhen(bytes -> {
+                            if (lost[0] == 0) {
+                                try {
+                                    Frame ack = Frame.parseFrame(bytes);
+                                    lost[0] = ack.getType() == 'A' && ack.getNum() == 3 ? 1 : 0;
+                                } catch (Exception e) {
+                                    // Réponse à la connexion ou trame illisible : transmise
+                                }
+                                return lost[0] == 1;
+                            }
+                            return lost[0]++ == 1;
+                        }), 0);
+                Sender sender = new Sender();
+                sender.getProposal().applyOptions("window=4;modulus=8;payload=64;timeout=100;srej=" + run);
+                boolean[] received = new boolean[1];
+                Thread transferThread = new Thread(() -> {
+                    try {
+                        received[0] = transfer(sender, link.getSenderTransport(), link.getReceiverTransport(),
+                                filename, outputFilename);
+                    } catch (Exception e) {
+                        // Transfert inachevé
+                    }
+                });
+                transferThread.setDaemon(true);
+                transferThread.start();
+                transferThread.join(10_000);
+                lostAckPassed &= received[0];
+                sender.close();
+                new File(outputFilename).delete();
+            }
+            System.out.println("ACK et rejet perdus : " + (lostAckPassed ? "OK" : "KO"));
+
+            boolean isPassed = gapsPassed && bitmapPassed && negotiationPassed && transferPassed && fewerPassed
+                    && lostAckPassed;
+            System.out.println("Test Selective Reject " + (isPassed ? "PASSED" : "FAILED"));
+        } catch (Exception e) {
+            System.out.println("Test Selective Reject FAILED with exception:");
+            e.printStackTrace();
+        } finally {
+            new File(filename).delete();
+            new File(outputFilename).delete();
+        }
+    }
+
+    private static void testFlowControl() {
+        System.out.println("\n=== Test Flow Control ===");
+
+        final String filename = "test_flow.txt";
+        final String outputFilename = "test_flow_received.txt";
+
+        try {
+            // Le contrôle de flux n'est retenu que si les deux côtés le supportent
+            ConnectionParameters proposal = new ConnectionParameters();
+            proposal.applyOptions("window=7;modulus=16;flow=1");
+            ConnectionParameters limits = new ConnectionParameters();
+            limits.applyOptions("window=127;modulus=128");
+            boolean negotiationPassed = !ConnectionParameters.decode(proposal.encode()).negotiate(limits).isFlowControl();
+            limits.setFlowControl(true);
+            negotiationPassed &= ConnectionParameters.decode(proposal.encode()).negotiate(limits).isFlowControl();
+
+            // Puits lent derrière une file de 4 trames : l'émetteur est ralenti par le crédit et les RNR,
+            // sans timeout ni rejet
+            try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
+                for (int i = 0; i < 80; i++) {
+                    writer.println("Ligne " + i + " écrite sur un disque lent");
+                }
+            }
+            DeliverySink slowSink = new FileChannelSink(Paths.get(outputFilename)) {
+                @Override
+                public void deliver(ByteBuffer payload) throws IOException {
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    super.deliver(payload);
+                }
+            };
+            PipeTransport[] pipe = PipeTransport.createPair();
+            Sender sender = new Sender();
+            sender.getProposal().applyOptions("window=7;modulus=16;timeout=300;flow=1");
+            Receiver receiver = new Receiver(new QueuedSink(slowSink, 4));
+            boolean transferPassed = transfer(sender, receiver, pipe[0], pipe[1], filename, outputFilename);
+            System.out.println(sender.getMetrics());
+            System.out.println(receiver.getMetrics());
+            boolean throttled = receiver.getMetrics().getRnrFrames() > 0
+                    && sender.getMetrics().getTimeoutRetransmissions() == 0
+                    && sender.getMetrics().getRejRetransmissions() == 0;
+
+            // Fermeture d'un récepteur qui a suspendu l'émetteur : le thread du puits qui notifie le crédit
+            // ne doit pas attendre le récepteur en cours de fermeture
+            CountDownLatch diskReady = new CountDownLatch(1);
+            DeliverySink stuckSink = new FileChannelSink(Paths.get(outputFilename)) {
+                @Override
+                public void deliver(ByteBuffer payload) throws IOException {
+                    try {
+                        diskReady.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    super.deliver(payload);
+                }
+            };
+            PipeTransport[] stalledPipe = PipeTransport.createPair();
+            Sender stalledSender = new Sender();
+            stalledSender.getProposal().applyOptions("window=7;modulus=16;timeout=300;flow=1");
+            Receiver stalledReceiver = new Receiver(new QueuedSink(stuckSink, 4));
+            Thread stalledReceiverThread = new Thread(() -> {
+                stalledReceiver.acceptConnection(stalledPipe[1]);
+                while (stalledReceiver.isRunning()) {
+                    FrameView receivedFrame = stalledReceiver.receiveFrameView();
+                    if (receivedFrame != null) {
+                        stalledReceiver.processFrame(receivedFrame);
+                    }
+                }
+            });
+            stalledReceiverThread.setDaemon(true);
+            stalledReceiverThread.start();
+            Thread stalledSenderThread = new Thread(() -> {
+                try {
+                    stalledSender.initialize(stalledPipe[0], filename);
+                    stalledSender.readData();
+                } catch (Exception e) {
+                    // Transport fermé par le récepteur
+                }
+            });
+            stalledSenderThread.setDaemon(true);
+            stalledSenderThread.start();
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (stalledReceiver.getMetrics().getRnrFrames() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            boolean suspended = stalledReceiver.getMetrics().getRnrFrames() > 0;
+            Thread closer = new Thread(stalledReceiver::close);
+            closer.setDaemon(true);
+            closer.start();
+            Thread.sleep(100); // La fermeture attend le thread du puits, encore bloqué
+            diskReady.countDown();
+            closer.join(5000);
+            boolean closePassed = suspended && !closer.isAlive();
+            stalledSender.close();
+            System.out.println("Fermeture suspendue : " + (closePassed ? "OK" : "KO"));
+
+            boolean isPassed = negotiationPassed && transferPassed && throttled && closePassed;
+            System.out.println("Test Flow Control " + (isPassed ? "PASSED" : "FAILED"));
+        } catch (Exception e) {
+            System.out.println("Test Flow Control FAILED with exception:");
+            e.printStackTrace();
+        } finally {
+            new File(filename).delete();
+            new File(outputFilename).delete();
+        }
+    }
+
+    private static void testCongestionControl() {
+        System.out.println("\n=== Test Congestion Control ===");
+
+        final String filename = "test_congestion.txt";
+        final String outputFilename = "test_congestion_received.txt";
+
+        try {
+            // Démarrage lent jusqu'à la fenêtre négociée, puis diminution de moitié et augmentation additive
+            CongestionControl control = new CongestionControl(16);
+            control.onAck(1);
+            boolean slowStartPassed = control.getWindow() == 2;
+            control.onAck(2);
+            control.onAck(4);
+            slowStartPassed &= control.getWindow() == 8;
+            control.onAck(20);
+            slowStartPassed &= control.getWindow() == 16;
+            boolean decreasePassed = control.onLoss(1_000, 100) && control.getWindow() == 8
+                    && !control.onLoss(1_050, 100) && control.getWindow() == 8;
+            control.onAck(8);
+            boolean additivePassed = control.getWindow() == 8;
+            control.onAck(1);
+            additivePassed &= control.getWindow() == 9;
+            control.onTimeout(2_000);
+            boolean timeoutPassed = control.getWindow() == 1 && Math.abs(control.getThreshold() - 4.5) < 0.1;
+
+            // Transfert sur un lien qui perd des trames : la fenêtre oscille sous la fenêtre négociée
+            try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
+                for (int i = 0; i < 150; i++) {
+                    writer.println("Ligne " + i + " envoyée sous contrôle de congestion");
+                }
+            }
+            LinkSimulator link = new LinkSimulator(
+                    new LinkSimulator.Impairments().dropRate(0.02).latency(5),
+                    new LinkSimulator.Impairments().latency(5),
+                    31);
+            Sender sender = new Sender();
+            sender.getProposal().applyOptions("window=16;modulus=32;timeout=500");
+            sender.setCongestionControl(true);
+            boolean transferPassed = transfer(sender, link.getSenderTransport(), link.getReceiverTransport(),
+                    filename, outputFilename);
+            int[] trajectory = sender.getMetrics().getCongestionWindowTrajectory();
+            System.out.println("Fenêtre de congestion : " + Arrays.toString(trajectory));
+            boolean grew = false;
+            boolean shrank = false;
+            boolean bounded = trajectory.length > 0;
+            for (int i = 0; i < trajectory.length; i++) {
+                bounded &= trajectory[i] >= 1 && trajectory[i] <= 16;
+                if (i > 0) {
+                    grew |= trajectory[i] > trajectory[i - 1];
+                    shrank |= trajectory[i] < trajectory[i - 1];
+                }
+            }
+
+            boolean isPassed = slowStartPassed && decreasePassed && additivePassed && timeoutPassed
+                    && transferPassed && bounded && grew && shrank;
+            System.out.println("Test Congestion Control " + (isPassed ? "PASSED" : "FAILED"));
+        } catch (Exception e) {
+            System.out.println("Test Congestion Control FAILED with exception:");
+            e.printStackTrace();
+        } finally {
+            new File(filename).delete();
+            new File(outputFilename).delete();
+        }
+    }
+
+    private static void testPacing() {
+        System.out.println("\n=== Test Pacing ===");
+
+        final String filename = "test_pacing.txt";
+        final String outputFilename = "test_pacing_received.txt";
+
+        try {
+            // 10 trames de 100 octets à 10 000 o/s avec une rafale de 100 octets : une trame toutes les 10 ms
+            List<Long> departures = Collections.synchronizedList(new ArrayList<>());
+            Transport recorder = new Transport() {
+                @Override
+                public void send(ByteBuffer data) {
+                    departures.add(System.nanoTime());
+                }
+
+                @Override
+                public ByteBuffer receive() {
+                    return null;
+                }
+
+                @Override
+                public void close() {}
+            };
+            PacedTransport paced = new PacedTransport(recorder, 10_000, 100);
+            long start = System.nanoTime();
+            for (int i = 0; i < 10; i++) {
+                paced.send(new byte[100]);
+            }
+            long sendMillis = (System.nanoTime() - start) / 1_000_000;
+            long deadline = System.currentTimeMillis() + 2000;
+            while (departures.size() < 10 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            paced.close();
+            boolean spacingPassed = departures.size() == 10;
+            for (int i = 1; spacingPassed && i < departures.size(); i++) {
+                spacingPassed = departures.get(i) - departures.get(i - 1) >= 8_000_000L;
+            }
+            long spanMillis = departures.size() == 10 ? (departures.get(9) - departures.get(0)) / 1_000_000 : 0;
+            System.out.println("Envoi non bloquant : " + sendMillis + " ms, départs étalés sur " + spanMillis + " ms");
+            boolean nonBlockingPassed = sendMillis < 50 && spanMillis >= 80;
+
+            // Transfert avec un débit déduit du RTT et de la fenêtre
+            try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
+                for (int i = 0; i < 60; i++) {
+                    writer.println("Ligne " + i + " envoyée à un débit régulier");
+                }
+            }
+            LinkSimulator link = new LinkSimulator(
+                    new LinkSimulator.Impairments().latency(5),
+                    new LinkSimulator.Impairments().latency(5),
+                    41);
+            Sender sender = new Sender();
+            sender.getProposal().applyOptions("window=7;modulus=16");
+            sender.setAdaptivePacing(256);
+            boolean transferPassed = transfer(sender, link.getSenderTransport(), link.getReceiverTransport(),
+                    filename, outputFilename);
+            double rate = sender.getPacingRate();
+            System.out.println("Débit d'espacement adaptatif : " + String.format("%.0f", rate) + " o/s");
+            boolean adaptivePassed = rate > 0 && rate < Double.POSITIVE_INFINITY;
+
+            boolean isPassed = spacingPassed && nonBlockingPassed && transferPassed && adaptivePassed;
+            System.out.println("Test Pacing " + (isPassed ? "PASSED" : "FAILED"));
+        } catch (Exception e) {
+            System.out.println("Test Pacing FAILED with exception:");
+            e.printStackTrace();
+        } finally {
+            new File(filename).delete();
+            new File(outputFilename).delete();
+        }
+    }
+
+    private static String toBits(Frame frame) {
+        StringBuilder bits = new StringBuilder();
+        bits.append(String.format("%8s", Integer.toBinaryString(frame.getType() & 0xFF)).replace(' ', '0'));
+        bits.append(String.format("%8s", Integer.toBinaryString(frame.getNum() & 0x07)).replace(' ', '0'));
+        for (char c : frame.getData().toCharArray()) {
+            bits.append(String.format("%8s", Integer.toBinaryString(c)).replace(' ', '0'));
+        }
+        return bits.toString();
+    }
+
+    private static void testFileSink() {
+        System.out.println("\n=== Test File Sink ===");
+        Path output = Paths.get("sink_test.txt");
+        try {
+            byte[] part1 = "Première ligne\n".getBytes(StandardCharsets.UTF_8);
+            byte[] part2 = "Deuxième ligne\n".getBytes(StandardCharsets.UTF_8);
+
+            // Petit tampon pour forcer plusieurs écritures, taille annoncée plus grande que les données
+            FileChannelSink sink = new FileChannelSink(output, 8, FileChannelSink.FlushPolicy.FSYNC);
+            sink.open(null, 1000);
+            sink.deliver(ByteBuffer.wrap(part1));
+            sink.deliver(ByteBuffer.wrap(part2));
+            sink.close();
+            sink.close(); // Doit être sans effet
+
+            byte[] expected = new byte[part1.length + part2.length];
+            System.arraycopy(part1, 0, expected, 0, part1.length);
+            System.arraycopy(part2, 0, expected, part1.length, part2.length);
+            byte[] written = Files.readAllBytes(output);
+            System.out.println("Octets écrits : " + written.length + " (attendus : " + expected.length + ")");
+            System.out.println("Test File Sink " + (Arrays.equals(expected, written) ? "PASSED" : "FAILED"));
+        } catch (Exception e) {
+            System.out.println("Test File Sink FAILED with exception:");
+            e.printStackTrace();
+        } finally {
+            new File(output.toString()).delete();
+        }
+    }
+
+    private static void testFileSinkResume() {
+        System.out.println("\n=== Test File Sink Resume ===");
+        Path output = Paths.get("resume_test.txt");
+        Path checkpoint = Paths.get("resume_test.txt.ckpt");
+        try {
+            byte[] part1 = "0123456789".getBytes(StandardCharsets.UTF_8);
+            byte[] part2 = "abcdefghij".getBytes(StandardCharsets.UTF_8);
+
+            // Premier transfert interrompu après la première partie
+            FileChannelSink first = new FileChannelSink(output, 4, FileChannelSink.FlushPolicy.BUFFERED, 4);
+            long offset1 = first.open("transfer-1", 20);
+            first.deliver(ByteBuffer.wrap(part1));
+            first.close();
+            boolean checkpointWritten = Files.exists(checkpoint);
+
+            // Reconnexion avec le même identifiant : reprise à la fin de la première partie
+            FileChannelSink second = new FileChannelSink(output, 4, FileChannelSink.FlushPolicy.BUFFERED, 4);
+            long offset2 = second.open("transfer-1", 20);
+            second.deliver(ByteBuffer.wrap(part2));
+            second.complete();
+
+            byte[] written = Files.readAllBytes(output);
+            String expected = "0123456789abcdefghij";
+            System.out.println("Offsets : " + offset1 + ", " + offset2);
+            boolean isPassed = offset1 == 0 && offset2 == part1.length && checkpointWritten
+                    && !Files.exists(checkpoint)
+                    && expected.equals(new String(written, StandardCharsets.UTF_8));
+            System.out.println("Test File Sink Resume " + (isPassed ? "PASSED" : "FAILED"));
+        } catch (Exception e) {
+            System.out.println("Test File Sink Resume FAILED with exception:");
+            e.printStackTrace();
+        } finally {
+            new File(output.toString()).delete();
+            new File(checkpoint.toString()).delete();
+        }
+    }
+
+    private static void testCompression() {
+        System.out.println("\n=== Test Compression ===");
+        CompressionStage stage = new CompressionStage(CompressionCodecs.create(DeflateCodec.NAME));
+        try {
+            // Texte répétitif : doit être compressé
+            byte[] text = "2024-01-01 INFO Frame sent\n".repeat(20).getBytes(StandardCharsets.UTF_8);
+            byte[] encodedText = stage.encode(text, text.length);
+            boolean textPassed = encodedText[0] == CompressionStage.COMPRESSED
+                    && encodedText.length < text.length
+                    && Arrays.equals(text, stage.decode(encodedText));
+            System.out.println("Texte : " + text.length + " -> " + encodedText.length + " octets");
+
+            // Bloc trop court pour être réduit : doit être envoyé tel quel
+            byte[] tiny = {0x7E, 0x7D, 0x01};
+            byte[] encodedTiny = stage.encode(tiny, tiny.length);
+            boolean tinyPassed = encodedTiny[0] == CompressionStage.RAW
+                    && Arrays.equals(tiny, stage.decode(encodedTiny));
+
+            // Bloc décompressé borné par la taille négociée : jusqu'à la limite accepté, au-delà rejeté
+            byte[] zeros = new byte[4096];
+            byte[] encodedZeros = stage.encode(zeros, zeros.length);
+            boolean boundPassed;
+            CompressionStage bounded = new CompressionStage(CompressionCodecs.create(DeflateCodec.NAME), zeros.length);
+            CompressionStage tooSmall = new CompressionStage(CompressionCodecs.create(DeflateCodec.NAME), zeros.length - 1);
+            try {
+                boundPassed = Arrays.equals(zeros, bounded.decode(encodedZeros))
+                        && Arrays.equals(zeros, bounded.decode(ByteBuffer.wrap(encodedZeros)).array());
+                try {
+                    tooSmall.decode(encodedZeros);
+                    boundPassed = false;
+                } catch (IOException e) {
+                    System.out.println("Bloc trop grand rejeté : " + e.getMessage());
+                }
+            } finally {
+                bounded.close();
+                tooSmall.close();
+            }
+            System.out.println("Taille décompressée bornée : " + (boundPassed ? "OK" : "KO"));
+
+            System.out.println("Test Compression " + (textPassed && tinyPassed && boundPassed ? "PASSED" : "FAILED"));
+        } catch (Exception e) {
+            System.out.println("Test Compression FAILED with exception:");
+            e.printStackTrace();
+        } finally {
+            stage.close();
+        }
+    }
+
+    private static void testAsyncAppender() {
+        System.out.println("\n=== Test Async Appender ===");
+        try {
+            // Flux bloqué jusqu'au signal : le thread d'écriture reste dans son premier print
+            CountDownLatch streamReady = new CountDownLatch(1);
+            ByteArrayOutputStream captured = new ByteArrayOutputStream();
+            OutputStream slowStream = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[] {(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    try {
+                        streamReady.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    synchronized (captured) {
+                        captured.write(b, off, len);
+                    }
+                }
+            };
+            AsyncAppender appender = new AsyncAppender(new PrintStream(slowStream, false, "UTF-8"), 4);
+            appender.append(new AsyncAppender.Event(System.currentTimeMillis(), Log.Level.INFO, "Test", "main",
+                    "Message {}", 0, null));
+            Thread.sleep(100); // Le premier message est formaté, son écriture bloquée
+            int accepted = 0;
+            for (int i = 1; i <= 10; i++) {
+                if (appender.append(new AsyncAppender.Event(System.currentTimeMillis(), Log.Level.INFO, "Test", "main",
+                        "Message {}", i, null))) {
+                    accepted++;
+                }
+            }
+            boolean ringPassed = accepted == 4 && appender.getDroppedCount() == 6;
+            System.out.println("Anneau et abandons : " + (ringPassed ? "OK" : "KO"));
+
+            // flush() rend la main une fois les messages écrits sur le flux, pas seulement formatés
+            streamReady.countDown();
+            appender.flush();
+            String output;
+            synchronized (captured) {
+                output = captured.toString("UTF-8");
+            }
+            boolean flushPassed = true;
+            for (int i = 0; i <= 4; i++) {
+                flushPassed &= output.contains("INFO [main] Test - Message " + i + System.lineSeparator());
+            }
+            System.out.println("Flush : " + (flushPassed ? "OK" : "KO"));
+
+            // Au repos, les threads d'écriture attendent sans délai
+            Thread.sleep(50);
+            boolean idlePassed = true;
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (thread.getName().equals("log-writer")) {
+                    idlePassed &= thread.getState() == Thread.State.WAITING;
+                }
+            }
+            System.out.println("Attente au repos : " + (idlePassed ? "OK" : "KO"));
+
+            System.out.println("Test Async Appender " + (ringPassed && flushPassed && idlePassed ? "PASSED" : "FAILED"));
+        } catch (Exception e) {
+            System.out.println("Test Async Appender FAILED with exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testMetrics() {
+        System.out.println("\n=== Test Metrics ===");
+        ProtocolMetrics metrics = new ProtocolMetrics("Test");
+        try {
+            metrics.register();
+            metrics.frameSent(100);
+            metrics.frameSent(50);
+            metrics.crcFailure();
+            for (int i = 1; i <= 100; i++) {
+                metrics.ackRtt(i * 1000L); // 1 à 100 microsecondes
+            }
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            Set<ObjectName> names = server.queryNames(new ObjectName(ProtocolMetrics.DOMAIN + ":type=Test,*"), null);
+            boolean registered = names.size() == 1;
+            long bytesSent = registered ? (Long) server.getAttribute(names.iterator().next(), "BytesSent") : -1;
+            long p50 = metrics.getAckRttP50Micros();
+            System.out.println("MBean : " + names + ", BytesSent=" + bytesSent + ", RTT p50=" + p50 + " us");
+
+            metrics.unregister();
+            boolean isPassed = registered && bytesSent == 150 && metrics.getCrcFailures() == 1
+                    && p50 >= 50 && p50 <= 63 && metrics.getAckRttMaxMicros() == 100
+                    && server.queryNames(new ObjectName(ProtocolMetrics.DOMAIN + ":type=Test,*"), null).isEmpty();
+            System.out.println("Test Metrics " + (isPassed ? "PASSED" : "FAILED"));
+        } catch (Exception e) {
+            System.out.println("Test Metrics FAILED with exception:");
+            e.printStackTrace();
+        }
+    }
+
     private static void testCommunication() {
         System.out.println("\n=== Test Communication Protocol ===");
 
         final String hostname = "localhost";
         final int port = 12345;
         final String filename = "test.txt";
+        final String outputFilename = "test_received.txt";
 
         // Créer le fichier de test
         createTestFile(filename);
@@ -218,7 +1314,7 @@ public class MainTest {
         Thread receiverThread = new Thread(() -> {
             try {
                 System.out.println("Starting receiver...");
-                Receiver receiver = new Receiver();
+                Receiver receiver = new Receiver(new FileChannelSink(Paths.get(outputFilename)));
                 receiver.initialize(port);
 
                 receiver.acceptConnection();
@@ -271,7 +1367,17 @@ public class MainTest {
 
         System.out.println("Communication test completed.");
 
+        // Vérifier que le fichier reçu est identique au fichier envoyé
+        try {
+            boolean isPassed = Arrays.equals(Files.readAllBytes(Paths.get(filename)),
+                    Files.readAllBytes(Paths.get(outputFilename)));
+            System.out.println("Test Communication " + (isPassed ? "PASSED" : "FAILED"));
+        } catch (IOException e) {
+            System.out.println("Test Communication FAILED with exception: " + e.getMessage());
+        }
+
         // Nettoyage
+        new File(outputFilename).delete();
         File testFile = new File(filename);
         if (testFile.exists()) {
             if (testFile.delete()) {
@@ -282,6 +1388,518 @@ public class MainTest {
         }
     }
 
+    private static void testLinkSimulator() {
+        System.out.println("\n=== Test Link Simulator ===");
+
+        final String filename = "test_link.txt";
+        final String outputFilename = "test_link_received.txt";
+
+        try {
+            // Même graine : les mêmes bits sont inversés
+            byte[] frame = new Frame((byte) 'I', (byte) 0, "Deuxième ligne avec 11111", new CRC()).buildFrame();
+            byte[][] received = new byte[2][];
+            for (int run = 0; run < 2; run++) {
+                LinkSimulator link = new LinkSimulator(new LinkSimulator.Impairments().bitErrorRate(0.01),
+                        new LinkSimulator.Impairments(), 42);
+                link.getSenderOutput().write(frame);
+                link.getSenderOutput().close();
+                received[run] = link.getReceiverInput().readAllBytes();
+            }
+            boolean deterministic = Arrays.equals(received[0], received[1]) && !Arrays.equals(frame, received[0]);
+
+            // Transfert complet sur un lien avec erreurs binaires, délai, gigue et débit limité
+            try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
+                for (int i = 0; i < 40; i++) {
+                    writer.println("Ligne " + i + " transmise sur un lien simulé avec pertes");
+                }
+            }
+            LinkSimulator link = new LinkSimulator(
+                    new LinkSimulator.Impairments().bitErrorRate(1e-4).latency(5).jitter(2).bandwidth(1_000_000),
+                    new LinkSimulator.Impairments().latency(5),
+                    7);
+
+            boolean transferred = transfer(link.getSenderTransport(), link.getReceiverTransport(),
+                    filename, outputFilename);
+            System.out.println(link);
+            new File(outputFilename).delete();
+
+            // ACK de connexion perdu : la trame C est renvoyée après le timeout proposé
+            boolean[] dropped = new boolean[1];
+            LinkSimulator lossyConnect = new LinkSimulator(new LinkSimulator.Impairments(),
+                    new LinkSimulator.Impairments().dropWhen(bytes -> !dropped[0] && (dropped[0] = true)), 7);
+            Sender sender = new Sender();
+            sender.getProposal().applyOptions("timeout=200");
+            boolean[] reconnected = new boolean[1];
+            Thread connectThread = new Thread(() -> {
+                try {
+                    reconnected[0] = transfer(sender, lossyConnect.getSenderTransport(),
+                            lossyConnect.getReceiverTransport(), filename, outputFilename);
+                } catch (Exception e) {
+                    // Connexion impossible
+                }
+            });
+            connectThread.setDaemon(true);
+            connectThread.start();
+            connectThread.join(10_000);
+            sender.close();
+            System.out.println("ACK de connexion perdu : " + (reconnected[0] ? "OK" : "KO"));
+            new File(outputFilename).delete();
+
+            // ACK de la trame de fin perdu une fois : le récepteur attend et acquitte la trame 'F' renvoyée.
+            // Perdu à chaque fois : l'émetteur abandonne après quelques envois au lieu de boucler
+            Files.write(Paths.get(filename), "Une seule trame".getBytes(StandardCharsets.ISO_8859_1));
+            boolean[] endPassed = new boolean[2];
+            for (int run = 0; run < 2; run++) {
+                boolean always = run == 1;
+                int[] endAcks = new int[1];
+                LinkSimulator lossyEnd = new LinkSimulator(new LinkSimulator.Impairments(),
+                        new LinkSimulator.Impairments().dropWhen(bytes -> {
+                            try {
+                                Frame ack = Frame.parseFrame(bytes);
+                                // Trame 0 : données, trame 1 : fin
+                                return ack.getType() == 'A' && ack.getNum() == 1 && (always || endAcks[0]++ == 0);
+                            } catch (Exception e) {
+                                return false;
+                            }
+                        }), 7);
+                Sender endSender = new Sender();
+                endSender.getProposal().applyOptions("timeout=200");
+                boolean[] completed = new boolean[1];
+                Thread endThread = new Thread(() -> {
+                    try {
+                        completed[0] = transfer(endSender, lossyEnd.getSenderTransport(),
+                                lossyEnd.getReceiverTransport(), filename, outputFilename);
+                    } catch (Exception e) {
+                        // Transfert inachevé
+                    }
+                });
+                endThread.setDaemon(true);
+                endThread.start();
+                endThread.join(10_000);
+                endSender.close();
+                endPassed[run] = completed[0] && endSender.getMetrics().getTimeoutRetransmissions() > 0;
+                new File(outputFilename).delete();
+            }
+            System.out.println("ACK de fin perdu : " + (endPassed[0] ? "OK" : "KO"));
+            System.out.println("ACK de fin toujours perdu : " + (endPassed[1] ? "OK" : "KO"));
+
+            boolean isPassed = deterministic && transferred && reconnected[0] && endPassed[0] && endPassed[1];
+            System.out.println("Test Link Simulator " + (isPassed ? "PASSED" : "FAILED"));
+        } catch (Exception e) {
+            System.out.println("Test Link Simulator FAILED with exception:");
+            e.printStackTrace();
+        } finally {
+            new File(filename).delete();
+            new File(outputFilename).delete();
+        }
+    }
+
+    private static void testTransports() {
+        System.out.println("\n=== Test Transports ===");
+
+        final String filename = "test_transport.txt";
+        final String outputFilename = "test_transport_received.txt";
+
+        try {
+            createTestFile(filename);
+
+            // Tube en mémoire : les tampons sont remis au pair sans copie
+            PipeTransport[] pipe = PipeTransport.createPair();
+            boolean pipePassed = transfer(pipe[0], pipe[1], filename, outputFilename);
+            System.out.println("Pipe : " + (pipePassed ? "OK" : "KO"));
+
+            // UDP sur l'interface locale : une trame par datagramme
+            UdpTransport receiverUdp = UdpTransport.bind(12346);
+            UdpTransport senderUdp = UdpTransport.connect("localhost", 12346);
+            boolean udpPassed = transfer(senderUdp, receiverUdp, filename, outputFilename);
+            System.out.println("UDP : " + (udpPassed ? "OK" : "KO"));
+
+            // UDP non connecté : le récepteur répond à la source du dernier datagramme
+            receiverUdp = UdpTransport.bind(12347, false, UdpTransport.DEFAULT_SOCKET_BUFFER_SIZE);
+            senderUdp = UdpTransport.connect("localhost", 12347);
+            boolean unconnectedPassed = transfer(senderUdp, receiverUdp, filename, outputFilename);
+            System.out.println("UDP non connecté : " + (unconnectedPassed ? "OK" : "KO"));
+
+            // Deux trames regroupées dans un seul datagramme sont séparées par le lecteur de trames
+            boolean batchPassed;
+            try (UdpTransport in = UdpTransport.bind(12348); UdpTransport out = UdpTransport.connect("localhost", 12348)) {
+                byte[] first = new Frame((byte) 'I', (byte) 1, "un", new CRC()).buildFrame();
+                byte[] second = new Frame((byte) 'I', (byte) 2, "deux", new CRC()).buildFrame();
+                out.send(new ByteBuffer[] {ByteBuffer.wrap(first), ByteBuffer.wrap(second)});
+                FrameReader reader = new FrameReader(in);
+                batchPassed = Arrays.equals(first, reader.nextFrame()) && Arrays.equals(second, reader.nextFrame());
+            }
+            System.out.println("Datagramme groupé : " + (batchPassed ? "OK" : "KO"));
+
+            boolean isPassed = pipePassed && udpPassed && unconnectedPassed && batchPassed;
+            System.out.println("Test Transports " + (isPassed ? "PASSED" : "FAILED"));
+        } catch (Exception e) {
+            System.out.println("Test Transports FAILED with exception:");
+            e.printStackTrace();
+        } finally {
+            new File(filename).delete();
+            new File(outputFilename).delete();
+        }
+    }
+
+    private static void testQueuedTransport() {
+        System.out.println("\n=== Test Queued Transport ===");
+
+        try {
+            // Transport délégué qui bloque la première écriture et enregistre l'ordre des trames écrites
+            List<String> written = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch blocked = new CountDownLatch(1);
+            Transport slow = new Transport() {
+                @Override
+                public void send(ByteBuffer data) throws IOException {
+                    blocked.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                    written.add(StandardCharsets.ISO_8859_1.decode(data).toString());
+                }
+
+                @Override
+                public ByteBuffer receive() {
+                    return null;
+                }
+
+                @Override
+                public void close() {}
+            };
+
+            QueuedTransport queued = new QueuedTransport(slow);
+            queued.send(ByteBuffer.wrap("I0".getBytes(StandardCharsets.ISO_8859_1)));
+            blocked.await();
+            // Pendant que le thread d'écriture est bloqué : deux données, deux ACK et un REJ
+            queued.send(ByteBuffer.wrap("I1".getBytes(StandardCharsets.ISO_8859_1)));
+            queued.send(ByteBuffer.wrap("I2".getBytes(StandardCharsets.ISO_8859_1)));
+            queued.sendControl(ByteBuffer.wrap("A1".getBytes(StandardCharsets.ISO_8859_1)), true);
+            queued.sendControl(ByteBuffer.wrap("A2".getBytes(StandardCharsets.ISO_8859_1)), true);
+            queued.sendControl(ByteBuffer.wrap("R3".getBytes(StandardCharsets.ISO_8859_1)), false);
+            release.countDown();
+            queued.close(); // Écrit ce qui reste en file
+
+            // Le contrôle passe avant les données, et seul le dernier ACK est écrit
+            boolean isPassed = written.equals(Arrays.asList("I0", "R3", "A2", "I1", "I2"))
+                    && queued.getCoalescedFrames() == 1;
+            System.out.println("Ordre d'écriture : " + written);
+            System.out.println("Test Queued Transport " + (isPassed ? "PASSED" : "FAILED"));
+        } catch (Exception e) {
+            System.out.println("Test Queued Transport FAILED with exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testReceivePipeline() {
+        System.out.println("\n=== Test Receive Pipeline ===");
+
+        final String filename = "test_pipeline.txt";
+        final String outputFilename = "test_pipeline_received.txt";
+
+        try {
+            try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
+                // Lignes de quelques kilo-octets : une grande trame par ligne
+                for (int i = 0; i < 300; i++) {
+                    writer.println(("Ligne " + i + " décodée par un thread de la chaîne de réception. ").repeat(40));
+                }
+            }
+
+            // CRC-32C négocié à la connexion : les décodeurs doivent changer de contrôle
+            PipeTransport[] pipe = PipeTransport.createPair();
+            Sender sender = new Sender();
+            sender.setFrameCheck(FrameCheck.CRC32C.getName());
+            sender.getProposal().applyOptions("window=15;modulus=16;payload=4096");
+            Receiver receiver = new Receiver(new FileChannelSink(Paths.get(outputFilename)));
+            receiver.setDecodeWorkers(3);
+            boolean pipePassed = transfer(sender, receiver, pipe[0], pipe[1], filename, outputFilename);
+            System.out.println("Tube, 3 décodeurs : " + (pipePassed ? "OK" : "KO"));
+
+            // Lien avec erreurs binaires : les trames corrompues déclenchent toujours le rejet
+            LinkSimulator link = new LinkSimulator(new LinkSimulator.Impairments().bitErrorRate(2e-6),
+                    new LinkSimulator.Impairments(), 11);
+            sender = new Sender();
+            sender.getProposal().applyOptions("window=7;modulus=16;payload=4096;timeout=300");
+            receiver = new Receiver(new FileChannelSink(Paths.get(outputFilename)));
+            receiver.setDecodeWorkers(2);
+            boolean lossyPassed = transfer(sender, receiver, link.getSenderTransport(),
+                    link.getReceiverTransport(), filename, outputFilename);
+            System.out.println("Lien avec erreurs, 2 décodeurs : " + (lossyPassed ? "OK" : "KO")
+                    + " (" + receiver.getMetrics().getCrcFailures() + " trames corrompues)");
+
+            boolean isPassed = pipePassed && lossyPassed;
+            System.out.println("Test Receive Pipeline " + (isPassed ? "PASSED" : "FAILED"));
+        } catch (Exception e) {
+            System.out.println("Test Receive Pipeline FAILED with exception:");
+            e.printStackTrace();
+        } finally {
+            new File(filename).delete();
+            new File(outputFilename).delete();
+        }
+    }
+
+    private static void testBufferPool() {
+        System.out.println("\n=== Test Buffer Pool ===");
+
+        try {
+            // Tailles arrondies à la classe supérieure, tampon rendu puis réutilisé par le même thread
+            BufferPool pool = new BufferPool(false);
+            ByteBuffer first = pool.acquire(100);
+            boolean classPassed = first.capacity() == 128 && first.limit() == 100 && first.position() == 0;
+            pool.release(first);
+            ByteBuffer second = pool.acquire(120);
+            classPassed &= second == first && second.limit() == 120 && pool.getThreadCacheHits() == 1;
+            pool.release(second);
+            ByteBuffer large = pool.acquire(BufferPool.MAX_SIZE + 1);
+            classPassed &= large.capacity() == BufferPool.MAX_SIZE + 1;
+            pool.release(large);
+            System.out.println("Classes de taille : " + (classPassed ? "OK" : "KO"));
+
+            // Tampons remplis par un thread et rendus par un autre, comme dans la file du puits
+            int count = BufferPool.THREAD_CACHE_SIZE * 2;
+            List<ByteBuffer> filled = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                filled.add(pool.acquire(1000));
+            }
+            Thread other = new Thread(() -> filled.forEach(pool::release));
+            other.start();
+            other.join();
+            for (int i = 0; i < count; i++) {
+                pool.acquire(1000);
+            }
+            boolean sharedPassed = pool.getSharedHits() == BufferPool.THREAD_CACHE_SIZE
+                    && pool.getOutstanding() == count;
+            System.out.println("Listes partagées : " + (sharedPassed ? "OK" : "KO") + " " + pool);
+
+            // Détection de fuites : un tampon non rendu est signalé, un tampon rendu deux fois est refusé
+            BufferPool tracked = new BufferPool(true);
+            tracked.setLeakDetection(true);
+            ByteBuffer leaked = tracked.acquire(10);
+            boolean leakPassed = leaked.isDirect() && tracked.reportLeaks() == 1;
+            tracked.release(leaked);
+            leakPassed &= tracked.reportLeaks() == 0;
+            try {
+                tracked.release(leaked);
+                leakPassed = false;
+            } catch (IllegalStateException e) {
+                // Attendu
+            }
+            System.out.println("Détection de fuites : " + (leakPassed ? "OK" : "KO"));
+
+            boolean isPassed = classPassed && sharedPassed && leakPassed;
+            System.out.println("Test Buffer Pool " + (isPassed ? "PASSED" : "FAILED"));
+        } catch (Exception e) {
+            System.out.println("Test Buffer Pool FAILED with exception:");
+            e.printStackTrace();
+        }
+    }
+
+    private static void testPublisherSink() {
+        System.out.println("\n=== Test Publisher Sink ===");
+
+        final String filename = "test_publisher.txt";
+
+        try {
+            // File de 4 trames : le crédit suit la demande de l'abonné
+            PublisherSink sink = new PublisherSink(4);
+            CountDownLatch creditRestored = new CountDownLatch(1);
+            sink.setCreditListener(creditRestored::countDown);
+            for (int i = 0; i < 4; i++) {
+                sink.deliver(ByteBuffer.wrap(("Trame " + i).getBytes(StandardCharsets.UTF_8)));
+            }
+            boolean creditPassed = sink.credit() == 0;
+
+            List<String> received = Collections.synchronizedList(new ArrayList<>());
+            Flow.Subscription[] subscription = new Flow.Subscription[1];
+            CountDownLatch subscribed = new CountDownLatch(1);
+            CountDownLatch completed = new CountDownLatch(1);
+            sink.subscribe(new Flow.Subscriber<ByteBuffer>() {
+                @Override
+                public void onSubscribe(Flow.Subscription s) {
+                    subscription[0] = s;
+                    subscribed.countDown();
+                }
+
+                @Override
+                public void onNext(ByteBuffer item) {
+                    received.add(StandardCharsets.UTF_8.decode(item).toString());
+                }
+
+                @Override
+                public void onError(Throwable throwable) {}
+
+                @Override
+                public void onComplete() {
+                    completed.countDown();
+                }
+            });
+            subscribed.await();
+            Thread.sleep(50);
+            creditPassed &= received.isEmpty() && sink.credit() == 0; // Rien sans demande
+            subscription[0].request(2);
+            creditPassed &= creditRestored.await(2, TimeUnit.SECONDS) && sink.credit() == 2;
+            subscription[0].request(Long.MAX_VALUE);
+            sink.complete();
+            boolean orderPassed = completed.await(2, TimeUnit.SECONDS)
+                    && received.equals(Arrays.asList("Trame 0", "Trame 1", "Trame 2", "Trame 3"));
+            System.out.println("Crédit et demande : " + (creditPassed ? "OK" : "KO"));
+
+            // Un second abonné est refusé
+            Throwable[] refused = new Throwable[1];
+            sink.subscribe(new Flow.Subscriber<ByteBuffer>() {
+                @Override
+                public void onSubscribe(Flow.Subscription s) {}
+
+                @Override
+                public void onNext(ByteBuffer item) {}
+
+                @Override
+                public void onError(Throwable throwable) {
+                    refused[0] = throwable;
+                }
+
+                @Override
+                public void onComplete() {}
+            });
+            boolean singlePassed = refused[0] instanceof IllegalStateException;
+            System.out.println("Ordre et abonné unique : " + (orderPassed && singlePassed ? "OK" : "KO"));
+
+            // Sans contrôle de flux, une livraison bloquée par une file pleine est libérée par la fermeture
+            PublisherSink fullSink = new PublisherSink(1);
+            fullSink.deliver(ByteBuffer.wrap(new byte[] {1}));
+            Throwable[] blockedFailure = new Throwable[1];
+            Thread blocked = new Thread(() -> {
+                try {
+                    fullSink.deliver(ByteBuffer.wrap(new byte[] {2}));
+                } catch (IOException e) {
+                    blockedFailure[0] = e;
+                }
+            });
+            blocked.setDaemon(true);
+            blocked.start();
+            Thread.sleep(50);
+            fullSink.close();
+            blocked.join(2000);
+            boolean closePassed = !blocked.isAlive() && blockedFailure[0] != null;
+            System.out.println("Fermeture d'une file pleine : " + (closePassed ? "OK" : "KO"));
+
+            // Transfert vers un abonné lent qui demande une trame à la fois : l'émetteur est suspendu
+            // par des RNR, sans timeout ni rejet
+            try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
+                for (int i = 0; i < 80; i++) {
+                    writer.println("Ligne " + i + " publiée à un abonné lent");
+                }
+            }
+            PipeTransport[] pipe = PipeTransport.createPair();
+            Sender sender = new Sender();
+            sender.getProposal().applyOptions("window=7;modulus=16;timeout=300;flow=1");
+            Receiver receiver = new Receiver();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            CountDownLatch ended = new CountDownLatch(1);
+            receiver.publish(4).subscribe(new Flow.Subscriber<ByteBuffer>() {
+                private Flow.Subscription subscription;
+
+                @Override
+                public void onSubscribe(Flow.Subscription s) {
+                    subscription = s;
+                    s.request(1);
+                }
+
+                @Override
+                public void onNext(ByteBuffer item) {
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    output.write(item.array(), item.position(), item.remaining());
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    ended.countDown();
+                }
+
+                @Override
+                public void onComplete() {
+                    ended.countDown();
+                }
+            });
+            Thread receiverThread = new Thread(() -> {
+                receiver.acceptConnection(pipe[1]);
+                while (receiver.isRunning()) {
+                    FrameView receivedFrame = receiver.receiveFrameView();
+                    if (receivedFrame != null) {
+                        receiver.processFrame(receivedFrame);
+                    }
+                }
+            });
+            receiverThread.start();
+            sender.initialize(pipe[0], filename);
+            sender.readData();
+            boolean transferPassed = ended.await(30, TimeUnit.SECONDS)
+                    && Arrays.equals(Files.readAllBytes(Paths.get(filename)), output.toByteArray());
+            receiverThread.join(30000);
+            boolean throttled = receiver.getMetrics().getRnrFrames() > 0
+                    && sender.getMetrics().getTimeoutRetransmissions() == 0
+                    && sender.getMetrics().getRejRetransmissions() == 0;
+            System.out.println("Transfert : " + (transferPassed && throttled ? "OK" : "KO"));
+
+            boolean isPassed = creditPassed && orderPassed && singlePassed && closePassed && transferPassed && throttled;
+            System.out.println("Test Publisher Sink " + (isPassed ? "PASSED" : "FAILED"));
+        } catch (Exception e) {
+            System.out.println("Test Publisher Sink FAILED with exception:");
+            e.printStackTrace();
+        } finally {
+            new File(filename).delete();
+        }
+    }
+
+    /**
+     * Transfère un fichier d'un Sender à un Receiver reliés par les transports donnés
+     * et vérifie que le fichier reçu est identique.
+     */
+    private static boolean transfer(Transport senderTransport, Transport receiverTransport,
+                                    String filename, String outputFilename) throws Exception {
+        return transfer(new Sender(), senderTransport, receiverTransport, filename, outputFilename);
+    }
+
+    /**
+     * Transfère un fichier avec un Sender déjà configuré (compression, séquence de contrôle...).
+     */
+    private static boolean transfer(Sender sender, Transport senderTransport, Transport receiverTransport,
+                                    String filename, String outputFilename) throws Exception {
+        return transfer(sender, new Receiver(new FileChannelSink(Paths.get(outputFilename))),
+                senderTransport, receiverTransport, filename, outputFilename);
+    }
+
+    /**
+     * Transfère un fichier entre un Sender et un Receiver déjà configurés ; le Receiver écrit dans outputFilename.
+     */
+    private static boolean transfer(Sender sender, Receiver receiver, Transport senderTransport,
+                                    Transport receiverTransport, String filename, String outputFilename) throws Exception {
+        Thread receiverThread = new Thread(() -> {
+            receiver.acceptConnection(receiverTransport);
+            while (receiver.isRunning()) {
+                FrameView receivedFrame = receiver.receiveFrameView();
+                if (receivedFrame != null) {
+                    receiver.processFrame(receivedFrame);
+                }
+            }
+        });
+        receiverThread.start();
+
+        sender.initialize(senderTransport, filename);
+        sender.readData();
+        receiverThread.join(30000);
+
+        return Arrays.equals(Files.readAllBytes(Paths.get(filename)), Files.readAllBytes(Paths.get(outputFilename)));
+    }
+
     private static void testErrorFrames() {
         System.out.println("\n=== Test Error Frames ===");
 